@@ -24,6 +24,7 @@ import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.BDDMockito.given;
@@ -32,11 +33,14 @@ import static org.mockito.Mockito.mock;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.vividsolutions.jts.geom.Coordinate;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.Polygon;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -61,6 +65,8 @@ import org.openlmis.referencedata.testbuilder.FacilityTypeDataBuilder;
 import org.openlmis.referencedata.testbuilder.GeographicLevelDataBuilder;
 import org.openlmis.referencedata.testbuilder.GeographicZoneDataBuilder;
 import org.openlmis.referencedata.testbuilder.ProgramDataBuilder;
+import org.openlmis.referencedata.util.KeysetPage;
+import org.openlmis.referencedata.util.KeysetPageable;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
@@ -216,6 +222,32 @@ public class FacilityRepositoryIntegrationTest extends BaseCrudRepositoryIntegra
   }
 
 
+  @Test
+  public void shouldPageThroughFacilitiesWithCursorSortedByName() {
+    Facility facility2 = generateInstance();
+    facility2.setName(facility.getName());
+    repository.save(facility2);
+
+    FacilityRepositoryCustom.SearchParams searchParams =
+        new TestSearchParams(null, FACILITY_SEARCH_KEY, null, Sets.newHashSet());
+
+    KeysetPage<Facility> first = (KeysetPage<Facility>) repository.search(searchParams, null,
+        null, KeysetPageable.of(PageRequest.of(0, 2), null, false,
+            FacilityRepository.KEYSET_ORDER));
+    KeysetPage<Facility> second = (KeysetPage<Facility>) repository.search(searchParams, null,
+        null, first.nextPageable());
+
+    assertEquals(3, first.getTotalElements());
+    assertEquals(2, first.getNumberOfElements());
+    assertEquals(1, second.getNumberOfElements());
+    assertNull(second.getNextCursor());
+
+    List<Facility> all = Lists.newArrayList(first.getContent());
+    all.addAll(second.getContent());
+    assertEquals(Sets.newHashSet(facility.getId(), facility1.getId(), facility2.getId()),
+        all.stream().map(Facility::getId).collect(Collectors.toSet()));
+  }
+
   @Test
   public void shouldFindFacilitiesByFacilityType() {
     // given
@@ -331,6 +363,70 @@ public class FacilityRepositoryIntegrationTest extends BaseCrudRepositoryIntegra
     assertThat(foundFacilties, hasItem(facility));
   }
 
+  @Test
+  public void shouldPageAndCountFacilitiesUsingExtraData() throws JsonProcessingException {
+    // given
+    Map<String, Object> extraDataRural = new ExtraDataBuilder().add("type", "rural").build();
+    Facility facility2 = generateInstance();
+
+    for (Facility rural : Lists.newArrayList(facility, facility1, facility2)) {
+      rural.setExtraData(extraDataRural);
+      repository.save(rural);
+    }
+
+    FacilityRepositoryCustom.SearchParams searchParams =
+        new TestSearchParams(null, null, null, Sets.newHashSet());
+    String extraDataJson = mapper.writeValueAsString(extraDataRural);
+
+    // when
+    Page<Facility> page = repository.search(searchParams, null, extraDataJson,
+        PageRequest.of(1, 2, Sort.Direction.ASC, "name"));
+
+    // then
+    List<Facility> sorted = Lists.newArrayList(facility, facility1, facility2);
+    sorted.sort(Comparator.comparing(Facility::getName));
+
+    assertEquals(3, page.getTotalElements());
+    assertThat(page.getContent(), hasSize(1));
+    assertEquals(sorted.get(2).getId(), page.getContent().get(0).getId());
+  }
+
+  @Test
+  public void shouldSortFacilitiesById() {
+    // given
+    FacilityRepositoryCustom.SearchParams searchParams =
+        new TestSearchParams(null, null, null, Sets.newHashSet());
+
+    // when
+    Page<Facility> page = repository.search(searchParams, null, null,
+        PageRequest.of(0, Integer.MAX_VALUE, Sort.Direction.DESC, "id"));
+
+    // then
+    assertSortedByIdDescending(page.getContent(), facility, facility1);
+  }
+
+  @Test
+  public void shouldSortFacilitiesByIdUsingExtraData() throws JsonProcessingException {
+    // given
+    Map<String, Object> extraDataRural = new ExtraDataBuilder().add("type", "rural").build();
+
+    for (Facility rural : Lists.newArrayList(facility, facility1)) {
+      rural.setExtraData(extraDataRural);
+      repository.save(rural);
+    }
+
+    FacilityRepositoryCustom.SearchParams searchParams =
+        new TestSearchParams(null, null, null, Sets.newHashSet());
+    String extraDataJson = mapper.writeValueAsString(extraDataRural);
+
+    // when
+    Page<Facility> page = repository.search(searchParams, null, extraDataJson,
+        PageRequest.of(0, Integer.MAX_VALUE, Sort.Direction.DESC, "id"));
+
+    // then
+    assertSortedByIdDescending(page.getContent(), facility, facility1);
+  }
+
   @Test
   public void shouldFindFacilitiesByAllParams() throws JsonProcessingException {
     // given
@@ -464,6 +560,20 @@ public class FacilityRepositoryIntegrationTest extends BaseCrudRepositoryIntegra
         .buildAsNew();
   }
 
+  private void assertSortedByIdDescending(List<Facility> found, Facility... expected) {
+    // the canonical form of UUIDs sorts in the same way as the database does
+    List<String> expectedIds = Arrays.stream(expected)
+        .map(item -> item.getId().toString())
+        .sorted(Comparator.reverseOrder())
+        .collect(Collectors.toList());
+    List<String> foundIds = found.stream()
+        .map(item -> item.getId().toString())
+        .filter(expectedIds::contains)
+        .collect(Collectors.toList());
+
+    assertEquals(expectedIds, foundIds);
+  }
+
   private FacilityDataBuilder getFacilityDataBuilder() {
     return new FacilityDataBuilder()
         .withGeographicZone(geographicZone)
@@ -17,6 +17,7 @@ package org.openlmis.referencedata.repository;
 
 import static java.util.Collections.emptyList;
 import static org.apache.commons.lang.BooleanUtils.isFalse;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.hasItems;
 import static org.hamcrest.Matchers.hasProperty;
 import static org.hamcrest.Matchers.hasSize;
@@ -27,6 +28,7 @@ import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
@@ -80,6 +82,7 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.orm.jpa.JpaSystemException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
@@ -277,8 +280,10 @@ public class FacilityTypeApprovedProductRepositoryIntegrationTest {
         .searchProducts(facility.getId(), program.getId(), null, orderableIds, null, pageable);
 
     assertThat(page.getContent(), hasSize(2));
-    assertEquals(page.getContent().get(0).getOrderableId(), orderableFullSupply.getId());
-    assertEquals(page.getContent().get(1).getOrderableId(), orderableNonFullSupply.getId());
+    assertThat(page.getContent().stream()
+            .map(FacilityTypeApprovedProduct::getOrderableId)
+            .collect(Collectors.toList()),
+        containsInAnyOrder(orderableFullSupply.getId(), orderableNonFullSupply.getId()));
   }
 
   @Test
@@ -295,6 +300,45 @@ public class FacilityTypeApprovedProductRepositoryIntegrationTest {
         .searchProducts(facility.getId(), program.getId(), null, orderableIds, null, pageable);
 
     assertThat(page.getContent(), hasSize(1));
+    assertEquals(2, page.getTotalElements());
+
+    page = ftapRepository.searchProducts(facility.getId(), program.getId(), null, orderableIds,
+        null, PageRequest.of(1, 1));
+
+    assertThat(page.getContent(), hasSize(1));
+    assertEquals(2, page.getTotalElements());
+  }
+
+  @Test
+  public void shouldReturnTotalWhenPageIsOutOfRange() {
+    saveAndGetProduct(facilityType1, true);
+    saveAndGetProduct(facilityType1, false);
+
+    Page<FacilityTypeApprovedProduct> page = ftapRepository.searchProducts(facility.getId(),
+        program.getId(), null, emptyList(), null, PageRequest.of(5, 1));
+
+    assertThat(page.getContent(), hasSize(0));
+    assertEquals(2, page.getTotalElements());
+  }
+
+  @Test
+  public void shouldSearchProductsAfterLastId() {
+    saveAndGetProduct(facilityType1, true);
+    saveAndGetProduct(facilityType1, false);
+
+    Slice<FacilityTypeApprovedProduct> first = ftapRepository.searchProductsAfter(
+        facility.getId(), program.getId(), null, emptyList(), null, null, 1);
+
+    assertThat(first.getContent(), hasSize(1));
+    assertTrue(first.hasNext());
+
+    Slice<FacilityTypeApprovedProduct> second = ftapRepository.searchProductsAfter(
+        facility.getId(), program.getId(), null, emptyList(), null,
+        first.getContent().get(0).getId(), 1);
+
+    assertThat(second.getContent(), hasSize(1));
+    assertFalse(second.hasNext());
+    assertNotEquals(first.getContent().get(0).getId(), second.getContent().get(0).getId());
   }
 
   @Test
@@ -593,6 +637,16 @@ public class FacilityTypeApprovedProductRepositoryIntegrationTest {
             hasProperty("code", isOneOf(FACILITY_TYPE_CODE, FACILITY_TYPE2_CODE)))));
   }
 
+  @Test
+  public void shouldFindFacilityTypeIdOfChangedFacility() {
+    assertEquals(facilityType1.getId(), ftapRepository.findFacilityTypeId(facility.getId()));
+
+    facility.setType(facilityType2);
+    facilityRepository.saveAndFlush(facility);
+
+    assertEquals(facilityType2.getId(), ftapRepository.findFacilityTypeId(facility.getId()));
+  }
+
   @Test
   public void shouldFindResourcesByIdVersionNumberPairs() {
     FacilityTypeApprovedProduct ftap1 = saveAndGetProduct(facilityType1, true);
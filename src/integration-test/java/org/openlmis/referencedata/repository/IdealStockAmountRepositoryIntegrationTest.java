@@ -23,6 +23,10 @@ import static org.junit.Assert.assertTrue;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceException;
 import org.assertj.core.util.Lists;
 import org.junit.Before;
 import org.junit.Test;
@@ -74,6 +78,9 @@ public class IdealStockAmountRepositoryIntegrationTest extends
   @Autowired
   private GeographicZoneRepository geographicZoneRepository;
 
+  @Autowired
+  private EntityManager entityManager;
+
   private Facility facility;
   private ProcessingPeriod period;
   private ProcessingPeriod period2;
@@ -157,12 +164,74 @@ public class IdealStockAmountRepositoryIntegrationTest extends
   }
 
   @Test
-  public void shouldGetPageOfIdealStockAmounts() {
+  public void shouldInsertNewAndUpdateExistingIdealStockAmounts() {
+    IdealStockAmount existing = isaRepository.save(generateInstance());
+    IdealStockAmount updated = generateInstance();
+    updated.setAmount(existing.getAmount() + 1);
+    IdealStockAmount inserted = generateInstance();
+    inserted.setProcessingPeriod(period2);
+    entityManager.flush();
+
+    isaRepository.upsert(Lists.newArrayList(updated, inserted));
+    entityManager.clear();
+
+    assertEquals(2, isaRepository.count());
+    assertEquals(updated.getAmount(),
+        isaRepository.findById(existing.getId()).get().getAmount());
+    Page<IdealStockAmount> page = isaRepository
+        .search(facilityId, commodityTypeId, period2.getId(), PageRequest.of(0, 10));
+    assertThat(page.getContent(), hasSize(1));
+    assertEquals(inserted.getAmount(), page.getContent().get(0).getAmount());
+  }
+
+  @Test(expected = PersistenceException.class)
+  public void shouldNotAllowTwoIdealStockAmountsForSameFacilityCommodityTypeAndPeriod() {
+    isaRepository.save(generateInstance());
     isaRepository.save(generateInstance());
+    entityManager.flush();
+  }
+
+  @Test
+  public void shouldStreamMatchingIdealStockAmountsWithCodes() {
+    IdealStockAmount isa = isaRepository.save(generateInstance());
+    IdealStockAmount other = generateInstance();
+    other.setProcessingPeriod(period2);
+    isaRepository.save(other);
+    entityManager.flush();
+
+    List<IdealStockAmount> result;
+    try (Stream<IdealStockAmount> stream = isaRepository
+        .stream(facilityId, commodityTypeId, processingPeriodId)) {
+      result = stream.collect(Collectors.toList());
+    }
+
+    assertThat(result, hasSize(1));
+    IdealStockAmount streamed = result.get(0);
+    assertEquals(isa.getId(), streamed.getId());
+    assertEquals(isa.getAmount(), streamed.getAmount());
+    assertEquals(facility.getCode(), streamed.getFacility().getCode());
+    assertEquals(commodityType.getClassificationSystem(),
+        streamed.getCommodityType().getClassificationSystem());
+    assertEquals(commodityType.getClassificationId(),
+        streamed.getCommodityType().getClassificationId());
+    assertEquals(period.getName(), streamed.getProcessingPeriod().getName());
+    assertEquals(period.getProcessingSchedule().getCode(),
+        streamed.getProcessingPeriod().getProcessingSchedule().getCode());
+
+    try (Stream<IdealStockAmount> stream = isaRepository.stream(null, null, null)) {
+      assertEquals(2, stream.count());
+    }
+  }
+
+  @Test
+  public void shouldGetPageOfIdealStockAmounts() {
+    IdealStockAmount other = generateInstance();
+    other.setProcessingPeriod(period2);
+    isaRepository.save(other);
     IdealStockAmount isa = isaRepository.save(generateInstance());
 
     Page<IdealStockAmount> page = isaRepository
-        .search(facilityId, commodityTypeId, processingPeriodId, PageRequest.of(1, 1));
+        .search(facilityId, commodityTypeId, null, PageRequest.of(1, 1));
 
     checkPageProperties(page);
     checkIsaProperties(isa, page);
@@ -211,8 +280,13 @@ public class IdealStockAmountRepositoryIntegrationTest extends
   @Test
   public void shouldGetAllIdealStockAmountsIfNoParamsProvided() {
     isaRepository.save(generateInstance());
-    isaRepository.save(generateInstance());
-    isaRepository.save(generateInstance());
+    IdealStockAmount otherPeriod = generateInstance();
+    otherPeriod.setProcessingPeriod(period2);
+    isaRepository.save(otherPeriod);
+    IdealStockAmount otherCommodityType = generateInstance();
+    otherCommodityType.setCommodityType(
+        commodityTypeRepository.save(new CommodityTypeDataBuilder().buildAsNew()));
+    isaRepository.save(otherCommodityType);
 
     Page<IdealStockAmount> page = isaRepository
         .search(null, null, null, PageRequest.of(0, 10));
@@ -56,7 +56,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.openlmis.referencedata.domain.Code;
 import org.openlmis.referencedata.domain.Dispensable;
+import org.openlmis.referencedata.domain.LatestOrderableVersion;
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.OrderableHighWaterMark;
 import org.openlmis.referencedata.domain.OrderableDisplayCategory;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.ProgramOrderable;
@@ -100,6 +102,9 @@ public class OrderableRepositoryIntegrationTest {
   @Autowired
   private OrderableDisplayCategoryRepository orderableDisplayCategoryRepository;
 
+  @Autowired
+  private OrderableHighWaterMarkRepository highWaterMarkRepository;
+
   @Autowired
   private EntityManager entityManager;
 
@@ -461,6 +466,77 @@ public class OrderableRepositoryIntegrationTest {
     checkSingleResultOrderableVersion(actual.getContent(), orderable.getVersionNumber());
   }
 
+  @Test
+  public void shouldMaintainLatestVersionOnSaveAndDelete() {
+    // given
+    Orderable orderable = saveAndGetOrderable();
+    repository.flush();
+
+    // when
+    LatestOrderableVersion afterSave = entityManager
+        .find(LatestOrderableVersion.class, orderable.getId());
+    repository.delete(orderable);
+    repository.flush();
+    entityManager.clear();
+    LatestOrderableVersion afterDelete = entityManager
+        .find(LatestOrderableVersion.class, orderable.getId());
+
+    // then
+    assertEquals(orderable.getVersionNumber(), afterSave.getVersionNumber());
+    assertEquals(orderable.getVersionNumber() - 1, afterDelete.getVersionNumber().longValue());
+  }
+
+  @Test
+  public void shouldRaiseHighWaterMarkOnSaveAndDelete() {
+    // given
+    long before = highWaterMarkRepository.findById(OrderableHighWaterMark.ALL_PROGRAMS)
+        .map(OrderableHighWaterMark::getVersion)
+        .orElse(0L);
+
+    // when
+    Orderable orderable = saveAndGetOrderable();
+    repository.flush();
+    entityManager.clear();
+    OrderableHighWaterMark afterSave = highWaterMarkRepository
+        .findById(OrderableHighWaterMark.ALL_PROGRAMS)
+        .orElseThrow(IllegalStateException::new);
+
+    repository.delete(entityManager.merge(orderable));
+    repository.flush();
+    entityManager.clear();
+    OrderableHighWaterMark afterDelete = highWaterMarkRepository
+        .findById(OrderableHighWaterMark.ALL_PROGRAMS)
+        .orElseThrow(IllegalStateException::new);
+
+    // then
+    assertTrue(afterSave.getVersion() > before);
+    assertTrue(afterDelete.getVersion() > afterSave.getVersion());
+  }
+
+  @Test
+  public void shouldRaiseHighWaterMarkOfAllProgramsOncePerStatement() {
+    // given
+    saveAndGetOrderable();
+    saveAndGetOrderable();
+    repository.flush();
+    entityManager.clear();
+    long before = highWaterMarkRepository.findById(OrderableHighWaterMark.ALL_PROGRAMS)
+        .map(OrderableHighWaterMark::getVersion)
+        .orElseThrow(IllegalStateException::new);
+
+    // when
+    entityManager
+        .createNativeQuery("UPDATE referencedata.orderables SET fullProductName = 'changed'")
+        .executeUpdate();
+    entityManager.clear();
+
+    // then
+    OrderableHighWaterMark after = highWaterMarkRepository
+        .findById(OrderableHighWaterMark.ALL_PROGRAMS)
+        .orElseThrow(IllegalStateException::new);
+    assertEquals(before + 1, after.getVersion().longValue());
+  }
+
   @Test
   public void findAllLatestByIdsShouldReturnEmptyPageEmptyContentWithNothingInTheRepository() {
     // given and when
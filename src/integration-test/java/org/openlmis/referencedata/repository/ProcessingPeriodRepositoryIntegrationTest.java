@@ -204,6 +204,28 @@ public class ProcessingPeriodRepositoryIntegrationTest
     assertThat(content, contains(period3, period2, period1));
   }
 
+  @Test
+  public void shouldReturnPageWithTotalOfAllMatchingPeriods() {
+    pageable = PageRequest.of(1, 2, Direction.ASC, "startDate");
+
+    Page<ProcessingPeriod> page = periodRepository.search(schedule.getId(), null, null, null,
+        null, null, pageable);
+
+    assertThat(page.getContent(), contains(period3));
+    assertEquals(3, page.getTotalElements());
+  }
+
+  @Test
+  public void shouldReturnTotalForPagePastTheLastOne() {
+    pageable = PageRequest.of(5, 2);
+
+    Page<ProcessingPeriod> page = periodRepository.search(schedule.getId(), null, null, null,
+        null, null, pageable);
+
+    assertThat(page.getContent(), hasSize(0));
+    assertEquals(3, page.getTotalElements());
+  }
+
   @Test
   public void shouldFindPeriodsByScheduleList() {
     ProcessingSchedule schedule2 = new ProcessingScheduleDataBuilder().buildWithoutId();
@@ -16,6 +16,7 @@
 package org.openlmis.referencedata.repository;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -27,6 +28,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 import org.javers.common.collections.Sets;
 import org.junit.Before;
 import org.junit.Test;
@@ -40,6 +44,7 @@ import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.RequisitionGroup;
 import org.openlmis.referencedata.domain.RequisitionGroupProgramSchedule;
 import org.openlmis.referencedata.domain.SupervisoryNode;
+import org.openlmis.referencedata.dto.RequisitionGroupSummaryDto;
 import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
 import org.openlmis.referencedata.testbuilder.FacilityTypeDataBuilder;
 import org.openlmis.referencedata.testbuilder.GeographicLevelDataBuilder;
@@ -51,6 +56,7 @@ import org.openlmis.referencedata.testbuilder.RequisitionGroupProgramScheduleDat
 import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 /**
@@ -88,6 +94,7 @@ public class RequisitionGroupRepositoryIntegrationTest
 
   private SupervisoryNode supervisoryNode;
   private Facility facility;
+  private GeographicZone geographicZone;
   private Program program;
 
   RequisitionGroupRepository getRepository() {
@@ -114,7 +121,7 @@ public class RequisitionGroupRepositoryIntegrationTest
         .buildAsNew();
     geographicLevelRepository.save(geographicLevel);
 
-    GeographicZone geographicZone = new GeographicZoneDataBuilder()
+    geographicZone = new GeographicZoneDataBuilder()
         .withLevel(geographicLevel)
         .buildAsNew();
     geographicZoneRepository.save(geographicZone);
@@ -220,6 +227,39 @@ public class RequisitionGroupRepositoryIntegrationTest
     assertEquals(0, actual.getMemberFacilities().size());
   }
 
+  @Test
+  public void shouldFindSummariesSortedByNameWithMemberCounts() {
+    RequisitionGroup withMember = generateInstance("RG-B", "B group");
+    withMember.setMemberFacilities(Sets.asSet(facility));
+    repository.save(withMember);
+    RequisitionGroup withoutMembers = repository.save(generateInstance("RG-A", "A group"));
+
+    Page<RequisitionGroupSummaryDto> page = repository.findAllSummaries(PageRequest.of(0, 10));
+
+    assertEquals(2, page.getTotalElements());
+    RequisitionGroupSummaryDto first = page.getContent().get(0);
+    assertEquals(withoutMembers.getId(), first.getId());
+    assertEquals(Long.valueOf(0), first.getMemberCount());
+    assertEquals(supervisoryNode.getId(), first.getSupervisoryNode().getId());
+    RequisitionGroupSummaryDto second = page.getContent().get(1);
+    assertEquals(withMember.getId(), second.getId());
+    assertEquals(Long.valueOf(1), second.getMemberCount());
+  }
+
+  @Test
+  public void shouldFindMemberFacilitiesOfGivenGroups() {
+    RequisitionGroup group = generateInstance();
+    group.setMemberFacilities(Sets.asSet(facility));
+    repository.save(group);
+    RequisitionGroup other = repository.save(generateInstance());
+
+    Map<UUID, Set<Facility>> members = repository
+        .findMemberFacilities(Arrays.asList(group.getId(), other.getId()));
+
+    assertEquals(Collections.singleton(facility), members.get(group.getId()));
+    assertFalse(members.containsKey(other.getId()));
+  }
+
   @Test
   public void shouldFindGroupsWithSimilarCode() {
     RequisitionGroup requisitionGroup = generateInstance();
@@ -369,39 +409,38 @@ public class RequisitionGroupRepositoryIntegrationTest
   }
 
   @Test
-  public void shouldFindRequisitionGroupsBySupervisoryNodes() {
+  public void shouldFindRequisitionGroupsByZoneHierarchyOfSupervisoryNodeFacilities() {
     RequisitionGroup requisitionGroup = generateInstance();
     repository.save(requisitionGroup);
 
+    GeographicZone otherZone = new GeographicZoneDataBuilder()
+        .withLevel(geographicZone.getLevel())
+        .withParent(geographicZone)
+        .buildAsNew();
+    geographicZoneRepository.save(otherZone);
+    Facility otherFacility = new FacilityDataBuilder()
+        .withType(facility.getType())
+        .withGeographicZone(otherZone)
+        .withoutOperator()
+        .buildAsNew();
+    facilityRepository.save(otherFacility);
+
     SupervisoryNode supervisoryNode1 = new SupervisoryNodeDataBuilder()
         .withoutId()
-        .withFacility(facility)
+        .withFacility(otherFacility)
         .build();
     supervisoryNodeRepository.save(supervisoryNode1);
     RequisitionGroup requisitionGroup1 = generateInstance();
     requisitionGroup1.setSupervisoryNode(supervisoryNode1);
     repository.save(requisitionGroup1);
 
-    SupervisoryNode supervisoryNode2 = new SupervisoryNodeDataBuilder()
-        .withoutId()
-        .withFacility(facility)
-        .build();
-    supervisoryNodeRepository.save(supervisoryNode2);
-    RequisitionGroup requisitionGroup2 = generateInstance();
-    requisitionGroup2.setSupervisoryNode(supervisoryNode2);
-    repository.save(requisitionGroup2);
-
     Pageable pageable = mockPageable(0, 10);
 
-    List<SupervisoryNode> nodes = new ArrayList<>();
-    nodes.add(supervisoryNode);
-    nodes.add(supervisoryNode1);
-
-    searchGroupAndCheckResults(null, null, null, nodes,
+    searchGroupAndCheckResults(null, null, null, geographicZone.getId(),
         pageable, 2, requisitionGroup);
 
-    searchGroupAndCheckResults(null, null, null, Arrays.asList(supervisoryNode),
-        pageable, 1, requisitionGroup);
+    searchGroupAndCheckResults(null, null, null, otherZone.getId(),
+        pageable, 1, requisitionGroup1);
   }
 
   @Test
@@ -443,28 +482,26 @@ public class RequisitionGroupRepositoryIntegrationTest
     Page<RequisitionGroup> foundPage = repository.search(null, null, null,
         null, pageable);
     assertEquals(0, foundPage.getContent().size());
-
-    foundPage = repository.search(null, null, null,
-        Collections.emptyList(), pageable);
-    assertEquals(0, foundPage.getContent().size());
   }
 
   @Test
-  public void shouldReturnEmptyListIfSupervisoryNodesListIsEmpty() {
+  public void shouldReturnEmptyListIfZoneHasNoSupervisoryNodeFacilities() {
+    repository.save(generateInstance());
     Pageable pageable = mockPageable(0, 10);
 
     Page<RequisitionGroup> foundPage = repository.search(null, null, null,
-        Collections.emptyList(), pageable);
+        UUID.randomUUID(), pageable);
 
     assertEquals(0, foundPage.getContent().size());
+    assertEquals(0, foundPage.getTotalElements());
   }
 
   private void searchGroupAndCheckResults(String code, String name, Program program,
-                                          List<SupervisoryNode> supervisoryNodes,
+                                          UUID zoneId,
                                           Pageable pageable, int expectedSize,
                                           RequisitionGroup requisitionGroup) {
     Page<RequisitionGroup> foundPage = repository.search(code, name, program,
-        supervisoryNodes, pageable);
+        zoneId, pageable);
 
     assertEquals(expectedSize, foundPage.getContent().size());
 
@@ -435,6 +435,38 @@ public class SupervisoryNodeRepositoryIntegrationTest extends
     assertEquals(supervisoryNode, result.getContent().get(0));
   }
 
+  @Test
+  public void shouldFindFacilitiesSupervisedByNodeAndItsChildNodes() {
+    SupervisoryNode parentNode = supervisoryNodeRepository.save(generateInstance());
+    SupervisoryNode childNode = generateInstance();
+    childNode.assignParentNode(parentNode);
+    childNode = supervisoryNodeRepository.save(childNode);
+
+    Facility childFacility = facilityRepository.save(new FacilityDataBuilder()
+        .withType(facilityType)
+        .withGeographicZone(geographicZone)
+        .withoutOperator()
+        .buildAsNew());
+
+    requisitionGroupRepository.save(new RequisitionGroupDataBuilder()
+        .withSupervisoryNode(parentNode)
+        .withMemberFacility(facility)
+        .buildAsNew());
+    requisitionGroupRepository.save(new RequisitionGroupDataBuilder()
+        .withSupervisoryNode(childNode)
+        .withMemberFacility(childFacility)
+        .buildAsNew());
+    supervisoryNodeRepository.flush();
+
+    assertEquals(asSet(facility.getId(), childFacility.getId()),
+        supervisoryNodeRepository.findSupervisedFacilityIds(parentNode.getId(), null));
+    assertEquals(asSet(childFacility.getId()),
+        supervisoryNodeRepository.findSupervisedFacilityIds(childNode.getId(), null));
+    assertTrue(supervisoryNodeRepository
+        .findSupervisedFacilityIds(parentNode.getId(), UUID.randomUUID())
+        .isEmpty());
+  }
+
   @Test
   public void shouldAssignChildNodes() {
     // given
@@ -37,6 +37,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceException;
 import org.junit.Before;
@@ -64,9 +65,12 @@ import org.openlmis.referencedata.testbuilder.RightDataBuilder;
 import org.openlmis.referencedata.testbuilder.RoleDataBuilder;
 import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
 import org.openlmis.referencedata.testbuilder.UserDataBuilder;
+import org.openlmis.referencedata.util.KeysetPage;
+import org.openlmis.referencedata.util.KeysetPageable;
 import org.openlmis.referencedata.util.UserSearchParamsDataBuilder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
@@ -218,6 +222,23 @@ public class UserRepositoryIntegrationTest extends BaseCrudRepositoryIntegration
     }
   }
 
+  @Test
+  public void shouldPageThroughAllUsersWithCursor() {
+    UserSearchParams searchParams = new UserSearchParamsDataBuilder().asEmpty().build();
+    List<String> usernames = new ArrayList<>();
+    String cursor = null;
+
+    do {
+      KeysetPage<User> page = (KeysetPage<User>) repository.searchUsers(searchParams, null,
+          KeysetPageable.of(PageRequest.of(0, 2), cursor, false, UserRepository.KEYSET_ORDER));
+      page.forEach(user -> usernames.add(user.getUsername()));
+      cursor = page.getNextCursor();
+    } while (null != cursor);
+
+    assertThat(usernames, hasSize(TOTAL_USERS));
+    assertEquals(usernames.stream().sorted().collect(Collectors.toList()), usernames);
+  }
+
   @Test
   public void shouldFindAllByIds() {
     // given users I want
@@ -322,7 +343,8 @@ public class UserRepositoryIntegrationTest extends BaseCrudRepositoryIntegration
 
     User supervisingUser = repository.findOneByUsernameIgnoreCase(users.get(0).getUsername());
     supervisingUser = assignRoleToUser(supervisingUser,
-        new SupervisionRoleAssignment(role, supervisingUser, program, supervisoryNode));
+        new SupervisionRoleAssignment(role, supervisingUser, program, supervisoryNode,
+            Collections.emptySet()));
 
     //when
     Set<User> supervisingUsers = repository.findUsersBySupervisionRight(right.getId(),
@@ -363,11 +385,11 @@ public class UserRepositoryIntegrationTest extends BaseCrudRepositoryIntegration
 
     User supervisingUser = repository.findOneByUsernameIgnoreCase(users.get(0).getUsername());
     assignRoleToUser(supervisingUser, new SupervisionRoleAssignment(
-        supervisionRole, supervisingUser, program, supervisoryNode));
+        supervisionRole, supervisingUser, program, supervisoryNode, Collections.emptySet()));
 
     User supervisingUser2 = repository.findOneByUsernameIgnoreCase(users.get(1).getUsername());
     assignRoleToUser(supervisingUser2, new SupervisionRoleAssignment(
-        supervisionRole, supervisingUser2, program, supervisoryNode));
+        supervisionRole, supervisingUser2, program, supervisoryNode, Collections.emptySet()));
 
     Right fulfillmentRight = saveNewRight("fulfillmentRight", ORDER_FULFILLMENT);
     Role fulfillmentRole = saveNewRole("fulfillmentRole", fulfillmentRight);
@@ -0,0 +1,228 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.annotation.Resource;
+import org.javers.core.Javers;
+import org.javers.core.commit.Commit;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.referencedata.JaVersDateProvider;
+import org.openlmis.referencedata.domain.Code;
+import org.openlmis.referencedata.domain.GeographicLevel;
+import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.service.AuditLogService.ChangePage;
+import org.openlmis.referencedata.testbuilder.GeographicLevelDataBuilder;
+import org.openlmis.referencedata.testbuilder.OrderableDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class AuditLogServiceIntegrationTest {
+
+  private static final String AUTHOR = "admin";
+  private static final String OTHER_AUTHOR = "other";
+
+  @Autowired
+  private AuditLogService auditLogService;
+
+  @Resource(name = "javersProvider")
+  private Javers javers;
+
+  @Autowired
+  private OrderableRepository orderableRepository;
+
+  private GeographicLevel level;
+  private Commit created;
+  private Commit renamed;
+  private Commit renumbered;
+
+  @Before
+  public void setUp() {
+    level = new GeographicLevelDataBuilder()
+        .withName("before")
+        .withLevelNumber(1)
+        .build();
+    created = javers.commit(AUTHOR, level);
+
+    level.setName("after");
+    renamed = javers.commit(AUTHOR, level);
+
+    level.setLevelNumber(2);
+    renumbered = javers.commit(OTHER_AUTHOR, level);
+  }
+
+  @Test
+  public void shouldFindAllCommitsOfObjectNewestFirst() throws IOException {
+    List<JsonObject> changes = getChanges(new AuditLogSearchParams(), 10);
+
+    assertEquals(Arrays.asList(getId(renumbered), getId(renamed),
+        getId(created)), getCommitIds(changes));
+  }
+
+  @Test
+  public void shouldFindCommitsWhichChangedProperty() throws IOException {
+    AuditLogSearchParams params = new AuditLogSearchParams();
+    params.setChangedPropertyName("name");
+
+    List<JsonObject> changes = getChanges(params, 10);
+
+    assertEquals(Arrays.asList(getId(renamed), getId(created)),
+        getCommitIds(changes));
+
+    for (JsonObject change : changes) {
+      if (change.has("property")) {
+        assertEquals("name", change.get("property").getAsString());
+      }
+    }
+  }
+
+  @Test
+  public void shouldNotTreatWildcardsInPropertyNameAsPattern() throws IOException {
+    AuditLogSearchParams params = new AuditLogSearchParams();
+    params.setChangedPropertyName("n_me");
+
+    assertEquals(0, getChanges(params, 10).size());
+  }
+
+  @Test
+  public void shouldFindCommitsOfAuthor() throws IOException {
+    AuditLogSearchParams params = new AuditLogSearchParams();
+    params.setAuthor(OTHER_AUTHOR);
+
+    assertEquals(Arrays.asList(getId(renumbered)),
+        getCommitIds(getChanges(params, 10)));
+  }
+
+  @Test
+  public void shouldCompareCommitDatesInUtc() throws IOException {
+    ZonedDateTime commitDate = JaVersDateProvider
+        .getZonedDateTime(renamed.getCommitDate())
+        .withZoneSameInstant(ZoneId.of("+05:00"));
+
+    AuditLogSearchParams params = new AuditLogSearchParams();
+    params.setFrom(commitDate);
+    params.setTo(commitDate);
+
+    assertThat(getCommitIds(getChanges(params, 10)), hasItem(getId(renamed)));
+  }
+
+  @Test
+  public void shouldContinueAfterCursor() throws IOException {
+    AuditLogSearchParams params = new AuditLogSearchParams();
+    List<BigDecimal> commitIds = new ArrayList<>();
+
+    ChangePage page = auditLogService.getChanges(GeographicLevel.class, level.getId(), params,
+        PageRequest.of(0, 2));
+    commitIds.addAll(getCommitIds(write(page)));
+    assertNotNull(page.getNextCursor());
+
+    params.setCursor(page.getNextCursor());
+    page = auditLogService.getChanges(GeographicLevel.class, level.getId(), params,
+        PageRequest.of(0, 2));
+    commitIds.addAll(getCommitIds(write(page)));
+    assertNull(page.getNextCursor());
+
+    assertEquals(Arrays.asList(getId(renumbered), getId(renamed),
+        getId(created)), commitIds);
+  }
+
+  @Test
+  public void shouldFindCommitsOfAllVersionsOfVersionedObject() throws IOException {
+    OrderableDataBuilder builder = new OrderableDataBuilder()
+        .withProductCode(Code.code("audited"));
+    Orderable orderable = orderableRepository.saveAndFlush(builder.build());
+    orderableRepository.saveAndFlush(builder
+        .withVersionNumber(orderable.getVersionNumber() + 1)
+        .withFullProductName("renamed")
+        .build());
+
+    List<JsonObject> changes = write(auditLogService.getChanges(Orderable.class,
+        orderable.getId(), new AuditLogSearchParams(), PageRequest.of(0, 10)));
+
+    assertEquals(2, getCommitIds(changes).size());
+  }
+
+  private List<JsonObject> getChanges(AuditLogSearchParams params, int size)
+      throws IOException {
+    return write(auditLogService.getChanges(GeographicLevel.class, level.getId(), params,
+        PageRequest.of(0, size)));
+  }
+
+  private List<JsonObject> write(ChangePage page) throws IOException {
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    auditLogService.writeJson(page, outputStream);
+
+    JsonArray array = new JsonParser()
+        .parse(outputStream.toString(StandardCharsets.UTF_8.name()))
+        .getAsJsonArray();
+    List<JsonObject> changes = new ArrayList<>();
+
+    for (JsonElement element : array) {
+      changes.add(element.getAsJsonObject());
+    }
+
+    return changes;
+  }
+
+  private BigDecimal getId(Commit commit) {
+    return commit.getId().valueAsNumber().stripTrailingZeros();
+  }
+
+  private List<BigDecimal> getCommitIds(List<JsonObject> changes) {
+    List<BigDecimal> commitIds = new ArrayList<>();
+
+    for (JsonObject change : changes) {
+      BigDecimal commitId = change.getAsJsonObject("commitMetadata").get("id")
+          .getAsBigDecimal()
+          .stripTrailingZeros();
+
+      if (!commitIds.contains(commitId)) {
+        commitIds.add(commitId);
+      }
+    }
+
+    return commitIds;
+  }
+}
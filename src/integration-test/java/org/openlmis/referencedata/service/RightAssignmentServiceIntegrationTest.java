@@ -0,0 +1,231 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.referencedata.domain.Facility;
+import org.openlmis.referencedata.domain.FacilityType;
+import org.openlmis.referencedata.domain.GeographicLevel;
+import org.openlmis.referencedata.domain.GeographicZone;
+import org.openlmis.referencedata.domain.Program;
+import org.openlmis.referencedata.domain.Right;
+import org.openlmis.referencedata.domain.RightType;
+import org.openlmis.referencedata.domain.Role;
+import org.openlmis.referencedata.domain.SupervisionRoleAssignment;
+import org.openlmis.referencedata.domain.SupervisoryNode;
+import org.openlmis.referencedata.domain.User;
+import org.openlmis.referencedata.dto.RightAssignmentDto;
+import org.openlmis.referencedata.repository.FacilityRepository;
+import org.openlmis.referencedata.repository.FacilityTypeRepository;
+import org.openlmis.referencedata.repository.GeographicLevelRepository;
+import org.openlmis.referencedata.repository.GeographicZoneRepository;
+import org.openlmis.referencedata.repository.ProgramRepository;
+import org.openlmis.referencedata.repository.RequisitionGroupRepository;
+import org.openlmis.referencedata.repository.RightRepository;
+import org.openlmis.referencedata.repository.RoleRepository;
+import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
+import org.openlmis.referencedata.repository.UserRepository;
+import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
+import org.openlmis.referencedata.testbuilder.FacilityTypeDataBuilder;
+import org.openlmis.referencedata.testbuilder.GeographicLevelDataBuilder;
+import org.openlmis.referencedata.testbuilder.GeographicZoneDataBuilder;
+import org.openlmis.referencedata.testbuilder.ProgramDataBuilder;
+import org.openlmis.referencedata.testbuilder.RequisitionGroupDataBuilder;
+import org.openlmis.referencedata.testbuilder.RightDataBuilder;
+import org.openlmis.referencedata.testbuilder.RoleDataBuilder;
+import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
+import org.openlmis.referencedata.testbuilder.UserDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class RightAssignmentServiceIntegrationTest {
+
+  @Autowired
+  private RightAssignmentService rightAssignmentService;
+
+  @Autowired
+  private GeographicLevelRepository geographicLevelRepository;
+
+  @Autowired
+  private GeographicZoneRepository geographicZoneRepository;
+
+  @Autowired
+  private FacilityTypeRepository facilityTypeRepository;
+
+  @Autowired
+  private FacilityRepository facilityRepository;
+
+  @Autowired
+  private ProgramRepository programRepository;
+
+  @Autowired
+  private SupervisoryNodeRepository supervisoryNodeRepository;
+
+  @Autowired
+  private RequisitionGroupRepository requisitionGroupRepository;
+
+  @Autowired
+  private RightRepository rightRepository;
+
+  @Autowired
+  private RoleRepository roleRepository;
+
+  @Autowired
+  private UserRepository userRepository;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private Program program;
+  private Right right;
+  private Role role;
+  private Facility memberFacility;
+  private Facility unsupportedFacility;
+  private SupervisoryNode parentNode;
+  private SupervisoryNode childNode;
+  private User nodeSupervisor;
+  private User homeFacilitySupervisor;
+  private User unsupportedHomeFacilitySupervisor;
+  private User otherUser;
+
+  @Before
+  public void setUp() {
+    GeographicLevel geographicLevel = geographicLevelRepository
+        .save(new GeographicLevelDataBuilder().buildAsNew());
+    GeographicZone geographicZone = geographicZoneRepository
+        .save(new GeographicZoneDataBuilder().withLevel(geographicLevel).buildAsNew());
+    FacilityType facilityType = facilityTypeRepository
+        .save(new FacilityTypeDataBuilder().buildAsNew());
+
+    program = programRepository.save(new ProgramDataBuilder().withoutId().build());
+
+    memberFacility = facilityRepository.save(new FacilityDataBuilder()
+        .withGeographicZone(geographicZone)
+        .withType(facilityType)
+        .withoutOperator()
+        .withSupportedProgram(program)
+        .buildAsNew());
+    unsupportedFacility = facilityRepository.save(new FacilityDataBuilder()
+        .withGeographicZone(geographicZone)
+        .withType(facilityType)
+        .withoutOperator()
+        .buildAsNew());
+
+    parentNode = supervisoryNodeRepository.save(new SupervisoryNodeDataBuilder()
+        .withoutId()
+        .withFacility(memberFacility)
+        .build());
+    childNode = new SupervisoryNodeDataBuilder()
+        .withoutId()
+        .withFacility(memberFacility)
+        .build();
+    childNode.assignParentNode(parentNode);
+    childNode = supervisoryNodeRepository.save(childNode);
+
+    requisitionGroupRepository.save(new RequisitionGroupDataBuilder()
+        .withSupervisoryNode(childNode)
+        .withMemberFacility(memberFacility)
+        .buildAsNew());
+
+    right = rightRepository.save(new RightDataBuilder()
+        .withType(RightType.SUPERVISION)
+        .buildAsNew());
+    role = roleRepository.save(new RoleDataBuilder().withRights(right).buildAsNew());
+
+    nodeSupervisor = userRepository.save(new UserDataBuilder().buildAsNew());
+    nodeSupervisor.assignRoles(new SupervisionRoleAssignment(role, nodeSupervisor, program,
+        parentNode, Collections.emptySet()));
+    nodeSupervisor = userRepository.save(nodeSupervisor);
+
+    homeFacilitySupervisor = userRepository.save(new UserDataBuilder()
+        .withHomeFacilityId(memberFacility.getId())
+        .buildAsNew());
+    homeFacilitySupervisor.assignRoles(
+        new SupervisionRoleAssignment(role, homeFacilitySupervisor, program));
+    homeFacilitySupervisor = userRepository.save(homeFacilitySupervisor);
+
+    unsupportedHomeFacilitySupervisor = userRepository.save(new UserDataBuilder()
+        .withHomeFacilityId(unsupportedFacility.getId())
+        .buildAsNew());
+    unsupportedHomeFacilitySupervisor.assignRoles(
+        new SupervisionRoleAssignment(role, unsupportedHomeFacilitySupervisor, program));
+    unsupportedHomeFacilitySupervisor = userRepository.save(unsupportedHomeFacilitySupervisor);
+
+    otherUser = userRepository.save(new UserDataBuilder().buildAsNew());
+
+    entityManager.flush();
+  }
+
+  @Test
+  public void shouldFindUsersSupervisingAncestorsOfChangedSupervisoryNode() throws IOException {
+    // when
+    Set<UUID> userIds = rightAssignmentService
+        .findAffectedUserIds(RightAssignmentScope.forSupervisoryNodes(childNode.getId()));
+
+    // then
+    assertThat(userIds, hasItem(nodeSupervisor.getId()));
+    assertThat(userIds, not(hasItem(homeFacilitySupervisor.getId())));
+    assertThat(userIds, not(hasItem(otherUser.getId())));
+  }
+
+  @Test
+  public void shouldFindHomeFacilityAndNodeSupervisorsOfChangedFacility() throws IOException {
+    // when
+    Set<UUID> userIds = rightAssignmentService
+        .findAffectedUserIds(RightAssignmentScope.forFacilities(memberFacility.getId()));
+
+    // then
+    assertThat(userIds, containsInAnyOrder(nodeSupervisor.getId(),
+        homeFacilitySupervisor.getId()));
+  }
+
+  @Test
+  public void shouldGetIntermediateRightAssignmentsOfGivenUsersOnly() throws IOException {
+    // when
+    List<RightAssignmentDto> rightAssignments = rightAssignmentService
+        .getRightAssignmentsForUsers(Arrays.asList(nodeSupervisor.getId(),
+            homeFacilitySupervisor.getId(), unsupportedHomeFacilitySupervisor.getId()));
+
+    // then
+    assertThat(rightAssignments, containsInAnyOrder(
+        new RightAssignmentDto(nodeSupervisor.getId(), right.getName(), null,
+            program.getId(), parentNode.getId()),
+        new RightAssignmentDto(homeFacilitySupervisor.getId(), right.getName(),
+            memberFacility.getId(), program.getId(), null)));
+  }
+}
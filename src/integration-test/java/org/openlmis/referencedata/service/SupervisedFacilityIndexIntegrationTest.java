@@ -0,0 +1,160 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+
+package org.openlmis.referencedata.service;
+
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.junit.Assert.assertThat;
+
+import java.util.UUID;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.openlmis.referencedata.domain.Facility;
+import org.openlmis.referencedata.domain.FacilityType;
+import org.openlmis.referencedata.domain.GeographicLevel;
+import org.openlmis.referencedata.domain.GeographicZone;
+import org.openlmis.referencedata.domain.SupervisoryNode;
+import org.openlmis.referencedata.repository.FacilityRepository;
+import org.openlmis.referencedata.repository.FacilityTypeRepository;
+import org.openlmis.referencedata.repository.GeographicLevelRepository;
+import org.openlmis.referencedata.repository.GeographicZoneRepository;
+import org.openlmis.referencedata.repository.RequisitionGroupRepository;
+import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
+import org.openlmis.referencedata.service.SupervisedFacilityIndex.Snapshot;
+import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
+import org.openlmis.referencedata.testbuilder.FacilityTypeDataBuilder;
+import org.openlmis.referencedata.testbuilder.GeographicLevelDataBuilder;
+import org.openlmis.referencedata.testbuilder.GeographicZoneDataBuilder;
+import org.openlmis.referencedata.testbuilder.RequisitionGroupDataBuilder;
+import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Transactional;
+
+@Transactional
+@ActiveProfiles("test")
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class SupervisedFacilityIndexIntegrationTest {
+
+  @Autowired
+  private SupervisedFacilityIndex supervisedFacilityIndex;
+
+  @Autowired
+  private GeographicLevelRepository geographicLevelRepository;
+
+  @Autowired
+  private GeographicZoneRepository geographicZoneRepository;
+
+  @Autowired
+  private FacilityTypeRepository facilityTypeRepository;
+
+  @Autowired
+  private FacilityRepository facilityRepository;
+
+  @Autowired
+  private SupervisoryNodeRepository supervisoryNodeRepository;
+
+  @Autowired
+  private RequisitionGroupRepository requisitionGroupRepository;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private Facility parentFacility;
+  private Facility childFacility;
+  private SupervisoryNode parentNode;
+  private SupervisoryNode childNode;
+
+  @Before
+  public void setUp() {
+    GeographicLevel geographicLevel = geographicLevelRepository
+        .save(new GeographicLevelDataBuilder().buildAsNew());
+    GeographicZone geographicZone = geographicZoneRepository
+        .save(new GeographicZoneDataBuilder().withLevel(geographicLevel).buildAsNew());
+    FacilityType facilityType = facilityTypeRepository
+        .save(new FacilityTypeDataBuilder().buildAsNew());
+
+    parentFacility = facilityRepository.save(new FacilityDataBuilder()
+        .withGeographicZone(geographicZone)
+        .withType(facilityType)
+        .withoutOperator()
+        .buildAsNew());
+    childFacility = facilityRepository.save(new FacilityDataBuilder()
+        .withGeographicZone(geographicZone)
+        .withType(facilityType)
+        .withoutOperator()
+        .buildAsNew());
+
+    parentNode = supervisoryNodeRepository.save(new SupervisoryNodeDataBuilder()
+        .withoutId()
+        .withFacility(parentFacility)
+        .build());
+    childNode = new SupervisoryNodeDataBuilder()
+        .withoutId()
+        .withFacility(childFacility)
+        .build();
+    childNode.assignParentNode(parentNode);
+    childNode = supervisoryNodeRepository.save(childNode);
+
+    requisitionGroupRepository.save(new RequisitionGroupDataBuilder()
+        .withSupervisoryNode(parentNode)
+        .withMemberFacility(parentFacility)
+        .buildAsNew());
+    requisitionGroupRepository.save(new RequisitionGroupDataBuilder()
+        .withSupervisoryNode(childNode)
+        .withMemberFacility(childFacility)
+        .buildAsNew());
+
+    entityManager.flush();
+  }
+
+  @Test
+  public void shouldIncludeFacilitiesOfChildNodes() {
+    // when
+    Snapshot snapshot = supervisedFacilityIndex.refresh();
+
+    // then
+    assertThat(snapshot.getSupervisedFacilityIds(parentNode.getId(), null),
+        containsInAnyOrder(parentFacility.getId(), childFacility.getId()));
+  }
+
+  @Test
+  public void shouldNotIncludeFacilitiesOfParentNode() {
+    // when
+    Snapshot snapshot = supervisedFacilityIndex.refresh();
+
+    // then
+    assertThat(snapshot.getSupervisedFacilityIds(childNode.getId(), null),
+        containsInAnyOrder(childFacility.getId()));
+  }
+
+  @Test
+  public void shouldReturnNoFacilitiesForProgramWithoutSchedule() {
+    // when
+    Snapshot snapshot = supervisedFacilityIndex.refresh();
+
+    // then
+    assertThat(snapshot.getSupervisedFacilityIds(parentNode.getId(), UUID.randomUUID()),
+        empty());
+  }
+}
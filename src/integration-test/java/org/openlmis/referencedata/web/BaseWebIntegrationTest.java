@@ -27,7 +27,6 @@ import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anyBoolean;
-import static org.mockito.Matchers.anyString;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doReturn;
@@ -48,6 +47,7 @@ import guru.nidi.ramltester.RamlDefinition;
 import guru.nidi.ramltester.RamlLoaders;
 import guru.nidi.ramltester.restassured.RestAssuredClient;
 import java.io.IOException;
+import java.util.Collections;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
 import org.assertj.core.api.Assertions;
@@ -88,6 +88,7 @@ import org.openlmis.referencedata.repository.SupplyLineRepository;
 import org.openlmis.referencedata.repository.SupplyPartnerRepository;
 import org.openlmis.referencedata.repository.SystemNotificationRepository;
 import org.openlmis.referencedata.repository.TradeItemRepository;
+import org.openlmis.referencedata.repository.UploadJobRepository;
 import org.openlmis.referencedata.repository.UserRepository;
 import org.openlmis.referencedata.repository.custom.impl.ProgramRedisRepository;
 import org.openlmis.referencedata.repository.custom.impl.SupervisoryNodeDtoRedisRepository;
@@ -95,12 +96,17 @@ import org.openlmis.referencedata.service.AuthenticationHelper;
 import org.openlmis.referencedata.service.FacilityService;
 import org.openlmis.referencedata.service.FacilityTypeService;
 import org.openlmis.referencedata.service.GeographicZoneService;
+import org.openlmis.referencedata.service.GeographicZoneTree;
 import org.openlmis.referencedata.service.IdealStockAmountService;
 import org.openlmis.referencedata.service.OrderableService;
 import org.openlmis.referencedata.service.RequisitionGroupProgramScheduleService;
 import org.openlmis.referencedata.service.RequisitionGroupService;
 import org.openlmis.referencedata.service.RightService;
+import org.openlmis.referencedata.service.SupervisedFacilityIndex;
 import org.openlmis.referencedata.service.SupplyPartnerBuilder;
+import org.openlmis.referencedata.service.UploadJobService;
+import org.openlmis.referencedata.service.UserPermissionCache;
+import org.openlmis.referencedata.service.UserPermissionVersionService;
 import org.openlmis.referencedata.service.UserService;
 import org.openlmis.referencedata.testbuilder.UserDataBuilder;
 import org.openlmis.referencedata.util.Message;
@@ -228,6 +234,12 @@ public abstract class BaseWebIntegrationTest {
   @MockBean
   protected SupervisoryNodeDtoRedisRepository supervisoryNodeDtoRedisRepository;
 
+  @MockBean
+  protected SupervisedFacilityIndex supervisedFacilityIndex;
+
+  @MockBean
+  protected GeographicZoneTree geographicZoneTree;
+
   @MockBean
   protected FacilityOperatorRepository facilityOperatorRepository;
 
@@ -324,6 +336,18 @@ public abstract class BaseWebIntegrationTest {
   @MockBean
   protected SystemNotificationRepository systemNotificationRepository;
 
+  @MockBean
+  protected UploadJobRepository uploadJobRepository;
+
+  @MockBean
+  protected UploadJobService uploadJobService;
+
+  @MockBean
+  protected UserPermissionVersionService userPermissionVersionService;
+
+  @Autowired
+  private UserPermissionCache userPermissionCache;
+
   /**
    * Constructor for test.
    */
@@ -374,8 +398,9 @@ public abstract class BaseWebIntegrationTest {
   public void setUp() {
     // by default user has no access to resources
     given(userRepository.existsById(ADMIN_ID)).willReturn(true);
-    given(rightAssignmentRepository.existsByUserIdAndRightName(eq(ADMIN_ID), anyString()))
-        .willReturn(false);
+    given(rightAssignmentRepository.findByUser(ADMIN_ID)).willReturn(Collections.emptySet());
+    // right assignments are mocked per test, so permissions cached by previous tests are dropped
+    userPermissionCache.invalidateAll();
 
     mockUserAuthenticated();
   }
@@ -17,14 +17,17 @@ package org.openlmis.referencedata.web;
 
 import static java.util.Arrays.asList;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -75,6 +78,7 @@ import org.openlmis.referencedata.utils.AuditLogHelper;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
@@ -368,6 +372,81 @@ public class FacilityControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldReturnNotModifiedWhenApprovedProductsHaveNotChanged() {
+    Orderable orderable = new OrderableDataBuilder().build();
+    FacilityTypeApprovedProduct approvedProduct = new FacilityTypeApprovedProductsDataBuilder()
+        .withOrderableId(orderable.getId())
+        .build();
+
+    when(orderableRepository
+        .findAllLatestByIds(eq(Collections.singleton(orderable.getId())), any(Pageable.class)))
+        .thenReturn(new PageImpl<>(Collections.singletonList(orderable), pageable, 1));
+    when(facilityTypeApprovedProductRepository.searchProducts(eq(facility.getId()),
+        eq(program.getId()), eq(true), eq(null), eq(null), eq(pageable)))
+        .thenReturn(new PageImpl<>(Collections.singletonList(approvedProduct), pageable, 1));
+
+    String eTag = restAssured.given()
+        .queryParam(PROGRAM_ID, program.getId())
+        .queryParam(FULL_SUPPLY, true)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(RESOURCE_URL + "/" + facility.getId() + APPROVED_PRODUCTS)
+        .then()
+        .statusCode(200)
+        .body("content", hasSize(1))
+        .extract().header(HttpHeaders.ETAG);
+
+    restAssured.given()
+        .queryParam(PROGRAM_ID, program.getId())
+        .queryParam(FULL_SUPPLY, true)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+        .when()
+        .get(RESOURCE_URL + "/" + facility.getId() + APPROVED_PRODUCTS)
+        .then()
+        .statusCode(304);
+
+    verify(facilityTypeApprovedProductRepository).searchProducts(eq(facility.getId()),
+        eq(program.getId()), eq(true), eq(null), eq(null), eq(pageable));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldFindApprovedProductsForFacilityAfterLastId() {
+    Orderable orderable = new OrderableDataBuilder().build();
+    FacilityTypeApprovedProduct approvedProduct = new FacilityTypeApprovedProductsDataBuilder()
+        .withOrderableId(orderable.getId())
+        .build();
+    UUID lastId = UUID.randomUUID();
+
+    when(orderableRepository
+        .findAllLatestByIds(eq(Collections.singleton(orderable.getId())), any(Pageable.class)))
+        .thenReturn(new PageImpl<>(Collections.singletonList(orderable)));
+    when(facilityTypeApprovedProductRepository.searchProductsAfter(eq(facility.getId()),
+        eq(program.getId()), eq(null), eq(null), eq(null), eq(lastId), eq(1)))
+        .thenReturn(new SliceImpl<>(Collections.singletonList(approvedProduct),
+            PageRequest.of(0, 1), true));
+
+    PageDto productDtos = restAssured.given()
+        .queryParam(PROGRAM_ID, program.getId())
+        .queryParam("lastId", lastId)
+        .queryParam(SIZE, 1)
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .when()
+        .get(RESOURCE_URL + "/" + facility.getId() + APPROVED_PRODUCTS)
+        .then()
+        .statusCode(200)
+        .extract().as(PageDto.class);
+
+    assertEquals(1, productDtos.getContent().size());
+    assertFalse(productDtos.isLast());
+    verify(facilityTypeApprovedProductRepository, never()).searchProducts(any(UUID.class),
+        nullable(UUID.class), nullable(Boolean.class), nullable(List.class),
+        nullable(Boolean.class), any(Pageable.class));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void getApprovedProductsShouldReturnUnauthorizedWithoutAuthorization() {
 
@@ -17,11 +17,14 @@ package org.openlmis.referencedata.web;
 
 import static java.util.Collections.singletonList;
 import static org.apache.commons.lang3.StringUtils.joinWith;
+import static org.hamcrest.Matchers.endsWith;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.refEq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
@@ -37,9 +40,8 @@ import java.io.IOException;
 import java.time.LocalDate;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 import org.apache.commons.lang3.StringUtils;
 import org.hamcrest.Matchers;
 import org.junit.Before;
@@ -51,14 +53,18 @@ import org.openlmis.referencedata.domain.IdealStockAmount;
 import org.openlmis.referencedata.domain.ProcessingPeriod;
 import org.openlmis.referencedata.domain.ProcessingSchedule;
 import org.openlmis.referencedata.domain.RightName;
+import org.openlmis.referencedata.domain.UploadJob;
+import org.openlmis.referencedata.dto.UploadJobDto;
 import org.openlmis.referencedata.dto.UploadResultDto;
 import org.openlmis.referencedata.service.IdealStockAmountSearchParams;
 import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
+import org.openlmis.referencedata.web.csv.recordhandler.CsvUploadResource;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.web.multipart.MultipartFile;
 
 @SuppressWarnings("PMD.TooManyMethods")
 public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegrationTest {
@@ -75,12 +81,12 @@ public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegratio
   @Before
   @Override
   public void setUp() {
-    facility = new FacilityDataBuilder().build();
+    facility = new FacilityDataBuilder().withCode("facility-code").build();
 
-    commodityType = new CommodityType("Name", "cSys", "cId", null, new ArrayList<>());
+    commodityType = new CommodityType("Name", "system", "id", null, new ArrayList<>());
 
     schedule = new ProcessingSchedule();
-    schedule.setCode(Code.code("schedule-code"));
+    schedule.setCode(Code.code("schedule"));
     schedule.setDescription("desc");
     schedule.setId(UUID.randomUUID());
     schedule.setModifiedDate(ZonedDateTime.now());
@@ -94,16 +100,12 @@ public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegratio
 
     isa = new IdealStockAmount(facility, commodityType, period, 1200);
 
-    when(idealStockAmountRepository.save(any(IdealStockAmount.class)))
-        .thenAnswer(new SaveAnswer<IdealStockAmount>());
-
-    when(facilityRepository.findByCode(any(String.class))).thenReturn(Optional.of(facility));
-    when(periodRepository.findOneByNameAndProcessingSchedule(any(String.class),
-        any(ProcessingSchedule.class)))
-        .thenReturn(Optional.of(period));
-    when(scheduleRepository.findOneByCode(any(Code.class))).thenReturn(Optional.of(schedule));
-    when(commodityTypeRepository.findByClassificationIdAndClassificationSystem(any(String.class),
-        any(String.class))).thenReturn(Optional.of(commodityType));
+    when(facilityRepository.findByCodeIn(anyCollection())).thenReturn(singletonList(facility));
+    when(periodRepository.findByProcessingScheduleInAndNameIn(anyCollection(), anyCollection()))
+        .thenReturn(singletonList(period));
+    when(scheduleRepository.findByCodeIn(anyCollection())).thenReturn(singletonList(schedule));
+    when(commodityTypeRepository.findByClassificationSystemInAndClassificationIdIn(
+        anyCollection(), anyCollection())).thenReturn(singletonList(commodityType));
 
     mockUserHasRight(RightName.SYSTEM_IDEAL_STOCK_AMOUNTS_MANAGE);
   }
@@ -134,14 +136,15 @@ public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegratio
   @Test
   public void shouldDownloadCsvWithAllPossibleFields() {
 
-    when(idealStockAmountService.search()).thenReturn(singletonList(isa));
+    when(idealStockAmountService.stream(any(IdealStockAmountSearchParams.class)))
+        .thenReturn(Stream.of(isa));
 
     String csvContent = download()
         .then()
         .statusCode(200)
         .extract().body().asString();
 
-    verify(idealStockAmountService).search();
+    verify(idealStockAmountService).stream(refEq(new IdealStockAmountSearchParams()));
     assertEquals("Facility Code,Commodity Type,Period,Ideal Stock Amount\r\n"
         + joinWith(",", facility.getCode(),
         StringUtils.joinWith("|", commodityType.getClassificationSystem(),
@@ -154,20 +157,44 @@ public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegratio
   @Test
   public void shouldDownloadCsvWithHeadersOnly() {
 
-    when(idealStockAmountService.search())
-        .thenReturn(Collections.emptyList());
+    when(idealStockAmountService.stream(any(IdealStockAmountSearchParams.class)))
+        .thenReturn(Stream.empty());
 
     String csvContent = download()
         .then()
         .statusCode(200)
         .extract().body().asString();
 
-    verify(idealStockAmountService).search();
+    verify(idealStockAmountService).stream(any(IdealStockAmountSearchParams.class));
     assertEquals("Facility Code,Commodity Type,Period,Ideal Stock Amount\r\n",
         csvContent);
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldDownloadCsvWithMatchingAmountsOnly() {
+    UUID facilityId = UUID.randomUUID();
+    UUID processingPeriodId = UUID.randomUUID();
+
+    when(idealStockAmountService.stream(any(IdealStockAmountSearchParams.class)))
+        .thenReturn(Stream.of(isa));
+
+    restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType("text/csv")
+        .queryParam("format", "csv")
+        .queryParam("facilityId", facilityId)
+        .queryParam("processingPeriodId", processingPeriodId)
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(200);
+
+    verify(idealStockAmountService).stream(
+        refEq(new IdealStockAmountSearchParams(facilityId, null, processingPeriodId)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void downloadShouldReturnUnauthorizedWithoutAuthorization() {
 
@@ -194,11 +221,57 @@ public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegratio
         .statusCode(200)
         .extract().as(UploadResultDto.class);
 
-    verify(idealStockAmountRepository).saveAll(anyList());
+    verify(idealStockAmountRepository).upsert(anyList());
+    assertEquals(1, result.getAmount().intValue());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.responseChecks());
+  }
+
+  @Test
+  public void shouldUploadCsvWithAllFieldsChunkByChunk() throws IOException {
+    ClassPathResource fullCsvToUpload =
+        new ClassPathResource("csv/idealStockAmounts/csvWithAllColumns.csv");
+
+    UploadResultDto result = upload(fullCsvToUpload, false)
+        .then()
+        .statusCode(200)
+        .extract().as(UploadResultDto.class);
+
+    verify(idealStockAmountRepository).upsert(anyList());
     assertEquals(1, result.getAmount().intValue());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.responseChecks());
   }
 
+  @Test
+  public void shouldUploadCsvInBackground() throws IOException {
+    UploadJob job = UploadJob.newUploadJob("idealStockAmounts", "csvWithAllColumns.csv",
+        "/tmp/csvWithAllColumns.csv", true, 1);
+    job.setId(UUID.randomUUID());
+    when(uploadJobService.submit(any(CsvUploadResource.class), any(MultipartFile.class),
+        eq(true))).thenReturn(job);
+    ClassPathResource fullCsvToUpload =
+        new ClassPathResource("csv/idealStockAmounts/csvWithAllColumns.csv");
+
+    UploadJobDto result = restAssured.given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
+        .queryParam("format", "csv")
+        .queryParam("async", true)
+        .multiPart(FILE_PARAM_NAME,
+            fullCsvToUpload.getFilename(),
+            fullCsvToUpload.getInputStream())
+        .when()
+        .post(RESOURCE_URL)
+        .then()
+        .statusCode(202)
+        .header(HttpHeaders.LOCATION, endsWith("/api/jobs/" + job.getId()))
+        .extract().as(UploadJobDto.class);
+
+    assertEquals(job.getId(), result.getId());
+    assertEquals(UploadJob.Status.PENDING, result.getStatus());
+    verify(idealStockAmountRepository, never()).upsert(anyList());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldNotUploadCsvWithoutMandatoryFields() throws IOException {
     ClassPathResource basicCsvToUpload =
@@ -211,7 +284,7 @@ public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegratio
         .path(MESSAGE_KEY);
 
     assertThat(messageKey, Matchers.is(equalTo(ERROR_UPLOAD_MISSING_MANDATORY_COLUMNS)));
-    verify(idealStockAmountRepository, never()).save(any(IdealStockAmount.class));
+    verify(idealStockAmountRepository, never()).upsert(anyList());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.responseChecks());
   }
 
@@ -227,7 +300,7 @@ public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegratio
         .path(MESSAGE_KEY);
 
     assertThat(messageKey, Matchers.is(equalTo(ERROR_UPLOAD_RECORD_INVALID)));
-    verify(idealStockAmountRepository, never()).save(any(IdealStockAmount.class));
+    verify(idealStockAmountRepository, never()).upsert(anyList());
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.responseChecks());
   }
 
@@ -258,10 +331,16 @@ public class IdealStockAmountControllerIntegrationTest extends BaseWebIntegratio
   }
 
   private Response upload(ClassPathResource basicCsvToUpload) throws IOException {
+    return upload(basicCsvToUpload, true);
+  }
+
+  private Response upload(ClassPathResource basicCsvToUpload, boolean allOrNothing)
+      throws IOException {
     return restAssured.given()
         .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
         .contentType(MediaType.MULTIPART_FORM_DATA_VALUE)
         .queryParam("format", "csv")
+        .queryParam("allOrNothing", allOrNothing)
         .multiPart(FILE_PARAM_NAME,
             basicCsvToUpload.getFilename(),
             basicCsvToUpload.getInputStream())
@@ -24,6 +24,8 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.openlmis.referencedata.domain.RightName.ORDERABLES_MANAGE;
@@ -68,6 +70,7 @@ import org.mockito.Captor;
 import org.openlmis.referencedata.domain.Code;
 import org.openlmis.referencedata.domain.Dispensable;
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.OrderableHighWaterMark;
 import org.openlmis.referencedata.domain.OrderableDisplayCategory;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.ProgramOrderable;
@@ -540,6 +543,34 @@ public class OrderableControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldReturnNotModifiedFromHighWaterMarkIfEtagMatches() {
+    OrderableHighWaterMark highWaterMark = mock(OrderableHighWaterMark.class);
+    when(highWaterMark.getLastUpdated()).thenReturn(modifiedDate);
+    when(highWaterMark.getEtag()).thenReturn("mark-1");
+
+    when(orderableService
+        .findHighWaterMark(any(QueryOrderableSearchParams.class), any(Profiler.class)))
+        .thenReturn(Optional.of(highWaterMark));
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.IF_NONE_MATCH, "\"mark-1\"")
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(HttpStatus.SC_NOT_MODIFIED)
+        .header(HttpHeaders.ETAG, "\"mark-1\"");
+
+    verify(orderableService, never())
+        .getLatestLastUpdatedDate(any(QueryOrderableSearchParams.class), any(Profiler.class));
+    verify(orderableService, never())
+        .searchOrderables(any(QueryOrderableSearchParams.class), any(Pageable.class));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldSearchOrderables() {
     final String code = "some-code";
@@ -356,6 +356,37 @@ public class ProgramControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldFilterProgramsByIdsFromCache() {
+    togglzRule.enable(AvailableFeatures.REDIS_CACHING);
+
+    Program cached = new Program("P1");
+    cached.setId(UUID.randomUUID());
+    Program notCached = new Program("P2");
+    notCached.setId(UUID.randomUUID());
+
+    given(programRedisRepository.findAllById(asSet(cached.getId(), notCached.getId())))
+        .willReturn(asList(cached));
+    given(programRepository.findAllById(asSet(notCached.getId())))
+        .willReturn(asList(notCached));
+
+    Program[] response = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .queryParam(ID, cached.getId())
+        .queryParam(ID, notCached.getId())
+        .when()
+        .get(RESOURCE_URL)
+        .then()
+        .statusCode(200)
+        .extract().as(Program[].class);
+
+    assertEquals(2, response.length);
+    verify(programRedisRepository, times(1)).saveAll(asList(notCached));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void shouldFilterProgramsByName() {
     String name = "some-name";
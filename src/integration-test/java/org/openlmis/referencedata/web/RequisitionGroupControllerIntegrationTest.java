@@ -33,6 +33,7 @@ import static org.openlmis.referencedata.domain.RightName.REQUISITION_GROUPS_MAN
 import guru.nidi.ramltester.junit.RamlMatchers;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -55,6 +56,7 @@ import org.openlmis.referencedata.domain.RightName;
 import org.openlmis.referencedata.domain.SupervisoryNode;
 import org.openlmis.referencedata.dto.RequisitionGroupBaseDto;
 import org.openlmis.referencedata.dto.RequisitionGroupDto;
+import org.openlmis.referencedata.dto.RequisitionGroupSummaryDto;
 import org.openlmis.referencedata.exception.UnauthorizedException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.service.PageDto;
@@ -73,6 +75,7 @@ public class RequisitionGroupControllerIntegrationTest extends BaseWebIntegratio
 
   private static final String RESOURCE_URL = "/api/requisitionGroups";
   private static final String SEARCH_URL = RESOURCE_URL + "/search";
+  private static final String SUMMARIES_URL = RESOURCE_URL + "/summaries";
   private static final String ID_URL = RESOURCE_URL + "/{id}";
   private static final String DESCRIPTION = "OpenLMIS";
 
@@ -249,6 +252,50 @@ public class RequisitionGroupControllerIntegrationTest extends BaseWebIntegratio
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldGetRequisitionGroupSummaries() {
+    List<RequisitionGroupSummaryDto> summaries = Arrays.asList(
+        new RequisitionGroupSummaryDto(UUID.randomUUID(), "RG1", "Requisition Group 1", null,
+            supervisoryNode.getId(), 2L),
+        new RequisitionGroupSummaryDto(UUID.randomUUID(), "RG2", "Requisition Group 2", null,
+            supervisoryNode.getId(), 0L));
+    given(requisitionGroupService.getRequisitionGroupSummaries(any(Pageable.class), eq(false)))
+        .willReturn(Pagination.getPage(summaries, PageRequest.of(0, 10), 2));
+
+    PageDto response = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .get(SUMMARIES_URL)
+        .then()
+        .statusCode(200)
+        .extract().as(PageDto.class);
+
+    assertEquals(summaries.size(), response.getContent().size());
+    assertEquals(2, ((Map) response.getContent().get(0)).get("memberCount"));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldGetRequisitionGroupSummariesWithExpandedMemberFacilities() {
+    given(requisitionGroupService.getRequisitionGroupSummaries(any(Pageable.class), eq(true)))
+        .willReturn(Pagination.getPage(Collections.emptyList(), PageRequest.of(0, 10), 0));
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("expand", "memberFacilities")
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .when()
+        .get(SUMMARIES_URL)
+        .then()
+        .statusCode(200);
+
+    verify(requisitionGroupService).getRequisitionGroupSummaries(any(Pageable.class), eq(true));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void getAllShouldReturnUnauthorizedWithoutAuthorization() {
 
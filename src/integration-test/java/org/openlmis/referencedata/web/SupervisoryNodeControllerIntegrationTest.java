@@ -31,7 +31,7 @@ import static org.mockito.BDDMockito.given;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -76,6 +76,7 @@ import org.openlmis.referencedata.dto.SupervisoryNodeDto;
 import org.openlmis.referencedata.dto.UserDto;
 import org.openlmis.referencedata.exception.UnauthorizedException;
 import org.openlmis.referencedata.service.PageDto;
+import org.openlmis.referencedata.service.SupervisedFacilityIndex;
 import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
 import org.openlmis.referencedata.testbuilder.ProgramDataBuilder;
 import org.openlmis.referencedata.testbuilder.RequisitionGroupDataBuilder;
@@ -898,7 +899,8 @@ public class SupervisoryNodeControllerIntegrationTest extends BaseWebIntegration
 
     User supervisingUser = new UserDataBuilder().build();
     supervisingUser.assignRoles(
-        new SupervisionRoleAssignment(role, supervisingUser, program, supervisoryNode));
+        new SupervisionRoleAssignment(role, supervisingUser, program, supervisoryNode,
+            Collections.emptySet()));
 
     Set<User> supervisingUsers = asSet(supervisingUser);
 
@@ -1051,6 +1053,31 @@ public class SupervisoryNodeControllerIntegrationTest extends BaseWebIntegration
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldSearchSupervisoryNodesFromCache() {
+    togglzRule.enable(AvailableFeatures.REDIS_CACHING);
+    final Pageable pageable = PageRequest.of(0, 10);
+
+    SupervisoryNode notCached = new SupervisoryNodeDataBuilder().build();
+    given(supervisoryNodeRepository.search(any(SupervisoryNodeSearchParams.class), eq(pageable)))
+        .willReturn(new PageImpl(Lists.newArrayList(supervisoryNode, notCached), pageable, 2));
+    given(supervisoryNodeDtoRedisRepository
+        .findAllById(Lists.newArrayList(supervisoryNode.getId(), notCached.getId())))
+        .willReturn(Collections.singletonList(supervisoryNodeDto));
+
+    HashMap<String, Object> queryParams = new HashMap<>();
+    queryParams.put(PAGE, 0);
+    queryParams.put(SIZE, 10);
+
+    PageDto response = searchForSupervisoryNode(queryParams, 200)
+        .extract().as(PageDto.class);
+
+    assertEquals(2, response.getContent().size());
+    verify(supervisoryNodeDtoRedisRepository, times(1)).findAllById(any());
+    verify(supervisoryNodeDtoRedisRepository, times(1)).saveAll(any());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void searchShouldReturnUnauthorizedWithoutAuthorization() {
 
@@ -1107,12 +1134,15 @@ public class SupervisoryNodeControllerIntegrationTest extends BaseWebIntegration
 
   @Test
   public void shouldReturnSupervisingFacilities() {
-    SupervisoryNode spy = spy(supervisoryNode);
-    given(spy.getAllSupervisedFacilities(program)).willReturn(Sets.newHashSet(facility));
+    SupervisedFacilityIndex.Snapshot snapshot = mock(SupervisedFacilityIndex.Snapshot.class);
+    given(snapshot.getSupervisedFacilityIds(supervisoryNodeId, programId))
+        .willReturn(Sets.newHashSet(facility.getId()));
+    given(supervisedFacilityIndex.get()).willReturn(snapshot);
 
-    given(supervisoryNodeRepository.findById(supervisoryNodeId))
-        .willReturn(Optional.of(spy));
-    given(programRepository.findById(programId)).willReturn(Optional.of(program));
+    given(supervisoryNodeRepository.existsById(supervisoryNodeId)).willReturn(true);
+    given(programRepository.existsById(programId)).willReturn(true);
+    given(facilityRepository.findAllById(Collections.singletonList(facility.getId())))
+        .willReturn(Collections.singletonList(facility));
     mockUserHasRight(RightName.SUPERVISORY_NODES_MANAGE);
 
     restAssured
@@ -1159,7 +1189,7 @@ public class SupervisoryNodeControllerIntegrationTest extends BaseWebIntegration
 
   @Test
   public void shouldThrowNotFoundErrorIfSupervisoryNodeDoesNotExistForGetSupervisingFacilities() {
-    given(supervisoryNodeRepository.findById(supervisoryNodeId)).willReturn(Optional.empty());
+    given(supervisoryNodeRepository.existsById(supervisoryNodeId)).willReturn(false);
     mockUserHasRight(RightName.SUPERVISORY_NODES_MANAGE);
 
     restAssured
@@ -1176,9 +1206,8 @@ public class SupervisoryNodeControllerIntegrationTest extends BaseWebIntegration
 
   @Test
   public void shouldThrowNotFoundErrorIfProgramDoesNotExistForGetSupervisingFacilities() {
-    given(supervisoryNodeRepository.findById(supervisoryNodeId))
-        .willReturn(Optional.of(supervisoryNode));
-    given(programRepository.findById(any(UUID.class))).willReturn(Optional.empty());
+    given(supervisoryNodeRepository.existsById(supervisoryNodeId)).willReturn(true);
+    given(programRepository.existsById(any(UUID.class))).willReturn(false);
     mockUserHasRight(RightName.SUPERVISORY_NODES_MANAGE);
 
     restAssured
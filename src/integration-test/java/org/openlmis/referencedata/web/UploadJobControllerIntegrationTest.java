@@ -0,0 +1,119 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.BDDMockito.given;
+import static org.openlmis.referencedata.util.messagekeys.SystemMessageKeys.ERROR_UNAUTHORIZED;
+import static org.openlmis.referencedata.util.messagekeys.UploadJobMessageKeys.ERROR_NOT_FOUND;
+
+import com.jayway.restassured.response.ValidatableResponse;
+import guru.nidi.ramltester.junit.RamlMatchers;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.referencedata.domain.RightName;
+import org.openlmis.referencedata.domain.UploadJob;
+import org.openlmis.referencedata.dto.UploadJobDto;
+import org.openlmis.referencedata.web.csv.recordhandler.IdealStockAmountUploadResource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+
+public class UploadJobControllerIntegrationTest extends BaseWebIntegrationTest {
+  private static final String RESOURCE_URL = "/api/jobs";
+  private static final String ID_URL = RESOURCE_URL + "/{id}";
+
+  @Autowired
+  private IdealStockAmountUploadResource idealStockAmountUploadResource;
+
+  private UploadJob job = UploadJob.newUploadJob(IdealStockAmountUploadResource.NAME,
+      "isa.csv", "/tmp/isa.csv", true, 10);
+
+  @Before
+  @Override
+  public void setUp() {
+    super.setUp();
+
+    job.setId(UUID.randomUUID());
+
+    given(uploadJobRepository.findById(job.getId())).willReturn(Optional.of(job));
+    given(uploadJobService.getResource(IdealStockAmountUploadResource.NAME))
+        .willAnswer(invocation -> idealStockAmountUploadResource);
+
+    mockUserHasRight(RightName.SYSTEM_IDEAL_STOCK_AMOUNTS_MANAGE);
+  }
+
+  @After
+  public void tearDown() {
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldRetrieveUploadJob() {
+    UploadJobDto response = get(job.getId())
+        .statusCode(HttpStatus.OK.value())
+        .extract()
+        .as(UploadJobDto.class);
+
+    assertThat(response.getId(), is(job.getId()));
+    assertThat(response.getStatus(), is(UploadJob.Status.PENDING));
+    assertThat(response.getTotalRows(), is(10));
+    assertThat(response.getProcessedRows(), is(0));
+  }
+
+  @Test
+  public void shouldReturnNotFoundIfUploadJobDoesNotExist() {
+    String response = get(UUID.randomUUID())
+        .statusCode(HttpStatus.NOT_FOUND.value())
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(response, is(ERROR_NOT_FOUND));
+  }
+
+  @Test
+  public void shouldReturnForbiddenIfUserCannotUploadResourceOfJob() {
+    mockUserHasNoRight(RightName.SYSTEM_IDEAL_STOCK_AMOUNTS_MANAGE);
+
+    String response = get(job.getId())
+        .statusCode(HttpStatus.FORBIDDEN.value())
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(response, is(ERROR_UNAUTHORIZED));
+  }
+
+  @Test
+  public void shouldReturnUnauthorizedWithoutAuthorization() {
+    startRequest(null)
+        .pathParam("id", job.getId())
+        .when()
+        .get(ID_URL)
+        .then()
+        .statusCode(HttpStatus.UNAUTHORIZED.value());
+  }
+
+  private ValidatableResponse get(UUID id) {
+    return startRequest(getTokenHeader())
+        .pathParam("id", id)
+        .when()
+        .get(ID_URL)
+        .then();
+  }
+}
@@ -76,14 +76,19 @@ import org.openlmis.referencedata.domain.RoleAssignment;
 import org.openlmis.referencedata.domain.SupervisionRoleAssignment;
 import org.openlmis.referencedata.domain.SupervisoryNode;
 import org.openlmis.referencedata.domain.User;
+import org.openlmis.referencedata.dto.CompactPermissionStringsDto;
 import org.openlmis.referencedata.dto.DetailedRoleAssignmentDto;
 import org.openlmis.referencedata.dto.NamedResource;
+import org.openlmis.referencedata.dto.PermissionStringsDeltaDto;
 import org.openlmis.referencedata.dto.ResultDto;
+import org.openlmis.referencedata.dto.RightCheckDto;
 import org.openlmis.referencedata.dto.UserDto;
 import org.openlmis.referencedata.exception.UnauthorizedException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.UserSearchParams;
 import org.openlmis.referencedata.service.PageDto;
+import org.openlmis.referencedata.service.UserPermissionVersionService;
+import org.openlmis.referencedata.service.UserPermissions;
 import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
 import org.openlmis.referencedata.testbuilder.GeographicZoneDataBuilder;
 import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
@@ -92,7 +97,9 @@ import org.openlmis.referencedata.testbuilder.UserDataBuilder;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.UserSearchParamsDataBuilder;
+import org.openlmis.referencedata.util.messagekeys.ProgramMessageKeys;
 import org.openlmis.referencedata.util.messagekeys.RightMessageKeys;
+import org.openlmis.referencedata.util.messagekeys.UserMessageKeys;
 import org.openlmis.referencedata.utils.AuditLogHelper;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
@@ -576,6 +583,105 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void shouldCheckUserHasRights() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    RightCheckDto[] response = postUserHasRights(
+        new RightCheckDto(supervisionRightId, program1Id, homeFacilityId, null, null),
+        new RightCheckDto(supervisionRightId, program2Id, homeFacilityId, null, null))
+        .then()
+        .statusCode(200)
+        .extract().as(RightCheckDto[].class);
+
+    assertEquals(2, response.length);
+    assertTrue(response[0].getResult());
+    assertFalse(response[1].getResult());
+    verify(programRepository).findExistingIds(Sets.newHashSet(program1Id, program2Id));
+    verify(facilityRepository).findExistingIds(Sets.newHashSet(homeFacilityId));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldRejectCheckUserHasRightsIfUserHasNoRight() {
+    mockUserHasNoRight(RightName.USERS_MANAGE_RIGHT);
+
+    String messageKey = postUserHasRights(
+        new RightCheckDto(supervisionRightId, program1Id, homeFacilityId, null, null))
+        .then()
+        .statusCode(403)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(MESSAGEKEY_ERROR_UNAUTHORIZED)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldBadRequestCheckUserHasRightsWithNonExistentProgram() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    UUID missingProgramId = UUID.randomUUID();
+    String messageKey = postUserHasRights(
+        new RightCheckDto(supervisionRightId, program1Id, homeFacilityId, null, null),
+        new RightCheckDto(supervisionRightId, missingProgramId, homeFacilityId, null, null))
+        .then()
+        .statusCode(400)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(ProgramMessageKeys.ERROR_NOT_FOUND_WITH_ID)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldBadRequestCheckUserHasRightsWithMissingFacility() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    String messageKey = postUserHasRights(
+        new RightCheckDto(supervisionRightId, program1Id, null, null, null))
+        .then()
+        .statusCode(400)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey,
+        Matchers.is(equalTo(UserMessageKeys.ERROR_PROGRAM_WITHOUT_FACILITY)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldBadRequestCheckUserHasRightsWithTooManyChecks() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    RightCheckDto[] checks = new RightCheckDto[UserController.MAX_RIGHT_CHECKS + 1];
+    Arrays.fill(checks,
+        new RightCheckDto(supervisionRightId, program1Id, homeFacilityId, null, null));
+
+    String messageKey = postUserHasRights(checks)
+        .then()
+        .statusCode(400)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(UserMessageKeys.ERROR_RIGHT_CHECKS_TOO_MANY)));
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void shouldBadRequestCheckUserHasRightsWithNullCheck() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    String messageKey = postUserHasRights(
+        new RightCheckDto(supervisionRightId, program1Id, homeFacilityId, null, null), null)
+        .then()
+        .statusCode(400)
+        .extract()
+        .path(MESSAGE_KEY);
+
+    assertThat(messageKey, Matchers.is(equalTo(UserMessageKeys.ERROR_RIGHT_CHECKS_NULL)));
+  }
+
   @Test
   public void shouldGetUserPrograms() {
     mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
@@ -1065,6 +1171,121 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
     assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
   }
 
+  @Test
+  public void getPermissionStringsShouldReturnNotFoundIfUserDoesNotExistAndDigestMatches() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    given(userRepository.existsById(userId)).willReturn(false);
+    given(rightAssignmentRepository.findByUser(userId)).willReturn(Collections.emptySet());
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.IF_NONE_MATCH,
+            "\"" + UserPermissions.digest(Collections.emptySet()) + "\"")
+        .pathParam("id", userId)
+        .when()
+        .get(PERMISSION_STRINGS_URL)
+        .then()
+        .statusCode(404);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void getPermissionStringsShouldReturnNotModifiedIfDigestMatches() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    given(userRepository.existsById(userId)).willReturn(true);
+    given(rightAssignmentRepository.findByUser(userId))
+        .willReturn(Sets.newHashSet(ADMIN_RIGHT_NAME));
+
+    String etag = getUsersPermissionStrings()
+        .then()
+        .statusCode(200)
+        .extract()
+        .header(HttpHeaders.ETAG);
+
+    restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .header(HttpHeaders.IF_NONE_MATCH, etag)
+        .pathParam("id", userId)
+        .when()
+        .get(PERMISSION_STRINGS_URL)
+        .then()
+        .statusCode(304);
+
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void getCompactPermissionStringsShouldReturnDictionaryEncodedPermissions() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    given(userRepository.existsById(userId)).willReturn(true);
+    given(userPermissionVersionService.getVersion(userId)).willReturn(3L);
+    given(rightAssignmentRepository.findByUser(userId)).willReturn(Sets.newHashSet(
+        ADMIN_RIGHT_NAME + "|" + homeFacilityId + "|" + program1Id));
+
+    CompactPermissionStringsDto response = restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .pathParam("id", userId)
+        .when()
+        .get(PERMISSION_STRINGS_URL + "/compact")
+        .then()
+        .statusCode(200)
+        .extract().as(CompactPermissionStringsDto.class);
+
+    assertEquals(3L, response.getVersion());
+    assertEquals(singletonList(ADMIN_RIGHT_NAME), response.getRights());
+    assertEquals(singletonList(homeFacilityId.toString()), response.getFacilities());
+    assertEquals(singletonList(program1Id.toString()), response.getPrograms());
+    assertEquals(1, response.getPermissions().size());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void getPermissionStringsDeltaShouldReturnChangesSinceVersion() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    given(userRepository.existsById(userId)).willReturn(true);
+    given(userPermissionVersionService.getDelta(userId, 2L)).willReturn(Optional.of(
+        new UserPermissionVersionService.Delta(2L, 3L, "digest",
+            Sets.newHashSet(ADMIN_RIGHT_NAME), Collections.emptySet())));
+
+    PermissionStringsDeltaDto response = getUsersPermissionStringsDelta(2L)
+        .then()
+        .statusCode(200)
+        .extract().as(PermissionStringsDeltaDto.class);
+
+    assertEquals(3L, response.getVersion());
+    assertFalse(response.isComplete());
+    assertEquals(Sets.newHashSet(ADMIN_RIGHT_NAME), response.getAdded());
+    assertTrue(response.getRemoved().isEmpty());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
+  @Test
+  public void getPermissionStringsDeltaShouldReturnAllPermissionsIfChangesAreUnknown() {
+    mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
+
+    given(userRepository.existsById(userId)).willReturn(true);
+    given(userPermissionVersionService.getDelta(userId, 1L)).willReturn(Optional.empty());
+    given(rightAssignmentRepository.findByUser(userId))
+        .willReturn(Sets.newHashSet(ADMIN_RIGHT_NAME));
+
+    PermissionStringsDeltaDto response = getUsersPermissionStringsDelta(1L)
+        .then()
+        .statusCode(200)
+        .extract().as(PermissionStringsDeltaDto.class);
+
+    assertTrue(response.isComplete());
+    assertEquals(Sets.newHashSet(ADMIN_RIGHT_NAME), response.getAdded());
+    assertThat(RAML_ASSERT_MESSAGE, restAssured.getLastReport(), RamlMatchers.hasNoViolations());
+  }
+
   @Test
   public void getFacilitiesShouldReturnOkIfServiceToken() {
     mockUserHasRight(RightName.USERS_MANAGE_RIGHT);
@@ -1146,6 +1367,16 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
         .get(PERMISSION_STRINGS_URL);
   }
   
+  private Response getUsersPermissionStringsDelta(long sinceVersion) {
+    return restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .queryParam("sinceVersion", sinceVersion)
+        .pathParam("id", userId)
+        .when()
+        .get(PERMISSION_STRINGS_URL + "/delta");
+  }
+
   private Response getUserFacilities() {
 
     return restAssured
@@ -1217,8 +1448,8 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
     given(rightRepository.findById(supervisionRightId)).willReturn(Optional.of(supervisionRight));
     given(programRepository.existsById(program1Id)).willReturn(true);
     given(programRepository.existsById(program2Id)).willReturn(true);
-    given(rightAssignmentRepository.existsByUserIdAndAndRightNameAndFacilityIdAndProgramId(
-        userId, supervisionRight.getName(), homeFacilityId, program1Id)).willReturn(true);
+    given(rightAssignmentRepository.findByUser(userId)).willReturn(Sets.newHashSet(
+        supervisionRight.getName() + "|" + homeFacilityId + "|" + program1Id));
 
     return restAssured
         .given()
@@ -1231,6 +1462,27 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
         .get(HAS_RIGHT_URL);
   }
 
+  private Response postUserHasRights(RightCheckDto... checks) {
+    given(userRepository.existsById(userId)).willReturn(true);
+    given(rightRepository.findAllById(Sets.newHashSet(supervisionRightId)))
+        .willReturn(singletonList(supervisionRight));
+    given(programRepository.findExistingIds(any()))
+        .willReturn(Sets.newHashSet(program1Id, program2Id));
+    given(facilityRepository.findExistingIds(any()))
+        .willReturn(Sets.newHashSet(homeFacilityId));
+    given(rightAssignmentRepository.findByUser(userId)).willReturn(Sets.newHashSet(
+        supervisionRight.getName() + "|" + homeFacilityId + "|" + program1Id));
+
+    return restAssured
+        .given()
+        .header(HttpHeaders.AUTHORIZATION, getTokenHeader())
+        .contentType(MediaType.APPLICATION_JSON_VALUE)
+        .body(checks)
+        .pathParam("id", userId)
+        .when()
+        .post(HAS_RIGHT_URL);
+  }
+
   private Response getUserPrograms() {
     given(userRepository.existsById(userId)).willReturn(true);
     given(programRepository.findSupervisionProgramsByUser(userId)).willReturn(
@@ -1333,8 +1585,11 @@ public class UserControllerIntegrationTest extends BaseWebIntegrationTest {
     roleAssignment1 = new DirectRoleAssignment(adminRole, user);
     roleAssignment2 = new SupervisionRoleAssignment(supervisionRole,
         user, program1);
+    Set<UUID> supervisedFacilityIds = new HashSet<>();
+    supervisoryNode.getRequisitionGroup().getMemberFacilities()
+        .forEach(facility -> supervisedFacilityIds.add(facility.getId()));
     roleAssignment3 = new SupervisionRoleAssignment(supervisionRole,
-        user, program2, supervisoryNode);
+        user, program2, supervisoryNode, supervisedFacilityIds);
     roleAssignment4 = new FulfillmentRoleAssignment(fulfillmentRole,
         user, warehouse);
 
@@ -15,56 +15,114 @@
 
 package org.openlmis.referencedata;
 
-import static org.openlmis.referencedata.util.Pagination.handlePage;
+import static org.openlmis.referencedata.util.Pagination.DEFAULT_PAGE_NUMBER;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.javers.core.Javers;
-import org.javers.core.metamodel.object.CdoSnapshot;
-import org.javers.repository.jql.QueryBuilder;
 import org.javers.spring.annotation.JaversSpringDataAuditable;
 import org.openlmis.referencedata.domain.Identifiable;
 import org.openlmis.referencedata.domain.Versionable;
 import org.openlmis.referencedata.repository.BaseAuditableRepository;
+import org.openlmis.referencedata.service.AuditLogService;
 import org.openlmis.referencedata.util.messagekeys.MessageKeys;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.annotation.Profile;
 import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 /**
  * AuditLogInitializer runs after its associated Spring application has loaded.
  * It examines each domain object in the database and registers them with JaVers
  * if they haven't already been so. This is, in part, a fix for
  * <a href="https://github.com/javers/javers/issues/214">this issue</a>.
+ *
+ * <p>Objects without snapshots are processed a page at a time: existing snapshots of the whole
+ * page are found with a single query and the page is committed in its own transaction, so a
+ * restart resumes with the objects that are still missing snapshots. Repositories are processed
+ * in parallel by a bounded pool and the whole process can be moved to a background thread.
  */
 @Component
 @Profile("init-audit-log")
 @Order(20)
-@Transactional
 public class AuditLogInitializer implements CommandLineRunner {
   private static final XLogger LOGGER = XLoggerFactory.getXLogger(AuditLogInitializer.class);
 
+  static final String AUTHOR = "System: AuditLogInitializer";
+
+  static final String EXISTING_SNAPSHOTS_SQL = "SELECT g.local_id"
+      + " FROM referencedata.jv_global_id g"
+      + " WHERE g.type_name = :typeName"
+      + "   AND g.local_id IN (:localIds)"
+      + "   AND EXISTS ("
+      + "     SELECT 1"
+      + "     FROM referencedata.jv_snapshot s"
+      + "     WHERE s.global_id_fk = g.global_id_pk)";
+
   private ApplicationContext applicationContext;
   private Javers javers;
+  private TransactionTemplate transactionTemplate;
+  private NamedParameterJdbcTemplate jdbcTemplate;
+
+  @Value("${auditLogInitializer.batchSize}")
+  private int batchSize = 2000;
+
+  @Value("${auditLogInitializer.poolSize}")
+  private int poolSize = 4;
+
+  @Value("${auditLogInitializer.background}")
+  private boolean background;
 
+  /**
+   * Creates new instance of the initializer.
+   */
   @Autowired
-  public AuditLogInitializer(ApplicationContext applicationContext, Javers javers) {
+  public AuditLogInitializer(ApplicationContext applicationContext, Javers javers,
+      PlatformTransactionManager transactionManager, NamedParameterJdbcTemplate jdbcTemplate) {
     this.applicationContext = applicationContext;
     this.javers = javers;
+    this.transactionTemplate = new TransactionTemplate(transactionManager);
+    this.jdbcTemplate = jdbcTemplate;
   }
 
   /**
    * This method is part of CommandLineRunner and is called automatically by Spring.
+   * If the background mode is enabled, snapshots are created in a separate thread and
+   * the method returns immediately.
    * @param args Main method arguments.
    */
   public void run(String... args) {
+    if (background) {
+      Thread thread = new Thread(this::createAllSnapshots, "audit-log-initializer");
+      thread.setDaemon(true);
+      thread.start();
+    } else {
+      createAllSnapshots();
+    }
+  }
+
+  private void createAllSnapshots() {
     LOGGER.entry();
     Profiler profiler = new Profiler("RUN_AUDIT_LOG_INIT");
     profiler.setLogger(LOGGER);
@@ -73,56 +131,135 @@ public class AuditLogInitializer implements CommandLineRunner {
     //Get all JaVers repositories.
     Map<String,Object> repositoryMap =
         applicationContext.getBeansWithAnnotation(JaversSpringDataAuditable.class);
+    Map<String, BaseAuditableRepository<?, ?>> repositories = new HashMap<>();
 
-    //For each one...
     for (Map.Entry<String, Object> entry : repositoryMap.entrySet()) {
-      String beanName = entry.getKey();
-      Object bean = entry.getValue();
-      profiler.start("CREATE_SNAPSHOTS_OF_" + beanName);
-      createSnapshots(bean);
+      if (entry.getValue() instanceof BaseAuditableRepository) {
+        repositories.put(entry.getKey(), (BaseAuditableRepository<?, ?>) entry.getValue());
+      } else {
+        LOGGER.warn("The repository should implement findAllWithoutSnapshots method"
+            + "from BaseAuditableRepository with appropriate query");
+      }
+    }
+
+    if (poolSize > 1 && repositories.size() > 1) {
+      profiler.start("CREATE_SNAPSHOTS_IN_PARALLEL");
+      createSnapshotsInParallel(repositories);
+    } else {
+      for (Map.Entry<String, BaseAuditableRepository<?, ?>> entry : repositories.entrySet()) {
+        profiler.start("CREATE_SNAPSHOTS_OF_" + entry.getKey());
+        createSnapshots(entry.getKey(), entry.getValue());
+      }
     }
 
     profiler.stop().log();
     LOGGER.exit();
   }
 
-  private void createSnapshots(Object bean) {
-    if (bean instanceof BaseAuditableRepository) {
-      createSnapshots((BaseAuditableRepository<?, ?>) bean);
-    } else {
-      LOGGER.warn("The repository should implement findAllWithoutSnapshots method"
-          + "from BaseAuditableRepository with appropriate query");
+  private void createSnapshotsInParallel(Map<String, BaseAuditableRepository<?, ?>> repositories) {
+    ExecutorService executor = Executors
+        .newFixedThreadPool(Math.min(poolSize, repositories.size()));
+    List<Future<?>> futures = new ArrayList<>();
+
+    try {
+      for (Map.Entry<String, BaseAuditableRepository<?, ?>> entry : repositories.entrySet()) {
+        futures.add(executor.submit(() -> createSnapshots(entry.getKey(), entry.getValue())));
+      }
+
+      for (Future<?> future : futures) {
+        waitFor(future);
+      }
+    } catch (InterruptedException exp) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Audit log initialization has been interrupted", exp);
+    } finally {
+      executor.shutdownNow();
     }
   }
 
-  private void createSnapshots(BaseAuditableRepository<?, ?> repository) {
-    handlePage(
-        repository::findAllWithoutSnapshots,
-        this::createSnapshot
-    );
+  private void waitFor(Future<?> future) throws InterruptedException {
+    try {
+      future.get();
+    } catch (ExecutionException exp) {
+      // pages committed so far are kept, the rest is picked up on the next run
+      LOGGER.error("Could not create snapshots of all objects", exp.getCause());
+    }
   }
 
-  private void createSnapshot(Object object) {
-    //...check whether there exists a snapshot for it in the audit log.
-    // Note that we don't care about checking for logged changes, per se,
-    // and thus use findSnapshots() rather than findChanges()
-    Identifiable identifiable = (Identifiable) object;
-    Object localId = identifiable.getId();
+  private void createSnapshots(String beanName, BaseAuditableRepository<?, ?> repository) {
+    Pageable pageable = PageRequest.of(DEFAULT_PAGE_NUMBER, batchSize);
+    int total = 0;
 
-    if (identifiable instanceof Versionable) {
-      Versionable versionable = (Versionable) identifiable;
-      localId = versionable.getVersionIdentity();
+    while (true) {
+      Pageable current = pageable;
+      Integer committed = transactionTemplate.execute(status -> {
+        Page<?> page = repository.findAllWithoutSnapshots(current);
+        return null == page || !page.hasContent() ? null : commitSnapshots(page.getContent());
+      });
+
+      if (null == committed) {
+        break;
+      }
+
+      total += committed;
+      LOGGER.debug("Created {} snapshots of {} objects", total, beanName);
+
+      // objects with new snapshots drop out of the query, so the same page is read again unless
+      // none of them got a snapshot; otherwise the rest of the page would be read forever
+      if (0 == committed) {
+        pageable = pageable.next();
+      }
     }
 
-    QueryBuilder jqlQuery = QueryBuilder.byInstanceId(localId, object.getClass());
-    List<CdoSnapshot> snapshots = javers.findSnapshots(jqlQuery.build());
+    LOGGER.info("Created {} snapshots of {} objects", total, beanName);
+  }
 
-    //If there are no snapshots of the domain object, then take one
-    if (snapshots.isEmpty()) {
-      javers.commit("System: AuditLogInitializer", identifiable);
-    } else {
-      LOGGER.info(MessageKeys.ERROR_JAVERS_EXISTING_ENTRY,
-          identifiable.getClass(), localId);
+  private int commitSnapshots(List<?> objects) {
+    Map<String, Map<String, Identifiable>> pending = new HashMap<>();
+
+    for (Object object : objects) {
+      Identifiable identifiable = (Identifiable) object;
+      String typeName = AuditLogService.getTypeName(identifiable.getClass());
+      pending
+          .computeIfAbsent(typeName, key -> new HashMap<>())
+          .put(javers.getJsonConverter().toJson(getLocalId(identifiable)), identifiable);
+    }
+
+    int committed = 0;
+
+    for (Map.Entry<String, Map<String, Identifiable>> entry : pending.entrySet()) {
+      Map<String, Identifiable> byLocalId = entry.getValue();
+      Set<String> existing = findExistingSnapshots(entry.getKey(), byLocalId.keySet());
+
+      for (Map.Entry<String, Identifiable> object : byLocalId.entrySet()) {
+        //If there are no snapshots of the domain object, then take one
+        if (existing.contains(object.getKey())) {
+          LOGGER.info(MessageKeys.ERROR_JAVERS_EXISTING_ENTRY,
+              object.getValue().getClass(), object.getKey());
+        } else if (!javers.commit(AUTHOR, object.getValue()).getSnapshots().isEmpty()) {
+          committed++;
+        }
+      }
     }
+
+    return committed;
+  }
+
+  private Set<String> findExistingSnapshots(String typeName, Set<String> localIds) {
+    // Note that we don't care about checking for logged changes, per se,
+    // and thus only look for snapshots
+    MapSqlParameterSource params = new MapSqlParameterSource()
+        .addValue("typeName", typeName)
+        .addValue("localIds", localIds);
+
+    return new HashSet<>(jdbcTemplate.queryForList(EXISTING_SNAPSHOTS_SQL, params, String.class));
+  }
+
+  private Object getLocalId(Identifiable identifiable) {
+    if (identifiable instanceof Versionable) {
+      return ((Versionable) identifiable).getVersionIdentity();
+    }
+
+    return identifiable.getId();
   }
 }
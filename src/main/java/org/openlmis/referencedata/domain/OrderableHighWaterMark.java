@@ -0,0 +1,61 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.domain;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+import org.hibernate.annotations.Type;
+
+/**
+ * Read-only view of the latest change of all orderables, or of orderables of a program. The table
+ * is maintained by database triggers on orderables and program orderables, so checking if
+ * orderables have changed does not need to query them.
+ */
+@Entity
+@Immutable
+@Table(name = "orderable_high_water_marks")
+@Getter
+public class OrderableHighWaterMark {
+
+  /**
+   * Program id under which the mark of all orderables is kept.
+   */
+  public static final UUID ALL_PROGRAMS = new UUID(0L, 0L);
+
+  @Id
+  @Type(type = BaseEntity.UUID_TYPE)
+  private UUID programId;
+
+  @Column(nullable = false, columnDefinition = "timestamp with time zone")
+  private ZonedDateTime lastUpdated;
+
+  @Column(nullable = false)
+  private Long version;
+
+  /**
+   * Returns an entity tag that changes whenever the orderables covered by the mark change.
+   */
+  public String getEtag() {
+    return programId + "-" + version;
+  }
+
+}
@@ -25,6 +25,8 @@ import java.util.UUID;
 import java.util.stream.Collectors;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
+import javax.persistence.ColumnResult;
+import javax.persistence.ConstructorResult;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
@@ -32,6 +34,7 @@ import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.SqlResultSetMapping;
 import javax.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -39,6 +42,7 @@ import lombok.NoArgsConstructor;
 import lombok.Setter;
 import org.javers.core.metamodel.annotation.DiffIgnore;
 import org.javers.core.metamodel.annotation.TypeName;
+import org.openlmis.referencedata.dto.RequisitionGroupSummaryDto;
 
 /**
  * RequisitionGroup represents a group of facilities which follow a particular schedule for a
@@ -49,6 +53,22 @@ import org.javers.core.metamodel.annotation.TypeName;
 @NoArgsConstructor
 @AllArgsConstructor
 @TypeName("RequisitionGroup")
+@SqlResultSetMapping(
+    name = "RequisitionGroup.summary",
+    classes = {
+        @ConstructorResult(
+            targetClass = RequisitionGroupSummaryDto.class,
+            columns = {
+                @ColumnResult(name = "id", type = UUID.class),
+                @ColumnResult(name = "code", type = String.class),
+                @ColumnResult(name = "name", type = String.class),
+                @ColumnResult(name = "description", type = String.class),
+                @ColumnResult(name = "supervisorynodeid", type = UUID.class),
+                @ColumnResult(name = "membercount", type = Long.class)
+            }
+        )
+    }
+)
 public class RequisitionGroup extends BaseEntity {
 
   @Column(unique = true, nullable = false, columnDefinition = "text")
@@ -18,10 +18,11 @@ package org.openlmis.referencedata.domain;
 import static java.util.Collections.singleton;
 import static org.openlmis.referencedata.domain.RightType.SUPERVISION;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.UUID;
 import javax.persistence.DiscriminatorValue;
 import javax.persistence.Entity;
 import javax.persistence.JoinColumn;
@@ -67,26 +68,28 @@ public class SupervisionRoleAssignment extends RoleAssignment {
   public SupervisionRoleAssignment(Role role, User user, Program program) {
     this(role, user);
     this.program = program;
-    addRightAssignments();
+    addRightAssignments(Collections.emptySet());
   }
 
   /**
    * Constructor for supervisory supervision. Must always have a role, a user, a program and a
-   * supervisory node.
+   * supervisory node. Facilities supervised by the node are resolved by the caller, from the
+   * current state of the supervisory node hierarchy.
    *
-   * @param role            the role being assigned
-   * @param user            the user to which the role is being assigned
-   * @param program         the program where the role applies
-   * @param supervisoryNode the supervisory node where the role applies
+   * @param role                  the role being assigned
+   * @param user                  the user to which the role is being assigned
+   * @param program               the program where the role applies
+   * @param supervisoryNode       the supervisory node where the role applies
+   * @param supervisedFacilityIds IDs of facilities supervised by the node for the program
    * @throws org.openlmis.referencedata.exception.ValidationMessageException if role passed in
    *      has rights which are not an acceptable right type
    */
   public SupervisionRoleAssignment(Role role, User user, Program program,
-                                   SupervisoryNode supervisoryNode) {
+      SupervisoryNode supervisoryNode, Set<UUID> supervisedFacilityIds) {
     this(role, user);
     this.program = program;
     this.supervisoryNode = supervisoryNode;
-    addRightAssignments();
+    addRightAssignments(supervisedFacilityIds);
   }
 
   @Override
@@ -97,7 +100,8 @@ public class SupervisionRoleAssignment extends RoleAssignment {
   /**
    * Check if this role assignment has a right based on specified criteria. For supervision,
    * check also that program matches and facility was found, either from the supervisory node or
-   * the user's home facility.
+   * the user's home facility. Facilities supervised by the node are looked up in the right
+   * assignments of the user, which are generated from the supervisory node hierarchy.
    */
   @Override
   public boolean hasRight(RightQuery rightQuery) {
@@ -108,7 +112,9 @@ public class SupervisionRoleAssignment extends RoleAssignment {
     boolean facilityFound;
     if (supervisoryNode != null) {
       profiler.start("CHECK_FOR_NODE");
-      facilityFound = supervisoryNode.supervises(rightQuery.getFacility(), rightQuery.getProgram());
+      facilityFound = rightQuery.getFacility() != null && rightQuery.getProgram() != null
+          && user.hasRightAssignment(rightQuery.getRight().getName(),
+              rightQuery.getFacility().getId(), rightQuery.getProgram().getId());
     } else if (user.getHomeFacilityId() != null && rightQuery.getFacility() != null) {
       profiler.start("CHECK_FOR_HOME_FACILITY");
       facilityFound = user.getHomeFacilityId().equals(rightQuery.getFacility().getId());
@@ -127,12 +133,11 @@ public class SupervisionRoleAssignment extends RoleAssignment {
     return roleContainsRight && programMatches && facilityFound;
   }
 
-  private void addRightAssignments() {
+  private void addRightAssignments(Set<UUID> supervisedFacilityIds) {
     if (null != supervisoryNode) {
-      Set<Facility> supervisedFacilities = supervisoryNode.getAllSupervisedFacilities(program);
       for (Right right : role.getRights()) {
-        for (Facility facility : supervisedFacilities) {
-          user.addRightAssignment(right.getName(), facility.getId(), program.getId());
+        for (UUID facilityId : supervisedFacilityIds) {
+          user.addRightAssignment(right.getName(), facilityId, program.getId());
         }
       }
     } else if (user.getHomeFacilityId() != null) {
@@ -143,33 +148,18 @@ public class SupervisionRoleAssignment extends RoleAssignment {
   }
 
   /**
-   * Get all facilities being supervised by this role assignment, by right and program.
+   * Get IDs of all facilities being supervised by this role assignment, by right and program.
    *
    * @param right   right to check
    * @param program program to check
-   * @return set of supervised facilities
+   * @return set of supervised facility IDs
    */
-  public Set<Facility> getSupervisedFacilities(Right right, Program program) {
-    Profiler profiler = new Profiler("GET_SUPERVISED_FACILITIES_FOR_RIGHT_AND_PROGRAM");
-    profiler.setLogger(LOGGER);
-
-    Set<Facility> possibleFacilities = new HashSet<>();
-    
-    if (supervisoryNode == null) {
-      return possibleFacilities;
+  public Set<UUID> getSupervisedFacilityIds(Right right, Program program) {
+    if (supervisoryNode == null || !role.contains(right) || !this.program.equals(program)) {
+      return new HashSet<>();
     }
 
-    profiler.start("GET_ALL_SUPERVISED_FACILITIES_FROM_NODE");
-    possibleFacilities = supervisoryNode.getAllSupervisedFacilities(program);
-
-    profiler.start("HAS_RIGHT_CHECK");
-    Set<Facility> facilities = possibleFacilities.stream()
-        .filter(possibleFacility -> hasRight(new RightQuery(right, program, possibleFacility)))
-        .collect(Collectors.toSet());
-
-    profiler.stop().log();
-
-    return facilities;
+    return user.getRightAssignmentFacilityIds(right.getName(), program.getId());
   }
 
   /**
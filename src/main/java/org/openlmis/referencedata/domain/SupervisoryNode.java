@@ -22,7 +22,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.stream.Collectors;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
 import javax.persistence.Entity;
@@ -40,9 +39,6 @@ import org.javers.core.metamodel.annotation.DiffIgnore;
 import org.javers.core.metamodel.annotation.TypeName;
 import org.openlmis.referencedata.domain.ExtraDataEntity.ExtraDataExporter;
 import org.openlmis.referencedata.domain.ExtraDataEntity.ExtraDataImporter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.slf4j.profiler.Profiler;
 
 @Entity
 @Table(name = "supervisory_nodes", schema = "referencedata")
@@ -52,8 +48,6 @@ import org.slf4j.profiler.Profiler;
 @SuppressWarnings("PMD.TooManyMethods")
 public class SupervisoryNode extends BaseEntity {
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(SupervisoryNode.class);
-
   @Column(nullable = false, unique = true, columnDefinition = "text")
   @Getter
   @Setter
@@ -229,53 +223,6 @@ public class SupervisoryNode extends BaseEntity {
     }
   }
 
-  /**
-   * Get all facilities being supervised by this supervisory node, by program.
-   * <p/>
-   * Note, this does not get the facility attached to this supervisory node. "All supervised
-   * facilities" means all facilities supervised by this node and all recursive child nodes.
-   *
-   * @param program program to check, can be null.
-   * @return all supervised facilities
-   */
-  public Set<Facility> getAllSupervisedFacilities(Program program) {
-    Profiler profiler = new Profiler("SUPERVISORY_NODE_GET_FACILITIES_FOR_PROGRAM");
-    profiler.setLogger(LOGGER);
-
-    Set<Facility> supervisedFacilities = new HashSet<>();
-
-    profiler.start("CHECK_IF_REQ_GROUP_SUPPORTS_PROGRAM");
-
-    if (requisitionGroup != null && (null == program || requisitionGroup.supports(program))) {
-      profiler.start("REQ_GROUP_GET_MEMBER_FACILITIES");
-      Set<Facility> facilities = requisitionGroup
-          .getMemberFacilities()
-          .stream()
-          .filter(member -> null == program || member.supports(program))
-          .collect(Collectors.toSet());
-      supervisedFacilities.addAll(facilities);
-    }
-
-    profiler.start("GET_FACILITIES_FROM_CHILD_NODES");
-    if (childNodes != null) {
-      for (SupervisoryNode childNode : childNodes) {
-        profiler.start("GET_SUPERVISED_FACILITIES_FROM_NODE");
-        supervisedFacilities.addAll(childNode.getAllSupervisedFacilities(program));
-      }
-    }
-
-    profiler.stop().log();
-
-    return supervisedFacilities;
-  }
-
-  /**
-   * Check to see if this supervisory node supervises the specified facility, by program.
-   */
-  public boolean supervises(Facility facility, Program program) {
-    return getAllSupervisedFacilities(program).contains(facility);
-  }
-
   /**
    * Copy values of attributes into new or updated SupervisoryNode.
    *
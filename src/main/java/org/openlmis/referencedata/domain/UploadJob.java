@@ -0,0 +1,191 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.domain;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Asynchronous upload of a CSV file. The file is kept on the local disk of the instance that
+ * accepted it until the upload is finished.
+ */
+@Entity
+@Table(name = "upload_jobs", schema = "referencedata")
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+@Getter
+public class UploadJob extends BaseEntity {
+
+  private static final String TEXT = "text";
+  private static final long MILLIS_PER_SECOND = 1000L;
+
+  @Column(nullable = false, columnDefinition = TEXT)
+  private String resourceName;
+
+  @Column(nullable = false, columnDefinition = TEXT)
+  private String fileName;
+
+  @Column(nullable = false, columnDefinition = TEXT)
+  private String filePath;
+
+  @Column(nullable = false)
+  private boolean allOrNothing;
+
+  @Column(nullable = false, columnDefinition = TEXT)
+  @Enumerated(EnumType.STRING)
+  private Status status;
+
+  @Column(nullable = false)
+  private int totalRows;
+
+  @Column(nullable = false)
+  private int processedRows;
+
+  @Column(columnDefinition = TEXT)
+  private String errorMessage;
+
+  @Column(nullable = false, columnDefinition = "timestamp with time zone")
+  private ZonedDateTime createdDate;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime startedDate;
+
+  @Column(columnDefinition = "timestamp with time zone")
+  private ZonedDateTime finishedDate;
+
+  @Column(columnDefinition = TEXT)
+  private String owner;
+
+  /**
+   * Creates a new pending upload job of the given file.
+   *
+   * @param resourceName name of the uploaded resource, for example {@code idealStockAmounts}
+   * @param fileName     original name of the uploaded file
+   * @param filePath     path of the uploaded file on the local disk
+   * @param allOrNothing whether no records should be saved if any of them is invalid
+   * @param totalRows    number of records in the file
+   * @return new instance of upload job
+   */
+  public static UploadJob newUploadJob(String resourceName, String fileName, String filePath,
+                                       boolean allOrNothing, int totalRows) {
+    UploadJob job = new UploadJob();
+    job.resourceName = resourceName;
+    job.fileName = fileName;
+    job.filePath = filePath;
+    job.allOrNothing = allOrNothing;
+    job.status = Status.PENDING;
+    job.totalRows = totalRows;
+    job.createdDate = ZonedDateTime.now();
+    return job;
+  }
+
+  public boolean isFinished() {
+    return Status.COMPLETED == status || Status.FAILED == status;
+  }
+
+  /**
+   * Marks the job as successfully finished.
+   *
+   * @param processedRows number of uploaded records
+   */
+  public void complete(int processedRows) {
+    this.status = Status.COMPLETED;
+    this.processedRows = processedRows;
+    this.finishedDate = ZonedDateTime.now();
+  }
+
+  /**
+   * Marks the job as failed.
+   *
+   * @param errorMessage description of the error
+   */
+  public void fail(String errorMessage) {
+    this.status = Status.FAILED;
+    this.errorMessage = errorMessage;
+    this.finishedDate = ZonedDateTime.now();
+  }
+
+  /**
+   * Exports current state of upload job object. Processing rate and remaining time are computed
+   * at the moment of the export.
+   *
+   * @param exporter instance of {@link Exporter}
+   */
+  public void export(Exporter exporter) {
+    exporter.setId(id);
+    exporter.setResourceName(resourceName);
+    exporter.setFileName(fileName);
+    exporter.setAllOrNothing(allOrNothing);
+    exporter.setStatus(status);
+    exporter.setTotalRows(totalRows);
+    exporter.setProcessedRows(processedRows);
+    exporter.setErrorMessage(errorMessage);
+    exporter.setCreatedDate(createdDate);
+    exporter.setStartedDate(startedDate);
+    exporter.setFinishedDate(finishedDate);
+
+    if (null != startedDate && processedRows > 0) {
+      ZonedDateTime end = null == finishedDate ? ZonedDateTime.now() : finishedDate;
+      long millis = Math.max(Duration.between(startedDate, end).toMillis(), 1L);
+      double rowsPerSecond = processedRows * (double) MILLIS_PER_SECOND / millis;
+
+      exporter.setRowsPerSecond(rowsPerSecond);
+
+      if (!isFinished()) {
+        exporter.setEstimatedSecondsRemaining(
+            (long) Math.ceil(Math.max(totalRows - processedRows, 0) / rowsPerSecond));
+      }
+    }
+  }
+
+  public enum Status {
+    PENDING, RUNNING, COMPLETED, FAILED
+  }
+
+  public interface Exporter extends BaseExporter {
+
+    void setResourceName(String resourceName);
+
+    void setFileName(String fileName);
+
+    void setAllOrNothing(boolean allOrNothing);
+
+    void setStatus(Status status);
+
+    void setTotalRows(int totalRows);
+
+    void setProcessedRows(int processedRows);
+
+    void setRowsPerSecond(Double rowsPerSecond);
+
+    void setEstimatedSecondsRemaining(Long estimatedSecondsRemaining);
+
+    void setErrorMessage(String errorMessage);
+
+    void setCreatedDate(ZonedDateTime createdDate);
+
+    void setStartedDate(ZonedDateTime startedDate);
+
+    void setFinishedDate(ZonedDateTime finishedDate);
+  }
+}
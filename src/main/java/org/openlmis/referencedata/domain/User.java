@@ -22,6 +22,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
@@ -132,30 +133,44 @@ public class User extends BaseEntity {
   }
 
   /**
-   * Get all facilities being supervised by this user, by right and program.
+   * Get IDs of all facilities being supervised by this user, by right and program.
    *
    * @param right right to check
    * @param program program to check
-   * @return set of supervised facilities
+   * @return set of supervised facility IDs
    */
-  public Set<Facility> getSupervisedFacilities(Right right, Program program) {
+  public Set<UUID> getSupervisedFacilityIds(Right right, Program program) {
     Profiler profiler = new Profiler("GET_SUPERVISED_FACILITIES_FOR_USER");
     profiler.setLogger(LOGGER);
 
-    Set<Facility> supervisedFacilities = new HashSet<>();
+    Set<UUID> supervisedFacilityIds = new HashSet<>();
 
     profiler.start("FOR_EACH_ROLE_ASSIGNMENT");
     for (RoleAssignment roleAssignment : roleAssignments) {
       if (roleAssignment instanceof SupervisionRoleAssignment) {
         profiler.start("GET_FACILITIES_FOR_RIGHT");
-        supervisedFacilities.addAll((
-            (SupervisionRoleAssignment) roleAssignment).getSupervisedFacilities(right, program));
+        supervisedFacilityIds.addAll((
+            (SupervisionRoleAssignment) roleAssignment).getSupervisedFacilityIds(right, program));
       }
     }
 
     profiler.stop().log();
 
-    return supervisedFacilities;
+    return supervisedFacilityIds;
+  }
+
+  boolean hasRightAssignment(String rightName, UUID facilityId, UUID programId) {
+    return rightAssignments.contains(new RightAssignment(this, rightName, facilityId, programId));
+  }
+
+  Set<UUID> getRightAssignmentFacilityIds(String rightName, UUID programId) {
+    return rightAssignments
+        .stream()
+        .filter(assignment -> rightName.equals(assignment.getRightName())
+            && null != assignment.getFacilityId()
+            && programId.equals(assignment.getProgramId()))
+        .map(RightAssignment::getFacilityId)
+        .collect(Collectors.toSet());
   }
 
   void addRightAssignment(String rightName) {
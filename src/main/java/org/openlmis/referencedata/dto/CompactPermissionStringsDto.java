@@ -0,0 +1,80 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.dto;
+
+import com.google.common.base.Splitter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Dictionary-encoded permission strings. Right names, facility IDs and program IDs are listed
+ * once and each permission is an array of indexes into them: {@code [right]},
+ * {@code [right, facility]} or {@code [right, facility, program]}.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactPermissionStringsDto {
+
+  private static final char SEPARATOR = '|';
+
+  private long version;
+  private String digest;
+  private List<String> rights;
+  private List<String> facilities;
+  private List<String> programs;
+  private List<int[]> permissions;
+
+  /**
+   * Encodes the given permission strings in the compact format.
+   */
+  public static CompactPermissionStringsDto of(long version, String digest,
+      Collection<String> permissionStrings) {
+    Map<String, Integer> rights = new LinkedHashMap<>();
+    Map<String, Integer> facilities = new LinkedHashMap<>();
+    Map<String, Integer> programs = new LinkedHashMap<>();
+    List<int[]> permissions = new ArrayList<>(permissionStrings.size());
+
+    for (String permissionString : permissionStrings) {
+      List<String> parts = Splitter.on(SEPARATOR).limit(3).splitToList(permissionString);
+      int[] permission = new int[parts.size()];
+      permission[0] = indexOf(rights, parts.get(0));
+
+      if (parts.size() > 1) {
+        permission[1] = indexOf(facilities, parts.get(1));
+      }
+
+      if (parts.size() > 2) {
+        permission[2] = indexOf(programs, parts.get(2));
+      }
+
+      permissions.add(permission);
+    }
+
+    return new CompactPermissionStringsDto(version, digest, new ArrayList<>(rights.keySet()),
+        new ArrayList<>(facilities.keySet()), new ArrayList<>(programs.keySet()), permissions);
+  }
+
+  private static int indexOf(Map<String, Integer> dictionary, String value) {
+    return dictionary.computeIfAbsent(value, key -> dictionary.size());
+  }
+}
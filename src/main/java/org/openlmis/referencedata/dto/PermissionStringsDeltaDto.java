@@ -0,0 +1,39 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.dto;
+
+import java.util.Set;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+/**
+ * Permission strings of a user added and removed since the version the client already has. If
+ * the changes since that version are no longer known, the response is complete: all permission
+ * strings of the user are returned as added and the client should replace its copy.
+ */
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+public class PermissionStringsDeltaDto {
+
+  private long sinceVersion;
+  private long version;
+  private String digest;
+  private boolean complete;
+  private Set<String> added;
+  private Set<String> removed;
+}
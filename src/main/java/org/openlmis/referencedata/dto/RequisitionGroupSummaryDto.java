@@ -0,0 +1,74 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+
+package org.openlmis.referencedata.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.openlmis.referencedata.domain.Facility;
+
+/**
+ * Requisition group with the number of its member facilities. Member facilities themselves are
+ * only present if they were explicitly expanded.
+ */
+@NoArgsConstructor
+public class RequisitionGroupSummaryDto extends RequisitionGroupBaseDto {
+
+  @Getter
+  @Setter
+  private Long memberCount;
+
+  @JsonProperty
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  private Set<FacilityDto> memberFacilities;
+
+  /**
+   * Creates new instance from the columns of the requisition group summary query.
+   */
+  public RequisitionGroupSummaryDto(UUID id, String code, String name, String description,
+      UUID supervisoryNodeId, Long memberCount) {
+    super(id);
+    setCode(code);
+    setName(name);
+    setDescription(description);
+    setSupervisoryNode(null == supervisoryNodeId
+        ? null
+        : new SupervisoryNodeDto(supervisoryNodeId));
+    this.memberCount = memberCount;
+  }
+
+  @Override
+  @JsonInclude(JsonInclude.Include.NON_NULL)
+  public Set<Facility.Importer> getMemberFacilities() {
+    if (memberFacilities == null) {
+      return null;
+    }
+
+    Set<Facility.Importer> facilities = new HashSet<>();
+    facilities.addAll(memberFacilities);
+    return facilities;
+  }
+
+  public void setMemberFacilityDtos(Set<FacilityDto> memberFacilities) {
+    this.memberFacilities = memberFacilities;
+  }
+}
@@ -76,4 +76,18 @@ public final class RightAssignmentDto {
     columns[4] = programId != null ? programId.toString() : null;
     return columns;
   }
+
+  /**
+   * Converts to a permission string in the same format as the ones returned for users:
+   * {@code right}, {@code right|facility} or {@code right|facility|program}.
+   */
+  public String toPermissionString() {
+    if (null == facilityId && null == programId) {
+      return rightName;
+    }
+
+    return null == programId
+        ? rightName + '|' + facilityId
+        : rightName + '|' + facilityId + '|' + programId;
+  }
 }
@@ -0,0 +1,54 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.dto;
+
+import java.time.ZonedDateTime;
+import java.util.UUID;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
+import org.openlmis.referencedata.domain.UploadJob;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@ToString
+public final class UploadJobDto implements UploadJob.Exporter {
+  private UUID id;
+  private String resourceName;
+  private String fileName;
+  private boolean allOrNothing;
+  private UploadJob.Status status;
+  private int totalRows;
+  private int processedRows;
+  private Double rowsPerSecond;
+  private Long estimatedSecondsRemaining;
+  private String errorMessage;
+  private ZonedDateTime createdDate;
+  private ZonedDateTime startedDate;
+  private ZonedDateTime finishedDate;
+
+  /**
+   * Creates new instance of {@link UploadJobDto} based on passed upload job.
+   */
+  public static UploadJobDto newInstance(UploadJob job) {
+    UploadJobDto dto = new UploadJobDto();
+    job.export(dto);
+
+    return dto;
+  }
+}
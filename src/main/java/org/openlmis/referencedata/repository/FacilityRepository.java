@@ -16,6 +16,7 @@
 package org.openlmis.referencedata.repository;
 
 import com.vividsolutions.jts.geom.Polygon;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -44,12 +45,17 @@ public interface FacilityRepository
 
   Optional<Facility> findByCode(String code);
 
+  List<Facility> findByCodeIn(Collection<String> codes);
+
   @Query(name = "Facility.findSupervisionFacilitiesByUser",
       nativeQuery = true)
   Set<NamedResource> findSupervisionFacilitiesByUser(@Param("userId") UUID userId);
 
   boolean existsByCode(String code);
 
+  @Query("SELECT f.id FROM Facility f WHERE f.id IN :ids")
+  Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
   Page<Facility> findByActive(Boolean active, Pageable pageable);
 
   @Query(value = "SELECT\n"
@@ -15,6 +15,7 @@
 
 package org.openlmis.referencedata.repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -35,6 +36,9 @@ public interface ProcessingPeriodRepository extends JpaRepository<ProcessingPeri
   Optional<ProcessingPeriod> findOneByNameAndProcessingSchedule(String name,
                                                                 ProcessingSchedule schedule);
 
+  List<ProcessingPeriod> findByProcessingScheduleInAndNameIn(
+      Collection<ProcessingSchedule> schedules, Collection<String> names);
+
   @Query(value = "SELECT\n"
       + "    p.*\n"
       + "FROM\n"
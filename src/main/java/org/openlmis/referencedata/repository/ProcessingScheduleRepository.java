@@ -15,6 +15,8 @@
 
 package org.openlmis.referencedata.repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import org.openlmis.referencedata.domain.Code;
@@ -29,6 +31,8 @@ public interface ProcessingScheduleRepository
       BaseAuditableRepository<ProcessingSchedule, UUID> {
   Optional<ProcessingSchedule> findOneByCode(Code code);
 
+  List<ProcessingSchedule> findByCodeIn(Collection<Code> codes);
+
   @Query(value = "SELECT\n"
       + "    ps.*\n"
       + "FROM\n"
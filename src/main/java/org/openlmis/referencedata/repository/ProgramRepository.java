@@ -59,6 +59,9 @@ public interface ProgramRepository
 
   boolean existsByCode(Code programCode);
 
+  @Query("SELECT p.id FROM Program p WHERE p.id IN :ids")
+  Set<UUID> findExistingIds(@Param("ids") Collection<UUID> ids);
+
   List<Program> findByNameIgnoreCaseContaining(String name);
 
   List<Program> findByIdInAndNameIgnoreCaseContaining(Collection<UUID> ids, String name);
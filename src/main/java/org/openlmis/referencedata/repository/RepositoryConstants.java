@@ -19,11 +19,11 @@ class RepositoryConstants {
 
   static final String FROM_ORDERABLES_CLAUSE = " FROM Orderable o";
   static final String FROM_REFERENCEDATA_ORDERABLES_CLAUSE = " FROM referencedata.orderables o";
-  static final String WHERE_LATEST_ORDERABLE = " WHERE (o.identity.id, o.identity.versionNumber)"
-      + " IN (SELECT identity.id, MAX(identity.versionNumber)"
-      + " FROM Orderable GROUP BY identity.id)";
-  static final String JOIN_WITH_LATEST_ORDERABLE = " JOIN (SELECT id, MAX(versionNumber)"
-          + " AS versionNumber FROM referencedata.orderables GROUP BY id) AS latest"
+  static final String WHERE_LATEST_ORDERABLE = " WHERE EXISTS (SELECT latest.id"
+      + " FROM LatestOrderableVersion latest"
+      + " WHERE latest.id = o.identity.id AND latest.versionNumber = o.identity.versionNumber)";
+  static final String JOIN_WITH_LATEST_ORDERABLE =
+      " JOIN referencedata.latest_orderable_versions AS latest"
           + " ON o.id = latest.id AND o.versionNumber = latest.versionNumber";
   static final String ORDER_BY_PAGEABLE = " ";
   static final String SELECT_ORDERABLE = "Select o";
@@ -0,0 +1,83 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import org.openlmis.referencedata.domain.UploadJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+public interface UploadJobRepository extends JpaRepository<UploadJob, UUID> {
+
+  List<UploadJob> findByStatusIn(Collection<UploadJob.Status> statuses);
+
+  /**
+   * Changes status of the given job if it still has the expected status, so that only one caller
+   * can start a job. The given owner is recorded as the instance running the job.
+   *
+   * @return 1 if the status was changed, 0 otherwise
+   */
+  @Modifying
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Query("UPDATE UploadJob j SET j.status = :status, j.startedDate = :startedDate,"
+      + " j.owner = :owner WHERE j.id = :id AND j.status = :expectedStatus")
+  int updateStatus(@Param("id") UUID id, @Param("expectedStatus") UploadJob.Status expectedStatus,
+                   @Param("status") UploadJob.Status status,
+                   @Param("startedDate") ZonedDateTime startedDate,
+                   @Param("owner") String owner);
+
+  /**
+   * Changes status of the given job if it still has the expected status and is owned by the
+   * given instance, so that jobs run by other instances are not taken over. Progress of the job
+   * is reset.
+   *
+   * @return 1 if the status was changed, 0 otherwise
+   */
+  @Modifying
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Query("UPDATE UploadJob j SET j.status = :status, j.processedRows = 0, j.startedDate = NULL"
+      + " WHERE j.id = :id AND j.status = :expectedStatus AND j.owner = :owner")
+  int resetStatus(@Param("id") UUID id, @Param("expectedStatus") UploadJob.Status expectedStatus,
+                  @Param("status") UploadJob.Status status, @Param("owner") String owner);
+
+  /**
+   * Updates status, error message and finished date of the given job. Other columns are not
+   * touched, so the number of processed rows reported so far is kept.
+   */
+  @Modifying
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Query("UPDATE UploadJob j SET j.status = :status, j.errorMessage = :errorMessage,"
+      + " j.finishedDate = :finishedDate WHERE j.id = :id")
+  int updateResult(@Param("id") UUID id, @Param("status") UploadJob.Status status,
+                   @Param("errorMessage") String errorMessage,
+                   @Param("finishedDate") ZonedDateTime finishedDate);
+
+  /**
+   * Updates the number of processed rows of the given job. The update is committed right away,
+   * even if the rows themselves are written in a transaction that is still open.
+   */
+  @Modifying
+  @Transactional(propagation = Propagation.REQUIRES_NEW)
+  @Query("UPDATE UploadJob j SET j.processedRows = :processedRows WHERE j.id = :id")
+  int updateProcessedRows(@Param("id") UUID id, @Param("processedRows") int processedRows);
+}
@@ -15,6 +15,8 @@
 
 package org.openlmis.referencedata.repository.custom;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.UUID;
 
 public interface CrudRedisRepository<T> {
@@ -23,7 +25,18 @@ public interface CrudRedisRepository<T> {
 
   T findById(UUID uuid);
 
+  /**
+   * Finds all cached objects with the given ids with a single round trip. Ids that are not
+   * cached are skipped, so the result may be shorter than the given collection.
+   */
+  List<T> findAllById(Collection<UUID> uuids);
+
   void save(T object);
 
+  /**
+   * Saves all given objects with a single round trip.
+   */
+  void saveAll(Collection<T> objects);
+
   void delete(T object);
 }
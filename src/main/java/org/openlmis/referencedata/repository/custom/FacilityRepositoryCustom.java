@@ -20,9 +20,15 @@ import java.util.UUID;
 import org.openlmis.referencedata.domain.Facility;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public interface FacilityRepositoryCustom {
 
+  /**
+   * Order of facilities in keyset paginated searches.
+   */
+  Sort KEYSET_ORDER = Sort.by("name", "id");
+
   Page<Facility> search(SearchParams params, Set<UUID> geographicZoneIds, String extraData,
       Pageable pageable);
 
@@ -22,6 +22,7 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.openlmis.referencedata.domain.FacilityTypeApprovedProduct;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 public interface FacilityTypeApprovedProductRepositoryCustom {
 
@@ -30,6 +31,26 @@ public interface FacilityTypeApprovedProductRepositoryCustom {
 
   Page<FacilityTypeApprovedProduct> searchProducts(SearchParams searchParams, Pageable pageable);
 
+  /**
+   * Returns up to the given number of FTAPs, ordered by id, with ids greater than the last id
+   * (or from the beginning if the last id is null). The total number of matching FTAPs is not
+   * calculated.
+   */
+  Slice<FacilityTypeApprovedProduct> searchProductsAfter(UUID facilityId, UUID program,
+      Boolean fullSupply, List<UUID> orderableIds, Boolean active, UUID lastId, int limit);
+
+  /**
+   * Returns the id of the type of the given facility. Throws
+   * {@link org.openlmis.referencedata.exception.ValidationMessageException} if the facility does
+   * not exist.
+   */
+  UUID findFacilityTypeId(UUID facilityId);
+
+  /**
+   * Drops the cached types of all facilities, so that the next searches read them again.
+   */
+  void evictFacilityTypes();
+
   interface SearchParams {
 
     Set<String> getFacilityTypeCodes();
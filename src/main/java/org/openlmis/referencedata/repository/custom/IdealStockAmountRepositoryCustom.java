@@ -15,8 +15,10 @@
 
 package org.openlmis.referencedata.repository.custom;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 import org.openlmis.referencedata.domain.IdealStockAmount;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -27,4 +29,8 @@ public interface IdealStockAmountRepositoryCustom {
 
   Page<IdealStockAmount> search(UUID facilityId, UUID commodityTypeId, UUID processingPeriodId,
                                 Pageable pageable);
+
+  void upsert(Collection<IdealStockAmount> idealStockAmounts);
+
+  Stream<IdealStockAmount> stream(UUID facilityId, UUID commodityTypeId, UUID processingPeriodId);
 }
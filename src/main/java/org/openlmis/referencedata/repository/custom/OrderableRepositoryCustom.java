@@ -22,9 +22,15 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.openlmis.referencedata.domain.Orderable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public interface OrderableRepositoryCustom {
 
+  /**
+   * Order of orderables in keyset paginated searches.
+   */
+  Sort KEYSET_ORDER = Sort.by("identity.id", "identity.versionNumber");
+
   Page<Orderable> search(SearchParams searchParams, Pageable pageable);
 
   ZonedDateTime findLatestModifiedDateByParams(SearchParams searchParams);
@@ -21,8 +21,14 @@ import java.util.UUID;
 import org.openlmis.referencedata.domain.ProcessingPeriod;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public interface ProcessingPeriodRepositoryCustom {
+
+  /**
+   * Order of processing periods in keyset paginated searches.
+   */
+  Sort KEYSET_ORDER = Sort.by("startDate", "id");
   Page<ProcessingPeriod> search(UUID scheduleId, UUID programId, UUID facilityId,
       LocalDate startDate, LocalDate endDate, Collection<UUID> ids, Pageable pageable);
 }
@@ -15,14 +15,22 @@
 
 package org.openlmis.referencedata.repository.custom;
 
-import java.util.List;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.openlmis.referencedata.domain.Facility;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.RequisitionGroup;
-import org.openlmis.referencedata.domain.SupervisoryNode;
+import org.openlmis.referencedata.dto.RequisitionGroupSummaryDto;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 public interface RequisitionGroupRepositoryCustom {
-  Page<RequisitionGroup> search(String code, String name, Program program,
-                                List<SupervisoryNode> supervisoryNode, Pageable pageable);
+  Page<RequisitionGroup> search(String code, String name, Program program, UUID zoneId,
+                                Pageable pageable);
+
+  Page<RequisitionGroupSummaryDto> findAllSummaries(Pageable pageable);
+
+  Map<UUID, Set<Facility>> findMemberFacilities(Collection<UUID> requisitionGroupIds);
 }
@@ -20,9 +20,15 @@ import java.util.UUID;
 import org.openlmis.referencedata.domain.SupplyLine;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public interface SupplyLineRepositoryCustom {
 
+  /**
+   * Order of supply lines in keyset paginated searches.
+   */
+  Sort KEYSET_ORDER = Sort.by("id");
+
   Page<SupplyLine> search(UUID programId, UUID supervisoryNodeId, Set<UUID> supplyingFacilityIds,
       Pageable pageable);
 }
@@ -20,9 +20,15 @@ import org.openlmis.referencedata.domain.User;
 import org.openlmis.referencedata.repository.UserSearchParams;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public interface UserRepositoryCustom {
 
+  /**
+   * Order of users in keyset paginated searches.
+   */
+  Sort KEYSET_ORDER = Sort.by("username", "id");
+
   Page<User> searchUsers(UserSearchParams searchParams, List<User> foundUsers, Pageable pageable);
 
 }
@@ -15,14 +15,24 @@
 
 package org.openlmis.referencedata.repository.custom.impl;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import javax.annotation.PostConstruct;
+import lombok.Getter;
 import lombok.Setter;
 import org.openlmis.referencedata.domain.Identifiable;
 import org.openlmis.referencedata.repository.custom.CrudRedisRepository;
+import org.openlmis.referencedata.serializer.RedisCacheSerializerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.HashOperations;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -30,12 +40,29 @@ public abstract class BaseRedisRepository<T extends Identifiable>
     implements CrudRedisRepository<T> {
 
   private RedisTemplate redisTemplate;
-  private HashOperations hashOperations;
-  private ObjectMapper mapper = new ObjectMapper();
+  private HashOperations<String, Object, T> hashOperations;
 
   @Setter
   private Class<T> clazz;
 
+  @Value("${redis.nearCache.maxSize}")
+  private long nearCacheMaxSize;
+
+  @Value("${redis.nearCache.timeToLive}")
+  private long nearCacheTimeToLive;
+
+  @Autowired
+  private RedisCacheSerializerFactory serializerFactory;
+
+  @Autowired(required = false)
+  private RedisMessageListenerContainer listenerContainer;
+
+  @Autowired(required = false)
+  private MeterRegistry meterRegistry;
+
+  @Getter
+  private RedisNearCache<T> nearCache;
+
   public BaseRedisRepository(RedisTemplate redisTemplate, Class<T> clazz) {
     this.redisTemplate = redisTemplate;
     this.clazz = clazz;
@@ -43,28 +70,103 @@ public abstract class BaseRedisRepository<T extends Identifiable>
 
   @PostConstruct
   protected void init() {
-    hashOperations = redisTemplate.opsForHash();
+    // values are read straight into the target class, keys are kept as they were
+    RedisTemplate<String, T> typedTemplate = new RedisTemplate<>();
+    typedTemplate.setConnectionFactory(redisTemplate.getConnectionFactory());
+    typedTemplate.setKeySerializer(redisTemplate.getKeySerializer());
+    typedTemplate.setHashKeySerializer(redisTemplate.getHashKeySerializer());
+    typedTemplate.setHashValueSerializer(serializerFactory.create(clazz));
+    typedTemplate.afterPropertiesSet();
+
+    hashOperations = typedTemplate.opsForHash();
+    nearCache = new RedisNearCache<>(redisTemplate, getHashKey(), nearCacheMaxSize,
+        nearCacheTimeToLive);
+
+    nearCache.subscribe(listenerContainer);
+
+    if (null != meterRegistry) {
+      nearCache.bindTo(meterRegistry);
+    }
   }
 
   @Override
   public boolean exists(UUID id) {
-    return hashOperations.hasKey(getHashKey(), id.toString());
+    return null != nearCache.get(id) || hashOperations.hasKey(getHashKey(), id.toString());
   }
 
   @Override
   public T findById(UUID id) {
-    return mapper.convertValue(this.redisTemplate.opsForHash()
-        .get(getHashKey(), id), clazz);
+    T cached = nearCache.get(id);
+
+    if (null != cached) {
+      return cached;
+    }
+
+    T entity = hashOperations.get(getHashKey(), id);
+
+    if (null != entity) {
+      nearCache.put(id, entity);
+    }
+
+    return entity;
+  }
+
+  @Override
+  public List<T> findAllById(Collection<UUID> ids) {
+    List<T> found = new ArrayList<>(ids.size());
+    List<Object> notCached = new ArrayList<>();
+
+    for (UUID id : ids) {
+      T cached = nearCache.get(id);
+
+      if (null != cached) {
+        found.add(cached);
+      } else {
+        notCached.add(id);
+      }
+    }
+
+    if (notCached.isEmpty()) {
+      return found;
+    }
+
+    List<T> values = hashOperations.multiGet(getHashKey(), notCached);
+
+    for (int i = 0; i < notCached.size(); ++i) {
+      T entity = values.get(i);
+
+      if (null != entity) {
+        nearCache.put((UUID) notCached.get(i), entity);
+        found.add(entity);
+      }
+    }
+
+    return found;
+  }
+
+  @Override
+  public void saveAll(Collection<T> entities) {
+    if (entities.isEmpty()) {
+      return;
+    }
+
+    Map<UUID, T> entries = new LinkedHashMap<>();
+    entities.forEach(entity -> entries.put(entity.getId(), entity));
+
+    hashOperations.putAll(getHashKey(), entries);
+    nearCache.invalidateAll(entries.keySet());
   }
 
   @Override
   public void save(T entity) {
     hashOperations.put(getHashKey(), entity.getId(), entity);
+    nearCache.invalidate(entity.getId());
   }
 
   @Override
   public void delete(T entity) {
     hashOperations.delete(getHashKey(), entity.getId().toString());
+    nearCache.invalidate(entity.getId());
   }
 
   protected abstract String getHashKey();
@@ -15,11 +15,11 @@
 
 package org.openlmis.referencedata.repository.custom.impl;
 
-import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.util.Collections;
@@ -27,24 +27,38 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import org.apache.commons.lang3.tuple.Pair;
 import org.hibernate.query.NativeQuery;
+import org.hibernate.type.LongType;
 import org.hibernate.type.PostgresUUIDType;
 import org.openlmis.referencedata.domain.Facility;
 import org.openlmis.referencedata.repository.custom.FacilityRepositoryCustom;
+import org.openlmis.referencedata.util.KeysetPage;
+import org.openlmis.referencedata.util.KeysetPageable;
+import org.openlmis.referencedata.util.PageCursor;
 import org.openlmis.referencedata.util.Pagination;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
 
-  private static final String NATIVE_SELECT_BY_PARAMS = "SELECT DISTINCT f.id AS ID"
-      + " FROM referencedata.facilities AS f"
+  private static final String NATIVE_FROM = " FROM referencedata.facilities AS f"
       + " INNER JOIN referencedata.geographic_zones AS g ON f.geographiczoneid = g.id"
       + " INNER JOIN referencedata.facility_types AS t ON f.typeid = t.id";
 
+  private static final String NATIVE_SELECT_WITH_TOTAL =
+      "SELECT f.id AS id, f.name AS name, COUNT(*) OVER () AS total" + NATIVE_FROM;
+
+  private static final String NATIVE_SELECT_WITHOUT_TOTAL =
+      "SELECT f.id AS id, f.name AS name, 0 AS total" + NATIVE_FROM;
+
+  private static final String NATIVE_COUNT = "SELECT COUNT(*)" + NATIVE_FROM;
+
   private static final String HQL_COUNT = "SELECT DISTINCT COUNT(*)"
       + " FROM Facility AS f"
       + " INNER JOIN f.geographicZone AS g"
@@ -55,17 +69,46 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
       + " INNER JOIN f.geographicZone AS g"
       + " INNER JOIN f.type AS t";
 
+  private static final String HQL_SELECT_BY_IDS = "SELECT f FROM Facility AS f"
+      + " WHERE f.id IN (:ids)";
+
   private static final String WHERE = "WHERE";
   private static final String AND = " AND ";
   private static final String DEFAULT_SORT = "f.name ASC";
+  private static final String KEYSET_SORT = "f.name ASC, f.id ASC";
   private static final String ORDER_BY = "ORDER BY";
 
+  // the HQL search is sorted by any property of the entity, native SQL only by these
+  private static final Map<String, String> SORTABLE_COLUMNS = ImmutableMap
+      .<String, String>builder()
+      .put("id", "f.id")
+      .put("code", "f.code")
+      .put("name", "f.name")
+      .put("description", "f.description")
+      .put("active", "f.active")
+      .put("enabled", "f.enabled")
+      .put("goLiveDate", "f.goLiveDate")
+      .put("goDownDate", "f.goDownDate")
+      .put("comment", "f.comment")
+      .put("openLmisAccessible", "f.openLmisAccessible")
+      .build();
+
   private static final String WITH_CODE = "UPPER(f.code) LIKE :code";
   private static final String WITH_NAME = "UPPER(f.name) LIKE :name";
   private static final String WITH_ZONE = "g.id IN (:zones)";
   private static final String WITH_IDS = "f.id IN (:ids)";
   private static final String WITH_TYPE = "t.code = :typeCode";
   private static final String WITH_EXTRA_DATA = "f.extradata @> (:extraData)\\:\\:jsonb";
+  private static final String WITH_CURSOR = "(f.name > :cursorName"
+      + " OR (f.name = :cursorName AND f.id > :cursorId))";
+
+  // the window count is computed before the cursor condition, so it is the total of the search
+  private static final String NATIVE_SELECT_AFTER_CURSOR = "SELECT id, name, total"
+      + " FROM (%s) AS f WHERE " + WITH_CURSOR;
+
+  private static final String NAME = "name";
+  private static final String ID = "id";
+  private static final String TOTAL = "total";
 
   @PersistenceContext
   private EntityManager entityManager;
@@ -88,70 +131,155 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
     return searchWithoutExtraData(searchParams, geographicZoneIds, pageable);
   }
 
+  /**
+   * Filters, sorts, pages and counts in a single native query, the total is computed with a
+   * window function. Only the facilities of the page are then loaded by their IDs.
+   */
   private Page<Facility> searchWithExtraData(FacilityRepositoryCustom.SearchParams searchParams,
       Set<UUID> geographicZoneIds, String extraData, Pageable pageable) {
+    boolean counted = PageableUtil.isCounted(pageable);
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+    PageCursor cursor = null == keyset ? null : keyset.getCursor();
 
     Map<String, Object> params = Maps.newHashMap();
-    String query =
-        prepareQuery(NATIVE_SELECT_BY_PARAMS, searchParams, geographicZoneIds, extraData, params);
+    String sql = prepareQuery(counted ? NATIVE_SELECT_WITH_TOTAL : NATIVE_SELECT_WITHOUT_TOTAL,
+        searchParams, geographicZoneIds, extraData, null, params);
+
+    if (null != cursor) {
+      sql = String.format(NATIVE_SELECT_AFTER_CURSOR, sql);
+      putCursor(cursor, params);
+    }
 
-    Query nativeQuery = entityManager.createNativeQuery(query);
+    Query nativeQuery = entityManager
+        .createNativeQuery(Joiner.on(' ').join(sql, ORDER_BY,
+            getNativeOrderPredicate(pageable)));
     params.forEach(nativeQuery::setParameter);
 
-    NativeQuery sqlQuery = nativeQuery.unwrap(NativeQuery.class);
-    sqlQuery.addScalar("ID", PostgresUUIDType.INSTANCE);
+    nativeQuery.unwrap(NativeQuery.class)
+        .addScalar(ID, PostgresUUIDType.INSTANCE)
+        .addScalar(TOTAL, LongType.INSTANCE);
 
-    // appropriate scalar is added to native query
+    Pair<Integer, Integer> maxAndFirst = PageableUtil.querysMaxAndFirstResult(pageable);
+
+    // appropriate scalars are added to native query
     @SuppressWarnings("unchecked")
-    List<UUID> ids = nativeQuery.getResultList();
+    List<Object[]> rows = nativeQuery
+        .setMaxResults(maxAndFirst.getLeft())
+        .setFirstResult(maxAndFirst.getRight())
+        .getResultList();
 
-    if (isEmpty(ids)) {
-      return Pagination.getPage(Collections.emptyList(), pageable, 0);
+    if (rows.isEmpty()) {
+      // past the last page there is no row to carry the window count
+      long count = counted && (maxAndFirst.getRight() > 0 || null != cursor)
+          ? countWithExtraData(searchParams, geographicZoneIds, extraData)
+          : 0;
+      return Pagination.getPage(Collections.emptyList(), pageable, count);
     }
 
-    String hqlWithSort = Joiner.on(' ').join(Lists.newArrayList(HQL_SELECT, WHERE, WITH_IDS,
-        ORDER_BY, PageableUtil.getOrderPredicate(pageable, "f.", DEFAULT_SORT)));
-
-    List<Facility> facilities =  entityManager
-        .createQuery(hqlWithSort, Facility.class)
+    List<UUID> ids = rows.stream().map(row -> (UUID) row[0]).collect(Collectors.toList());
+    Map<UUID, Facility> facilities = entityManager
+        .createQuery(HQL_SELECT_BY_IDS, Facility.class)
         .setParameter("ids", ids)
-        .setMaxResults(pageable.getPageSize())
-        .setFirstResult(Math.toIntExact(pageable.getOffset()))
-        .getResultList();
+        .getResultList()
+        .stream()
+        .collect(Collectors.toMap(Facility::getId, Function.identity()));
 
-    return Pagination.getPage(facilities, pageable, ids.size());
+    return toPage(ids.stream().map(facilities::get).collect(Collectors.toList()), pageable,
+        (Long) rows.get(0)[1]);
+  }
+
+  private long countWithExtraData(FacilityRepositoryCustom.SearchParams searchParams,
+      Set<UUID> geographicZoneIds, String extraData) {
+    Map<String, Object> params = Maps.newHashMap();
+    Query countQuery = entityManager.createNativeQuery(prepareQuery(NATIVE_COUNT,
+        searchParams, geographicZoneIds, extraData, null, params));
+    params.forEach(countQuery::setParameter);
+
+    return ((Number) countQuery.getSingleResult()).longValue();
   }
 
   private Page<Facility> searchWithoutExtraData(FacilityRepositoryCustom.SearchParams searchParams,
       Set<UUID> geographicZoneIds, Pageable pageable) {
 
     Map<String, Object> params = Maps.newHashMap();
-    Query countQuery = entityManager.createQuery(prepareQuery(
-        HQL_COUNT, searchParams, geographicZoneIds, null, params), Long.class);
-    params.forEach(countQuery::setParameter);
-    Long count = (Long) countQuery.getSingleResult();
+    long count = 0;
+
+    if (PageableUtil.isCounted(pageable)) {
+      Query countQuery = entityManager.createQuery(prepareQuery(
+          HQL_COUNT, searchParams, geographicZoneIds, null, null, params), Long.class);
+      params.forEach(countQuery::setParameter);
+      count = (Long) countQuery.getSingleResult();
 
-    if (count < 1) {
-      return Pagination.getPage(Collections.emptyList(), pageable, 0);
+      if (count < 1) {
+        return Pagination.getPage(Collections.emptyList(), pageable, 0);
+      }
     }
 
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+    PageCursor cursor = null == keyset ? null : keyset.getCursor();
+
     params = Maps.newHashMap();
     String hqlWithSort = Joiner.on(' ').join(Lists.newArrayList(
-        prepareQuery(HQL_SELECT, searchParams, geographicZoneIds, null, params),
-        ORDER_BY, PageableUtil.getOrderPredicate(pageable, "f.", DEFAULT_SORT)));
+        prepareQuery(HQL_SELECT, searchParams, geographicZoneIds, null, cursor, params),
+        ORDER_BY, getOrderPredicate(pageable)));
 
     Query searchQuery = entityManager.createQuery(hqlWithSort, Facility.class);
     params.forEach(searchQuery::setParameter);
-    List<Facility> facilities =  searchQuery
-        .setMaxResults(pageable.getPageSize())
-        .setFirstResult(Math.toIntExact(pageable.getOffset()))
+
+    return getPage(searchQuery, pageable, count);
+  }
+
+  private Page<Facility> getPage(Query searchQuery, Pageable pageable, long count) {
+    Pair<Integer, Integer> maxAndFirst = PageableUtil.querysMaxAndFirstResult(pageable);
+
+    // the query is created for the Facility class
+    @SuppressWarnings("unchecked")
+    List<Facility> facilities = searchQuery
+        .setMaxResults(maxAndFirst.getLeft())
+        .setFirstResult(maxAndFirst.getRight())
         .getResultList();
 
+    return toPage(facilities, pageable, count);
+  }
+
+  private Page<Facility> toPage(List<Facility> facilities, Pageable pageable, long count) {
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+
+    if (null != keyset) {
+      return KeysetPage.of(facilities, keyset, count,
+          facility -> PageCursor.of(NAME, facility.getId(), facility.getName()));
+    }
+
     return Pagination.getPage(facilities, pageable, count);
   }
 
+  private String getOrderPredicate(Pageable pageable) {
+    return pageable instanceof KeysetPageable
+        ? KEYSET_SORT
+        : PageableUtil.getOrderPredicate(pageable, "f.", DEFAULT_SORT);
+  }
+
+  private String getNativeOrderPredicate(Pageable pageable) {
+    return pageable instanceof KeysetPageable
+        ? KEYSET_SORT
+        : PageableUtil.getOrderPredicate(pageable, SORTABLE_COLUMNS, DEFAULT_SORT);
+  }
+
+  private void addCursor(List<String> where, PageCursor cursor, Map<String, Object> params) {
+    if (null != cursor) {
+      where.add(WITH_CURSOR);
+      putCursor(cursor, params);
+    }
+  }
+
+  private void putCursor(PageCursor cursor, Map<String, Object> params) {
+    params.put("cursorName", cursor.getValue(NAME, Function.identity()));
+    params.put("cursorId", cursor.getId());
+  }
+
   private String prepareQuery(String baseSql, FacilityRepositoryCustom.SearchParams searchParams,
-      Set<UUID> geographicZoneIds, String extraData, Map<String, Object> params) {
+      Set<UUID> geographicZoneIds, String extraData, PageCursor cursor,
+      Map<String, Object> params) {
 
     List<String> sql = Lists.newArrayList(baseSql);
     List<String> where = Lists.newArrayList();
@@ -163,7 +291,7 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
 
     if (isNotBlank(searchParams.getName())) {
       where.add(WITH_NAME);
-      params.put("name", "%" + searchParams.getName().toUpperCase() + "%");
+      params.put(NAME, "%" + searchParams.getName().toUpperCase() + "%");
     }
 
     if (isNotBlank(searchParams.getFacilityTypeCode())) {
@@ -186,6 +314,8 @@ public class FacilityRepositoryImpl implements FacilityRepositoryCustom {
       params.put("ids", searchParams.getIds());
     }
 
+    addCursor(where, cursor, params);
+
     if (!where.isEmpty()) {
       sql.add(WHERE);
       sql.add(Joiner.on(AND).join(where));
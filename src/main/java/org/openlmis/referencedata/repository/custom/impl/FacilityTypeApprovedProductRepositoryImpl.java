@@ -18,15 +18,21 @@ package org.openlmis.referencedata.repository.custom.impl;
 import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.Maps;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
@@ -47,6 +53,7 @@ import org.hibernate.type.PostgresUUIDType;
 import org.openlmis.referencedata.domain.Code;
 import org.openlmis.referencedata.domain.FacilityType;
 import org.openlmis.referencedata.domain.FacilityTypeApprovedProduct;
+import org.openlmis.referencedata.domain.LatestFacilityTypeApprovedProductVersion;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.VersionIdentity;
 import org.openlmis.referencedata.exception.ValidationMessageException;
@@ -57,8 +64,12 @@ import org.openlmis.referencedata.util.messagekeys.FacilityMessageKeys;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 
 @SuppressWarnings({"PMD.TooManyMethods"})
 public class FacilityTypeApprovedProductRepositoryImpl
@@ -70,7 +81,7 @@ public class FacilityTypeApprovedProductRepositoryImpl
 
   private static final String NATIVE_SELECT_FACILITY_TYPE_ID = "SELECT ft.id AS type_id"
       + " FROM referencedata.facility_types AS ft"
-      + " INNER JOIN referencedata.facilities f ON f.typeId = ft.id AND f.id = '%s'";
+      + " INNER JOIN referencedata.facilities f ON f.typeId = ft.id AND f.id = :facilityId";
 
   private static final String FROM_FTAP_TABLE =
       " FROM referencedata.facility_type_approved_products AS ftap";
@@ -81,11 +92,15 @@ public class FacilityTypeApprovedProductRepositoryImpl
       + "   ftap.id AS id,"
       + "   ftap.versionNumber AS versionNumber"
       + FROM_FTAP_TABLE;
+  private static final String NATIVE_SELECT_FTAP_IDENTITIES_WITH_TOTAL = "SELECT"
+      + "   page.id AS id,"
+      + "   page.versionNumber AS versionNumber,"
+      + "   COUNT(*) OVER() AS total"
+      + " FROM (%s) AS page";
   private static final String NATIVE_PROGRAM_INNER_JOIN =
       " INNER JOIN referencedata.programs AS p ON p.id = ftap.programId";
   private static final String NATIVE_ORDERABLE_INNER_JOIN =
-      " INNER JOIN (SELECT id, MAX(versionNumber) AS versionNumber"
-          + "   FROM referencedata.orderables GROUP BY id) AS o"
+      " INNER JOIN referencedata.latest_orderable_versions AS o"
           + "   ON o.id = ftap.orderableId";
   private static final String NATIVE_PROGRAM_ORDERABLE_INNER_JOIN =
       " INNER JOIN referencedata.program_orderables AS po"
@@ -96,12 +111,15 @@ public class FacilityTypeApprovedProductRepositoryImpl
   private static final String NATIVE_FACILITY_TYPE_INNER_JOIN =
       " INNER JOIN referencedata.facility_types AS ft ON ft.id = ftap.facilityTypeId";
   private static final String NATIVE_LATEST_FTAPS_INNER_JOIN =
-      " INNER JOIN (SELECT id, MAX(versionNumber) AS versionNumber"
-          + "   FROM referencedata.facility_type_approved_products GROUP BY id) AS latest"
+      " INNER JOIN referencedata.latest_facility_type_approved_product_versions AS latest"
           + "   ON ftap.id = latest.id AND ftap.versionNumber = latest.versionNumber";
   private static final String NATIVE_FTAP_ACTIVE_FLAG = " ftap.active = :active";
 
-  private static final String NATIVE_PAGEABLE = " LIMIT :limit OFFSET :offset";
+  private static final String NATIVE_FTAP_AFTER_ID = " AND ftap.id > :lastId";
+
+  private static final String NATIVE_ORDER_BY_ID = " ORDER BY id";
+  private static final String NATIVE_LIMIT = " LIMIT :limit";
+  private static final String NATIVE_PAGEABLE = NATIVE_LIMIT + " OFFSET :offset";
 
   private static final String WHERE = " WHERE ";
   private static final String IDENTITY = "identity";
@@ -115,10 +133,30 @@ public class FacilityTypeApprovedProductRepositoryImpl
   private static final String FACILITY_TYPE = "facilityType";
   private static final String PROGRAM_ALIAS = "p";
   private static final String FACILITY_TYPE_ALIAS = "ft";
+  private static final String TOTAL = "total";
+  // keeps the number of bind parameters far below the PostgreSQL limit
+  private static final int MAX_FETCH_SIZE = 10000;
+  private static final String LIMIT = "limit";
 
   @PersistenceContext
   private EntityManager entityManager;
 
+  @Value("${facilityTypeCache.maxSize}")
+  private long facilityTypeCacheMaxSize;
+
+  @Value("${facilityTypeCache.timeToLive}")
+  private long facilityTypeCacheTimeToLive;
+
+  private Cache<UUID, UUID> facilityTypes;
+
+  @PostConstruct
+  void init() {
+    facilityTypes = CacheBuilder.newBuilder()
+        .maximumSize(facilityTypeCacheMaxSize)
+        .expireAfterWrite(facilityTypeCacheTimeToLive, TimeUnit.SECONDS)
+        .build();
+  }
+
   @Override
   public Page<FacilityTypeApprovedProduct> searchProducts(UUID facilityId, UUID programId,
       Boolean fullSupply, List<UUID> orderableIds, Boolean active, Pageable pageable) {
@@ -129,27 +167,42 @@ public class FacilityTypeApprovedProductRepositoryImpl
     profiler.start("SEARCH_FACILITY_TYPE_ID");
     UUID facilityTypeId = getFacilityTypeId(facilityId, profiler);
 
-    profiler.start("CALCULATE_FULL_LIST_SIZE");
-    Query countNativeQuery = prepareNativeQuery(facilityTypeId, programId, fullSupply, orderableIds,
-        active, true, pageable);
+    profiler.start("GET_VERSION_IDENTITY_WITH_TOTAL");
+    StringBuilder builder = new StringBuilder(NATIVE_SELECT_FTAP_IDENTITIES);
+    Map<String, Object> params = Maps.newHashMap();
+    appendSearchCriteria(builder, params, facilityTypeId, programId, fullSupply, orderableIds,
+        active);
 
-    int total = executeCountQuery(countNativeQuery);
+    builder = new StringBuilder(String.format(NATIVE_SELECT_FTAP_IDENTITIES_WITH_TOTAL, builder))
+        .append(NATIVE_ORDER_BY_ID);
+    setPagination(builder, params, pageable);
+
+    Query nativeQuery = createNativeQuery(builder, params, false);
+    nativeQuery.unwrap(NativeQuery.class).addScalar(TOTAL, LongType.INSTANCE);
+
+    // appropriate configuration has been set in the native query
+    @SuppressWarnings("unchecked")
+    List<Object[]> rows = nativeQuery.getResultList();
+
+    if (rows.isEmpty()) {
+      // the window function cannot tell the total when the page is out of range
+      int total = pageable.getOffset() > 0
+          ? executeCountQuery(prepareNativeQuery(facilityTypeId, programId, fullSupply,
+              orderableIds, active, true, pageable))
+          : 0;
 
-    if (total <= 0) {
       profiler.stop().log();
-      return Pagination.getPage(Collections.emptyList(), pageable);
+      return Pagination.getPage(Collections.emptyList(), pageable, total);
     }
 
-    profiler.start("GET_VERSION_IDENTITY");
-    Query nativeQuery = prepareNativeQuery(facilityTypeId, programId, fullSupply, orderableIds,
-        active, false, pageable);
-    List<VersionIdentity> identities = executeNativeQuery(nativeQuery);
+    long total = (Long) rows.get(0)[2];
+    List<UUID> ids = rows
+        .stream()
+        .map(row -> (UUID) row[0])
+        .collect(Collectors.toList());
 
     profiler.start("RETRIEVE_FTAPS");
-    List<FacilityTypeApprovedProduct> ftaps = new ArrayList<>();
-    for (List<VersionIdentity> partition : ListUtils.partition(identities, MAX_IDENTITIES_SIZE)) {
-      ftaps.addAll(retrieveFtaps(partition));
-    }
+    List<FacilityTypeApprovedProduct> ftaps = retrieveLatestFtaps(ids);
 
     profiler.stop().log();
     return Pagination.getPage(ftaps, pageable, total);
@@ -186,19 +239,93 @@ public class FacilityTypeApprovedProductRepositoryImpl
     return Pagination.getPage(ftaps, pageable, total);
   }
 
+  @Override
+  public Slice<FacilityTypeApprovedProduct> searchProductsAfter(UUID facilityId, UUID programId,
+      Boolean fullSupply, List<UUID> orderableIds, Boolean active, UUID lastId, int limit) {
+
+    Profiler profiler = new Profiler("FTAP_REPOSITORY_SEARCH_AFTER");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("SEARCH_FACILITY_TYPE_ID");
+    UUID facilityTypeId = getFacilityTypeId(facilityId, profiler);
+
+    profiler.start("GET_VERSION_IDENTITY");
+    StringBuilder builder = new StringBuilder(NATIVE_SELECT_FTAP_IDENTITIES);
+    Map<String, Object> params = Maps.newHashMap();
+    appendSearchCriteria(builder, params, facilityTypeId, programId, fullSupply, orderableIds,
+        active);
+
+    if (null != lastId) {
+      builder.append(NATIVE_FTAP_AFTER_ID);
+      params.put("lastId", lastId);
+    }
+
+    builder.append(NATIVE_ORDER_BY_ID);
+
+    // one more row is fetched to find out if there is a next slice
+    boolean limited = limit < Pagination.NO_PAGINATION;
+    if (limited) {
+      builder.append(NATIVE_LIMIT);
+      params.put(LIMIT, limit + 1);
+    }
+
+    List<UUID> ids = executeNativeQuery(createNativeQuery(builder, params, false))
+        .stream()
+        .map(VersionIdentity::getId)
+        .collect(Collectors.toList());
+
+    boolean hasNext = limited && ids.size() > limit;
+    if (hasNext) {
+      ids = ids.subList(0, limit);
+    }
+
+    profiler.start("RETRIEVE_FTAPS");
+    List<FacilityTypeApprovedProduct> ftaps = retrieveLatestFtaps(ids);
+
+    profiler.stop().log();
+    return new SliceImpl<>(ftaps, PageRequest.of(0, Math.max(limit, 1)), hasNext);
+  }
+
+  @Override
+  public UUID findFacilityTypeId(UUID facilityId) {
+    Profiler profiler = new Profiler("FTAP_REPOSITORY_FIND_FACILITY_TYPE_ID");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("SEARCH_FACILITY_TYPE_ID");
+    UUID facilityTypeId = getFacilityTypeId(facilityId, profiler);
+
+    profiler.stop().log();
+    return facilityTypeId;
+  }
+
+  @Override
+  public void evictFacilityTypes() {
+    facilityTypes.invalidateAll();
+  }
+
   private UUID getFacilityTypeId(UUID facilityId, Profiler profiler) {
-    String queryString = String.format(NATIVE_SELECT_FACILITY_TYPE_ID, facilityId);
-    Query query = entityManager.createNativeQuery(queryString);
+    UUID facilityTypeId = facilityTypes.getIfPresent(facilityId);
+
+    if (null != facilityTypeId) {
+      return facilityTypeId;
+    }
+
+    Query query = entityManager
+        .createNativeQuery(NATIVE_SELECT_FACILITY_TYPE_ID)
+        .setParameter("facilityId", facilityId);
 
     NativeQuery sql = query.unwrap(NativeQuery.class);
     sql.addScalar("type_id", PostgresUUIDType.INSTANCE);
 
     try {
-      return (UUID) query.getSingleResult();
+      facilityTypeId = (UUID) query.getSingleResult();
     } catch (Exception ex) {
       profiler.stop().log();
       throw new ValidationMessageException(ex, FacilityMessageKeys.ERROR_NOT_FOUND);
     }
+
+    facilityTypes.put(facilityId, facilityTypeId);
+    return facilityTypeId;
   }
 
   @Override
@@ -246,11 +373,7 @@ public class FacilityTypeApprovedProductRepositoryImpl
     if (!isEmpty(identities)) {
       predicate = builder.and(predicate, builder.in(root.get(IDENTITY)).value(identities));
     } else {
-      Subquery<String> latestFtapQuery = createFtapSubQuery(newQuery, builder);
-      predicate = builder.and(predicate, builder.in(builder.concat(
-          root.get(IDENTITY).get(ID).as(String.class),
-          root.get(IDENTITY).get(VERSION_NUMBER).as(String.class)))
-          .value(latestFtapQuery));
+      predicate = builder.and(predicate, isLatestVersion(newQuery, builder, root));
     }
 
     Boolean isActive = searchParams.getActive();
@@ -276,6 +399,19 @@ public class FacilityTypeApprovedProductRepositoryImpl
     StringBuilder builder = new StringBuilder(startNativeQuery);
     Map<String, Object> params = Maps.newHashMap();
 
+    appendSearchCriteria(builder, params, facilityTypeId, programId, fullSupply, orderableIds,
+        active);
+
+    if (!count) {
+      setPagination(builder, params, pageable);
+    }
+
+    return createNativeQuery(builder, params, count);
+  }
+
+  private void appendSearchCriteria(StringBuilder builder, Map<String, Object> params,
+      UUID facilityTypeId, UUID programId, Boolean fullSupply, List<UUID> orderableIds,
+      Boolean active) {
     builder.append(NATIVE_PROGRAM_INNER_JOIN);
     if (null != programId) {
       builder.append(" AND p.id = :programId");
@@ -305,12 +441,6 @@ public class FacilityTypeApprovedProductRepositoryImpl
         .append(WHERE)
         .append(NATIVE_FTAP_ACTIVE_FLAG);
     params.put(ACTIVE, null == active || active);
-
-    if (!count) {
-      setPagination(builder, params, pageable);
-    }
-
-    return createNativeQuery(builder, params, count);
   }
 
   private void setPagination(StringBuilder builder, Map<String, Object> params, Pageable pageable) {
@@ -320,7 +450,7 @@ public class FacilityTypeApprovedProductRepositoryImpl
 
     if (limit > 0) {
       builder.append(NATIVE_PAGEABLE);
-      params.put("limit", limit);
+      params.put(LIMIT, limit);
       params.put("offset", offset);
     }
   }
@@ -354,19 +484,59 @@ public class FacilityTypeApprovedProductRepositoryImpl
         .collect(Collectors.toList());
   }
 
-  private Subquery<String> createFtapSubQuery(CriteriaQuery query, CriteriaBuilder builder) {
-    Subquery<String> latestFtapsQuery = query.subquery(String.class);
-    Root<FacilityTypeApprovedProduct> latestFtapsRoot =
-        latestFtapsQuery.from(FacilityTypeApprovedProduct.class);
+  private Predicate isLatestVersion(CriteriaQuery query, CriteriaBuilder builder,
+      Root<FacilityTypeApprovedProduct> root) {
+    Subquery<UUID> latestFtapsQuery = query.subquery(UUID.class);
+    Root<LatestFacilityTypeApprovedProductVersion> latestFtapsRoot =
+        latestFtapsQuery.from(LatestFacilityTypeApprovedProductVersion.class);
     latestFtapsRoot.alias("latestFtap");
 
-    latestFtapsQuery.select(
-        builder.concat(
-            latestFtapsRoot.get(IDENTITY).get(ID).as(String.class),
-            builder.max(latestFtapsRoot.get(IDENTITY).get(VERSION_NUMBER)).as(String.class)));
-    latestFtapsQuery.groupBy(latestFtapsRoot.get(IDENTITY).get(ID));
+    latestFtapsQuery
+        .select(latestFtapsRoot.get(ID))
+        .where(
+            builder.equal(latestFtapsRoot.get(ID), root.get(IDENTITY).get(ID)),
+            builder.equal(latestFtapsRoot.get(VERSION_NUMBER),
+                root.get(IDENTITY).get(VERSION_NUMBER)));
+
+    return builder.exists(latestFtapsQuery);
+  }
+
+  /**
+   * Retrieves the latest versions of the given FTAPs together with their programs and facility
+   * types. The result keeps the order of the given ids.
+   */
+  private List<FacilityTypeApprovedProduct> retrieveLatestFtaps(List<UUID> ids) {
+    List<FacilityTypeApprovedProduct> ftaps = new ArrayList<>(ids.size());
+
+    for (List<UUID> partition : ListUtils.partition(ids, MAX_FETCH_SIZE)) {
+      CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+      CriteriaQuery<FacilityTypeApprovedProduct> query =
+          builder.createQuery(FacilityTypeApprovedProduct.class);
+      Root<FacilityTypeApprovedProduct> root = query.from(FacilityTypeApprovedProduct.class);
+      root.fetch(PROGRAM, JoinType.INNER);
+      root.fetch(FACILITY_TYPE, JoinType.INNER);
+
+      query
+          .select(root)
+          .distinct(true)
+          .where(
+              root.get(IDENTITY).get(ID).in(partition),
+              isLatestVersion(query, builder, root));
+
+      Map<UUID, FacilityTypeApprovedProduct> found = entityManager
+          .createQuery(query)
+          .getResultList()
+          .stream()
+          .collect(Collectors.toMap(FacilityTypeApprovedProduct::getId, Function.identity()));
+
+      partition
+          .stream()
+          .map(found::get)
+          .filter(Objects::nonNull)
+          .forEach(ftaps::add);
+    }
 
-    return latestFtapsQuery;
+    return ftaps;
   }
 
   // appropriate class has been passed in the EntityManager.createNativeQuery method
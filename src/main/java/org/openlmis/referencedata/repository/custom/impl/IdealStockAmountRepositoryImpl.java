@@ -20,28 +20,37 @@ import static org.springframework.util.CollectionUtils.isEmpty;
 import com.google.common.base.Joiner;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 import org.apache.commons.lang3.tuple.Pair;
 import org.hibernate.SQLQuery;
+import org.hibernate.jpa.QueryHints;
 import org.hibernate.type.IntegerType;
 import org.hibernate.type.LongType;
 import org.hibernate.type.PostgresUUIDType;
+import org.hibernate.type.StringType;
+import org.openlmis.referencedata.domain.Code;
 import org.openlmis.referencedata.domain.CommodityType;
 import org.openlmis.referencedata.domain.Facility;
 import org.openlmis.referencedata.domain.IdealStockAmount;
 import org.openlmis.referencedata.domain.ProcessingPeriod;
+import org.openlmis.referencedata.domain.ProcessingSchedule;
 import org.openlmis.referencedata.repository.custom.IdealStockAmountRepositoryCustom;
 import org.openlmis.referencedata.util.Pagination;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+@SuppressWarnings({"PMD.AvoidDuplicateLiterals", "PMD.TooManyMethods"})
 public class IdealStockAmountRepositoryImpl implements IdealStockAmountRepositoryCustom {
 
   private static final String ID_SEARCH_SQL = "SELECT"
@@ -60,10 +69,35 @@ public class IdealStockAmountRepositoryImpl implements IdealStockAmountRepositor
       + " processingperiodid AS period_id"
       + " FROM referencedata.ideal_stock_amounts";
 
+  private static final String EXPORT_SQL = "SELECT"
+      + " isa.id AS isa_id,"
+      + " isa.amount AS isa_amount,"
+      + " f.id AS facility_id,"
+      + " f.code AS facility_code,"
+      + " c.id AS commodity_id,"
+      + " c.classificationsystem AS commodity_system,"
+      + " c.classificationid AS commodity_classification_id,"
+      + " p.id AS period_id,"
+      + " p.name AS period_name,"
+      + " s.id AS schedule_id,"
+      + " s.code AS schedule_code"
+      + " FROM referencedata.ideal_stock_amounts isa"
+      + " INNER JOIN referencedata.facilities f ON isa.facilityid = f.id"
+      + " INNER JOIN referencedata.commodity_types c ON isa.commoditytypeid = c.id"
+      + " INNER JOIN referencedata.processing_periods p ON isa.processingperiodid = p.id"
+      + " INNER JOIN referencedata.processing_schedules s ON p.processingscheduleid = s.id";
+
   private static final String COUNT_SEARCH_SQL = "SELECT"
       + " count(*) AS count"
       + " FROM referencedata.ideal_stock_amounts";
 
+  // facility, commodity type and period are a unique key, so a conflicting row is updated
+  private static final String UPSERT_SQL = "INSERT INTO referencedata.ideal_stock_amounts"
+      + " (id, facilityid, commoditytypeid, processingperiodid, amount)"
+      + " VALUES (?, ?, ?, ?, ?)"
+      + " ON CONFLICT (facilityid, commoditytypeid, processingperiodid)"
+      + " DO UPDATE SET amount = EXCLUDED.amount";
+
   private static final String WHERE = "WHERE";
   private static final String AND = " AND ";
 
@@ -76,10 +110,25 @@ public class IdealStockAmountRepositoryImpl implements IdealStockAmountRepositor
   private static final int FACILITY_ID = 2;
   private static final int COMMODITY_ID = 3;
   private static final int PERIOD_ID = 4;
+  private static final int EXPORT_FACILITY_ID = 2;
+  private static final int EXPORT_FACILITY_CODE = 3;
+  private static final int EXPORT_COMMODITY_ID = 4;
+  private static final int EXPORT_COMMODITY_SYSTEM = 5;
+  private static final int EXPORT_COMMODITY_CLASSIFICATION_ID = 6;
+  private static final int EXPORT_PERIOD_ID = 7;
+  private static final int EXPORT_PERIOD_NAME = 8;
+  private static final int EXPORT_SCHEDULE_ID = 9;
+  private static final int EXPORT_SCHEDULE_CODE = 10;
+
+  // rows are read from a database cursor in batches of this size
+  private static final int EXPORT_FETCH_SIZE = 1000;
 
   @PersistenceContext
   private EntityManager entityManager;
 
+  @Autowired
+  private JdbcTemplate jdbcTemplate;
+
   /**
    * This method is supposed to retrieve all IdealStockAmount IDs based on the passed ISA objects.
    * It uses the facility, commodity type and processing period data to find correct database
@@ -134,6 +183,58 @@ public class IdealStockAmountRepositoryImpl implements IdealStockAmountRepositor
     return Pagination.getPage(result, pageable, count.get(0));
   }
 
+  /**
+   * Saves the given ideal stock amounts in a single JDBC batch. Amounts of existing ideal stock
+   * amounts for the same facility, commodity type and processing period are updated, the others
+   * are inserted.
+   *
+   * @param idealStockAmounts ideal stock amounts with facility, commodity type and processing
+   *                          period ids
+   */
+  @Override
+  public void upsert(Collection<IdealStockAmount> idealStockAmounts) {
+    List<Object[]> batch = idealStockAmounts
+        .stream()
+        .map(this::toUpsertParameters)
+        .collect(Collectors.toList());
+
+    if (!batch.isEmpty()) {
+      jdbcTemplate.batchUpdate(UPSERT_SQL, batch);
+    }
+  }
+
+  /**
+   * Streams all ideal stock amounts matching the given parameters, with codes of their facilities,
+   * commodity types, processing periods and schedules. Rows are read from a database cursor, so
+   * the stream has to be consumed within a transaction and closed afterwards.
+   *
+   * @return stream of ideal stock amounts with only the fields needed to export them to CSV
+   */
+  @Override
+  public Stream<IdealStockAmount> stream(UUID facilityId, UUID commodityTypeId,
+                                         UUID processingPeriodId) {
+    Query query = createQuery(EXPORT_SQL, facilityId, commodityTypeId, processingPeriodId);
+    prepareExportQuery(query);
+
+    // hibernate returns a stream of array of objects
+    @SuppressWarnings("unchecked")
+    Stream<Object[]> rows = query
+        .setHint(QueryHints.HINT_FETCH_SIZE, EXPORT_FETCH_SIZE)
+        .setHint(QueryHints.HINT_READONLY, true)
+        .getResultStream();
+
+    return rows.map(this::toExportIsa);
+  }
+
+  private Object[] toUpsertParameters(IdealStockAmount isa) {
+    UUID id = null == isa.getId() ? UUID.randomUUID() : isa.getId();
+    UUID facilityId = isa.getFacility().getId();
+    UUID commodityTypeId = isa.getCommodityType().getId();
+    UUID processingPeriodId = isa.getProcessingPeriod().getId();
+
+    return new Object[]{id, facilityId, commodityTypeId, processingPeriodId, isa.getAmount()};
+  }
+
   private IdealStockAmount toMinimalIsa(Object[] values) {
     Facility facility = new Facility((UUID) values[FACILITY_ID]);
 
@@ -150,6 +251,31 @@ public class IdealStockAmountRepositoryImpl implements IdealStockAmountRepositor
     return result;
   }
 
+  private IdealStockAmount toExportIsa(Object[] values) {
+    Facility facility = new Facility((UUID) values[EXPORT_FACILITY_ID]);
+    facility.setCode((String) values[EXPORT_FACILITY_CODE]);
+
+    CommodityType commodityType = new CommodityType();
+    commodityType.setId((UUID) values[EXPORT_COMMODITY_ID]);
+    commodityType.setClassificationSystem((String) values[EXPORT_COMMODITY_SYSTEM]);
+    commodityType.setClassificationId((String) values[EXPORT_COMMODITY_CLASSIFICATION_ID]);
+
+    ProcessingSchedule schedule = new ProcessingSchedule();
+    schedule.setId((UUID) values[EXPORT_SCHEDULE_ID]);
+    schedule.setCode(Code.code((String) values[EXPORT_SCHEDULE_CODE]));
+
+    ProcessingPeriod period = new ProcessingPeriod();
+    period.setId((UUID) values[EXPORT_PERIOD_ID]);
+    period.setName((String) values[EXPORT_PERIOD_NAME]);
+    period.setProcessingSchedule(schedule);
+
+    IdealStockAmount result =
+        new IdealStockAmount(facility, commodityType, period, (Integer) values[ISA_AMOUNT]);
+    result.setId((UUID) values[ISA_ID]);
+
+    return result;
+  }
+
   private void prepareIdQuery(Query query) {
     SQLQuery sql = query.unwrap(SQLQuery.class);
     sql.addScalar("isa_id", PostgresUUIDType.INSTANCE);
@@ -165,6 +291,21 @@ public class IdealStockAmountRepositoryImpl implements IdealStockAmountRepositor
     return sql;
   }
 
+  private void prepareExportQuery(Query query) {
+    SQLQuery sql = query.unwrap(SQLQuery.class);
+    sql.addScalar("isa_id", PostgresUUIDType.INSTANCE);
+    sql.addScalar("isa_amount", IntegerType.INSTANCE);
+    sql.addScalar("facility_id", PostgresUUIDType.INSTANCE);
+    sql.addScalar("facility_code", StringType.INSTANCE);
+    sql.addScalar("commodity_id", PostgresUUIDType.INSTANCE);
+    sql.addScalar("commodity_system", StringType.INSTANCE);
+    sql.addScalar("commodity_classification_id", StringType.INSTANCE);
+    sql.addScalar("period_id", PostgresUUIDType.INSTANCE);
+    sql.addScalar("period_name", StringType.INSTANCE);
+    sql.addScalar("schedule_id", PostgresUUIDType.INSTANCE);
+    sql.addScalar("schedule_code", StringType.INSTANCE);
+  }
+
   private void prepareCountQuery(Query query) {
     SQLQuery sql = query.unwrap(SQLQuery.class);
     sql.addScalar("count", LongType.INSTANCE);
@@ -74,7 +74,7 @@ abstract class IdentitiesSearchableRepository<T> {
     return identities;
   }
 
-  private List<VersionIdentity> convertPairToVersionIdentity(Set<Pair<UUID, Long>> identityPairs) {
+  List<VersionIdentity> convertPairToVersionIdentity(Set<Pair<UUID, Long>> identityPairs) {
     if (identityPairs.isEmpty()) {
       return Collections.emptyList();
     }
@@ -25,9 +25,13 @@ import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
@@ -42,12 +46,16 @@ import javax.persistence.criteria.Subquery;
 import org.apache.commons.collections4.ListUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.hibernate.transform.DistinctRootEntityResultTransformer;
+import org.openlmis.referencedata.domain.LatestOrderableVersion;
 import org.openlmis.referencedata.domain.Orderable;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.ProgramOrderable;
 import org.openlmis.referencedata.domain.VersionIdentity;
 import org.openlmis.referencedata.repository.custom.OrderableRepositoryCustom;
 import org.openlmis.referencedata.repository.custom.OrderableRepositoryCustom.SearchParams;
+import org.openlmis.referencedata.util.KeysetPage;
+import org.openlmis.referencedata.util.KeysetPageable;
+import org.openlmis.referencedata.util.PageCursor;
 import org.openlmis.referencedata.util.Pagination;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
@@ -77,8 +85,7 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
       " INNER" + NATIVE_PROGRAM_JOIN;
 
   private static final String NATIVE_LATEST_ORDERABLE_INNER_JOIN =
-      " INNER JOIN (SELECT id, MAX (versionNumber) AS versionNumber"
-          + "  FROM referencedata.orderables GROUP BY id) AS latest"
+      " INNER JOIN referencedata.latest_orderable_versions AS latest"
           + "  ON o.id = latest.id AND o.versionNumber = latest.versionNumber";
 
   private static final String NATIVE_SELECT_LAST_UPDATED = "SELECT o.lastupdated "
@@ -104,6 +111,11 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
   private static final String PRODUCT_CODE = "productCode";
   private static final String LATEST_ORDERABLE_ALIAS = "latest";
 
+  private static final Comparator<VersionIdentity> KEYSET_ORDER =
+      Comparator.<VersionIdentity, UUID>comparing(VersionIdentity::getId,
+          PageableUtil::compareUuids)
+          .thenComparing(VersionIdentity::getVersionNumber);
+
   @PersistenceContext
   private EntityManager entityManager;
 
@@ -123,16 +135,32 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
     List<VersionIdentity> identityList = new ArrayList<>();
     Set<Pair<UUID, Long>> identityPairs = searchParams.getIdentityPairs();
-    Long total = getTotal(searchParams, identityPairs, identityList, builder, pageable);
+    Long total = 0L;
 
-    if (total < 1) {
-      profiler.stop().log();
-      return Pagination.getPage(Collections.emptyList(), pageable,0);
+    if (PageableUtil.isCounted(pageable)) {
+      total = getTotal(searchParams, identityPairs, identityList, builder, pageable);
+
+      if (total < 1) {
+        profiler.stop().log();
+        return Pagination.getPage(Collections.emptyList(), pageable,0);
+      }
+    } else if (!isEmpty(identityPairs)) {
+      identityList.addAll(convertPairToVersionIdentity(identityPairs));
     }
 
     profiler.start("GET_VERSION_IDENTITY");
     List<VersionIdentity> identities = getIdentities(searchParams, identityList, builder, pageable);
 
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+
+    if (null != keyset) {
+      profiler.start("RETRIEVE_ORDERABLES_AFTER_CURSOR");
+      Page<Orderable> page = retrieveOrderablePage(identities, keyset, total);
+
+      profiler.stop().log();
+      return page;
+    }
+
     profiler.start("RETRIEVE_ORDERABLES");
     List<Orderable> orderables = new ArrayList<>();
     for (List<VersionIdentity> partition : ListUtils.partition(identities, MAX_IDENTITIES_SIZE)) {
@@ -143,6 +171,31 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
     return Pagination.getPage(orderables, pageable, total);
   }
 
+  /**
+   * Identities of each partition are found separately, so they are merged here in the order of
+   * the keyset: ID and then version number.
+   */
+  private Page<Orderable> retrieveOrderablePage(List<VersionIdentity> identities,
+      KeysetPageable pageable, long total) {
+    identities.sort(KEYSET_ORDER);
+    List<VersionIdentity> rows = identities.subList(0,
+        Math.min(identities.size(), pageable.getLimit()));
+
+    KeysetPage<VersionIdentity> page = KeysetPage.of(rows, pageable, total,
+        identity -> PageCursor.of(VERSION_NUMBER, identity.getId(), identity.getVersionNumber()));
+
+    Map<VersionIdentity, Orderable> orderables = new HashMap<>();
+    for (List<VersionIdentity> partition
+        : ListUtils.partition(page.getContent(), MAX_IDENTITIES_SIZE)) {
+      retrieveOrderables(partition).forEach(orderable -> orderables.put(
+          new VersionIdentity(orderable.getId(), orderable.getVersionNumber()), orderable));
+    }
+
+    return KeysetPage.of(page.getContent().stream()
+        .map(orderables::get)
+        .collect(Collectors.toList()), page);
+  }
+
   /**
    * This method is supposed to get the latest last update date from the retrieved orderables
    * based on params passed to the request.
@@ -199,11 +252,7 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
       }
 
       if (isEmpty(identities)) {
-        Subquery<String> latestOrderablesQuery = createSubQuery(newQuery, builder);
-        where = builder.and(where, builder.in(builder.concat(
-            root.get(IDENTITY).get(ID).as(String.class),
-            root.get(IDENTITY).get(VERSION_NUMBER)).as(String.class))
-            .value(latestOrderablesQuery));
+        where = builder.and(where, isLatestVersion(newQuery, builder, root));
       } else {
         where = builder.and(where, builder.in(root.get(IDENTITY)).value(identities));
       }
@@ -218,11 +267,11 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
             "%" + searchParams.getName().toLowerCase() + "%"));
       }
     } else {
-      Subquery<String> latestOrderablesQuery = createSubQuery(newQuery, builder);
-      where = builder.and(where, builder.in(builder.concat(
-          root.get(IDENTITY).get(ID).as(String.class),
-          root.get(IDENTITY).get(VERSION_NUMBER)).as(String.class))
-          .value(latestOrderablesQuery));
+      where = builder.and(where, isLatestVersion(newQuery, builder, root));
+    }
+
+    if (!count) {
+      where = addCursorFilter(where, builder, root, pageable);
     }
 
     newQuery.where(where);
@@ -232,28 +281,58 @@ public class OrderableRepositoryImpl extends IdentitiesSearchableRepository<Sear
           root.get(IDENTITY).get(ID),
           root.get(IDENTITY).get(VERSION_NUMBER),
           root.get(FULL_PRODUCT_NAME));
-      newQuery.orderBy(builder.asc(root.get(FULL_PRODUCT_NAME)));
+      addOrder(newQuery, builder, root, pageable);
+
+      Pair<Integer, Integer> maxAndFirst = PageableUtil.querysMaxAndFirstResult(pageable);
 
       return entityManager.createQuery(query)
-          .setMaxResults(pageable.getPageSize())
-          .setFirstResult(Math.toIntExact(pageable.getOffset()));
+          .setMaxResults(maxAndFirst.getLeft())
+          .setFirstResult(maxAndFirst.getRight());
     }
 
     return entityManager.createQuery(newQuery);
   }
 
-  private Subquery<String> createSubQuery(CriteriaQuery query, CriteriaBuilder builder) {
-    Subquery<String> latestOrderablesQuery = query.subquery(String.class);
-    Root<Orderable> latestOrderablesRoot = latestOrderablesQuery.from(Orderable.class);
+  private Predicate addCursorFilter(Predicate where, CriteriaBuilder builder,
+      Root<Orderable> root, Pageable pageable) {
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+
+    if (null == keyset || null == keyset.getCursor()) {
+      return where;
+    }
+
+    PageCursor cursor = keyset.getCursor();
+    return builder.and(where, PageableUtil.after(builder,
+        root.get(IDENTITY).<UUID>get(ID), cursor.getId(),
+        root.get(IDENTITY).<Long>get(VERSION_NUMBER),
+        cursor.getValue(VERSION_NUMBER, Long::valueOf)));
+  }
+
+  private void addOrder(CriteriaQuery<?> query, CriteriaBuilder builder, Root<Orderable> root,
+      Pageable pageable) {
+    if (pageable instanceof KeysetPageable) {
+      query.orderBy(builder.asc(root.get(IDENTITY).get(ID)),
+          builder.asc(root.get(IDENTITY).get(VERSION_NUMBER)));
+    } else {
+      query.orderBy(builder.asc(root.get(FULL_PRODUCT_NAME)));
+    }
+  }
+
+  private Predicate isLatestVersion(CriteriaQuery query, CriteriaBuilder builder,
+      Root<Orderable> root) {
+    Subquery<UUID> latestOrderablesQuery = query.subquery(UUID.class);
+    Root<LatestOrderableVersion> latestOrderablesRoot =
+        latestOrderablesQuery.from(LatestOrderableVersion.class);
     latestOrderablesRoot.alias(LATEST_ORDERABLE_ALIAS);
 
-    latestOrderablesQuery.select(
-        builder.concat(
-            latestOrderablesRoot.get(IDENTITY).get(ID).as(String.class),
-            builder.max(latestOrderablesRoot.get(IDENTITY).get(VERSION_NUMBER)).as(String.class)));
-    latestOrderablesQuery.groupBy(latestOrderablesRoot.get(IDENTITY).get(ID));
+    latestOrderablesQuery
+        .select(latestOrderablesRoot.get(ID))
+        .where(
+            builder.equal(latestOrderablesRoot.get(ID), root.get(IDENTITY).get(ID)),
+            builder.equal(latestOrderablesRoot.get(VERSION_NUMBER),
+                root.get(IDENTITY).get(VERSION_NUMBER)));
 
-    return latestOrderablesQuery;
+    return builder.exists(latestOrderablesQuery);
   }
 
   private Query getLastUpdatedQuery(SearchParams searchParams, boolean count) {
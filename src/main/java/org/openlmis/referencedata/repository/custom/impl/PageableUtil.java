@@ -19,8 +19,16 @@ import com.google.common.base.Joiner;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.util.KeysetPageable;
+import org.openlmis.referencedata.util.messagekeys.PageableMessageKeys;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 
@@ -39,11 +47,55 @@ class PageableUtil {
    *   {@link javax.persistence.Query#setFirstResult(int)}. 0,0 if Pageable is null.
    */
   static Pair<Integer, Integer> querysMaxAndFirstResult(Pageable pageable) {
+    if (pageable instanceof KeysetPageable) {
+      return new ImmutablePair<>(((KeysetPageable) pageable).getLimit(), 0);
+    }
+
     int pageSize = null != pageable ? pageable.getPageSize() : 0;
     int firstResult = null != pageable ? pageable.getPageNumber() * pageSize : 0;
     return new ImmutablePair<>(pageSize, firstResult);
   }
 
+  /**
+   * Returns the given pageable as a keyset pageable, or null if the search is paginated with
+   * offsets.
+   */
+  static KeysetPageable asKeyset(Pageable pageable) {
+    return pageable instanceof KeysetPageable ? (KeysetPageable) pageable : null;
+  }
+
+  /**
+   * Checks if all matching rows should be counted. The count is skipped only for keyset
+   * paginated searches without total.
+   */
+  static boolean isCounted(Pageable pageable) {
+    return !(pageable instanceof KeysetPageable) || ((KeysetPageable) pageable).isWithTotal();
+  }
+
+  /**
+   * Creates a predicate matching rows after the given position in the order of the given key and
+   * then the tie breaker, usually the ID.
+   */
+  static <X extends Comparable<? super X>, Y extends Comparable<? super Y>> Predicate after(
+      CriteriaBuilder builder, Expression<X> key, X value, Expression<Y> tieBreaker, Y last) {
+    return builder.or(
+        builder.greaterThan(key, value),
+        builder.and(builder.equal(key, value), builder.greaterThan(tieBreaker, last)));
+  }
+
+  /**
+   * Compares UUIDs in the same way as the database does, byte by byte. Needed when rows of a
+   * keyset paginated search are merged in memory.
+   */
+  static int compareUuids(UUID left, UUID right) {
+    int result = Long.compareUnsigned(left.getMostSignificantBits(),
+        right.getMostSignificantBits());
+
+    return 0 != result
+        ? result
+        : Long.compareUnsigned(left.getLeastSignificantBits(), right.getLeastSignificantBits());
+  }
+
   static String getOrderPredicate(Pageable pageable, String alias, String defaultSort) {
     if (pageable.getSort().isSorted()) {
       List<String> orderPredicate = new ArrayList<>();
@@ -66,4 +118,37 @@ class PageableUtil {
 
     return defaultSort;
   }
+
+  /**
+   * Builds the order predicate of a native query. Only the properties of the given map can be
+   * sorted by, they are replaced with the mapped columns so that the sort parameters of a
+   * request never reach the SQL text.
+   *
+   * @param pageable the pageable with the requested sort.
+   * @param sortableColumns the columns of the sortable properties.
+   * @param defaultSort the order predicate used if the pageable is not sorted.
+   * @return the order predicate.
+   * @throws ValidationMessageException if a requested property can't be sorted by.
+   */
+  static String getOrderPredicate(Pageable pageable, Map<String, String> sortableColumns,
+      String defaultSort) {
+    if (null == pageable || !pageable.getSort().isSorted()) {
+      return defaultSort;
+    }
+
+    List<String> orderPredicate = new ArrayList<>();
+
+    for (Sort.Order order : pageable.getSort()) {
+      String column = sortableColumns.get(order.getProperty());
+
+      if (null == column) {
+        throw new ValidationMessageException(
+            PageableMessageKeys.ERROR_SORT_INVALID, order.getProperty());
+      }
+
+      orderPredicate.add(column + ' ' + (order.isAscending() ? ASC : DESC));
+    }
+
+    return Joiner.on(", ").join(orderPredicate);
+  }
 }
@@ -15,10 +15,10 @@
 
 package org.openlmis.referencedata.repository.custom.impl;
 
-import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.commons.collections4.CollectionUtils.isNotEmpty;
 
 import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import java.time.LocalDate;
@@ -27,24 +27,39 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import org.apache.commons.lang3.tuple.Pair;
 import org.hibernate.query.NativeQuery;
+import org.hibernate.type.LongType;
 import org.hibernate.type.PostgresUUIDType;
 import org.openlmis.referencedata.domain.ProcessingPeriod;
 import org.openlmis.referencedata.repository.custom.ProcessingPeriodRepositoryCustom;
+import org.openlmis.referencedata.util.KeysetPage;
+import org.openlmis.referencedata.util.KeysetPageable;
+import org.openlmis.referencedata.util.PageCursor;
 import org.openlmis.referencedata.util.Pagination;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
 public class ProcessingPeriodRepositoryImpl implements ProcessingPeriodRepositoryCustom {
 
-  private static final String SELECT_PERIODS = "SELECT DISTINCT pp"
-      + " FROM ProcessingPeriod AS pp";
+  private static final String SELECT_PERIODS_BY_IDS = "SELECT pp"
+      + " FROM ProcessingPeriod AS pp"
+      + " WHERE pp.id IN (:ids)";
 
-  private static final String COUNT_PERIODS = "SELECT DISTINCT pp.id AS ID"
-      + " FROM referencedata.processing_periods AS pp";
+  private static final String NATIVE_FROM = " FROM referencedata.processing_periods AS pp";
+
+  private static final String NATIVE_SELECT_WITH_TOTAL =
+      "SELECT pp.id AS id, pp.startdate AS startdate, COUNT(*) OVER () AS total" + NATIVE_FROM;
+
+  private static final String NATIVE_SELECT_WITHOUT_TOTAL =
+      "SELECT pp.id AS id, pp.startdate AS startdate, 0 AS total" + NATIVE_FROM;
+
+  private static final String NATIVE_COUNT = "SELECT COUNT(*)" + NATIVE_FROM;
 
   private static final String SELECT_SCHEDULES = "pp.processingscheduleid IN (SELECT ps.id"
       + " FROM referencedata.processing_schedules AS ps"
@@ -57,15 +72,32 @@ public class ProcessingPeriodRepositoryImpl implements ProcessingPeriodRepositor
   private static final String WHERE = "WHERE";
   private static final String AND = " AND ";
   private static final String DEFAULT_SORT = "pp.startDate ASC";
+  private static final String KEYSET_SORT = "pp.startDate ASC, pp.id ASC";
 
   private static final String ORDER_BY = "ORDER BY";
 
+  private static final Map<String, String> SORTABLE_COLUMNS = ImmutableMap.of(
+      "name", "pp.name",
+      "description", "pp.description",
+      "startDate", "pp.startdate",
+      "endDate", "pp.enddate");
+
   private static final String WITH_SCHEDULE_ID = "pp.processingscheduleid IN (:scheduleId)";
   private static final String WITH_START_DATE = "pp.startdate <= :endDate";
   private static final String WITH_END_DATE = "pp.enddate >= :startDate";
   private static final String WITH_IDS = "pp.id IN (:ids)";
+  private static final String WITH_CURSOR = "(pp.startdate > :cursorStartDate"
+      + " OR (pp.startdate = :cursorStartDate AND pp.id > :cursorId))";
+
+  // the window count is computed before the cursor condition, so it is the total of the search
+  private static final String NATIVE_SELECT_AFTER_CURSOR = "SELECT id, startdate, total"
+      + " FROM (%s) AS pp WHERE " + WITH_CURSOR;
+
+  private static final String ID = "id";
+  private static final String TOTAL = "total";
   private static final String WITH_FACILITY =
       "referencedata.requisition_group_members.facilityid = :facilityId";
+  private static final String START_DATE = "startDate";
   private static final String WITH_PROGRAM =
       "referencedata.requisition_group_program_schedules.programid = :programId)";
 
@@ -87,39 +119,84 @@ public class ProcessingPeriodRepositoryImpl implements ProcessingPeriodRepositor
   public Page<ProcessingPeriod> search(UUID scheduleId, UUID programId, UUID facilityId,
       LocalDate startDate, LocalDate endDate, Collection<UUID> ids, Pageable pageable) {
 
+    boolean counted = PageableUtil.isCounted(pageable);
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+    PageCursor cursor = null == keyset ? null : keyset.getCursor();
+
     Map<String, Object> params = Maps.newHashMap();
-    Query nativeQuery = entityManager.createNativeQuery(prepareQuery(
-        scheduleId, programId, facilityId, startDate, endDate, ids, params));
+    String sql = prepareQuery(counted ? NATIVE_SELECT_WITH_TOTAL : NATIVE_SELECT_WITHOUT_TOTAL,
+        scheduleId, programId, facilityId, startDate, endDate, ids, params);
+
+    if (null != cursor) {
+      sql = String.format(NATIVE_SELECT_AFTER_CURSOR, sql);
+      params.put("cursorStartDate", cursor.getValue(START_DATE, LocalDate::parse));
+      params.put("cursorId", cursor.getId());
+    }
+
+    String orderBy = null == keyset
+        ? PageableUtil.getOrderPredicate(pageable, SORTABLE_COLUMNS, DEFAULT_SORT)
+        : KEYSET_SORT;
+
+    Query nativeQuery = entityManager.createNativeQuery(Joiner.on(' ').join(sql, ORDER_BY,
+        orderBy));
     params.forEach(nativeQuery::setParameter);
 
-    NativeQuery countQuery = nativeQuery.unwrap(NativeQuery.class);
-    countQuery.addScalar("ID", PostgresUUIDType.INSTANCE);
+    nativeQuery.unwrap(NativeQuery.class)
+        .addScalar(ID, PostgresUUIDType.INSTANCE)
+        .addScalar(TOTAL, LongType.INSTANCE);
+
+    Pair<Integer, Integer> maxAndFirst = PageableUtil.querysMaxAndFirstResult(pageable);
 
-    // appropriate scalar is added to native query
+    // appropriate scalars are added to native query
     @SuppressWarnings("unchecked")
-    List<UUID> periodIds = nativeQuery.getResultList();
+    List<Object[]> rows = nativeQuery
+        .setMaxResults(maxAndFirst.getLeft())
+        .setFirstResult(maxAndFirst.getRight())
+        .getResultList();
 
-    if (isEmpty(periodIds)) {
-      return Pagination.getPage(Collections.emptyList(), pageable, 0);
+    if (rows.isEmpty()) {
+      // past the last page there is no row to carry the window count
+      long count = counted && (maxAndFirst.getRight() > 0 || null != cursor)
+          ? count(scheduleId, programId, facilityId, startDate, endDate, ids)
+          : 0;
+      return Pagination.getPage(Collections.emptyList(), pageable, count);
     }
 
-    String hqlWithSort = Joiner.on(' ').join(Lists.newArrayList(SELECT_PERIODS, WHERE, WITH_IDS,
-        ORDER_BY, PageableUtil.getOrderPredicate(pageable, "pp.", DEFAULT_SORT)));
-
-    List<ProcessingPeriod> periods = entityManager
-        .createQuery(hqlWithSort, ProcessingPeriod.class)
+    List<UUID> periodIds = rows.stream().map(row -> (UUID) row[0]).collect(Collectors.toList());
+    Map<UUID, ProcessingPeriod> periods = entityManager
+        .createQuery(SELECT_PERIODS_BY_IDS, ProcessingPeriod.class)
         .setParameter("ids", periodIds)
-        .setMaxResults(pageable.getPageSize())
-        .setFirstResult(Math.toIntExact(pageable.getOffset()))
-        .getResultList();
+        .getResultList()
+        .stream()
+        .collect(Collectors.toMap(ProcessingPeriod::getId, Function.identity()));
+
+    List<ProcessingPeriod> content = periodIds.stream()
+        .map(periods::get)
+        .collect(Collectors.toList());
+    long total = (Long) rows.get(0)[1];
+
+    if (null != keyset) {
+      return KeysetPage.of(content, keyset, total,
+          period -> PageCursor.of(START_DATE, period.getId(), period.getStartDate()));
+    }
+
+    return Pagination.getPage(content, pageable, total);
+  }
+
+  private long count(UUID scheduleId, UUID programId, UUID facilityId, LocalDate startDate,
+      LocalDate endDate, Collection<UUID> ids) {
+    Map<String, Object> params = Maps.newHashMap();
+    Query countQuery = entityManager.createNativeQuery(prepareQuery(NATIVE_COUNT,
+        scheduleId, programId, facilityId, startDate, endDate, ids, params));
+    params.forEach(countQuery::setParameter);
 
-    return Pagination.getPage(periods, pageable, periodIds.size());
+    return ((Number) countQuery.getSingleResult()).longValue();
   }
 
-  private String prepareQuery(UUID scheduleId, UUID programId, UUID facilityId,
+  private String prepareQuery(String baseSql, UUID scheduleId, UUID programId, UUID facilityId,
       LocalDate startDate, LocalDate endDate, Collection<UUID> ids, Map<String, Object> params) {
 
-    List<String> sql = Lists.newArrayList(COUNT_PERIODS);
+    List<String> sql = Lists.newArrayList(baseSql);
     List<String> where = Lists.newArrayList();
 
     if (null != endDate) {
@@ -129,7 +206,7 @@ public class ProcessingPeriodRepositoryImpl implements ProcessingPeriodRepositor
 
     if (null != startDate) {
       where.add(WITH_END_DATE);
-      params.put("startDate", startDate);
+      params.put(START_DATE, startDate);
     }
 
     if (isNotEmpty(ids)) {
@@ -0,0 +1,126 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository.custom.impl;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.GuavaCacheMetrics;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * In-process, size-bounded cache with a time to live that sits in front of a Redis hash. Entries
+ * are kept already deserialized, so hits need neither a network round trip nor a conversion.
+ * Every change made through {@link #invalidateAll(Collection)} is passed to the other nodes of a
+ * cluster by a {@link CacheInvalidator}, which keeps them in line.
+ *
+ * <p>Cached instances are shared between callers and must not be modified.
+ */
+public class RedisNearCache<T> {
+
+  static final String CHANNEL_PREFIX = "referencedata:near-cache:";
+
+  private final Cache<UUID, T> cache;
+  private final CacheInvalidator invalidator;
+
+  @Getter
+  private final String name;
+
+  /**
+   * Creates a new near cache for the given Redis hash.
+   *
+   * @param redisTemplate template used to publish invalidation messages
+   * @param name          the key of the cached Redis hash
+   * @param maxSize       maximum number of entries kept in memory, zero disables the cache
+   * @param timeToLive    number of seconds an entry is kept after it has been loaded
+   */
+  public RedisNearCache(RedisTemplate redisTemplate, String name, long maxSize,
+      long timeToLive) {
+    this.name = name;
+    this.cache = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(timeToLive, TimeUnit.SECONDS)
+        .recordStats()
+        .build();
+    this.invalidator = new CacheInvalidator(redisTemplate, CHANNEL_PREFIX + name, this::clear);
+  }
+
+  /**
+   * Starts receiving invalidation messages of other nodes.
+   */
+  public void subscribe(RedisMessageListenerContainer listenerContainer) {
+    invalidator.subscribe(listenerContainer);
+  }
+
+  public String getChannel() {
+    return invalidator.getChannel();
+  }
+
+  public T get(UUID id) {
+    return cache.getIfPresent(id);
+  }
+
+  public void put(UUID id, T value) {
+    cache.put(id, value);
+  }
+
+  /**
+   * Drops the entry from this cache and asks all other nodes to do the same.
+   */
+  public void invalidate(UUID id) {
+    invalidateAll(Collections.singleton(id));
+  }
+
+  /**
+   * Drops the entries from this cache and asks all other nodes to do the same with a single
+   * message.
+   */
+  public void invalidateAll(Collection<UUID> ids) {
+    invalidator.invalidate(ids.stream().map(UUID::toString).collect(Collectors.toList()));
+  }
+
+  /**
+   * Returns hit, miss and eviction counts collected since the cache has been created.
+   */
+  public CacheStats getStats() {
+    return cache.stats();
+  }
+
+  /**
+   * Registers the cache counters (gets by result, evictions, size) in the given registry,
+   * tagged with the name of the cache.
+   */
+  public void bindTo(MeterRegistry registry) {
+    GuavaCacheMetrics.monitor(registry, cache, name);
+  }
+
+  private void clear(Collection<String> ids) {
+    if (null == ids) {
+      cache.invalidateAll();
+    } else {
+      ids.forEach(id -> cache.invalidate(UUID.fromString(id)));
+    }
+  }
+}
@@ -15,21 +15,31 @@
 
 package org.openlmis.referencedata.repository.custom.impl;
 
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
-import javax.persistence.criteria.CriteriaBuilder;
-import javax.persistence.criteria.CriteriaQuery;
-import javax.persistence.criteria.Join;
-import javax.persistence.criteria.JoinType;
-import javax.persistence.criteria.Predicate;
-import javax.persistence.criteria.Root;
+import javax.persistence.Query;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.PostgresUUIDType;
+import org.openlmis.referencedata.domain.Facility;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.RequisitionGroup;
-import org.openlmis.referencedata.domain.RequisitionGroupProgramSchedule;
-import org.openlmis.referencedata.domain.SupervisoryNode;
+import org.openlmis.referencedata.dto.RequisitionGroupSummaryDto;
 import org.openlmis.referencedata.repository.custom.RequisitionGroupRepositoryCustom;
 import org.openlmis.referencedata.util.Pagination;
 import org.springframework.data.domain.Page;
@@ -39,99 +49,228 @@ public class RequisitionGroupRepositoryImpl implements RequisitionGroupRepositor
 
   private static final String CODE = "code";
   private static final String NAME = "name";
-  private static final String PROGRAM = "program";
-  private static final String PROGRAM_SCHEDULES = "requisitionGroupProgramSchedules";
-  private static final String SUPERVISORY_NODE = "supervisoryNode";
+  private static final String ID = "id";
+
+  private static final int MEMBER_FACILITIES_BATCH_SIZE = 500;
+
+  private static final String SUMMARY_SQL = "SELECT rg.id"
+      + "   , rg.code"
+      + "   , rg.name"
+      + "   , rg.description"
+      + "   , rg.supervisorynodeid"
+      + "   , COUNT(rgm.facilityid) AS membercount"
+      + " FROM referencedata.requisition_groups rg"
+      + "   LEFT JOIN referencedata.requisition_group_members rgm"
+      + "     ON rgm.requisitiongroupid = rg.id"
+      + " GROUP BY rg.id"
+      + " ORDER BY ";
+
+  private static final String DEFAULT_SORT = "rg.name ASC";
+
+  private static final Map<String, String> SORTABLE_COLUMNS = ImmutableMap.of(
+      "code", "rg.code",
+      "name", "rg.name",
+      "description", "rg.description",
+      "memberCount", "membercount");
+
+  private static final String COUNT_SQL = "SELECT COUNT(*)"
+      + " FROM referencedata.requisition_groups";
+
+  private static final String HQL_MEMBER_FACILITIES = "SELECT rg.id, f"
+      + " FROM RequisitionGroup rg"
+      + "   JOIN rg.memberFacilities f"
+      + " WHERE rg.id IN (:ids)";
+
+  private static final String HQL_SELECT_BY_IDS = "SELECT rg"
+      + " FROM RequisitionGroup rg"
+      + " WHERE rg.id IN (:ids)";
+
+  private static final String WITH_ZONES = "WITH RECURSIVE zones (id) AS ("
+      + "   SELECT CAST(:zoneId AS uuid)"
+      + "   UNION"
+      + "   SELECT gz.id"
+      + "   FROM referencedata.geographic_zones gz"
+      + "     JOIN zones z ON gz.parentid = z.id"
+      + " )";
+
+  private static final String SELECT = "SELECT %s";
+  private static final String FROM = "FROM referencedata.requisition_groups rg";
+
+  private static final String JOIN_ZONES =
+      "JOIN referencedata.supervisory_nodes sn ON sn.id = rg.supervisorynodeid"
+      + " JOIN referencedata.facilities f ON f.id = sn.facilityid"
+      + " JOIN zones z ON z.id = f.geographiczoneid";
+
+  private static final String WHERE = "WHERE";
+  private static final String AND = " AND ";
+  private static final String WITH_CODE = "UPPER(rg.code) LIKE :code";
+  private static final String WITH_NAME = "UPPER(rg.name) LIKE :name";
+  private static final String WITH_PROGRAM = "EXISTS (SELECT 1"
+      + " FROM referencedata.requisition_group_program_schedules rgps"
+      + " WHERE rgps.requisitiongroupid = rg.id AND rgps.programid = :programId)";
+
+  private static final String ORDER_BY_NAME = " ORDER BY rg.name, rg.id";
 
   @PersistenceContext
   private EntityManager entityManager;
 
   /**
-   * This method is supposed to retrieve all facilities with matched parameters.
-   * Method is ignoring case for facility code and name.
-   * To find all wanted Facilities by code and name we use criteria query and like operator.
+   * This method is supposed to retrieve all requisition groups with matched parameters.
+   * Method is ignoring case for requisition group code and name.
+   * Zones are matched with a single recursive query over geographic zones joined to the facility
+   * of the supervisory node, so neither the zone hierarchy nor supervisory nodes are loaded on
+   * their own. Only the requisition groups of the requested page are loaded as entities.
    *
    * @param code Part of wanted code.
    * @param name Part of wanted name.
-   * @param program Geographic zone of facility location.
-   * @param supervisoryNodes Wanted facility type.
-   * @return List of Facilities matching the parameters.
+   * @param program Program of requisition group schedules.
+   * @param zoneId ID of the zone in which, or below which, supervisory node facilities are
+   *               located.
+   * @return List of Requisition Groups matching the parameters.
    */
-  public Page<RequisitionGroup> search(String code, String name,
-                                       Program program, List<SupervisoryNode> supervisoryNodes,
+  public Page<RequisitionGroup> search(String code, String name, Program program, UUID zoneId,
                                        Pageable pageable) {
     if (StringUtils.isEmpty(code)
         && StringUtils.isEmpty(name)
         && program == null
-        && supervisoryNodes == null) {
+        && zoneId == null) {
       return Pagination.getPage(Collections.emptyList(), pageable, 0);
     }
 
-    if (supervisoryNodes != null && supervisoryNodes.isEmpty()) {
+    Map<String, Object> params = new HashMap<>();
+    String sql = prepareQuery(code, name, program, zoneId, params);
+
+    Query countQuery = entityManager.createNativeQuery(String.format(sql, "COUNT(*)"));
+    params.forEach(countQuery::setParameter);
+    long count = ((Number) countQuery.getSingleResult()).longValue();
+
+    if (0 == count) {
       return Pagination.getPage(Collections.emptyList(), pageable, 0);
     }
 
-    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    Pair<Integer, Integer> maxAndFirst = PageableUtil.querysMaxAndFirstResult(pageable);
+    Query idQuery = entityManager
+        .createNativeQuery(String.format(sql, "rg.id") + ORDER_BY_NAME)
+        .setMaxResults(maxAndFirst.getLeft())
+        .setFirstResult(maxAndFirst.getRight());
+    params.forEach(idQuery::setParameter);
+    idQuery.unwrap(NativeQuery.class).addScalar(ID, PostgresUUIDType.INSTANCE);
+
+    // appropriate scalar is added to native query
+    @SuppressWarnings("unchecked")
+    List<UUID> ids = idQuery.getResultList();
+
+    if (ids.isEmpty()) {
+      return Pagination.getPage(Collections.emptyList(), pageable, count);
+    }
+
+    Map<UUID, RequisitionGroup> requisitionGroups = entityManager
+        .createQuery(HQL_SELECT_BY_IDS, RequisitionGroup.class)
+        .setParameter("ids", ids)
+        .getResultList()
+        .stream()
+        .collect(Collectors.toMap(RequisitionGroup::getId, Function.identity()));
 
-    CriteriaQuery<RequisitionGroup> query = builder.createQuery(RequisitionGroup.class);
-    CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+    return Pagination.getPage(ids.stream().map(requisitionGroups::get)
+        .collect(Collectors.toList()), pageable, count);
+  }
 
-    query = prepareQuery(query, code, name, program, supervisoryNodes, false);
-    countQuery = prepareQuery(countQuery, code, name, program, supervisoryNodes, true);
+  /**
+   * Retrieves a page of requisition groups with the number of their member facilities. Neither
+   * requisition group nor facility entities are loaded. The page is sorted by name unless another
+   * sort is given; the ID is always the last sort key, so pages are stable.
+   */
+  @Override
+  public Page<RequisitionGroupSummaryDto> findAllSummaries(Pageable pageable) {
+    long count = ((Number) entityManager
+        .createNativeQuery(COUNT_SQL)
+        .getSingleResult())
+        .longValue();
 
-    Long count = entityManager.createQuery(countQuery).getSingleResult();
+    if (0 == count) {
+      return Pagination.getPage(Collections.emptyList(), pageable, 0);
+    }
 
-    List<RequisitionGroup> result = entityManager.createQuery(query)
-        .setMaxResults(pageable.getPageSize())
-        .setFirstResult(pageable.getPageNumber() * pageable.getPageSize())
+    Pair<Integer, Integer> maxAndFirst = PageableUtil.querysMaxAndFirstResult(pageable);
+    String sql = SUMMARY_SQL
+        + PageableUtil.getOrderPredicate(pageable, SORTABLE_COLUMNS, DEFAULT_SORT)
+        + ", rg.id";
+
+    // the summary mapping creates RequisitionGroupSummaryDto instances
+    @SuppressWarnings("unchecked")
+    List<RequisitionGroupSummaryDto> summaries = entityManager
+        .createNativeQuery(sql, "RequisitionGroup.summary")
+        .setMaxResults(maxAndFirst.getLeft())
+        .setFirstResult(maxAndFirst.getRight())
         .getResultList();
 
-    return Pagination.getPage(result, pageable, count);
+    return Pagination.getPage(summaries, pageable, count);
   }
 
-  private <T> CriteriaQuery<T> prepareQuery(CriteriaQuery<T> query, String code,
-                                            String name, Program program,
-                                            List<SupervisoryNode> supervisoryNodes,
-                                            boolean count) {
+  /**
+   * Retrieves member facilities of the given requisition groups, a batch of groups at a time.
+   *
+   * @param requisitionGroupIds IDs of requisition groups.
+   * @return member facilities by requisition group ID; groups without members are not present.
+   */
+  @Override
+  public Map<UUID, Set<Facility>> findMemberFacilities(Collection<UUID> requisitionGroupIds) {
+    Map<UUID, Set<Facility>> memberFacilities = new HashMap<>();
+
+    for (List<UUID> ids : Iterables.partition(requisitionGroupIds,
+        MEMBER_FACILITIES_BATCH_SIZE)) {
+      List<Object[]> rows = entityManager
+          .createQuery(HQL_MEMBER_FACILITIES, Object[].class)
+          .setParameter("ids", ids)
+          .getResultList();
 
-    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+      for (Object[] row : rows) {
+        memberFacilities
+            .computeIfAbsent((UUID) row[0], key -> new HashSet<>())
+            .add((Facility) row[1]);
+      }
+    }
 
-    Root<RequisitionGroup> root = query.from(RequisitionGroup.class);
+    return memberFacilities;
+  }
 
-    if (count) {
-      CriteriaQuery<Long> countQuery = (CriteriaQuery<Long>) query;
-      query = (CriteriaQuery<T>) countQuery.select(builder.count(root));
+  private String prepareQuery(String code, String name, Program program, UUID zoneId,
+                              Map<String, Object> params) {
+    List<String> sql = new ArrayList<>();
+    List<String> where = new ArrayList<>();
+
+    if (zoneId != null) {
+      sql.add(WITH_ZONES);
+      params.put("zoneId", zoneId);
     }
 
-    Predicate predicate = builder.conjunction();
+    sql.add(SELECT);
+    sql.add(FROM);
+
+    if (zoneId != null) {
+      sql.add(JOIN_ZONES);
+    }
 
     if (code != null) {
-      predicate = builder.and(predicate,
-          builder.like(builder.upper(root.get(CODE)), "%" + code.toUpperCase() + "%"));
+      where.add(WITH_CODE);
+      params.put(CODE, "%" + code.toUpperCase() + "%");
     }
 
     if (name != null) {
-      predicate = builder.and(predicate,
-          builder.like(builder.upper(root.get(NAME)), "%" + name.toUpperCase() + "%"));
+      where.add(WITH_NAME);
+      params.put(NAME, "%" + name.toUpperCase() + "%");
     }
 
     if (program != null) {
-      Join<RequisitionGroup, RequisitionGroupProgramSchedule> programSchedulesJoin =
-          root.join(PROGRAM_SCHEDULES, JoinType.LEFT);
-      predicate = builder.and(predicate,
-          builder.equal(programSchedulesJoin.get(PROGRAM), program));
-    }
-
-    if (supervisoryNodes != null && !supervisoryNodes.isEmpty()) {
-      predicate = builder.and(predicate, root.get(SUPERVISORY_NODE).in(supervisoryNodes));
+      where.add(WITH_PROGRAM);
+      params.put("programId", program.getId());
     }
 
-    query.where(predicate);
-
-    if (!count) {
-      query.orderBy(builder.asc(root.get(NAME)));
+    if (!where.isEmpty()) {
+      sql.add(WHERE);
+      sql.add(Joiner.on(AND).join(where));
     }
 
-    return query;
+    return Joiner.on(' ').join(sql);
   }
 }
@@ -17,11 +17,13 @@ package org.openlmis.referencedata.repository.custom.impl;
 
 import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
 import javax.persistence.criteria.CriteriaBuilder;
 import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Join;
@@ -30,6 +32,8 @@ import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.validation.constraints.NotNull;
 import org.apache.commons.lang3.tuple.Pair;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.type.PostgresUUIDType;
 import org.openlmis.referencedata.domain.Facility;
 import org.openlmis.referencedata.domain.GeographicZone;
 import org.openlmis.referencedata.domain.Program;
@@ -55,6 +59,24 @@ public class SupervisoryNodeRepositoryImpl implements SupervisoryNodeRepositoryC
   private static final String REQUISITION_GROUP_PROGRAM_SCHEDULE =
       "requisitionGroupProgramSchedules";
 
+  private static final String SUPERVISED_FACILITY_IDS_SQL = "WITH RECURSIVE nodes (id) AS ("
+      + "   SELECT CAST(:supervisoryNodeId AS uuid)"
+      + "   UNION"
+      + "   SELECT sn.id"
+      + "   FROM referencedata.supervisory_nodes sn"
+      + "     JOIN nodes n ON sn.parentid = n.id"
+      + " )"
+      + " SELECT DISTINCT rgm.facilityid"
+      + " FROM nodes n"
+      + "   JOIN referencedata.requisition_groups rg ON rg.supervisorynodeid = n.id"
+      + "   JOIN referencedata.requisition_group_members rgm ON rgm.requisitiongroupid = rg.id";
+
+  private static final String WITH_PROGRAM =
+      "   JOIN referencedata.requisition_group_program_schedules rgps"
+      + "     ON rgps.requisitiongroupid = rg.id AND rgps.programid = :programId"
+      + "   JOIN referencedata.supported_programs sp ON sp.facilityid = rgm.facilityid"
+      + "     AND sp.programid = :programId AND sp.active = TRUE";
+
   @PersistenceContext
   private EntityManager entityManager;
 
@@ -86,6 +108,37 @@ public class SupervisoryNodeRepositoryImpl implements SupervisoryNodeRepositoryC
     return Pagination.getPage(supervisoryNodes, pageable, count);
   }
 
+  /**
+   * Retrieves IDs of all facilities supervised by the given supervisory node and its child nodes
+   * with a single recursive query. If a program is given, only member facilities of requisition
+   * groups that have a schedule for the program and that actively support the program are
+   * returned. Unlike the cached supervised facility index, the result always reflects the current
+   * state of the database, so it should be used to validate and save data.
+   *
+   * @param supervisoryNodeId the supervisory node ID.
+   * @param programId the program ID, can be null.
+   * @return set of supervised facility IDs.
+   */
+  @Override
+  public Set<UUID> findSupervisedFacilityIds(UUID supervisoryNodeId, UUID programId) {
+    Query query = entityManager.createNativeQuery(null == programId
+        ? SUPERVISED_FACILITY_IDS_SQL
+        : SUPERVISED_FACILITY_IDS_SQL + WITH_PROGRAM);
+    query.setParameter("supervisoryNodeId", supervisoryNodeId);
+
+    if (null != programId) {
+      query.setParameter("programId", programId);
+    }
+
+    query.unwrap(NativeQuery.class).addScalar("facilityid", PostgresUUIDType.INSTANCE);
+
+    // appropriate scalar is added to native query
+    @SuppressWarnings("unchecked")
+    List<UUID> facilityIds = query.getResultList();
+
+    return new HashSet<>(facilityIds);
+  }
+
   private <T> CriteriaQuery<T> prepareQuery(CriteriaQuery<T> query,
       SupervisoryNodeSearchParams searchParams, boolean count, CriteriaBuilder builder) {
     Root<SupervisoryNode> root = query.from(SupervisoryNode.class);
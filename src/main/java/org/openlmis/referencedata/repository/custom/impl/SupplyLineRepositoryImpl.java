@@ -47,8 +47,12 @@ import java.util.stream.StreamSupport;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 import org.openlmis.referencedata.domain.SupplyLine;
 import org.openlmis.referencedata.repository.custom.SupplyLineRepositoryCustom;
+import org.openlmis.referencedata.util.KeysetPage;
+import org.openlmis.referencedata.util.KeysetPageable;
+import org.openlmis.referencedata.util.PageCursor;
 import org.openlmis.referencedata.util.Pagination;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -67,6 +71,8 @@ public class SupplyLineRepositoryImpl implements SupplyLineRepositoryCustom {
   private static final String SUPERVISORY_NODE_ID = SUPERVISORY_NODE + "Id";
   private static final String MEMBER_FACILITIES = "memberFacilities";
   private static final String REQUISITION_GROUP = "requisitionGroup";
+  private static final String IDS = "ids";
+  private static final String CURSOR_ID = "cursorId";
 
   private static final String SUPPLY_LINE_ALIAS = "sl";
   private static final String SUPERVISORY_NODE_ALIAS = "sn";
@@ -83,6 +89,9 @@ public class SupplyLineRepositoryImpl implements SupplyLineRepositoryCustom {
   private static final String SELECT_SL = join(SELECT, SUPPLY_LINE_ALIAS, FROM_SL,
       SUPERVISORY_NODE_JOIN, REQUISITION_GROUP_JOIN, REQUISITION_GROUP_MEMBERS_JOIN);
   private static final String COUNT_SL = join(SELECT_DISTINCT_COUNT, FROM_SL);
+  private static final String SELECT_SL_IDS =
+      join(SELECT, getField(SUPPLY_LINE_ALIAS, ID), FROM_SL);
+  private static final String ORDER_BY_ID = join(ORDER_BY, getField(SUPPLY_LINE_ALIAS, ID));
 
   private static final String WITH_PROGRAM_ID =
       isEqual(getField(SUPPLY_LINE_ALIAS, "program", ID), asParameter(PROGRAM_ID));
@@ -90,6 +99,9 @@ public class SupplyLineRepositoryImpl implements SupplyLineRepositoryCustom {
       isEqual(getField(SUPPLY_LINE_ALIAS, SUPERVISORY_NODE, ID), asParameter(SUPERVISORY_NODE_ID));
   private static final String WITH_SUPPLYING_FACILITIES =
       join(getField(SUPPLY_LINE_ALIAS, SUPPLYING_FACILITY, ID), in(SUPPLYING_FACILITY_IDS));
+  private static final String WITH_IDS = join(getField(SUPPLY_LINE_ALIAS, ID), in(IDS));
+  private static final String WITH_CURSOR =
+      join(getField(SUPPLY_LINE_ALIAS, ID), ">", asParameter(CURSOR_ID));
 
   @PersistenceContext
   private EntityManager entityManager;
@@ -115,14 +127,23 @@ public class SupplyLineRepositoryImpl implements SupplyLineRepositoryCustom {
 
     Map<String, Object> params = Maps.newHashMap();
     String whereStatement =
-        prepareWhereStatement(programId, supervisoryNodeId, supplyingFacilityIds, params);
+        prepareWhereStatement(programId, supervisoryNodeId, supplyingFacilityIds, null, params);
+    long count = 0;
 
-    Query countQuery = entityManager.createQuery(join(COUNT_SL, whereStatement), Long.class);
-    params.forEach(countQuery::setParameter);
-    Long count = (Long) countQuery.getSingleResult();
+    if (PageableUtil.isCounted(pageable)) {
+      Query countQuery = entityManager.createQuery(join(COUNT_SL, whereStatement), Long.class);
+      params.forEach(countQuery::setParameter);
+      count = (Long) countQuery.getSingleResult();
 
-    if (count < 1) {
-      return Pagination.getPage(Collections.emptyList(), pageable, 0);
+      if (count < 1) {
+        return Pagination.getPage(Collections.emptyList(), pageable, 0);
+      }
+    }
+
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+
+    if (null != keyset) {
+      return searchAfter(programId, supervisoryNodeId, supplyingFacilityIds, keyset, count);
     }
 
     Query searchQuery = entityManager.createQuery(
@@ -137,8 +158,45 @@ public class SupplyLineRepositoryImpl implements SupplyLineRepositoryCustom {
     return Pagination.getPage(result, pageable, count);
   }
 
+  /**
+   * Supply lines are fetched together with the requisition group members, so a page can't be
+   * limited in the database. Instead, IDs of the page are found first and then the supply lines
+   * are fetched by them. Rows are ordered by ID only.
+   */
+  private Page<SupplyLine> searchAfter(UUID programId, UUID supervisoryNodeId,
+      Set<UUID> supplyingFacilityIds, KeysetPageable pageable, long count) {
+    PageCursor cursor = pageable.getCursor();
+
+    Map<String, Object> params = Maps.newHashMap();
+    String whereStatement = prepareWhereStatement(programId, supervisoryNodeId,
+        supplyingFacilityIds, null == cursor ? null : cursor.getId(), params);
+
+    TypedQuery<UUID> idsQuery = entityManager
+        .createQuery(join(SELECT_SL_IDS, whereStatement, ORDER_BY_ID), UUID.class);
+    params.forEach(idsQuery::setParameter);
+
+    List<UUID> ids = idsQuery
+        .setMaxResults(pageable.getLimit())
+        .getResultList();
+
+    if (ids.isEmpty()) {
+      return Pagination.getPage(Collections.emptyList(), pageable, count);
+    }
+
+    List<SupplyLine> result = entityManager
+        .createQuery(join(SELECT_SL, WHERE, WITH_IDS, ORDER_BY_ID), SupplyLine.class)
+        .setParameter(IDS, ids)
+        .getResultList()
+        .stream()
+        .distinct()
+        .collect(toList());
+
+    return KeysetPage.of(result, pageable, count,
+        supplyLine -> PageCursor.of(ID, supplyLine.getId(), null));
+  }
+
   private String prepareWhereStatement(UUID programId, UUID supervisoryNodeId,
-      Set<UUID> supplyingFacilityIds, Map<String, Object> params) {
+      Set<UUID> supplyingFacilityIds, UUID cursorId, Map<String, Object> params) {
 
     List<String> conditions = Lists.newArrayList();
 
@@ -157,6 +215,11 @@ public class SupplyLineRepositoryImpl implements SupplyLineRepositoryCustom {
       params.put(SUPPLYING_FACILITY_IDS, supplyingFacilityIds);
     }
 
+    if (null != cursorId) {
+      conditions.add(WITH_CURSOR);
+      params.put(CURSOR_ID, cursorId);
+    }
+
     if (isEmpty(conditions)) {
       return "";
     }
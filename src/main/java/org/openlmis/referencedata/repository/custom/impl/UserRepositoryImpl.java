@@ -23,6 +23,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
@@ -36,6 +37,9 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.openlmis.referencedata.domain.User;
 import org.openlmis.referencedata.repository.UserSearchParams;
 import org.openlmis.referencedata.repository.custom.UserRepositoryCustom;
+import org.openlmis.referencedata.util.KeysetPage;
+import org.openlmis.referencedata.util.KeysetPageable;
+import org.openlmis.referencedata.util.PageCursor;
 import org.openlmis.referencedata.util.Pagination;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -68,13 +72,16 @@ public class UserRepositoryImpl implements UserRepositoryCustom {
   public Page<User> searchUsers(UserSearchParams searchParams, List<User> foundUsers,
       Pageable pageable) {
     CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    long count = 0;
 
-    CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
-    countQuery = prepareQuery(searchParams, foundUsers, countQuery, true, pageable);
-    Long count = entityManager.createQuery(countQuery).getSingleResult();
+    if (PageableUtil.isCounted(pageable)) {
+      CriteriaQuery<Long> countQuery = builder.createQuery(Long.class);
+      countQuery = prepareQuery(searchParams, foundUsers, countQuery, true, pageable);
+      count = entityManager.createQuery(countQuery).getSingleResult();
 
-    if (count == 0) {
-      return Pagination.getPage(Collections.emptyList(), pageable, 0);
+      if (count == 0) {
+        return Pagination.getPage(Collections.emptyList(), pageable, 0);
+      }
     }
 
     CriteriaQuery<User> query = builder.createQuery(User.class);
@@ -87,6 +94,13 @@ public class UserRepositoryImpl implements UserRepositoryCustom {
         .setFirstResult(maxAndFirst.getRight())
         .getResultList();
 
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+
+    if (null != keyset) {
+      return KeysetPage.of(result, keyset, count,
+          user -> PageCursor.of(USERNAME, user.getId(), user.getUsername()));
+    }
+
     return Pagination.getPage(result, pageable, count);   
   }
 
@@ -118,10 +132,41 @@ public class UserRepositoryImpl implements UserRepositoryCustom {
 
     predicate = addInFilter(predicate, builder, root, ID, ids);
 
+    if (!count) {
+      predicate = addCursorFilter(predicate, builder, root, pageable);
+    }
+
     query.where(predicate);
 
-    if (!count && pageable != null && pageable.getSort() != null) {
-      query = addSortProperties(query, root, pageable);
+    if (!count) {
+      query = addOrder(query, root, pageable);
+    }
+
+    return query;
+  }
+
+  private Predicate addCursorFilter(Predicate predicate, CriteriaBuilder builder,
+      Root<User> root, Pageable pageable) {
+    KeysetPageable keyset = PageableUtil.asKeyset(pageable);
+
+    if (null == keyset || null == keyset.getCursor()) {
+      return predicate;
+    }
+
+    PageCursor cursor = keyset.getCursor();
+    return builder.and(predicate, PageableUtil.after(builder, root.<String>get(USERNAME),
+        cursor.getValue(USERNAME, Function.identity()), root.<UUID>get(ID), cursor.getId()));
+  }
+
+  private <T> CriteriaQuery<T> addOrder(CriteriaQuery<T> query, Root<User> root,
+      Pageable pageable) {
+    if (pageable instanceof KeysetPageable) {
+      CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+      return query.orderBy(builder.asc(root.get(USERNAME)), builder.asc(root.get(ID)));
+    }
+
+    if (pageable != null && pageable.getSort() != null) {
+      return addSortProperties(query, root, pageable);
     }
 
     return query;
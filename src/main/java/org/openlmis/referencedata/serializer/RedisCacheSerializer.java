@@ -0,0 +1,139 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileConstants;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * RedisCacheSerializer class represents a typed serializer for values kept in Redis caches.
+ * Values are written in the configured format and, if they are bigger than the compression
+ * threshold, compressed with gzip. Values are read in any of the supported formats, compressed
+ * or not, so entries written with other settings (e.g. plain JSON written before binary format
+ * has been enabled) are still readable.
+ */
+public class RedisCacheSerializer<T> implements RedisSerializer<T> {
+
+  public enum Format {
+    JSON, SMILE
+  }
+
+  private static final byte GZIP_MAGIC_FIRST = (byte) 0x1f;
+  private static final byte GZIP_MAGIC_SECOND = (byte) 0x8b;
+
+  private final ObjectMapper jsonMapper;
+  private final ObjectMapper smileMapper;
+  private final Class<T> type;
+  private final Format format;
+  private final int compressionThreshold;
+
+  /**
+   * Creates new serializer.
+   *
+   * @param jsonMapper           mapper used for JSON values
+   * @param smileMapper          mapper used for Smile values
+   * @param type                 the type of values
+   * @param format               the format in which values are written
+   * @param compressionThreshold the minimal size (in bytes) of serialized value that is
+   *                             compressed, zero or less disables the compression
+   */
+  public RedisCacheSerializer(ObjectMapper jsonMapper, ObjectMapper smileMapper, Class<T> type,
+      Format format, int compressionThreshold) {
+    this.jsonMapper = jsonMapper;
+    this.smileMapper = smileMapper;
+    this.type = type;
+    this.format = format;
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  @Override
+  public byte[] serialize(T value) {
+    if (null == value) {
+      return new byte[0];
+    }
+
+    try {
+      ObjectMapper mapper = Format.SMILE == format ? smileMapper : jsonMapper;
+      byte[] bytes = mapper.writeValueAsBytes(value);
+
+      return compressionThreshold > 0 && bytes.length >= compressionThreshold
+          ? compress(bytes)
+          : bytes;
+    } catch (IOException exp) {
+      throw new SerializationException("Could not write " + type.getSimpleName(), exp);
+    }
+  }
+
+  @Override
+  public T deserialize(byte[] bytes) {
+    if (null == bytes || bytes.length == 0) {
+      return null;
+    }
+
+    try {
+      byte[] content = isCompressed(bytes) ? decompress(bytes) : bytes;
+      ObjectMapper mapper = isSmile(content) ? smileMapper : jsonMapper;
+
+      return mapper.readValue(content, type);
+    } catch (IOException exp) {
+      throw new SerializationException("Could not read " + type.getSimpleName(), exp);
+    }
+  }
+
+  private boolean isCompressed(byte[] bytes) {
+    return bytes.length > 1 && bytes[0] == GZIP_MAGIC_FIRST && bytes[1] == GZIP_MAGIC_SECOND;
+  }
+
+  private boolean isSmile(byte[] bytes) {
+    return bytes.length > 2
+        && bytes[0] == SmileConstants.HEADER_BYTE_1
+        && bytes[1] == SmileConstants.HEADER_BYTE_2
+        && bytes[2] == SmileConstants.HEADER_BYTE_3;
+  }
+
+  private byte[] compress(byte[] bytes) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length / 2);
+
+    try (GZIPOutputStream gzip = new GZIPOutputStream(output)) {
+      gzip.write(bytes);
+    }
+
+    return output.toByteArray();
+  }
+
+  private byte[] decompress(byte[] bytes) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream(bytes.length * 4);
+
+    try (InputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      byte[] buffer = new byte[4096];
+      int read;
+
+      while ((read = gzip.read(buffer)) != -1) {
+        output.write(buffer, 0, read);
+      }
+    }
+
+    return output.toByteArray();
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.serializer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openlmis.referencedata.serializer.RedisCacheSerializer.Format;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+
+/**
+ * Creates {@link RedisCacheSerializer} instances with the format and compression threshold set
+ * in the configuration. Both mappers share the application's Jackson configuration.
+ */
+@Component
+public class RedisCacheSerializerFactory {
+
+  private final ObjectMapper jsonMapper;
+  private final ObjectMapper smileMapper;
+  private final Format format;
+  private final int compressionThreshold;
+
+  /**
+   * Creates new factory.
+   */
+  @Autowired
+  public RedisCacheSerializerFactory(ObjectMapper objectMapper,
+      Jackson2ObjectMapperBuilder objectMapperBuilder,
+      @Value("${redis.serialization.format}") String format,
+      @Value("${redis.serialization.compressionThreshold}") int compressionThreshold) {
+    this.jsonMapper = objectMapper;
+    this.smileMapper = objectMapperBuilder.factory(new SmileFactory()).build();
+    this.format = Format.valueOf(format.toUpperCase());
+    this.compressionThreshold = compressionThreshold;
+  }
+
+  public <T> RedisCacheSerializer<T> create(Class<T> type) {
+    return new RedisCacheSerializer<>(jsonMapper, smileMapper, type, format,
+        compressionThreshold);
+  }
+}
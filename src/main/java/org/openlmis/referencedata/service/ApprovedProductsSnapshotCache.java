@@ -0,0 +1,146 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import org.openlmis.referencedata.dto.ApprovedProductDto;
+import org.openlmis.referencedata.repository.FacilityTypeApprovedProductRepository;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory snapshots of the approved products of a facility type in a program, kept as already
+ * encoded JSON together with a hash of the content that is used as a strong ETag.
+ *
+ * <p>All snapshots are dropped when an approved product, an orderable, a program orderable, a
+ * program, a facility type, an orderable display category or a facility changes (see
+ * {@link ApprovedProductsSnapshotListener}). Snapshots are looked up by the facility type of the
+ * requested facility, so the cached facility types are dropped together with them. Other nodes are
+ * notified by a {@link CacheInvalidator}.
+ */
+@Component
+public class ApprovedProductsSnapshotCache {
+
+  static final String CHANNEL = "referencedata:approved-products-snapshots";
+
+  @Autowired
+  private ObjectMapper objectMapper;
+
+  @Autowired
+  private RedisTemplate redisTemplate;
+
+  @Autowired
+  private FacilityTypeApprovedProductRepository facilityTypeApprovedProductRepository;
+
+  @Autowired(required = false)
+  private RedisMessageListenerContainer listenerContainer;
+
+  @Value("${approvedProductsSnapshot.maxSize}")
+  private long maxSize;
+
+  @Value("${approvedProductsSnapshot.timeToLive}")
+  private long timeToLive;
+
+  private Cache<Key, Snapshot> snapshots;
+  private CacheInvalidator invalidator;
+
+  @PostConstruct
+  void init() {
+    snapshots = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(timeToLive, TimeUnit.SECONDS)
+        .build();
+
+    invalidator = new CacheInvalidator(redisTemplate, CHANNEL, keys -> clear());
+    invalidator.subscribe(listenerContainer);
+  }
+
+  public Snapshot get(Key key) {
+    return snapshots.getIfPresent(key);
+  }
+
+  /**
+   * Returns the current generation of snapshots. It has to be read before the approved products
+   * are loaded and passed to {@link #put(Key, long, Page)}.
+   */
+  public long getGeneration() {
+    return invalidator.getGeneration();
+  }
+
+  /**
+   * Encodes the given page of approved products. The snapshot is cached only if nothing has
+   * changed since the given generation, so a page loaded before a change is never cached after
+   * the change has invalidated all snapshots.
+   */
+  public Snapshot put(Key key, long loadedGeneration, Page<ApprovedProductDto> page) {
+    byte[] body;
+
+    try {
+      body = objectMapper.writeValueAsBytes(page);
+    } catch (JsonProcessingException ex) {
+      throw new IllegalStateException("Could not encode approved products", ex);
+    }
+
+    Snapshot snapshot = new Snapshot(body, Hashing.sha256().hashBytes(body).toString());
+
+    invalidator.putIfCurrent(loadedGeneration, () -> snapshots.put(key, snapshot));
+    return snapshot;
+  }
+
+  /**
+   * Drops all snapshots on this and all other nodes.
+   */
+  public void invalidateAll() {
+    invalidator.invalidateAll();
+  }
+
+  private void clear() {
+    snapshots.invalidateAll();
+    facilityTypeApprovedProductRepository.evictFacilityTypes();
+  }
+
+  @Getter
+  @EqualsAndHashCode
+  @AllArgsConstructor
+  public static class Key {
+    private final UUID facilityTypeId;
+    private final UUID programId;
+    private final Boolean fullSupply;
+    private final boolean active;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static class Snapshot {
+    private final byte[] body;
+    private final String etag;
+  }
+}
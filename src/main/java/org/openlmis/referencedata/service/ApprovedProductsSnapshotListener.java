@@ -0,0 +1,52 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
+import org.hibernate.Hibernate;
+import org.hibernate.event.spi.EventSource;
+import org.openlmis.referencedata.domain.Facility;
+import org.openlmis.referencedata.domain.FacilityType;
+import org.openlmis.referencedata.domain.FacilityTypeApprovedProduct;
+import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.OrderableDisplayCategory;
+import org.openlmis.referencedata.domain.Program;
+import org.openlmis.referencedata.domain.ProgramOrderable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops approved products snapshots when an entity they are built from, or a facility whose type
+ * selects them, is created, updated or removed.
+ */
+@Component
+public class ApprovedProductsSnapshotListener extends BaseEntityChangeListener {
+
+  private static final Set<Class<?>> SOURCES = ImmutableSet.of(FacilityTypeApprovedProduct.class,
+      Orderable.class, ProgramOrderable.class, Program.class, FacilityType.class,
+      OrderableDisplayCategory.class, Facility.class);
+
+  @Autowired
+  private ApprovedProductsSnapshotCache snapshotCache;
+
+  @Override
+  protected void onChange(Object entity, EventSource session, Boolean added) {
+    if (SOURCES.contains(Hibernate.getClass(entity))) {
+      snapshotCache.invalidateAll();
+    }
+  }
+}
@@ -0,0 +1,407 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.openlmis.referencedata.util.messagekeys.PageableMessageKeys.ERROR_CURSOR_INVALID;
+
+import com.google.common.collect.Iterables;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import javax.annotation.Resource;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import org.javers.core.Javers;
+import org.javers.core.changelog.SimpleTextChangeLog;
+import org.javers.core.diff.Change;
+import org.javers.core.json.JsonConverter;
+import org.javers.core.metamodel.annotation.TypeName;
+import org.javers.repository.jql.QueryBuilder;
+import org.joda.time.LocalDateTime;
+import org.openlmis.referencedata.JaVersDateProvider;
+import org.openlmis.referencedata.domain.VersionIdentity;
+import org.openlmis.referencedata.domain.Versionable;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.util.PageCursor;
+import org.openlmis.referencedata.util.Pagination;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Reads the audit log of a single domain object. Commits which changed the object are filtered,
+ * ordered (newest first) and paginated by a query on the JaVers tables that only uses their
+ * indexes, so JaVers is only asked for the changes made by the commits of the requested page.
+ * Those changes are read and written a batch of commits at a time, so a page is never held in
+ * memory as a whole. A page is chosen either by its number or by the cursor returned with the
+ * previous page.
+ *
+ * <p>JaVers 2.x cannot look changes up by a list of commits, so a batch is read by the range of
+ * commit dates of its commits, limited to the number of snapshots in that range, and changes of
+ * other commits with a date in that range are skipped.
+ *
+ * <p>JaVers identifies versioned objects by their {@link VersionIdentity}, so the audit log of
+ * such an object is made of the audit logs of all its versions.
+ */
+@Service
+public class AuditLogService {
+
+  static final String CURSOR_KEY = "commitPk";
+  static final int COMMIT_BATCH_SIZE = 20;
+
+  private static final String FROM_SNAPSHOTS = " FROM referencedata.jv_global_id g"
+      + "   INNER JOIN referencedata.jv_snapshot s ON s.global_id_fk = g.global_id_pk"
+      + "   INNER JOIN referencedata.jv_commit c ON c.commit_pk = s.commit_fk"
+      + " WHERE g.type_name = :typeName"
+      + "   AND g.local_id IN (:localIds)";
+
+  private static final String COMMITS_SQL = "SELECT c.commit_pk"
+      + "   , c.commit_id"
+      + "   , c.commit_date"
+      + FROM_SNAPSHOTS;
+
+  private static final String SNAPSHOTS_SQL = "SELECT COUNT(*)"
+      + FROM_SNAPSHOTS;
+
+  private static final String WITH_AUTHOR = " AND c.author = :author";
+  private static final String WITH_PROPERTY = " AND s.changed_properties LIKE :property"
+      + " ESCAPE '\\'";
+  private static final String WITH_FROM = " AND c.commit_date >= :from";
+  private static final String WITH_TO = " AND c.commit_date <= :to";
+  private static final String WITH_CURSOR = " AND c.commit_pk < :cursor";
+  private static final String WITH_RANGE = " AND c.commit_date >= :rangeFrom"
+      + " AND c.commit_date <= :rangeTo";
+
+  private static final String GROUP_AND_ORDER = " GROUP BY c.commit_pk, c.commit_id, c.commit_date"
+      + " ORDER BY c.commit_pk DESC";
+
+  private static final String LIMIT = " LIMIT :limit";
+  private static final String OFFSET = " OFFSET :offset";
+
+  private static final String IDENTITY = "identity";
+
+  @Resource(name = "javersProvider")
+  private Javers javers;
+
+  @Autowired
+  private NamedParameterJdbcTemplate jdbcTemplate;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  /**
+   * Returns a page of changes of the given object, newest first. Only the commits of the page are
+   * read here; their changes are read when the page is written.
+   *
+   * @param type the type of the object.
+   * @param id the ID of the object.
+   * @param params the author, changed property, date range and cursor of wanted changes. Blank
+   *               or null values do not restrict the changes.
+   * @param pageable the page size and, if there is no cursor, the page number. The page size is
+   *                 the number of commits; a single commit may change several properties.
+   * @return the commits of the page and the cursor of the next page.
+   */
+  public ChangePage getChanges(Class<?> type, UUID id, AuditLogSearchParams params,
+      Pageable pageable) {
+    List<Object> localIds = getLocalIds(type, id);
+
+    if (localIds.isEmpty()) {
+      return new ChangePage(type, localIds, params, Collections.emptyList(), null);
+    }
+
+    StringBuilder sql = new StringBuilder(COMMITS_SQL);
+    MapSqlParameterSource sqlParams = getFilters(type, localIds, params, sql);
+
+    if (null != params.getFrom()) {
+      sql.append(WITH_FROM);
+      sqlParams.addValue("from", toCommitDate(params.getFrom()));
+    }
+
+    if (null != params.getTo()) {
+      sql.append(WITH_TO);
+      sqlParams.addValue("to", toCommitDate(params.getTo()));
+    }
+
+    if (null != params.getCursor()) {
+      sql.append(WITH_CURSOR);
+      sqlParams.addValue("cursor", getCommitPk(params.getCursor(), id));
+    }
+
+    sql.append(GROUP_AND_ORDER);
+
+    int size = Pagination.getPageSize(pageable);
+    boolean paged = size < Pagination.NO_PAGINATION;
+
+    if (paged) {
+      // one more commit tells whether there is a next page
+      sql.append(LIMIT);
+      sqlParams.addValue("limit", size + 1);
+
+      if (null == params.getCursor()) {
+        sql.append(OFFSET);
+        sqlParams.addValue("offset", (long) Pagination.getPageNumber(pageable) * size);
+      }
+    }
+
+    List<Commit> commits = jdbcTemplate.query(sql.toString(), sqlParams, (rs, rowNum) ->
+        new Commit(rs.getLong("commit_pk"), rs.getBigDecimal("commit_id"),
+            rs.getTimestamp("commit_date")));
+
+    String nextCursor = null;
+
+    if (paged && commits.size() > size) {
+      commits = commits.subList(0, size);
+      nextCursor = PageCursor.of(CURSOR_KEY, id, commits.get(size - 1).getPk()).encode();
+    }
+
+    return new ChangePage(type, localIds, params, commits, nextCursor);
+  }
+
+  private List<Object> getLocalIds(Class<?> type, UUID id) {
+    if (!Versionable.class.isAssignableFrom(type)) {
+      return Collections.singletonList(id);
+    }
+
+    // the local ID is the version identity, the same as in AuditLogInitializer
+    CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+    CriteriaQuery<Long> query = builder.createQuery(Long.class);
+    Path<VersionIdentity> identity = query.from(type).get(IDENTITY);
+    query.select(identity.get("versionNumber"));
+    query.where(builder.equal(identity.get("id"), id));
+
+    return entityManager
+        .createQuery(query)
+        .getResultList()
+        .stream()
+        .map(versionNumber -> new VersionIdentity(id, versionNumber))
+        .collect(Collectors.toList());
+  }
+
+  private MapSqlParameterSource getFilters(Class<?> type, List<Object> localIds,
+      AuditLogSearchParams params, StringBuilder sql) {
+    JsonConverter jsonConverter = javers.getJsonConverter();
+    MapSqlParameterSource sqlParams = new MapSqlParameterSource()
+        .addValue("typeName", getTypeName(type))
+        .addValue("localIds", localIds
+            .stream()
+            .map(jsonConverter::toJson)
+            .collect(Collectors.toList()));
+
+    if (StringUtils.isNotBlank(params.getAuthor())) {
+      sql.append(WITH_AUTHOR);
+      sqlParams.addValue("author", params.getAuthor());
+    }
+
+    if (StringUtils.isNotBlank(params.getChangedPropertyName())) {
+      // changed properties are kept as a JSON array of property names
+      sql.append(WITH_PROPERTY);
+      sqlParams.addValue("property",
+          "%\"" + escapeLikePattern(params.getChangedPropertyName()) + "\"%");
+    }
+
+    return sqlParams;
+  }
+
+  /**
+   * Writes the changes on the given page as a JSON array, one change at a time. The changes are
+   * read from JaVers a batch of commits at a time and each batch is flushed before the next one
+   * is read.
+   */
+  public void writeJson(ChangePage page, OutputStream outputStream) throws IOException {
+    JsonConverter jsonConverter = javers.getJsonConverter();
+    Writer writer = new BufferedWriter(
+        new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    boolean first = true;
+
+    writer.write('[');
+
+    for (List<Commit> commits : Iterables.partition(page.commits, COMMIT_BATCH_SIZE)) {
+      for (Change change : findChanges(page, commits)) {
+        if (!first) {
+          writer.write(',');
+        }
+
+        writer.write(jsonConverter.toJson(change));
+        first = false;
+      }
+
+      writer.flush();
+    }
+
+    writer.write(']');
+    writer.flush();
+  }
+
+  /**
+   * Writes the changes on the given page as a human-readable log, a batch of commits at a time.
+   */
+  public void writeText(ChangePage page, OutputStream outputStream) throws IOException {
+    for (List<Commit> commits : Iterables.partition(page.commits, COMMIT_BATCH_SIZE)) {
+      outputStream.write(javers
+          .processChangeList(findChanges(page, commits), new SimpleTextChangeLog())
+          .getBytes(StandardCharsets.UTF_8));
+      outputStream.flush();
+    }
+  }
+
+  /**
+   * Returns the name under which JaVers stores objects of the given type.
+   */
+  public static String getTypeName(Class<?> type) {
+    TypeName typeName = type.getAnnotation(TypeName.class);
+    return null == typeName ? type.getName() : typeName.value();
+  }
+
+  private List<Change> findChanges(ChangePage page, List<Commit> commits) {
+    // pages are written after the request transaction has ended
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setReadOnly(true);
+    return transactionTemplate.execute(status -> doFindChanges(page, commits));
+  }
+
+  private List<Change> doFindChanges(ChangePage page, List<Commit> commits) {
+    AuditLogSearchParams params = page.params;
+
+    // the range is widened by a millisecond, so it does not matter whether JaVers includes its
+    // bounds; the snapshot count over the same range limits the query
+    Timestamp from = new Timestamp(commits.stream()
+        .mapToLong(commit -> commit.getDate().getTime()).min().getAsLong() - 1);
+    Timestamp to = new Timestamp(commits.stream()
+        .mapToLong(commit -> commit.getDate().getTime()).max().getAsLong() + 1);
+
+    StringBuilder sql = new StringBuilder(SNAPSHOTS_SQL);
+    MapSqlParameterSource sqlParams = getFilters(page.type, page.localIds, params, sql);
+    sql.append(WITH_RANGE);
+    sqlParams
+        .addValue("rangeFrom", from)
+        .addValue("rangeTo", to);
+    Integer snapshots = jdbcTemplate.queryForObject(sql.toString(), sqlParams, Integer.class);
+
+    if (null == snapshots || snapshots == 0) {
+      return Collections.emptyList();
+    }
+
+    Set<BigDecimal> commitIds = commits
+        .stream()
+        .map(commit -> commit.getId().stripTrailingZeros())
+        .collect(Collectors.toSet());
+    List<Change> changes = new ArrayList<>();
+
+    for (Object localId : page.localIds) {
+      QueryBuilder queryBuilder = QueryBuilder
+          .byInstanceId(localId, page.type)
+          .withNewObjectChanges(true)
+          .from(LocalDateTime.fromDateFields(from))
+          .to(LocalDateTime.fromDateFields(to))
+          .limit(snapshots);
+
+      if (StringUtils.isNotBlank(params.getAuthor())) {
+        queryBuilder = queryBuilder.byAuthor(params.getAuthor());
+      }
+
+      if (StringUtils.isNotBlank(params.getChangedPropertyName())) {
+        queryBuilder = queryBuilder.andProperty(params.getChangedPropertyName());
+      }
+
+      javers
+          .findChanges(queryBuilder.build())
+          .stream()
+          .filter(change -> change.getCommitMetadata().isPresent()
+              && commitIds.contains(change.getCommitMetadata().get().getId()
+                  .valueAsNumber().stripTrailingZeros()))
+          .forEach(changes::add);
+    }
+
+    changes.sort(Comparator.comparing(
+        (Change change) -> change.getCommitMetadata().get().getCommitDate()).reversed());
+
+    return changes;
+  }
+
+  private long getCommitPk(String cursor, UUID id) {
+    PageCursor pageCursor = PageCursor.decode(cursor);
+
+    if (!id.equals(pageCursor.getId())) {
+      throw new ValidationMessageException(ERROR_CURSOR_INVALID);
+    }
+
+    return pageCursor.getValue(CURSOR_KEY, Long::valueOf);
+  }
+
+  private String escapeLikePattern(String value) {
+    // the backslash is the escape character of the LIKE pattern, see WITH_PROPERTY
+    return value
+        .replace("\\", "\\\\")
+        .replace("%", "\\%")
+        .replace("_", "\\_");
+  }
+
+  private Timestamp toCommitDate(ZonedDateTime dateTime) {
+    // commit dates are kept in UTC, see JaVersDateProvider
+    return Timestamp.valueOf(dateTime
+        .withZoneSameInstant(JaVersDateProvider.ZONE_ID)
+        .toLocalDateTime());
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static final class Commit {
+    private final long pk;
+    private final BigDecimal id;
+    private final Timestamp date;
+  }
+
+  /**
+   * Commits on a page of the audit log. Their changes are read when the page is written.
+   */
+  @AllArgsConstructor(access = AccessLevel.PRIVATE)
+  public static final class ChangePage {
+    private final Class<?> type;
+    private final List<Object> localIds;
+    private final AuditLogSearchParams params;
+    private final List<Commit> commits;
+
+    @Getter
+    private final String nextCursor;
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+
+package org.openlmis.referencedata.service;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.internal.SessionFactoryImpl;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Base of listeners that react to entities being created, updated or removed. The listener is
+ * registered in Hibernate once the bean is created and is called inside the transaction that
+ * makes the change.
+ */
+public abstract class BaseEntityChangeListener
+    implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+  @Autowired
+  private EntityManagerFactory entityManagerFactory;
+
+  @PostConstruct
+  void register() {
+    EventListenerRegistry registry = entityManagerFactory
+        .unwrap(SessionFactoryImpl.class)
+        .getServiceRegistry()
+        .getService(EventListenerRegistry.class);
+
+    registry.appendListeners(EventType.POST_INSERT, this);
+    registry.appendListeners(EventType.POST_UPDATE, this);
+    registry.appendListeners(EventType.POST_DELETE, this);
+  }
+
+  @Override
+  public void onPostInsert(PostInsertEvent event) {
+    onChange(event.getEntity(), event.getSession(), true);
+  }
+
+  @Override
+  public void onPostUpdate(PostUpdateEvent event) {
+    onChange(event.getEntity(), event.getSession(), null);
+  }
+
+  @Override
+  public void onPostDelete(PostDeleteEvent event) {
+    onChange(event.getEntity(), event.getSession(), false);
+  }
+
+  @Override
+  public boolean requiresPostCommitHanding(EntityPersister persister) {
+    return false;
+  }
+
+  /**
+   * Handles a change of the given entity.
+   *
+   * @param entity  the changed entity.
+   * @param session the session in which the entity has been changed.
+   * @param added   true if the entity has been created, false if it has been removed and null
+   *                if it has been updated.
+   */
+  protected abstract void onChange(Object entity, EventSource session, Boolean added);
+}
@@ -15,7 +15,6 @@
 
 package org.openlmis.referencedata.service;
 
-import com.google.common.collect.Sets;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
@@ -50,6 +49,9 @@ public class GeographicZoneService {
   @Autowired
   private GeographicLevelRepository geographicLevelRepository;
 
+  @Autowired
+  private GeographicZoneTree geographicZoneTree;
+
   /**
    * Method returns page of geographic zones with matched parameters.
    * The result will be ordered using sort parameter from pageable.
@@ -85,21 +87,13 @@ public class GeographicZoneService {
   }
 
   /**
-   * Retrieves recursively all geographic zone IDs that are descendants of the given one.
+   * Retrieves all geographic zone IDs that are descendants of the given one.
    *
    * @param root root of zone hierarchy
    * @return collection with all descendant zone IDs.
    */
   public Set<UUID> getAllZonesInHierarchy(UUID root) {
-    Set<UUID> children = geographicZoneRepository.findIdsByParent(root);
-    Set<UUID> result = Sets.newHashSet(children);
-
-    for (UUID zone : children) {
-      Set<UUID> descendants = getAllZonesInHierarchy(zone);
-      result.addAll(descendants);
-    }
-
-    return result;
+    return geographicZoneTree.get().getDescendantIds(root);
   }
 
   private GeographicZone findGeographicZone(Optional<UUID> parentId) {
@@ -0,0 +1,252 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+
+package org.openlmis.referencedata.service;
+
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import javax.annotation.PostConstruct;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory tree of geographic zones. Zones are kept in the order of a depth-first walk of the
+ * hierarchy, so all descendants of a zone are a continuous range of that order and are resolved
+ * without a query per level. Ancestors are resolved by following the parent links.
+ *
+ * <p>The tree is loaded on startup and dropped when a zone is created, updated or deleted; the
+ * next caller builds it again. A tree built from data read before it was dropped is never made
+ * the current one. Other nodes are notified by a {@link CacheInvalidator}.
+ */
+@Component
+public class GeographicZoneTree {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(GeographicZoneTree.class);
+
+  static final String CHANNEL = "referencedata:geographic-zone-tree";
+
+  static final String GEOGRAPHIC_ZONES_SQL = "SELECT id, parentid"
+      + " FROM referencedata.geographic_zones";
+
+  @Autowired
+  private JdbcTemplate template;
+
+  @Autowired
+  private Clock clock;
+
+  @Autowired
+  private RedisTemplate redisTemplate;
+
+  @Autowired(required = false)
+  private RedisMessageListenerContainer listenerContainer;
+
+  @Value("${geographicZoneTree.timeToLive}")
+  private long timeToLive;
+
+  private volatile Snapshot current;
+  private CacheInvalidator invalidator;
+
+  @PostConstruct
+  void init() {
+    invalidator = new CacheInvalidator(redisTemplate, CHANNEL, keys -> current = null);
+    invalidator.subscribe(listenerContainer);
+  }
+
+  @EventListener(ApplicationReadyEvent.class)
+  public void load() {
+    refresh();
+  }
+
+  /**
+   * Returns the last built tree, or builds a new one if there is none yet or it has expired.
+   */
+  public Snapshot get() {
+    Snapshot snapshot = current;
+
+    if (null == snapshot || snapshot.isOlderThan(clock.instant().minusSeconds(timeToLive))) {
+      snapshot = refresh();
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * Builds a new tree from the current state of the database and makes it the current one, unless
+   * the tree has been dropped while it was being built.
+   */
+  public Snapshot refresh() {
+    long loadedGeneration = invalidator.getGeneration();
+
+    Profiler profiler = new Profiler("BUILD_GEOGRAPHIC_ZONE_TREE");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("GET_GEOGRAPHIC_ZONES");
+    Map<UUID, UUID> parents = new HashMap<>();
+    template.query(GEOGRAPHIC_ZONES_SQL, (ResultSet rs) -> {
+      String parentId = rs.getString("parentid");
+      parents.put(UUID.fromString(rs.getString("id")),
+          null == parentId ? null : UUID.fromString(parentId));
+    });
+
+    profiler.start("BUILD_TREE");
+    Snapshot snapshot = new Snapshot(clock.instant(), parents);
+
+    invalidator.putIfCurrent(loadedGeneration, () -> current = snapshot);
+
+    profiler.stop().log();
+    return snapshot;
+  }
+
+  /**
+   * Drops the current tree on this and all other nodes.
+   */
+  public void invalidate() {
+    invalidator.invalidateAll();
+  }
+
+  /**
+   * Immutable state of the geographic zone hierarchy at the time the tree was built.
+   */
+  public static class Snapshot {
+
+    private final Instant createdDate;
+    private final Map<UUID, UUID> parents;
+    private final Map<UUID, Integer> positions;
+    private final UUID[] order;
+    private final int[] ends;
+
+    Snapshot(Instant createdDate, Map<UUID, UUID> parents) {
+      this.createdDate = createdDate;
+      this.parents = parents;
+      this.positions = new HashMap<>();
+      this.order = new UUID[parents.size()];
+      this.ends = new int[parents.size()];
+
+      walk(parents);
+    }
+
+    /**
+     * Returns IDs of all zones below the given zone, excluding the zone itself.
+     *
+     * @param zoneId the geographic zone ID.
+     * @return an unmodifiable set of zone IDs; empty if the zone has no children or is unknown.
+     */
+    public Set<UUID> getDescendantIds(UUID zoneId) {
+      Integer position = positions.get(zoneId);
+
+      if (null == position) {
+        return Collections.emptySet();
+      }
+
+      return Collections.unmodifiableSet(new HashSet<>(
+          Arrays.asList(order).subList(position + 1, ends[position])));
+    }
+
+    /**
+     * Returns IDs of all zones above the given zone, starting with its parent.
+     *
+     * @param zoneId the geographic zone ID.
+     * @return an unmodifiable list of zone IDs; empty if the zone is a root or is unknown.
+     */
+    public List<UUID> getAncestorIds(UUID zoneId) {
+      List<UUID> ancestors = new ArrayList<>();
+      UUID parentId = parents.get(zoneId);
+
+      // the size limit stops the walk if the data contains a cycle
+      while (null != parentId && ancestors.size() < parents.size()) {
+        ancestors.add(parentId);
+        parentId = parents.get(parentId);
+      }
+
+      return Collections.unmodifiableList(ancestors);
+    }
+
+    boolean isOlderThan(Instant instant) {
+      return createdDate.isBefore(instant);
+    }
+
+    private void walk(Map<UUID, UUID> parents) {
+      Map<UUID, List<UUID>> children = new HashMap<>();
+      Deque<UUID> zonesToVisit = new ArrayDeque<>();
+
+      parents.forEach((id, parentId) -> {
+        if (null == parentId || !parents.containsKey(parentId)) {
+          zonesToVisit.push(id);
+        } else {
+          children.computeIfAbsent(parentId, key -> new ArrayList<>()).add(id);
+        }
+      });
+
+      // zones on the path to the visited zone stay open; a zone is closed when the walk leaves
+      // its subtree, so its range ends right after its last descendant
+      Deque<Integer> openZones = new ArrayDeque<>();
+      int next = 0;
+
+      while (!zonesToVisit.isEmpty()) {
+        UUID zoneId = zonesToVisit.pop();
+
+        while (!openZones.isEmpty() && !isAncestor(openZones.peek(), zoneId)) {
+          ends[openZones.pop()] = next;
+        }
+
+        positions.put(zoneId, next);
+        order[next] = zoneId;
+        openZones.push(next);
+        next++;
+
+        children
+            .getOrDefault(zoneId, Collections.emptyList())
+            .forEach(zonesToVisit::push);
+      }
+
+      while (!openZones.isEmpty()) {
+        ends[openZones.pop()] = next;
+      }
+
+      if (next < order.length) {
+        XLOGGER.warn("{} geographic zones are not reachable from a root zone",
+            order.length - next);
+      }
+    }
+
+    private boolean isAncestor(int position, UUID zoneId) {
+      UUID parentId = parents.get(zoneId);
+      return null != parentId && parentId.equals(order[position]);
+    }
+  }
+}
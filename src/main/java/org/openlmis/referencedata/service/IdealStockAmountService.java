@@ -18,6 +18,7 @@ package org.openlmis.referencedata.service;
 import com.google.common.collect.Lists;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 import org.openlmis.referencedata.domain.IdealStockAmount;
 import org.openlmis.referencedata.repository.IdealStockAmountRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -31,10 +32,6 @@ public class IdealStockAmountService {
   @Autowired
   private IdealStockAmountRepository repository;
 
-  public List<IdealStockAmount> search() {
-    return search(null);
-  }
-
   public List<IdealStockAmount> search(List<IdealStockAmount> idealStockAmounts) {
     List<UUID> uuids = repository.search(idealStockAmounts);
     return Lists.newArrayList(repository.findAllById(uuids));
@@ -45,4 +42,13 @@ public class IdealStockAmountService {
     return repository.search(requestParams.getFacilityId(), requestParams.getCommodityTypeId(),
         requestParams.getProcessingPeriodId(), pageable);
   }
+
+  /**
+   * Streams all matching ideal stock amounts without loading them into memory at once. The stream
+   * has to be consumed within a transaction and closed afterwards.
+   */
+  public Stream<IdealStockAmount> stream(IdealStockAmountSearchParams requestParams) {
+    return repository.stream(requestParams.getFacilityId(), requestParams.getCommodityTypeId(),
+        requestParams.getProcessingPeriodId());
+  }
 }
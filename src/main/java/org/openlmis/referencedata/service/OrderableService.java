@@ -15,21 +15,29 @@
 
 package org.openlmis.referencedata.service;
 
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
 import java.sql.Timestamp;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import javax.validation.constraints.NotNull;
 
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.OrderableHighWaterMark;
+import org.openlmis.referencedata.repository.OrderableHighWaterMarkRepository;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.util.KeysetPageable;
 import org.openlmis.referencedata.web.QueryOrderableSearchParams;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
@@ -43,6 +51,9 @@ public class OrderableService {
   @Autowired
   private OrderableRepository orderableRepository;
 
+  @Autowired
+  private OrderableHighWaterMarkRepository orderableHighWaterMarkRepository;
+
   /**
    * Method returns all orderables with matched parameters.
    *
@@ -54,7 +65,9 @@ public class OrderableService {
       Pageable pageable) {
     LOGGER.info("search orderable query params: {}", queryMap);
 
-    if (queryMap.isEmpty()) {
+    boolean keyset = pageable instanceof KeysetPageable;
+
+    if (queryMap.isEmpty() && !keyset) {
       LOGGER.info("find all");
       return orderableRepository.findAllLatest(pageable);
     }
@@ -63,7 +76,9 @@ public class OrderableService {
     LOGGER.info("ids from query params: {}", ids);
     if (!ids.isEmpty()) {
       LOGGER.info("find all by ids");
-      return orderableRepository.findAllLatestByIds(ids, pageable);
+      // the IDs are bounded by the request, so they are returned as a single page with no cursor
+      return orderableRepository.findAllLatestByIds(ids,
+          keyset ? PageRequest.of(0, ids.size()) : pageable);
     }
 
     if (LOGGER.isInfoEnabled()) {
@@ -107,6 +122,30 @@ public class OrderableService {
             .findLatestModifiedDateByParams(queryParams);
   }
 
+  /**
+   * Method returns the high-water mark of orderables with matched parameters. The mark is only
+   * maintained for all orderables and for orderables of a program, so it is empty if any other
+   * parameter is given, or if there have never been any orderables matching the parameters.
+   *
+   * @param queryParams request parameters (code, name, description, program).
+   * @return the mark with the latest last updated date and version of matched orderables.
+   */
+  public Optional<OrderableHighWaterMark> findHighWaterMark(
+      @NotNull QueryOrderableSearchParams queryParams, Profiler profiler) {
+
+    if (!queryParams.getIds().isEmpty() || isNotBlank(queryParams.getCode())
+        || isNotBlank(queryParams.getName())) {
+      return Optional.empty();
+    }
+
+    profiler.start("FIND_HIGH_WATER_MARK");
+    String programCode = queryParams.getProgramCode();
+
+    return isBlank(programCode)
+        ? orderableHighWaterMarkRepository.findById(OrderableHighWaterMark.ALL_PROGRAMS)
+        : orderableHighWaterMarkRepository.findByProgramCode(programCode);
+  }
+
   private ZonedDateTime getZoneDateTime(Timestamp timestamp) {
 
     if (null != timestamp) {
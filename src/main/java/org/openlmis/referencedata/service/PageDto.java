@@ -28,6 +28,7 @@ import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.Setter;
 import org.openlmis.referencedata.util.CustomSortDeserializer;
+import org.openlmis.referencedata.util.KeysetPage;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -57,6 +58,8 @@ public final class PageDto<T> implements Page<T> {
 
   private List<T> content;
 
+  private String nextCursor;
+
   public PageDto() {
     this(new PageImpl<>(new ArrayList<>()));
   }
@@ -68,10 +71,19 @@ public final class PageDto<T> implements Page<T> {
     this(
         checkNotNull(page).isLast(), page.isFirst(), page.getTotalPages(),
         page.getTotalElements(), page.getSize(), page.getNumber(),
-        page.getNumberOfElements(), page.getSort(), checkNotNull(page.getContent())
+        page.getNumberOfElements(), page.getSort(), checkNotNull(page.getContent()),
+        getNextCursor(page)
     );
   }
 
+  private static String getNextCursor(Page<?> page) {
+    if (page instanceof KeysetPage) {
+      return ((KeysetPage<?>) page).getNextCursor();
+    }
+
+    return page instanceof PageDto ? ((PageDto<?>) page).getNextCursor() : null;
+  }
+
   @Override
   public boolean hasContent() {
     return !content.isEmpty();
@@ -105,9 +117,12 @@ public final class PageDto<T> implements Page<T> {
 
     List<S> result = content.stream().map(converter).collect(Collectors.toList());
     Pageable pageable = PageRequest.of(number, size, sort);
-    Page<S> page = new PageImpl<>(result, pageable, totalElements);
+    PageDto<S> page = new PageDto<>(new PageImpl<>(result, pageable, totalElements));
+    page.setLast(last);
+    page.setFirst(first);
+    page.setNextCursor(nextCursor);
 
-    return new PageDto<>(page);
+    return page;
   }
 
   @Override
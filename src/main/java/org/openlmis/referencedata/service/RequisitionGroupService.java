@@ -15,31 +15,33 @@
 
 package org.openlmis.referencedata.service;
 
-import com.google.common.collect.Lists;
-import java.util.Comparator;
-import java.util.List;
+import java.util.Collections;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.openlmis.referencedata.domain.Code;
+import org.openlmis.referencedata.domain.Facility;
 import org.openlmis.referencedata.domain.GeographicZone;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.RequisitionGroup;
-import org.openlmis.referencedata.domain.SupervisoryNode;
+import org.openlmis.referencedata.dto.BaseDto;
+import org.openlmis.referencedata.dto.FacilityDto;
+import org.openlmis.referencedata.dto.RequisitionGroupSummaryDto;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.GeographicZoneRepository;
 import org.openlmis.referencedata.repository.ProgramRepository;
 import org.openlmis.referencedata.repository.RequisitionGroupRepository;
-import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
-import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.GeographicZoneMessageKeys;
 import org.openlmis.referencedata.util.messagekeys.ProgramMessageKeys;
 import org.openlmis.referencedata.util.messagekeys.RequisitionGroupMessageKeys;
-import org.openlmis.referencedata.web.SupervisoryNodeSearchParams;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -56,14 +58,12 @@ public class RequisitionGroupService {
   @Autowired
   private RequisitionGroupRepository requisitionGroupRepository;
 
-  @Autowired
-  private SupervisoryNodeRepository supervisoryNodeRepository;
-
   @Autowired
   private ProgramRepository programRepository;
 
   /**
-   * Method returns all requisition groups with matched parameters.
+   * Method returns all requisition groups with matched parameters. Zone matches requisition
+   * groups whose supervisory node facility is located in the given zone or any zone below it.
    *
    * @param queryMap request parameters (code, name, zone, program).
    * @return Page of requisition groups.
@@ -71,10 +71,9 @@ public class RequisitionGroupService {
   public Page<RequisitionGroup> searchRequisitionGroups(Map<String, Object> queryMap,
                                                         Pageable pageable) {
     if (MapUtils.isEmpty(queryMap)) {
-      List<RequisitionGroup> requisitionGroups =
-          Lists.newArrayList(requisitionGroupRepository.findAll());
-      requisitionGroups.sort(Comparator.comparing(RequisitionGroup::getName));
-      return Pagination.getPage(requisitionGroups, pageable);
+      return requisitionGroupRepository.findAll(pageable.getSort().isSorted()
+          ? pageable
+          : PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(NAME)));
     }
 
     String name = MapUtils.getString(queryMap, NAME, null);
@@ -91,25 +90,51 @@ public class RequisitionGroupService {
           RequisitionGroupMessageKeys.ERROR_SEARCH_LACKS_PARAMS);
     }
 
-    List<SupervisoryNode> supervisoryNodes = getSupervisoryNodeBasedOnZone(zoneCode);
+    UUID zoneId = getZoneIdByCode(zoneCode);
     Program program = getProgramByCode(programCode);
 
-    return requisitionGroupRepository.search(code, name, program, supervisoryNodes, pageable);
+    return requisitionGroupRepository.search(code, name, program, zoneId, pageable);
+  }
+
+  /**
+   * Returns page of requisition groups with the number of their member facilities, sorted by name
+   * unless the pageable says otherwise. Member facilities are loaded, in batches for the whole
+   * page, only if they are requested.
+   *
+   * @param pageable pagination and sort parameters.
+   * @param withMemberFacilities whether member facilities should be included.
+   * @return Page of requisition group summaries.
+   */
+  public Page<RequisitionGroupSummaryDto> getRequisitionGroupSummaries(Pageable pageable,
+      boolean withMemberFacilities) {
+    Page<RequisitionGroupSummaryDto> page = requisitionGroupRepository.findAllSummaries(pageable);
+
+    if (withMemberFacilities && page.hasContent()) {
+      Map<UUID, Set<Facility>> memberFacilities = requisitionGroupRepository.findMemberFacilities(
+          page.getContent().stream().map(BaseDto::getId).collect(Collectors.toList()));
+
+      for (RequisitionGroupSummaryDto summary : page.getContent()) {
+        summary.setMemberFacilityDtos(memberFacilities
+            .getOrDefault(summary.getId(), Collections.emptySet())
+            .stream()
+            .map(FacilityDto::newInstance)
+            .collect(Collectors.toSet()));
+      }
+    }
+
+    return page;
   }
 
-  private List<SupervisoryNode> getSupervisoryNodeBasedOnZone(String zoneCode) {
-    List<SupervisoryNode> supervisoryNodes = null;
+  private UUID getZoneIdByCode(String zoneCode) {
+    UUID zoneId = null;
     if (!StringUtils.isEmpty(zoneCode)) {
       GeographicZone zone = geographicZoneRepository.findByCode(zoneCode);
       if (zone == null) {
         throw new ValidationMessageException(GeographicZoneMessageKeys.ERROR_NOT_FOUND);
       }
-      SupervisoryNodeSearchParams params = new SupervisoryNodeSearchParams(
-          null, null, null, null, zone.getId(), null);
-      supervisoryNodes = supervisoryNodeRepository.search(params,
-          PageRequest.of(0, Integer.MAX_VALUE)).getContent();
+      zoneId = zone.getId();
     }
-    return supervisoryNodes;
+    return zoneId;
   }
 
   private Program getProgramByCode(String programCode) {
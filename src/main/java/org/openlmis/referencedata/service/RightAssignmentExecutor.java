@@ -15,6 +15,8 @@
 
 package org.openlmis.referencedata.service;
 
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
@@ -30,6 +32,8 @@ public class RightAssignmentExecutor {
 
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(RightAssignmentService.class);
 
+  private static final RejectedExecutionHandler CALLER_RUNS_POLICY = new CallerRunsPolicy();
+
   @Value("${rightAssignments.thread.corePool}")
   private int corePoolSize;
 
@@ -45,14 +49,18 @@ public class RightAssignmentExecutor {
   /**
    * Executor for right assignment regeneration task.
    * Restricts async parameters such as thread pool size. queue capacity or thread timeout.
+   * Re-generations that do not fit into the queue are run by the calling thread.
    */
   @Bean
   @Qualifier("rightAssignmentTaskExecutor")
   public ThreadPoolTaskExecutor rightAssignmentTaskExecutor() {
     ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
     threadPoolTaskExecutor.setCorePoolSize(corePoolSize);
-    threadPoolTaskExecutor.setRejectedExecutionHandler((runnable, executor) ->
-        XLOGGER.error("Thread pool for Right Assignment Regeneration exceeded"));
+    threadPoolTaskExecutor.setRejectedExecutionHandler((runnable, executor) -> {
+      // a dropped re-generation would leave right assignments stale until the next full rebuild
+      XLOGGER.warn("Thread pool for Right Assignment Regeneration exceeded, running in caller");
+      CALLER_RUNS_POLICY.rejectedExecution(runnable, executor);
+    });
     threadPoolTaskExecutor.setMaxPoolSize(maxPoolSize);
     threadPoolTaskExecutor.setQueueCapacity(queueCapacity);
     threadPoolTaskExecutor.setKeepAliveSeconds(threadTimeout);
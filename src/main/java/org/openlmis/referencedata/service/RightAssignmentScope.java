@@ -0,0 +1,97 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Describes which part of the data changed, so that only right assignments of the users affected
+ * by that change are re-generated. A scope may point to users, roles, supervisory nodes (which is
+ * also used for requisition group changes) or facilities (for supported program changes).
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RightAssignmentScope {
+
+  private final Set<UUID> userIds;
+  private final Set<UUID> roleIds;
+  private final Set<UUID> supervisoryNodeIds;
+  private final Set<UUID> facilityIds;
+
+  public static RightAssignmentScope forUsers(UUID... userIds) {
+    return new RightAssignmentScope(toSet(userIds), Collections.emptySet(),
+        Collections.emptySet(), Collections.emptySet());
+  }
+
+  public static RightAssignmentScope forRoles(UUID... roleIds) {
+    return new RightAssignmentScope(Collections.emptySet(), toSet(roleIds),
+        Collections.emptySet(), Collections.emptySet());
+  }
+
+  /**
+   * Creates a scope for changes in the supervisory node hierarchy. Pass ids of all nodes whose
+   * subtree changed, including nodes that used to own a moved requisition group or child node.
+   */
+  public static RightAssignmentScope forSupervisoryNodes(UUID... supervisoryNodeIds) {
+    return new RightAssignmentScope(Collections.emptySet(), Collections.emptySet(),
+        toSet(supervisoryNodeIds), Collections.emptySet());
+  }
+
+  public static RightAssignmentScope forFacilities(UUID... facilityIds) {
+    return new RightAssignmentScope(Collections.emptySet(), Collections.emptySet(),
+        Collections.emptySet(), toSet(facilityIds));
+  }
+
+  /**
+   * Creates a scope covering the changes of both this and the given scope.
+   */
+  public RightAssignmentScope merge(RightAssignmentScope other) {
+    return new RightAssignmentScope(union(userIds, other.userIds),
+        union(roleIds, other.roleIds), union(supervisoryNodeIds, other.supervisoryNodeIds),
+        union(facilityIds, other.facilityIds));
+  }
+
+  public boolean isEmpty() {
+    return userIds.isEmpty() && roleIds.isEmpty() && supervisoryNodeIds.isEmpty()
+        && facilityIds.isEmpty();
+  }
+
+  private static Set<UUID> union(Set<UUID> left, Set<UUID> right) {
+    Set<UUID> union = new HashSet<>(left);
+    union.addAll(right);
+    return Collections.unmodifiableSet(union);
+  }
+
+  private static Set<UUID> toSet(UUID... ids) {
+    return Collections.unmodifiableSet(Arrays
+        .stream(ids)
+        .filter(Objects::nonNull)
+        .collect(Collectors.toSet()));
+  }
+}
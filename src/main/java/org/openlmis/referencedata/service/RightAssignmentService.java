@@ -18,31 +18,42 @@ package org.openlmis.referencedata.service;
 import com.google.common.collect.Iterables;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.Charset;
 import java.sql.ResultSet;
-import java.util.ArrayList;
+import java.sql.SQLException;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 import java.util.stream.Collectors;
-import org.apache.commons.lang3.tuple.MutablePair;
 import org.openlmis.referencedata.dto.RightAssignmentDto;
 import org.openlmis.referencedata.util.Resource2Db;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.scheduling.annotation.AsyncResult;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.StreamUtils;
 
 /**
@@ -51,25 +62,69 @@ import org.springframework.util.StreamUtils;
  * right assignments. This component only runs when the "refresh-db" Spring profile is set.
  */
 @Service
+@SuppressWarnings({"PMD.TooManyMethods"})
 public class RightAssignmentService {
 
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(RightAssignmentService.class);
 
   private static final String USER_ID = "userid";
   private static final String RIGHT_NAME = "rightname";
+  private static final String FACILITY_ID = "facilityid";
+  private static final String PROGRAM_ID = "programid";
+  private static final String USER_IDS = "userIds";
   private static final String RIGHT_ASSIGNMENTS_PATH = "classpath:db/right-assignments/";
+  private static final int USER_BATCH_SIZE = 500;
 
   static final String DELETE_SQL = "DELETE FROM referencedata.right_assignments;";
 
+  static final String DELETE_BY_IDS_SQL = "DELETE FROM referencedata.right_assignments"
+      + " WHERE id IN (:ids)";
+
+  static final String EXISTING_BY_USERS_SQL = "SELECT id, userid, rightname, facilityid,"
+      + " programid FROM referencedata.right_assignments WHERE userid IN (:userIds)";
+
+  static final String USERS_BY_ROLES_SQL = "SELECT DISTINCT userid"
+      + " FROM referencedata.role_assignments WHERE roleid IN (:roleIds)";
+
   @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_right_assignments.sql")
   private Resource rightAssignmentsResource;
 
-  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_all_supervised_facilities_from_node.sql")
-  private Resource supervisedFacilitiesResource;
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_right_assignments_for_users.sql")
+  private Resource userRightAssignmentsResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_users_affected_by_supervisory_nodes.sql")
+  private Resource usersAffectedBySupervisoryNodesResource;
+
+  @Value(value = RIGHT_ASSIGNMENTS_PATH + "get_users_affected_by_facilities.sql")
+  private Resource usersAffectedByFacilitiesResource;
+
+  @Value("${rightAssignments.incremental.enabled}")
+  private boolean incrementalEnabled;
 
   @Autowired
   private JdbcTemplate template;
 
+  @Autowired
+  private SupervisedFacilityIndex supervisedFacilityIndex;
+
+  @Autowired
+  private UserPermissionCache userPermissionCache;
+
+  @Autowired
+  private UserPermissionVersionService userPermissionVersionService;
+
+  @Autowired
+  @Qualifier("rightAssignmentTaskExecutor")
+  private TaskExecutor rightAssignmentTaskExecutor;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  private final Object pendingLock = new Object();
+  private RightAssignmentScope pendingScope;
+  private CompletableFuture<Void> pendingResult;
+  private boolean processing;
+
   /**
    * Re-generates right assignments. This operation needs to be transactional so that dropping 
    * and re-generating is one transaction. The isolation level is specified to READ_COMMITTED, 
@@ -81,6 +136,110 @@ public class RightAssignmentService {
   @Async("rightAssignmentTaskExecutor")
   @Transactional(isolation = Isolation.READ_COMMITTED)
   public Future<Void> regenerateRightAssignments() {
+    rebuildAllRightAssignments();
+    return new AsyncResult<>(null);
+  }
+
+  /**
+   * Re-generates right assignments of the users affected by the given change only. Right
+   * assignments of those users are recalculated and compared with the existing ones, then only
+   * the difference is deleted and inserted. It uses the same transaction semantics as
+   * {@link #regenerateRightAssignments()}. If the incremental re-generation is disabled
+   * (rightAssignments.incremental.enabled) all right assignments are rebuilt from scratch.
+   *
+   * <p>Scopes are queued and processed one at a time by a single task on the right assignment
+   * executor. A scope requested while earlier ones are still waiting is merged with them, so no
+   * change is dropped when changes arrive faster than they are processed.
+   *
+   * @param scope the change that requires right assignments to be re-generated.
+   * @return future completed when the given scope has been processed.
+   */
+  public Future<Void> regenerateRightAssignments(RightAssignmentScope scope) {
+    CompletableFuture<Void> result;
+    boolean startProcessing;
+
+    synchronized (pendingLock) {
+      if (null == pendingScope) {
+        pendingScope = scope;
+        pendingResult = new CompletableFuture<>();
+      } else {
+        pendingScope = pendingScope.merge(scope);
+      }
+
+      result = pendingResult;
+      startProcessing = !processing;
+      processing = true;
+    }
+
+    if (startProcessing) {
+      try {
+        rightAssignmentTaskExecutor.execute(this::processPendingScopes);
+      } catch (RuntimeException ex) {
+        // the pending scope is kept, so it is processed with the next requested one
+        synchronized (pendingLock) {
+          processing = false;
+        }
+        throw ex;
+      }
+    }
+
+    return result;
+  }
+
+  private void processPendingScopes() {
+    boolean finished = false;
+
+    try {
+      while (!finished) {
+        RightAssignmentScope scope;
+        CompletableFuture<Void> result;
+
+        synchronized (pendingLock) {
+          scope = pendingScope;
+          result = pendingResult;
+          pendingScope = null;
+          pendingResult = null;
+          finished = null == scope;
+          processing = !finished;
+        }
+
+        if (!finished) {
+          processScope(scope, result);
+        }
+      }
+    } finally {
+      if (!finished) {
+        synchronized (pendingLock) {
+          processing = false;
+        }
+      }
+    }
+  }
+
+  private void processScope(RightAssignmentScope scope, CompletableFuture<Void> result) {
+    try {
+      newTransactionTemplate().execute(status -> {
+        if (incrementalEnabled) {
+          updateRightAssignments(scope);
+        } else {
+          rebuildAllRightAssignments();
+        }
+        return null;
+      });
+      result.complete(null);
+    } catch (RuntimeException ex) {
+      XLOGGER.error("Could not re-generate right assignments for {}", scope, ex);
+      result.completeExceptionally(ex);
+    }
+  }
+
+  private TransactionTemplate newTransactionTemplate() {
+    TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+    transactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    return transactionTemplate;
+  }
+
+  private void rebuildAllRightAssignments() {
     Profiler profiler = new Profiler("REGENERATE_RIGHT_ASSIGNMENTS");
     profiler.setLogger(XLOGGER);
     XLOGGER.entry();
@@ -91,81 +250,186 @@ public class RightAssignmentService {
 
     // Get a right assignment matrix from database
     profiler.start("GET_INTERMEDIATE_RIGHT_ASSIGNMENTS");
-    List<RightAssignmentDto> dbRightAssignments = new ArrayList<>();
+    List<RightAssignmentDto> dbRightAssignments;
     try {
       dbRightAssignments = getRightAssignmentsFromDbResource(rightAssignmentsResource);
     } catch (IOException ioe) {
-      XLOGGER.warn("Error when getting right assignments: " + ioe.getMessage());
+      // without the intermediate right assignments the dropped rows must not be committed
+      throw new UncheckedIOException("Error when getting right assignments", ioe);
     }
 
+    profiler.start("BUILD_SUPERVISED_FACILITY_INDEX");
+    SupervisedFacilityIndex.Snapshot index = supervisedFacilityIndex.refresh();
+    supervisedFacilityIndex.invalidate();
+
     profiler.start("RESOURCE_2_DB");
     Resource2Db r2db = new Resource2Db(template);
+
+    profiler.start("CHANGE_SUPERVISORY_NODES_TO_FACILITIES_IN_RIGHT_ASSIGNMENTS");
+    Set<RightAssignmentDto> rightAssignmentsToInsert = convertForInsert(dbRightAssignments, index);
+
+    profiler.start("INSERT_INTO_DB");
+    insertFromDbRightAssignments(r2db, rightAssignmentsToInsert);
+
+    profiler.start("UPDATE_USER_PERMISSION_VERSIONS");
+    userPermissionVersionService.reset(toPermissionStrings(rightAssignmentsToInsert));
+
+    profiler.start("INVALIDATE_USER_PERMISSIONS");
+    userPermissionCache.invalidateAll();
+
+    XLOGGER.exit();
+    profiler.stop().log();
+  }
+
+  private void updateRightAssignments(RightAssignmentScope scope) {
+    Profiler profiler = new Profiler("UPDATE_RIGHT_ASSIGNMENTS");
+    profiler.setLogger(XLOGGER);
+    XLOGGER.entry(scope);
+
     try {
-      profiler.start("CHANGE_SUPERVISORY_NODES_TO_FACILITIES_IN_RIGHT_ASSIGNMENTS");
-      Set<RightAssignmentDto> rightAssignmentsToInsert = convertForInsert(dbRightAssignments,
-          supervisedFacilitiesResource);
+      profiler.start("FIND_AFFECTED_USERS");
+      Set<UUID> userIds = findAffectedUserIds(scope);
+      XLOGGER.debug("Users affected by the change: {}", userIds.size());
+
+      profiler.start("UPDATE_SUPERVISED_FACILITY_INDEX");
+      SupervisedFacilityIndex.Snapshot index = getSupervisedFacilityIndex(scope);
+
+      Resource2Db r2db = new Resource2Db(template);
+      for (List<UUID> partialUserIds : Iterables.partition(userIds, USER_BATCH_SIZE)) {
+        profiler.start("GET_INTERMEDIATE_RIGHT_ASSIGNMENTS");
+        List<RightAssignmentDto> dbRightAssignments = getRightAssignmentsForUsers(partialUserIds);
+
+        profiler.start("CHANGE_SUPERVISORY_NODES_TO_FACILITIES_IN_RIGHT_ASSIGNMENTS");
+        Set<RightAssignmentDto> expected = convertForInsert(dbRightAssignments, index);
+
+        profiler.start("GET_EXISTING_RIGHT_ASSIGNMENTS");
+        Map<RightAssignmentDto, UUID> existing = getExistingRightAssignments(partialUserIds);
+
+        profiler.start("DELETE_OUTDATED_RIGHT_ASSIGNMENTS");
+        List<UUID> idsToDelete = existing.entrySet()
+            .stream()
+            .filter(entry -> !expected.contains(entry.getKey()))
+            .map(Map.Entry::getValue)
+            .collect(Collectors.toList());
+        for (List<UUID> partialIds : Iterables.partition(idsToDelete, USER_BATCH_SIZE)) {
+          namedTemplate().update(DELETE_BY_IDS_SQL, new MapSqlParameterSource("ids", partialIds));
+        }
+
+        profiler.start("UPDATE_USER_PERMISSION_VERSIONS");
+        userPermissionVersionService.record(partialUserIds,
+            toPermissionStrings(existing.keySet()), toPermissionStrings(expected));
 
-      profiler.start("INSERT_INTO_DB");
-      for (List partialRightAssignments : Iterables.partition(rightAssignmentsToInsert, 100)) {
-        insertFromDbRightAssignmentList(r2db, partialRightAssignments);
+        profiler.start("INSERT_MISSING_RIGHT_ASSIGNMENTS");
+        expected.removeAll(existing.keySet());
+        insertFromDbRightAssignments(r2db, expected);
       }
+
+      profiler.start("INVALIDATE_USER_PERMISSIONS");
+      userPermissionCache.invalidate(userIds);
     } catch (IOException ioe) {
-      XLOGGER.warn("Error when getting inserting right assignments: " + ioe.getMessage());
+      throw new UncheckedIOException("Error when updating right assignments", ioe);
     }
 
     XLOGGER.exit();
     profiler.stop().log();
-    return new AsyncResult<>(null);
   }
 
-  private void insertFromDbRightAssignmentList(Resource2Db resource2Db,
-      List<RightAssignmentDto> rightAssignmentDtos) {
-    // Convert set of right assignments to insert to a set of SQL inserts
-    XLOGGER.debug("Convert right assignments to SQL inserts");
-    MutablePair dataWithHeader = new MutablePair<List<String>, List<Object[]>>();
-    dataWithHeader.setRight(rightAssignmentDtos.stream()
-        .map(rad -> rad.toColumnArray())
-        .collect(Collectors.toList()));
+  /**
+   * Returns the supervised facility index for the given change. It is rebuilt only if the
+   * supervisory node hierarchy or requisition groups changed; a change of supported programs
+   * reloads memberships of the changed facilities, other changes use the current index. A rebuilt
+   * index is then dropped on all nodes, so they build it again from the committed state.
+   */
+  private SupervisedFacilityIndex.Snapshot getSupervisedFacilityIndex(
+      RightAssignmentScope scope) {
+    SupervisedFacilityIndex.Snapshot index;
+
+    if (!scope.getSupervisoryNodeIds().isEmpty()) {
+      index = supervisedFacilityIndex.refresh();
+    } else if (!scope.getFacilityIds().isEmpty()) {
+      index = supervisedFacilityIndex.refreshFacilities(scope.getFacilityIds());
+    } else {
+      return supervisedFacilityIndex.get();
+    }
+
+    supervisedFacilityIndex.invalidate();
+    return index;
+  }
+
+  Set<UUID> findAffectedUserIds(RightAssignmentScope scope) throws IOException {
+    Set<UUID> userIds = new HashSet<>(scope.getUserIds());
 
-    // set column headers
-    dataWithHeader.setLeft(Arrays.asList("id",
-        USER_ID,
-        RIGHT_NAME,
-        "facilityid",
-        "programid"));
+    if (!scope.getRoleIds().isEmpty()) {
+      userIds.addAll(namedTemplate().queryForList(USERS_BY_ROLES_SQL,
+          new MapSqlParameterSource("roleIds", scope.getRoleIds()), UUID.class));
+    }
 
-    // insert into right_assignments
+    if (!scope.getSupervisoryNodeIds().isEmpty()) {
+      userIds.addAll(namedTemplate().queryForList(
+          resourceToString(usersAffectedBySupervisoryNodesResource),
+          new MapSqlParameterSource("supervisoryNodeIds", scope.getSupervisoryNodeIds()),
+          UUID.class));
+    }
+
+    if (!scope.getFacilityIds().isEmpty()) {
+      userIds.addAll(namedTemplate().queryForList(
+          resourceToString(usersAffectedByFacilitiesResource),
+          new MapSqlParameterSource("facilityIds", scope.getFacilityIds()),
+          UUID.class));
+    }
+
+    return userIds;
+  }
+
+  private Map<RightAssignmentDto, UUID> getExistingRightAssignments(List<UUID> userIds) {
+    Map<RightAssignmentDto, UUID> existing = new HashMap<>();
+    namedTemplate().query(EXISTING_BY_USERS_SQL, new MapSqlParameterSource(USER_IDS, userIds),
+        (ResultSet rs) -> {
+          existing.put(new RightAssignmentDto(
+              UUID.fromString(rs.getString(USER_ID)),
+              rs.getString(RIGHT_NAME),
+              toUuid(rs.getString(FACILITY_ID)),
+              toUuid(rs.getString(PROGRAM_ID))),
+              UUID.fromString(rs.getString("id")));
+        });
+    return existing;
+  }
+
+  private void insertFromDbRightAssignments(Resource2Db resource2Db,
+      Collection<RightAssignmentDto> rightAssignmentDtos) {
+    // stream right assignments straight into right_assignments with a single COPY
     XLOGGER.debug("Perform SQL inserts");
-    resource2Db.insertToDbFromBatchedPair("referencedata.right_assignments", dataWithHeader);
+    resource2Db.copyToDb("referencedata.right_assignments",
+        Arrays.asList("id", USER_ID, RIGHT_NAME, FACILITY_ID, PROGRAM_ID),
+        rightAssignmentDtos.stream()
+            .map(rad -> (Object[]) rad.toColumnArray())
+            .iterator());
   }
 
   List<RightAssignmentDto> getRightAssignmentsFromDbResource(Resource resource)
       throws IOException {
-    return template.query(
-        resourceToString(resource),
-        (ResultSet rs, int rowNum) -> {
-
-          RightAssignmentDto rightAssignmentMap = new RightAssignmentDto();
-          rightAssignmentMap.setUserId(UUID.fromString(rs.getString(USER_ID)));
-          rightAssignmentMap.setRightName(rs.getString(RIGHT_NAME));
-          if (null != rs.getString("facilityid")) {
-            rightAssignmentMap.setFacilityId(UUID.fromString(rs.getString("facilityid")));
-          }
-          if (null != rs.getString("programid")) {
-            rightAssignmentMap.setProgramId(UUID.fromString(rs.getString("programid")));
-          }
-          if (null != rs.getString("supervisorynodeid")) {
-            rightAssignmentMap.setSupervisoryNodeId(
-                UUID.fromString(rs.getString("supervisorynodeid")));
-          }
-          return rightAssignmentMap;
-        }
-    );
+    return template.query(resourceToString(resource), this::mapIntermediateRightAssignment);
   }
 
-  Set<RightAssignmentDto> convertForInsert(List<RightAssignmentDto> rightAssignments,
-      Resource supervisedFacilitiesResource)
+  List<RightAssignmentDto> getRightAssignmentsForUsers(Collection<UUID> userIds)
       throws IOException {
+    return namedTemplate().query(resourceToString(userRightAssignmentsResource),
+        new MapSqlParameterSource(USER_IDS, userIds), this::mapIntermediateRightAssignment);
+  }
+
+  private RightAssignmentDto mapIntermediateRightAssignment(ResultSet rs, int rowNum)
+      throws SQLException {
+    RightAssignmentDto rightAssignmentMap = new RightAssignmentDto();
+    rightAssignmentMap.setUserId(UUID.fromString(rs.getString(USER_ID)));
+    rightAssignmentMap.setRightName(rs.getString(RIGHT_NAME));
+    rightAssignmentMap.setFacilityId(toUuid(rs.getString(FACILITY_ID)));
+    rightAssignmentMap.setProgramId(toUuid(rs.getString(PROGRAM_ID)));
+    rightAssignmentMap.setSupervisoryNodeId(toUuid(rs.getString("supervisorynodeid")));
+    return rightAssignmentMap;
+  }
+
+  Set<RightAssignmentDto> convertForInsert(List<RightAssignmentDto> rightAssignments,
+      SupervisedFacilityIndex.Snapshot supervisedFacilityIndex) {
     Set<RightAssignmentDto> rightAssignmentsToInsert = new HashSet<>();
     for (RightAssignmentDto rightAssignment : rightAssignments) {
 
@@ -175,7 +439,7 @@ public class RightAssignmentService {
         // turn it into a list of all facility IDs being supervised by this node.
 
         // Get all supervised facilities. Add each facility to the set.
-        List<UUID> facilityIds = getSupervisedFacilityIds(supervisedFacilitiesResource,
+        Set<UUID> facilityIds = supervisedFacilityIndex.getSupervisedFacilityIds(
             rightAssignment.getSupervisoryNodeId(),
             rightAssignment.getProgramId());
 
@@ -202,15 +466,20 @@ public class RightAssignmentService {
     return rightAssignmentsToInsert;
   }
 
-  private List<UUID> getSupervisedFacilityIds(Resource supervisedFacilitiesResource,
-      UUID supervisoryNodeId, UUID programId)
-      throws IOException {
+  private static Map<UUID, Set<String>> toPermissionStrings(
+      Collection<RightAssignmentDto> rightAssignments) {
+    return rightAssignments
+        .stream()
+        .collect(Collectors.groupingBy(RightAssignmentDto::getUserId,
+            Collectors.mapping(RightAssignmentDto::toPermissionString, Collectors.toSet())));
+  }
+
+  private NamedParameterJdbcTemplate namedTemplate() {
+    return new NamedParameterJdbcTemplate(template);
+  }
 
-    return template.queryForList(
-        resourceToString(supervisedFacilitiesResource),
-        UUID.class,
-        supervisoryNodeId,
-        programId);
+  private static UUID toUuid(String value) {
+    return null == value ? null : UUID.fromString(value);
   }
 
   private String resourceToString(final Resource resource) throws IOException {
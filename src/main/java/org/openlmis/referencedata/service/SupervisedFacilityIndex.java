@@ -0,0 +1,350 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import com.google.common.collect.Iterables;
+import java.sql.ResultSet;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.PostConstruct;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory closure of the supervisory node hierarchy. For each supervisory node it resolves all
+ * facilities supervised by the node and its descendants: member facilities of requisition groups
+ * of those nodes, optionally limited to a program that the requisition group has a schedule for
+ * and that the facility actively supports.
+ *
+ * <p>The whole hierarchy is loaded with a few queries, so expanding a supervisory node is a memory
+ * lookup instead of a recursive query per node. The index is rebuilt when right assignments are
+ * re-generated after a change of the supervisory node hierarchy or of requisition groups; after a
+ * change of supported programs only the memberships of the changed facilities are reloaded. Other
+ * callers get the last built index, unless it is older than the configured time to live.
+ *
+ * <p>After such a change the index is dropped on this node and, through a
+ * {@link CacheInvalidator}, on the other nodes, so none of them keeps the old closure. An index
+ * built from data read before it was dropped is never made the current one.
+ */
+@Component
+public class SupervisedFacilityIndex {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(SupervisedFacilityIndex.class);
+
+  static final String CHANNEL = "referencedata:supervised-facility-index";
+
+  private static final String SUPERVISORY_NODE_ID = "supervisorynodeid";
+  private static final String FACILITY_ID = "facilityid";
+
+  static final String SUPERVISORY_NODES_SQL = "SELECT id, parentid"
+      + " FROM referencedata.supervisory_nodes";
+
+  static final String MEMBER_FACILITIES_SQL = "SELECT rg.supervisorynodeid, rgm.facilityid"
+      + " FROM referencedata.requisition_groups rg"
+      + "   JOIN referencedata.requisition_group_members rgm ON rgm.requisitiongroupid = rg.id"
+      + " WHERE rg.supervisorynodeid IS NOT NULL";
+
+  static final String PROGRAM_MEMBER_FACILITIES_SQL = "SELECT DISTINCT rg.supervisorynodeid"
+      + "   , rgm.facilityid"
+      + "   , rgps.programid"
+      + " FROM referencedata.requisition_groups rg"
+      + "   JOIN referencedata.requisition_group_members rgm ON rgm.requisitiongroupid = rg.id"
+      + "   JOIN referencedata.requisition_group_program_schedules rgps"
+      + "     ON rgps.requisitiongroupid = rg.id"
+      + "   JOIN referencedata.supported_programs sp ON sp.facilityid = rgm.facilityid"
+      + "     AND sp.programid = rgps.programid"
+      + "     AND sp.active = TRUE"
+      + " WHERE rg.supervisorynodeid IS NOT NULL";
+
+  private static final String WITH_FACILITIES = " AND rgm.facilityid IN (:facilityIds)";
+  private static final int FACILITY_BATCH_SIZE = 500;
+
+  @Autowired
+  private JdbcTemplate template;
+
+  @Autowired
+  private Clock clock;
+
+  @Autowired
+  private RedisTemplate redisTemplate;
+
+  @Autowired(required = false)
+  private RedisMessageListenerContainer listenerContainer;
+
+  @Value("${supervisedFacilityIndex.timeToLive}")
+  private long timeToLive;
+
+  private volatile Snapshot current;
+  private CacheInvalidator invalidator;
+
+  @PostConstruct
+  void init() {
+    invalidator = new CacheInvalidator(redisTemplate, CHANNEL, keys -> current = null);
+    invalidator.subscribe(listenerContainer);
+  }
+
+  /**
+   * Returns the last built index, or builds a new one if there is none yet or it has expired.
+   */
+  public Snapshot get() {
+    Snapshot snapshot = current;
+
+    if (null == snapshot || snapshot.isOlderThan(clock.instant().minusSeconds(timeToLive))) {
+      snapshot = refresh();
+    }
+
+    return snapshot;
+  }
+
+  /**
+   * Builds a new index from the current state of the database and makes it the current one, unless
+   * the index has been dropped while it was being built.
+   */
+  public Snapshot refresh() {
+    long loadedGeneration = invalidator.getGeneration();
+
+    Profiler profiler = new Profiler("BUILD_SUPERVISED_FACILITY_INDEX");
+    profiler.setLogger(XLOGGER);
+
+    profiler.start("GET_SUPERVISORY_NODES");
+    Map<UUID, Set<UUID>> childNodes = new HashMap<>();
+    template.query(SUPERVISORY_NODES_SQL, (ResultSet rs) -> {
+      String parentId = rs.getString("parentid");
+      if (null != parentId) {
+        childNodes
+            .computeIfAbsent(UUID.fromString(parentId), key -> new HashSet<>())
+            .add(UUID.fromString(rs.getString("id")));
+      }
+    });
+
+    profiler.start("GET_MEMBER_FACILITIES");
+    Map<UUID, Set<UUID>> memberFacilities = new HashMap<>();
+    template.query(MEMBER_FACILITIES_SQL, memberFacilitiesCollector(memberFacilities));
+
+    profiler.start("GET_PROGRAM_MEMBER_FACILITIES");
+    Map<Pair<UUID, UUID>, Set<UUID>> programMemberFacilities = new HashMap<>();
+    template.query(PROGRAM_MEMBER_FACILITIES_SQL,
+        programMemberFacilitiesCollector(programMemberFacilities));
+
+    Snapshot snapshot = new Snapshot(clock.instant(), childNodes, memberFacilities,
+        programMemberFacilities);
+    invalidator.putIfCurrent(loadedGeneration, () -> current = snapshot);
+
+    profiler.stop().log();
+    return snapshot;
+  }
+
+  /**
+   * Reloads the requisition group memberships of the given facilities only and makes the result
+   * the current index. The supervisory node hierarchy and memberships of other facilities are
+   * taken from the current index, which is built first if there is none yet or it has expired.
+   */
+  public Snapshot refreshFacilities(Collection<UUID> facilityIds) {
+    long loadedGeneration = invalidator.getGeneration();
+    Snapshot base = get();
+
+    if (facilityIds.isEmpty()) {
+      return base;
+    }
+
+    Profiler profiler = new Profiler("UPDATE_SUPERVISED_FACILITY_INDEX");
+    profiler.setLogger(XLOGGER);
+
+    NamedParameterJdbcTemplate namedTemplate = new NamedParameterJdbcTemplate(template);
+    Map<UUID, Set<UUID>> memberFacilities = new HashMap<>();
+    Map<Pair<UUID, UUID>, Set<UUID>> programMemberFacilities = new HashMap<>();
+
+    for (List<UUID> ids : Iterables.partition(facilityIds, FACILITY_BATCH_SIZE)) {
+      MapSqlParameterSource params = new MapSqlParameterSource("facilityIds", ids);
+
+      profiler.start("GET_MEMBER_FACILITIES");
+      namedTemplate.query(MEMBER_FACILITIES_SQL + WITH_FACILITIES, params,
+          memberFacilitiesCollector(memberFacilities));
+
+      profiler.start("GET_PROGRAM_MEMBER_FACILITIES");
+      namedTemplate.query(PROGRAM_MEMBER_FACILITIES_SQL + WITH_FACILITIES, params,
+          programMemberFacilitiesCollector(programMemberFacilities));
+    }
+
+    profiler.start("UPDATE_INDEX");
+    Snapshot snapshot = base.withFacilities(new HashSet<>(facilityIds), memberFacilities,
+        programMemberFacilities);
+    invalidator.putIfCurrent(loadedGeneration, () -> current = snapshot);
+
+    profiler.stop().log();
+    return snapshot;
+  }
+
+  /**
+   * Drops the current index on this and all other nodes.
+   */
+  public void invalidate() {
+    invalidator.invalidateAll();
+  }
+
+  private RowCallbackHandler memberFacilitiesCollector(Map<UUID, Set<UUID>> memberFacilities) {
+    return (ResultSet rs) -> memberFacilities
+        .computeIfAbsent(UUID.fromString(rs.getString(SUPERVISORY_NODE_ID)),
+            key -> new HashSet<>())
+        .add(UUID.fromString(rs.getString(FACILITY_ID)));
+  }
+
+  private RowCallbackHandler programMemberFacilitiesCollector(
+      Map<Pair<UUID, UUID>, Set<UUID>> programMemberFacilities) {
+    return (ResultSet rs) -> {
+      Pair<UUID, UUID> key = ImmutablePair.of(
+          UUID.fromString(rs.getString(SUPERVISORY_NODE_ID)),
+          UUID.fromString(rs.getString("programid")));
+      programMemberFacilities
+          .computeIfAbsent(key, pair -> new HashSet<>())
+          .add(UUID.fromString(rs.getString(FACILITY_ID)));
+    };
+  }
+
+  /**
+   * Immutable state of the supervisory node hierarchy at the time the index was built. Results of
+   * expansions are cached, so each subtree is walked at most once per snapshot and program.
+   */
+  public static class Snapshot {
+
+    private final Instant createdDate;
+    private final Map<UUID, Set<UUID>> childNodes;
+    private final Map<UUID, Set<UUID>> memberFacilities;
+    private final Map<Pair<UUID, UUID>, Set<UUID>> programMemberFacilities;
+    private final Map<Pair<UUID, UUID>, Set<UUID>> supervisedFacilities =
+        new ConcurrentHashMap<>();
+
+    Snapshot(Instant createdDate, Map<UUID, Set<UUID>> childNodes,
+        Map<UUID, Set<UUID>> memberFacilities,
+        Map<Pair<UUID, UUID>, Set<UUID>> programMemberFacilities) {
+      this.createdDate = createdDate;
+      this.childNodes = childNodes;
+      this.memberFacilities = memberFacilities;
+      this.programMemberFacilities = programMemberFacilities;
+    }
+
+    /**
+     * Returns IDs of all facilities supervised by the given supervisory node, directly or through
+     * its child nodes.
+     *
+     * @param supervisoryNodeId the supervisory node ID.
+     * @param programId the program ID; if null, all member facilities are returned.
+     * @return an unmodifiable set of facility IDs.
+     */
+    public Set<UUID> getSupervisedFacilityIds(UUID supervisoryNodeId, UUID programId) {
+      return supervisedFacilities.computeIfAbsent(
+          ImmutablePair.of(supervisoryNodeId, programId), this::expand);
+    }
+
+    /**
+     * Checks if the given supervisory node supervises the facility for the program.
+     */
+    public boolean supervises(UUID supervisoryNodeId, UUID facilityId, UUID programId) {
+      return getSupervisedFacilityIds(supervisoryNodeId, programId).contains(facilityId);
+    }
+
+    boolean isOlderThan(Instant instant) {
+      return createdDate.isBefore(instant);
+    }
+
+    /**
+     * Returns a copy of this snapshot in which memberships of the given facilities are replaced
+     * with the given ones. The copy expires together with this snapshot.
+     */
+    Snapshot withFacilities(Set<UUID> facilityIds, Map<UUID, Set<UUID>> memberFacilities,
+        Map<Pair<UUID, UUID>, Set<UUID>> programMemberFacilities) {
+      return new Snapshot(createdDate, childNodes,
+          replaceFacilities(this.memberFacilities, facilityIds, memberFacilities),
+          replaceFacilities(this.programMemberFacilities, facilityIds, programMemberFacilities));
+    }
+
+    private static <K> Map<K, Set<UUID>> replaceFacilities(Map<K, Set<UUID>> current,
+        Set<UUID> facilityIds, Map<K, Set<UUID>> reloaded) {
+      Map<K, Set<UUID>> result = new HashMap<>();
+
+      // sets are never modified once a snapshot is built, so unchanged ones are shared
+      current.forEach((key, ids) -> {
+        if (Collections.disjoint(ids, facilityIds)) {
+          result.put(key, ids);
+        } else {
+          Set<UUID> kept = new HashSet<>(ids);
+          kept.removeAll(facilityIds);
+          result.put(key, kept);
+        }
+      });
+
+      reloaded.forEach((key, ids) -> result.merge(key, ids, (left, right) -> {
+        Set<UUID> union = new HashSet<>(left);
+        union.addAll(right);
+        return union;
+      }));
+
+      return result;
+    }
+
+    private Set<UUID> expand(Pair<UUID, UUID> key) {
+      UUID programId = key.getRight();
+      Set<UUID> facilityIds = new HashSet<>();
+      Set<UUID> visited = new HashSet<>();
+      Deque<UUID> nodesToVisit = new ArrayDeque<>();
+      nodesToVisit.push(key.getLeft());
+
+      while (!nodesToVisit.isEmpty()) {
+        UUID nodeId = nodesToVisit.pop();
+
+        if (visited.add(nodeId)) {
+          Set<UUID> members = null == programId
+              ? memberFacilities.get(nodeId)
+              : programMemberFacilities.get(ImmutablePair.of(nodeId, programId));
+
+          if (null != members) {
+            facilityIds.addAll(members);
+          }
+
+          childNodes
+              .getOrDefault(nodeId, Collections.emptySet())
+              .forEach(nodesToVisit::push);
+        }
+      }
+
+      return Collections.unmodifiableSet(facilityIds);
+    }
+  }
+}
@@ -157,10 +157,11 @@ public class SupplyPartnerBuilder
         .orElseThrow(() -> new ValidationMessageException(
             new Message(ERROR_INVALID_SUPERVISORY_NODE, supervisoryNode.getCode())));
 
-    Set<Facility> supervisedFacilities = regularNode.getAllSupervisedFacilities(program);
+    Set<UUID> supervisedFacilityIds = supervisoryNodeRepository
+        .findSupervisedFacilityIds(regularNode.getId(), program.getId());
 
     for (Facility facility : facilities) {
-      if (!supervisedFacilities.contains(facility)) {
+      if (!supervisedFacilityIds.contains(facility.getId())) {
         throw new ValidationMessageException(
             new Message(ERROR_INVALID_FACILITY, facility.getName()));
       }
@@ -0,0 +1,288 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.openlmis.referencedata.util.messagekeys.UploadJobMessageKeys.ERROR_FILE_MISSING;
+import static org.openlmis.referencedata.util.messagekeys.UploadJobMessageKeys.ERROR_RESOURCE_NOT_FOUND;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.openlmis.referencedata.domain.BaseEntity;
+import org.openlmis.referencedata.domain.UploadJob;
+import org.openlmis.referencedata.dto.BaseDto;
+import org.openlmis.referencedata.exception.BaseMessageException;
+import org.openlmis.referencedata.exception.NotFoundException;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.i18n.MessageService;
+import org.openlmis.referencedata.repository.UploadJobRepository;
+import org.openlmis.referencedata.util.Message;
+import org.openlmis.referencedata.util.messagekeys.MessageKeys;
+import org.openlmis.referencedata.validate.CsvHeaderValidator;
+import org.openlmis.referencedata.web.csv.parser.CsvParser;
+import org.openlmis.referencedata.web.csv.recordhandler.CsvUploadResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * Runs uploads of CSV files in the background. Uploaded files are spooled to the directory set by
+ * {@code uploadJobs.directory} and processed in the thread pool with size set by
+ * {@code uploadJobs.poolSize}. Jobs that were not finished when the service stopped are resumed
+ * on startup if their files are still on the local disk. Running jobs are only resumed by the
+ * instance that started them, identified by {@code uploadJobs.owner}.
+ */
+@Service
+@SuppressWarnings({"PMD.TooManyMethods"})
+public class UploadJobService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UploadJobService.class);
+
+  @Value("${uploadJobs.directory}")
+  private String directory;
+
+  @Value("${uploadJobs.poolSize}")
+  private int poolSize;
+
+  @Value("${uploadJobs.owner}")
+  private String owner;
+
+  @Autowired
+  private UploadJobRepository uploadJobRepository;
+
+  @Autowired
+  private CsvParser csvParser;
+
+  @Autowired
+  private CsvHeaderValidator csvHeaderValidator;
+
+  @Autowired
+  private MessageService messageService;
+
+  @Autowired
+  private List<CsvUploadResource<?, ?>> resources;
+
+  private Map<String, CsvUploadResource<?, ?>> resourcesByName;
+
+  private ExecutorService executor;
+
+  /**
+   * Creates the worker pool.
+   */
+  @PostConstruct
+  public void init() {
+    resourcesByName = resources
+        .stream()
+        .collect(Collectors.toMap(CsvUploadResource::getName, Function.identity()));
+    executor = Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("upload-job-"));
+  }
+
+  @PreDestroy
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * Finds the uploadable resource with the given name.
+   *
+   * @throws NotFoundException if there is no such resource
+   */
+  public CsvUploadResource<?, ?> getResource(String name) {
+    CsvUploadResource<?, ?> resource = resourcesByName.get(name);
+
+    if (null == resource) {
+      throw new NotFoundException(new Message(ERROR_RESOURCE_NOT_FOUND, name));
+    }
+
+    return resource;
+  }
+
+  /**
+   * Spools the given file to the local disk and schedules its upload.
+   *
+   * @param resource     uploaded resource
+   * @param file         uploaded CSV file
+   * @param allOrNothing whether no records should be saved if any of them is invalid
+   * @return the pending upload job
+   */
+  public UploadJob submit(CsvUploadResource<?, ?> resource, MultipartFile file,
+                          boolean allOrNothing) {
+    UUID fileId = UUID.randomUUID();
+    Path path = Paths.get(directory, resource.getName() + "-" + fileId + ".csv");
+
+    int totalRows;
+    try (InputStream inputStream = file.getInputStream()) {
+      Files.createDirectories(path.getParent());
+      Files.copy(inputStream, path);
+      totalRows = countRows(path);
+    } catch (IOException ex) {
+      deleteFile(path.toString());
+      throw new ValidationMessageException(ex, MessageKeys.ERROR_IO, ex.getMessage());
+    }
+
+    UploadJob job = uploadJobRepository.save(UploadJob.newUploadJob(resource.getName(),
+        file.getOriginalFilename(), path.toString(), allOrNothing, totalRows));
+
+    schedule(job.getId());
+    return job;
+  }
+
+  /**
+   * Schedules jobs that were not finished before the service was stopped. A job that was running
+   * on this instance is restarted from the beginning; rows saved before the restart are saved
+   * again. Jobs running on other instances are left to them.
+   */
+  @EventListener(ApplicationReadyEvent.class)
+  public void resume() {
+    List<UploadJob> unfinished = uploadJobRepository.findByStatusIn(
+        Arrays.asList(UploadJob.Status.PENDING, UploadJob.Status.RUNNING));
+
+    for (UploadJob job : unfinished) {
+      if (!Files.exists(Paths.get(job.getFilePath()))) {
+        // the file may be on the disk of another instance
+        LOGGER.warn("Upload job {} cannot be resumed, file {} not found",
+            job.getId(), job.getFilePath());
+        continue;
+      }
+
+      if (UploadJob.Status.RUNNING == job.getStatus()
+          && 0 == uploadJobRepository.resetStatus(job.getId(), UploadJob.Status.RUNNING,
+              UploadJob.Status.PENDING, owner)) {
+        LOGGER.info("Upload job {} is run by {}, not resuming it", job.getId(), job.getOwner());
+        continue;
+      }
+
+      // pending jobs are claimed when processed, so scheduling them twice is harmless
+      LOGGER.info("Resuming upload job {}", job.getId());
+      schedule(job.getId());
+    }
+  }
+
+  /**
+   * Processes the given job if it is still pending.
+   */
+  void process(UUID jobId) {
+    if (0 == uploadJobRepository.updateStatus(jobId, UploadJob.Status.PENDING,
+        UploadJob.Status.RUNNING, ZonedDateTime.now(), owner)) {
+      LOGGER.info("Upload job {} is already processed", jobId);
+      return;
+    }
+
+    UploadJob job = uploadJobRepository.findById(jobId)
+        .orElseThrow(() -> new IllegalStateException("Upload job " + jobId + " not found"));
+
+    try {
+      Path path = Paths.get(job.getFilePath());
+
+      if (!Files.exists(path)) {
+        throw new ValidationMessageException(new Message(ERROR_FILE_MISSING, job.getFileName()));
+      }
+
+      int result = parse(getResource(job.getResourceName()), job, path);
+      job.complete(result);
+      uploadJobRepository.save(job);
+    } catch (BaseMessageException ex) {
+      LOGGER.warn("Upload job {} failed", jobId, ex);
+      fail(job, messageService.localize(ex.asMessage()).asMessage());
+    } catch (IOException | RuntimeException ex) {
+      LOGGER.error("Upload job {} failed", jobId, ex);
+      fail(job, ex.getMessage());
+    } finally {
+      if (job.isFinished()) {
+        deleteFile(job.getFilePath());
+      }
+    }
+  }
+
+  private void fail(UploadJob job, String errorMessage) {
+    job.fail(errorMessage);
+    // the loaded job has no progress reported by the parser, so it must not be saved as a whole
+    uploadJobRepository.updateResult(job.getId(), job.getStatus(), job.getErrorMessage(),
+        job.getFinishedDate());
+  }
+
+  private void schedule(UUID jobId) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      // the job would not be visible to the worker before the transaction is committed
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+              executor.submit(() -> process(jobId));
+            }
+          });
+    } else {
+      executor.submit(() -> process(jobId));
+    }
+  }
+
+  private <D extends BaseDto, E extends BaseEntity> int parse(CsvUploadResource<D, E> resource,
+                                                              UploadJob job, Path path)
+      throws IOException {
+    try (InputStream inputStream = Files.newInputStream(path)) {
+      return csvParser.parse(inputStream, resource.getModelClass(), csvHeaderValidator,
+          resource.getProcessor(), resource.getWriter(), job.isAllOrNothing(),
+          rows -> updateProcessedRows(job.getId(), rows));
+    }
+  }
+
+  private void updateProcessedRows(UUID jobId, int processedRows) {
+    try {
+      uploadJobRepository.updateProcessedRows(jobId, processedRows);
+    } catch (RuntimeException ex) {
+      // progress is informative only, the upload itself should go on
+      LOGGER.warn("Could not update progress of upload job {}", jobId, ex);
+    }
+  }
+
+  private int countRows(Path path) throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+      // the first line is the header
+      return (int) Math.max(reader.lines().count() - 1, 0);
+    }
+  }
+
+  private void deleteFile(String path) {
+    try {
+      Files.deleteIfExists(Paths.get(path));
+    } catch (IOException ex) {
+      LOGGER.warn("Could not delete uploaded file {}", path, ex);
+    }
+  }
+}
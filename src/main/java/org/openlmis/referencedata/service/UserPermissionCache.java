@@ -0,0 +1,125 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.annotation.PostConstruct;
+import org.openlmis.referencedata.repository.RightAssignmentRepository;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+/**
+ * In-memory permissions of users, compiled from their right assignments into sets indexed by
+ * right name, facility and program, so that right checks do not need to query the database.
+ *
+ * <p>Permissions of a user are dropped when the right assignments of the user change (see
+ * {@link UserPermissionListener}) and all permissions are dropped when right assignments are
+ * re-generated. Other nodes are notified by a {@link CacheInvalidator}.
+ */
+@Component
+public class UserPermissionCache {
+
+  static final String CHANNEL = "referencedata:user-permissions";
+
+  @Autowired
+  private RightAssignmentRepository rightAssignmentRepository;
+
+  @Autowired
+  private UserPermissionVersionService userPermissionVersionService;
+
+  @Autowired
+  private RedisTemplate redisTemplate;
+
+  @Autowired(required = false)
+  private RedisMessageListenerContainer listenerContainer;
+
+  @Value("${userPermissions.maxSize}")
+  private long maxSize;
+
+  @Value("${userPermissions.timeToLive}")
+  private long timeToLive;
+
+  private Cache<UUID, UserPermissions> permissions;
+  private CacheInvalidator invalidator;
+
+  @PostConstruct
+  void init() {
+    permissions = CacheBuilder.newBuilder()
+        .maximumSize(maxSize)
+        .expireAfterWrite(timeToLive, TimeUnit.SECONDS)
+        .build();
+
+    invalidator = new CacheInvalidator(redisTemplate, CHANNEL, this::clear);
+    invalidator.subscribe(listenerContainer);
+  }
+
+  /**
+   * Returns permissions of the given user, loading them from the right assignments if they are
+   * not cached. Permissions loaded while they were being invalidated are returned but not cached.
+   */
+  public UserPermissions get(UUID userId) {
+    UserPermissions cached = permissions.getIfPresent(userId);
+
+    if (null != cached) {
+      return cached;
+    }
+
+    long loadedGeneration = invalidator.getGeneration();
+    long version = userPermissionVersionService.getVersion(userId);
+    UserPermissions userPermissions = UserPermissions.compile(
+        rightAssignmentRepository.findByUser(userId), version);
+
+    invalidator.putIfCurrent(loadedGeneration, () -> permissions.put(userId, userPermissions));
+    return userPermissions;
+  }
+
+  /**
+   * Drops permissions of the given users on this and all other nodes.
+   */
+  public void invalidate(Collection<UUID> userIds) {
+    invalidator.invalidate(userIds
+        .stream()
+        .map(UUID::toString)
+        .collect(Collectors.toList()));
+  }
+
+  /**
+   * Drops permissions of all users on this and all other nodes.
+   */
+  public void invalidateAll() {
+    invalidator.invalidateAll();
+  }
+
+  private void clear(Collection<String> userIds) {
+    if (null == userIds) {
+      permissions.invalidateAll();
+    } else {
+      permissions.invalidateAll(userIds
+          .stream()
+          .map(UUID::fromString)
+          .collect(Collectors.toList()));
+    }
+  }
+}
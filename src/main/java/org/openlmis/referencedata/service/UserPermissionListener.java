@@ -0,0 +1,94 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import org.hibernate.action.spi.AfterTransactionCompletionProcess;
+import org.hibernate.action.spi.BeforeTransactionCompletionProcess;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.event.spi.EventSource;
+import org.openlmis.referencedata.domain.RightAssignment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops cached permissions of a user when right assignments of the user are created, updated or
+ * removed, which happens when role assignments of the user change. The added and removed
+ * permission strings are collected for the whole transaction and the permission version of each
+ * affected user is increased before it commits.
+ */
+@Component
+public class UserPermissionListener extends BaseEntityChangeListener {
+
+  @Autowired
+  private UserPermissionCache userPermissionCache;
+
+  @Autowired
+  private UserPermissionVersionService userPermissionVersionService;
+
+  private final Map<SharedSessionContractImplementor, Changes> pendingChanges =
+      new ConcurrentHashMap<>();
+
+  @Override
+  protected void onChange(Object entity, EventSource session, Boolean added) {
+    if (entity instanceof RightAssignment) {
+      RightAssignment rightAssignment = (RightAssignment) entity;
+      UUID userId = rightAssignment.getUser().getId();
+      userPermissionCache.invalidate(Collections.singleton(userId));
+      getChanges(session).add(userId, rightAssignment.toString(), added);
+    }
+  }
+
+  private Changes getChanges(EventSource session) {
+    return pendingChanges.computeIfAbsent(session, key -> {
+      session.getActionQueue().registerProcess((BeforeTransactionCompletionProcess)
+          completed -> recordChanges(pendingChanges.remove(completed)));
+      // on rollback the changes are never recorded
+      session.getActionQueue().registerProcess((AfterTransactionCompletionProcess)
+          (success, completed) -> pendingChanges.remove(completed));
+      return new Changes();
+    });
+  }
+
+  private void recordChanges(Changes changes) {
+    if (null != changes) {
+      userPermissionVersionService.recordChanges(changes.added, changes.removed);
+    }
+  }
+
+  private static final class Changes {
+    private final Map<UUID, Set<String>> added = new HashMap<>();
+    private final Map<UUID, Set<String>> removed = new HashMap<>();
+
+    // an updated right assignment keeps its permission string, the user is still versioned
+    void add(UUID userId, String permissionString, Boolean isAdded) {
+      Set<String> addedStrings = added.computeIfAbsent(userId, key -> new HashSet<>());
+      Set<String> removedStrings = removed.computeIfAbsent(userId, key -> new HashSet<>());
+
+      if (Boolean.TRUE.equals(isAdded) && !removedStrings.remove(permissionString)) {
+        addedStrings.add(permissionString);
+      } else if (Boolean.FALSE.equals(isAdded) && !addedStrings.remove(permissionString)) {
+        removedStrings.add(permissionString);
+      }
+    }
+  }
+}
@@ -0,0 +1,348 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Sets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Service;
+
+/**
+ * Versions of the permission strings of users. Whenever right assignments are re-generated or role
+ * assignments of a user are edited, the digest of the new permission strings of each user is
+ * compared with the stored one and, if it differs, the version of the user is increased.
+ * Incremental re-generations also record the added and removed permission strings, so clients that
+ * already have a recent version can fetch only the difference. A full re-generation does not know
+ * the previous permission strings, so it drops the recorded changes of the users whose permissions
+ * changed.
+ */
+@Service
+public class UserPermissionVersionService {
+
+  private static final XLogger XLOGGER =
+      XLoggerFactory.getXLogger(UserPermissionVersionService.class);
+
+  private static final String USER_ID = "userId";
+  private static final String USER_ID_COLUMN = "userid";
+  private static final String USER_IDS = "userIds";
+  private static final String VERSION = "version";
+  private static final String BASE_VERSION = "baseVersion";
+  private static final String DIGEST = "digest";
+  private static final int BATCH_SIZE = 500;
+
+  static final String SELECT_SQL = "SELECT userid, version, baseversion, digest"
+      + " FROM referencedata.user_permission_versions";
+
+  static final String SELECT_BY_USERS_SQL = SELECT_SQL + " WHERE userid IN (:userIds)";
+
+  static final String SELECT_PERMISSION_STRINGS_SQL = "SELECT ra.userid,"
+      + "   CASE WHEN ra.programid IS NULL AND ra.facilityid IS NULL THEN ra.rightname"
+      + "        WHEN ra.programid IS NULL THEN ra.rightname || '|' || ra.facilityid"
+      + "        ELSE ra.rightname || '|' || ra.facilityid || '|' || ra.programid"
+      + "   END AS permissionstring"
+      + " FROM referencedata.right_assignments ra"
+      + " WHERE ra.userid IN (:userIds)";
+
+  static final String SELECT_VERSION_SQL = "SELECT version"
+      + " FROM referencedata.user_permission_versions WHERE userid = ?";
+
+  static final String UPSERT_SQL = "INSERT INTO referencedata.user_permission_versions"
+      + " (userid, version, baseversion, digest)"
+      + " VALUES (:userId, :version, :baseVersion, :digest)"
+      + " ON CONFLICT (userid) DO UPDATE SET version = EXCLUDED.version,"
+      + " baseversion = EXCLUDED.baseversion, digest = EXCLUDED.digest";
+
+  static final String INSERT_CHANGE_SQL = "INSERT INTO referencedata.user_permission_changes"
+      + " (userid, version, permissionstring, added)"
+      + " VALUES (:userId, :version, :permissionString, :added)";
+
+  static final String DELETE_CHANGES_SQL = "DELETE FROM referencedata.user_permission_changes"
+      + " WHERE userid IN (:userIds)";
+
+  static final String DELETE_OUTDATED_CHANGES_SQL =
+      "DELETE FROM referencedata.user_permission_changes"
+      + " WHERE userid = :userId AND version <= :baseVersion";
+
+  static final String SELECT_CHANGES_SQL = "SELECT permissionstring, added"
+      + " FROM referencedata.user_permission_changes"
+      + " WHERE userid = :userId AND version > :version AND version <= :toVersion"
+      + " ORDER BY version";
+
+  @Autowired
+  private JdbcTemplate template;
+
+  @Value("${userPermissions.deltaRetention}")
+  private long deltaRetention;
+
+  /**
+   * Returns the current version of the permission strings of the given user, or 0 if the
+   * permission strings of the user were not versioned yet.
+   */
+  public long getVersion(UUID userId) {
+    List<Long> versions = template.queryForList(SELECT_VERSION_SQL, Long.class, userId);
+    return versions.isEmpty() ? 0 : versions.get(0);
+  }
+
+  /**
+   * Stores new versions for users whose permission strings differ from the stored ones and
+   * records the added and removed permission strings.
+   *
+   * @param userIds  users whose right assignments were re-generated
+   * @param previous permission strings of the users before the re-generation
+   * @param current  permission strings of the users after the re-generation
+   */
+  public void record(Collection<UUID> userIds, Map<UUID, Set<String>> previous,
+      Map<UUID, Set<String>> current) {
+    Map<UUID, Version> stored = findVersions(userIds);
+    List<SqlParameterSource> versions = new ArrayList<>();
+    List<SqlParameterSource> changes = new ArrayList<>();
+    List<SqlParameterSource> outdated = new ArrayList<>();
+
+    for (UUID userId : userIds) {
+      Set<String> before = previous.getOrDefault(userId, Collections.emptySet());
+      Set<String> after = current.getOrDefault(userId, Collections.emptySet());
+      Version version = stored.get(userId);
+      String digest = UserPermissions.digest(after);
+
+      if (null != version && version.digest.equals(digest)) {
+        continue;
+      }
+
+      // without a stored version the client can not have any older one to start a delta from
+      long next = null == version ? 1 : version.version + 1;
+      long base = null == version ? next : Math.max(version.baseVersion, next - deltaRetention);
+      versions.add(toParameters(userId, next, base, digest));
+
+      Sets.difference(after, before).forEach(permissionString ->
+          changes.add(toChangeParameters(userId, next, permissionString, true)));
+      Sets.difference(before, after).forEach(permissionString ->
+          changes.add(toChangeParameters(userId, next, permissionString, false)));
+
+      if (null != version && base > version.baseVersion) {
+        outdated.add(new MapSqlParameterSource()
+            .addValue(USER_ID, userId)
+            .addValue(BASE_VERSION, base));
+      }
+    }
+
+    XLOGGER.debug("Permission strings changed for {} of {} users", versions.size(),
+        userIds.size());
+    batchUpdate(UPSERT_SQL, versions);
+    batchUpdate(INSERT_CHANGE_SQL, changes);
+    batchUpdate(DELETE_OUTDATED_CHANGES_SQL, outdated);
+  }
+
+  /**
+   * Stores new versions for users whose right assignments were changed outside of a
+   * re-generation, which happens when role assignments of the users are edited. The current
+   * permission strings are read from the right assignments, so this has to be called after the
+   * changes were flushed; the previous ones are derived from the current ones and the changes.
+   *
+   * @param added   permission strings added to each user
+   * @param removed permission strings removed from each user
+   */
+  public void recordChanges(Map<UUID, Set<String>> added, Map<UUID, Set<String>> removed) {
+    Set<UUID> userIds = new HashSet<>(added.keySet());
+    userIds.addAll(removed.keySet());
+
+    Map<UUID, Set<String>> current = findPermissionStrings(userIds);
+    Map<UUID, Set<String>> previous = new HashMap<>();
+
+    for (UUID userId : userIds) {
+      Set<String> before = new HashSet<>(current.getOrDefault(userId, Collections.emptySet()));
+      before.removeAll(added.getOrDefault(userId, Collections.emptySet()));
+      before.addAll(removed.getOrDefault(userId, Collections.emptySet()));
+      previous.put(userId, before);
+    }
+
+    record(userIds, previous, current);
+  }
+
+  /**
+   * Stores new versions for users whose permission strings differ from the stored ones after all
+   * right assignments were re-generated. Users not present in the given permission strings are
+   * considered to have none.
+   *
+   * @param current permission strings of all users after the re-generation
+   */
+  public void reset(Map<UUID, Set<String>> current) {
+    Map<UUID, Version> stored = new HashMap<>();
+    template.query(SELECT_SQL, (ResultSet rs) -> {
+      stored.put(UUID.fromString(rs.getString(USER_ID_COLUMN)), mapVersion(rs));
+    });
+
+    Set<UUID> userIds = new HashSet<>(stored.keySet());
+    userIds.addAll(current.keySet());
+
+    List<SqlParameterSource> versions = new ArrayList<>();
+    List<UUID> changedUserIds = new ArrayList<>();
+
+    for (UUID userId : userIds) {
+      Version version = stored.get(userId);
+      String digest = UserPermissions.digest(current.getOrDefault(userId,
+          Collections.emptySet()));
+
+      if (null == version || !version.digest.equals(digest)) {
+        long next = null == version ? 1 : version.version + 1;
+        versions.add(toParameters(userId, next, next, digest));
+        changedUserIds.add(userId);
+      }
+    }
+
+    XLOGGER.debug("Permission strings changed for {} of {} users", versions.size(),
+        userIds.size());
+    for (List<UUID> partialUserIds : Iterables.partition(changedUserIds, BATCH_SIZE)) {
+      namedTemplate().update(DELETE_CHANGES_SQL,
+          new MapSqlParameterSource(USER_IDS, partialUserIds));
+    }
+    batchUpdate(UPSERT_SQL, versions);
+  }
+
+  /**
+   * Returns permission strings added and removed for the given user since the given version,
+   * or an empty optional if the changes since that version are not available.
+   */
+  public Optional<Delta> getDelta(UUID userId, long sinceVersion) {
+    Version version = findVersions(Collections.singleton(userId)).get(userId);
+
+    if (null == version || sinceVersion < version.baseVersion
+        || sinceVersion > version.version) {
+      return Optional.empty();
+    }
+
+    Set<String> added = new HashSet<>();
+    Set<String> removed = new HashSet<>();
+    namedTemplate().query(SELECT_CHANGES_SQL, new MapSqlParameterSource()
+            .addValue(USER_ID, userId)
+            .addValue(VERSION, sinceVersion)
+            .addValue("toVersion", version.version),
+        (ResultSet rs) -> {
+          String permissionString = rs.getString("permissionstring");
+
+          // a string added and removed again since the given version is not a change at all
+          if (rs.getBoolean("added")) {
+            if (!removed.remove(permissionString)) {
+              added.add(permissionString);
+            }
+          } else if (!added.remove(permissionString)) {
+            removed.add(permissionString);
+          }
+        });
+
+    return Optional.of(new Delta(sinceVersion, version.version, version.digest, added, removed));
+  }
+
+  private Map<UUID, Version> findVersions(Collection<UUID> userIds) {
+    Map<UUID, Version> versions = new HashMap<>();
+
+    for (List<UUID> partialUserIds : Iterables.partition(userIds, BATCH_SIZE)) {
+      namedTemplate().query(SELECT_BY_USERS_SQL,
+          new MapSqlParameterSource(USER_IDS, partialUserIds),
+          (ResultSet rs) -> {
+            versions.put(UUID.fromString(rs.getString(USER_ID_COLUMN)), mapVersion(rs));
+          });
+    }
+
+    return versions;
+  }
+
+  private Map<UUID, Set<String>> findPermissionStrings(Collection<UUID> userIds) {
+    Map<UUID, Set<String>> permissionStrings = new HashMap<>();
+
+    for (List<UUID> partialUserIds : Iterables.partition(userIds, BATCH_SIZE)) {
+      namedTemplate().query(SELECT_PERMISSION_STRINGS_SQL,
+          new MapSqlParameterSource(USER_IDS, partialUserIds),
+          (ResultSet rs) -> {
+            permissionStrings
+                .computeIfAbsent(UUID.fromString(rs.getString(USER_ID_COLUMN)),
+                    key -> new HashSet<>())
+                .add(rs.getString("permissionstring"));
+          });
+    }
+
+    return permissionStrings;
+  }
+
+  private void batchUpdate(String sql, List<SqlParameterSource> parameters) {
+    for (List<SqlParameterSource> batch : Iterables.partition(parameters, BATCH_SIZE)) {
+      namedTemplate().batchUpdate(sql, batch.toArray(new SqlParameterSource[0]));
+    }
+  }
+
+  private static Version mapVersion(ResultSet rs) throws SQLException {
+    return new Version(rs.getLong(VERSION), rs.getLong(BASE_VERSION), rs.getString(DIGEST));
+  }
+
+  private static SqlParameterSource toParameters(UUID userId, long version, long baseVersion,
+      String digest) {
+    return new MapSqlParameterSource()
+        .addValue(USER_ID, userId)
+        .addValue(VERSION, version)
+        .addValue(BASE_VERSION, baseVersion)
+        .addValue(DIGEST, digest);
+  }
+
+  private static SqlParameterSource toChangeParameters(UUID userId, long version,
+      String permissionString, boolean added) {
+    return new MapSqlParameterSource()
+        .addValue(USER_ID, userId)
+        .addValue(VERSION, version)
+        .addValue("permissionString", permissionString)
+        .addValue("added", added);
+  }
+
+  private NamedParameterJdbcTemplate namedTemplate() {
+    return new NamedParameterJdbcTemplate(template);
+  }
+
+  @AllArgsConstructor
+  private static final class Version {
+    private final long version;
+    private final long baseVersion;
+    private final String digest;
+  }
+
+  @Getter
+  @AllArgsConstructor
+  public static final class Delta {
+    private final long sinceVersion;
+    private final long version;
+    private final String digest;
+    private final Set<String> added;
+    private final Set<String> removed;
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import org.openlmis.referencedata.repository.RightAssignmentRepository;
+
+/**
+ * Permissions of a single user, indexed by right name and then by facility, together with the
+ * version and the digest of the permission strings they were compiled from.
+ */
+public final class UserPermissions {
+
+  private static final char SEPARATOR = '|';
+  private static final char LINE_SEPARATOR = '\n';
+
+  private final Set<String> permissionStrings;
+  private final Map<String, Map<UUID, Set<UUID>>> programsByFacilityByRight;
+  private final long version;
+  private final String digest;
+
+  private UserPermissions(Set<String> permissionStrings,
+                          Map<String, Map<UUID, Set<UUID>>> programsByFacilityByRight,
+                          long version) {
+    this.permissionStrings = permissionStrings;
+    this.programsByFacilityByRight = programsByFacilityByRight;
+    this.version = version;
+    this.digest = digest(permissionStrings);
+  }
+
+  /**
+   * Returns SHA-256 of the given permission strings, independent of their order.
+   */
+  public static String digest(Collection<String> permissionStrings) {
+    Hasher hasher = Hashing.sha256().newHasher();
+
+    for (String permissionString : new TreeSet<>(permissionStrings)) {
+      hasher.putString(permissionString, StandardCharsets.UTF_8).putChar(LINE_SEPARATOR);
+    }
+
+    return hasher.hash().toString();
+  }
+
+  public static UserPermissions compile(Collection<String> permissionStrings) {
+    return compile(permissionStrings, 0);
+  }
+
+  /**
+   * Compiles permissions from permission strings in the format returned by
+   * {@link RightAssignmentRepository#findByUser(UUID)}: {@code right}, {@code right|facility}
+   * or {@code right|facility|program}.
+   */
+  public static UserPermissions compile(Collection<String> permissionStrings, long version) {
+    Map<String, Map<UUID, Set<UUID>>> programsByFacilityByRight = new HashMap<>();
+
+    for (String permissionString : permissionStrings) {
+      List<String> parts = Splitter.on(SEPARATOR).limit(3).splitToList(permissionString);
+      Map<UUID, Set<UUID>> programsByFacility = programsByFacilityByRight
+          .computeIfAbsent(parts.get(0), right -> new HashMap<>());
+
+      if (parts.size() > 1) {
+        Set<UUID> programs = programsByFacility
+            .computeIfAbsent(UUID.fromString(parts.get(1)), facility -> new HashSet<>());
+
+        if (parts.size() > 2) {
+          programs.add(UUID.fromString(parts.get(2)));
+        }
+      }
+    }
+
+    return new UserPermissions(ImmutableSet.copyOf(permissionStrings),
+        programsByFacilityByRight, version);
+  }
+
+  public Set<String> getPermissionStrings() {
+    return permissionStrings;
+  }
+
+  public long getVersion() {
+    return version;
+  }
+
+  public String getDigest() {
+    return digest;
+  }
+
+  public boolean hasRight(String rightName) {
+    return programsByFacilityByRight.containsKey(rightName);
+  }
+
+  public boolean hasRight(String rightName, UUID facilityId) {
+    return getProgramsByFacility(rightName).containsKey(facilityId);
+  }
+
+  /**
+   * Checks whether the user has the given right for the given program at the given facility.
+   */
+  public boolean hasRight(String rightName, UUID facilityId, UUID programId) {
+    return getProgramsByFacility(rightName)
+        .getOrDefault(facilityId, Collections.emptySet())
+        .contains(programId);
+  }
+
+  private Map<UUID, Set<UUID>> getProgramsByFacility(String rightName) {
+    return programsByFacilityByRight.getOrDefault(rightName, Collections.emptyMap());
+  }
+}
@@ -0,0 +1,205 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+
+package org.openlmis.referencedata.util;
+
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Consumer;
+import lombok.Getter;
+import org.slf4j.ext.XLogger;
+import org.slf4j.ext.XLoggerFactory;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Drops entries of an in-memory cache on this node and on the other nodes of a cluster.
+ *
+ * <p>Entries are dropped at once and, inside a transaction, again after the transaction commits,
+ * so entries loaded from a state of the database that other transactions could not see yet are
+ * not kept. Only then the change is published on a Redis channel, once per transaction, and the
+ * other nodes drop the entries when they receive the message. Messages lost while a node is
+ * disconnected have to be covered by the time to live of the cache.
+ *
+ * <p>Every drop starts a new generation. Entries loaded in an earlier generation are not cached,
+ * see {@link #putIfCurrent(long, Runnable)}.
+ */
+public class CacheInvalidator implements MessageListener {
+
+  private static final XLogger XLOGGER = XLoggerFactory.getXLogger(CacheInvalidator.class);
+
+  public static final String ALL_KEYS = "*";
+
+  private static final char KEY_SEPARATOR = ',';
+
+  private final StringRedisSerializer serializer = new StringRedisSerializer();
+  private final Object lock = new Object();
+  private final RedisTemplate redisTemplate;
+  private final Consumer<Collection<String>> clear;
+  private long generation;
+
+  @Getter
+  private final String channel;
+
+  /**
+   * Creates a new invalidator.
+   *
+   * @param redisTemplate template used to publish invalidation messages
+   * @param channel       the Redis channel of the cache
+   * @param clear         drops the entries with the given keys, or all entries if the keys are
+   *                      null
+   */
+  public CacheInvalidator(RedisTemplate redisTemplate, String channel,
+      Consumer<Collection<String>> clear) {
+    this.redisTemplate = redisTemplate;
+    this.channel = channel;
+    this.clear = clear;
+  }
+
+  /**
+   * Starts receiving invalidation messages of other nodes. Nothing is received if there is no
+   * listener container.
+   */
+  public void subscribe(RedisMessageListenerContainer listenerContainer) {
+    if (null != listenerContainer) {
+      listenerContainer.addMessageListener(this, new ChannelTopic(channel));
+    }
+  }
+
+  /**
+   * Returns the current generation. It has to be read before the entry is loaded and passed to
+   * {@link #putIfCurrent(long, Runnable)}.
+   */
+  public long getGeneration() {
+    synchronized (lock) {
+      return generation;
+    }
+  }
+
+  /**
+   * Puts the loaded entry into the cache only if nothing has been dropped since the given
+   * generation, so an entry loaded before a change is never cached after the change.
+   *
+   * @return true if the entry has been put.
+   */
+  public boolean putIfCurrent(long loadedGeneration, Runnable put) {
+    synchronized (lock) {
+      if (loadedGeneration != generation) {
+        return false;
+      }
+
+      put.run();
+      return true;
+    }
+  }
+
+  /**
+   * Drops the entries with the given keys.
+   */
+  public void invalidate(Collection<String> keys) {
+    if (keys.isEmpty()) {
+      return;
+    }
+
+    clear(keys);
+    afterCommit(pending -> pending.keys.addAll(keys));
+  }
+
+  /**
+   * Drops all entries.
+   */
+  public void invalidateAll() {
+    clear(null);
+    afterCommit(pending -> pending.all = true);
+  }
+
+  @Override
+  public void onMessage(Message message, byte[] pattern) {
+    String body = serializer.deserialize(message.getBody());
+    XLOGGER.debug("Invalidating {} entries: {}", channel, body);
+
+    if (ALL_KEYS.equals(body)) {
+      clear(null);
+    } else {
+      clear(Splitter.on(KEY_SEPARATOR).splitToList(body));
+    }
+  }
+
+  private void afterCommit(Consumer<PendingInvalidation> change) {
+    if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+      PendingInvalidation pending = new PendingInvalidation();
+      change.accept(pending);
+      publish(pending);
+      return;
+    }
+
+    PendingInvalidation pending =
+        (PendingInvalidation) TransactionSynchronizationManager.getResource(this);
+
+    if (null == pending) {
+      PendingInvalidation registered = new PendingInvalidation();
+      TransactionSynchronizationManager.bindResource(this, registered);
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCommit() {
+          clear(registered.all ? null : registered.keys);
+          publish(registered);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+          TransactionSynchronizationManager.unbindResourceIfPossible(CacheInvalidator.this);
+        }
+      });
+      pending = registered;
+    }
+
+    change.accept(pending);
+  }
+
+  private void clear(Collection<String> keys) {
+    synchronized (lock) {
+      generation++;
+      clear.accept(keys);
+    }
+  }
+
+  private void publish(PendingInvalidation pending) {
+    String body = pending.all ? ALL_KEYS : Joiner.on(KEY_SEPARATOR).join(pending.keys);
+
+    try {
+      redisTemplate.execute(connection -> connection.publish(
+          serializer.serialize(channel), serializer.serialize(body)), true);
+    } catch (RuntimeException ex) {
+      // the change is already stored; other nodes pick it up when their entries expire
+      XLOGGER.warn("Could not publish invalidation on {}", channel, ex);
+    }
+  }
+
+  private static final class PendingInvalidation {
+    private final Set<String> keys = new HashSet<>();
+    private boolean all;
+  }
+}
@@ -0,0 +1,96 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.util;
+
+import java.util.List;
+import java.util.function.Function;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * Page of a keyset paginated search together with the cursor of the next page. If the total was
+ * not counted, it is only known whether there is a next page: the total is the number of rows on
+ * this page plus one if there is more.
+ */
+public class KeysetPage<T> extends PageImpl<T> {
+
+  private static final long serialVersionUID = -4153019273745123657L;
+
+  private final String nextCursor;
+  private final boolean continued;
+
+  /**
+   * Creates a new page.
+   *
+   * @param nextCursor token of the cursor of the next page, null if this is the last one
+   * @param continued  true if this page was requested with a cursor, so it is not the first one
+   */
+  public KeysetPage(List<T> content, Pageable pageable, long total, String nextCursor,
+      boolean continued) {
+    super(content, pageable, total);
+    this.nextCursor = nextCursor;
+    this.continued = continued;
+  }
+
+  /**
+   * Creates a page from rows fetched with the limit of the given pageable, so one row more than
+   * the page size if there is a next page.
+   *
+   * @param rows     rows after the cursor, in the order of the sort key and ID
+   * @param pageable pageable of the search
+   * @param total    number of all matching rows, ignored if the client did not ask for it
+   * @param cursorOf creates a cursor pointing at the given row
+   */
+  public static <T> KeysetPage<T> of(List<T> rows, KeysetPageable pageable, long total,
+      Function<T, PageCursor> cursorOf) {
+    int size = pageable.getPageSize();
+    boolean hasNext = rows.size() > size;
+    List<T> content = hasNext ? rows.subList(0, size) : rows;
+
+    PageCursor nextCursor = hasNext ? cursorOf.apply(content.get(size - 1)) : null;
+    long pageTotal = pageable.isWithTotal() ? total : content.size() + (hasNext ? 1 : 0);
+
+    return new KeysetPage<>(content, pageable.withNextCursor(nextCursor), pageTotal,
+        null == nextCursor ? null : nextCursor.encode(), pageable.hasPrevious());
+  }
+
+  /**
+   * Creates a page with the given content and the pagination data of the given page, so that
+   * the cursor is kept when entities are converted to DTOs.
+   */
+  public static <T> KeysetPage<T> of(List<T> content, KeysetPage<?> source) {
+    return new KeysetPage<>(content, source.getPageable(), source.getTotalElements(),
+        source.getNextCursor(), source.hasPrevious());
+  }
+
+  /**
+   * Returns the token of the cursor to pass to get the next page, or null if this is the last
+   * page.
+   */
+  public String getNextCursor() {
+    return nextCursor;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return null != nextCursor;
+  }
+
+  @Override
+  public boolean hasPrevious() {
+    return continued;
+  }
+}
@@ -0,0 +1,147 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.util;
+
+import lombok.EqualsAndHashCode;
+import lombok.ToString;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Pageable of a keyset paginated search. Instead of skipping the rows of the previous pages,
+ * the search continues after the row the cursor points to, so deep pages are as fast as the first
+ * one. Rows are ordered by the fixed sort key of the search and then by ID; the sort of the
+ * request is ignored and {@link #getSort()} returns the keyset order instead. The total is only
+ * counted if the client asks for it.
+ *
+ * <p>The position of the next page is known only after a page has been read, so {@link #next()}
+ * works on the pageable of a returned {@link KeysetPage}.
+ */
+@ToString
+@EqualsAndHashCode
+public final class KeysetPageable implements Pageable {
+
+  private final int size;
+  private final Sort sort;
+  private final PageCursor cursor;
+  private final boolean withTotal;
+  private final PageCursor nextCursor;
+
+  private KeysetPageable(int size, Sort sort, PageCursor cursor, boolean withTotal,
+      PageCursor nextCursor) {
+    this.size = size;
+    this.sort = sort;
+    this.cursor = cursor;
+    this.withTotal = withTotal;
+    this.nextCursor = nextCursor;
+  }
+
+  /**
+   * Returns a keyset pageable if the client asked for one, by passing a cursor or by not asking
+   * for the total, otherwise the given pageable.
+   *
+   * @param pageable   pageable resolved from the request
+   * @param cursor     token of the cursor returned with the previous page, may be null
+   * @param withTotal  false to skip counting all matching rows
+   * @param keysetSort the order of rows of the search: its sort key and then ID
+   */
+  public static Pageable of(Pageable pageable, String cursor, boolean withTotal,
+      Sort keysetSort) {
+    if (null == cursor && withTotal) {
+      return pageable;
+    }
+
+    return new KeysetPageable(Pagination.getPageSize(pageable), keysetSort,
+        null == cursor ? null : PageCursor.decode(cursor), withTotal, null);
+  }
+
+  /**
+   * Returns the pageable of a page read with this pageable that ends at the given cursor, so its
+   * {@link #next()} continues after it.
+   */
+  KeysetPageable withNextCursor(PageCursor nextCursor) {
+    return new KeysetPageable(size, sort, cursor, withTotal, nextCursor);
+  }
+
+  /**
+   * Returns the cursor to continue after, or null for the first page.
+   */
+  public PageCursor getCursor() {
+    return cursor;
+  }
+
+  public boolean isWithTotal() {
+    return withTotal;
+  }
+
+  /**
+   * Returns the number of rows to fetch: one more than the page size to find out if there is a
+   * next page.
+   */
+  public int getLimit() {
+    return size >= Pagination.NO_PAGINATION ? Pagination.NO_PAGINATION : size + 1;
+  }
+
+  @Override
+  public int getPageNumber() {
+    return Pagination.DEFAULT_PAGE_NUMBER;
+  }
+
+  @Override
+  public int getPageSize() {
+    return size;
+  }
+
+  @Override
+  public long getOffset() {
+    return 0;
+  }
+
+  @Override
+  public Sort getSort() {
+    return sort;
+  }
+
+  /**
+   * Returns the pageable of the page after the one read with this pageable.
+   *
+   * @throws IllegalStateException if this pageable has not been returned with a page that has a
+   *                               next one
+   */
+  @Override
+  public Pageable next() {
+    if (null == nextCursor) {
+      throw new IllegalStateException("The next page is known only after a page has been read");
+    }
+
+    return new KeysetPageable(size, sort, nextCursor, withTotal, null);
+  }
+
+  @Override
+  public Pageable previousOrFirst() {
+    return first();
+  }
+
+  @Override
+  public Pageable first() {
+    return new KeysetPageable(size, sort, null, withTotal, null);
+  }
+
+  @Override
+  public boolean hasPrevious() {
+    return null != cursor;
+  }
+}
@@ -0,0 +1,114 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.util;
+
+import static org.openlmis.referencedata.util.messagekeys.PageableMessageKeys.ERROR_CURSOR_INVALID;
+
+import com.google.common.base.Splitter;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+
+/**
+ * Position in a keyset paginated search: the sort key and the ID of the last row of the previous
+ * page. It is passed to clients as an opaque token, so the format may change without notice.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public final class PageCursor {
+
+  private static final char SEPARATOR = '\n';
+
+  private final String key;
+  private final UUID id;
+  private final String value;
+
+  private PageCursor(String key, UUID id, String value) {
+    this.key = key;
+    this.id = id;
+    this.value = value;
+  }
+
+  /**
+   * Creates a cursor pointing at the row with the given ID and value of the given sort key.
+   */
+  public static PageCursor of(String key, UUID id, Object value) {
+    return new PageCursor(Objects.requireNonNull(key), Objects.requireNonNull(id),
+        null == value ? null : value.toString());
+  }
+
+  /**
+   * Decodes a cursor from the token returned to a client.
+   *
+   * @throws ValidationMessageException if the token is not a valid cursor
+   */
+  public static PageCursor decode(String token) {
+    try {
+      String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+      List<String> parts = Splitter.on(SEPARATOR).limit(3).splitToList(decoded);
+
+      if (parts.size() < 2) {
+        throw new ValidationMessageException(ERROR_CURSOR_INVALID);
+      }
+
+      return new PageCursor(parts.get(0), UUID.fromString(parts.get(1)),
+          parts.size() > 2 ? parts.get(2) : null);
+    } catch (IllegalArgumentException ex) {
+      throw new ValidationMessageException(ex, ERROR_CURSOR_INVALID);
+    }
+  }
+
+  /**
+   * Returns the token passed to a client.
+   */
+  public String encode() {
+    StringBuilder builder = new StringBuilder(key).append(SEPARATOR).append(id);
+
+    if (null != value) {
+      builder.append(SEPARATOR).append(value);
+    }
+
+    return Base64.getUrlEncoder().withoutPadding()
+        .encodeToString(builder.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Returns the value of the sort key converted with the given parser. The cursor must have been
+   * created for the given sort key, otherwise it belongs to a different search.
+   *
+   * @throws ValidationMessageException if the cursor is for a different key or the value can not
+   *                                    be parsed
+   */
+  public <T> T getValue(String expectedKey, Function<String, T> parser) {
+    if (!key.equals(expectedKey) || null == value) {
+      throw new ValidationMessageException(ERROR_CURSOR_INVALID);
+    }
+
+    try {
+      return parser.apply(value);
+    } catch (RuntimeException ex) {
+      throw new ValidationMessageException(ex, ERROR_CURSOR_INVALID);
+    }
+  }
+}
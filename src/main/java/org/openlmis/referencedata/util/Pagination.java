@@ -119,9 +119,26 @@ public class Pagination {
    * no need to return a subset of it.
    */
   public static <T> Page<T> getPage(List<T> subList, Pageable pageable, long fullListSize) {
+    if (pageable instanceof KeysetPageable) {
+      return new KeysetPage<>(subList, pageable.first(), fullListSize, null,
+          pageable.hasPrevious());
+    }
+
     return new PageImpl<>(subList, pageable, fullListSize);
   }
 
+  /**
+   * Returns the Page with the given content and the total of the given page. Intended for
+   * converting a page of entities to a page of DTOs, keeps the cursor of a keyset page.
+   */
+  public static <T> Page<T> getPage(List<T> content, Pageable pageable, Page<?> source) {
+    if (source instanceof KeysetPage) {
+      return KeysetPage.of(content, (KeysetPage<?>) source);
+    }
+
+    return getPage(content, pageable, source.getTotalElements());
+  }
+
   /**
    * Static method that helps do some actions on resources by using page instances.
    *
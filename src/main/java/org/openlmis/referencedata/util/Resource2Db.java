@@ -15,13 +15,15 @@
 
 package org.openlmis.referencedata.util;
 
-import static java.util.stream.Collectors.joining;
-
+import com.google.common.collect.Iterators;
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.apache.commons.collections4.IteratorUtils;
@@ -33,9 +35,12 @@ import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.lang3.tuple.MutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 import org.slf4j.ext.XLogger;
 import org.slf4j.ext.XLoggerFactory;
 import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 /**
@@ -43,10 +48,15 @@ import org.springframework.jdbc.core.JdbcTemplate;
  * {@link JdbcTemplate}, an instance of this class is able to run SQL inserts/updates against the
  * attached datasource. It knows what SQL to run, or what data to load, based on Spring
  * {@link Resource}'s passed in.
+ *
+ * <p>Bulk inserts are streamed to the database with PostgreSQL's {@code COPY ... FROM STDIN},
+ * so rows are never bound one by one and CSV resources are never held in memory as a whole.
  */
 public class Resource2Db {
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(Resource2Db.class);
 
+  private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
   private final JdbcTemplate template;
 
   /**
@@ -85,10 +95,63 @@ public class Resource2Db {
     XLOGGER.entry(tableName, resource);
     Validate.notBlank(tableName);
     Validate.notNull(resource);
-    insertToDbFromBatchedPair(tableName, resourceCsvToBatchedPair(resource));
+
+    try (InputStreamReader isReader = new InputStreamReader(
+        new BOMInputStream(resource.getInputStream(), ByteOrderMark.UTF_8))) {
+      CSVParser parser = CSVFormat.DEFAULT.withHeader().withNullString("").parse(isReader);
+      List<String> columns = new ArrayList<>(parser.getHeaderMap().keySet());
+      XLOGGER.info("Read header: " + columns);
+
+      copyToDb(tableName, columns, Iterators.transform(parser.iterator(), this::toRow));
+    }
+
     XLOGGER.exit();
   }
 
+  /**
+   * Streams rows into a single table using PostgreSQL's COPY protocol. Rows are consumed lazily
+   * from the given iterator and written to the server in buffered chunks, within the transaction
+   * bound to the current thread (if any). Null values are loaded as SQL NULL.
+   * @param tableName the name of the table (including schema) to insert into.
+   * @param columns an ordered list of column names.
+   * @param rows the rows to insert, each ordered as the columns.
+   * @throws NullPointerException if any of the arguments are null
+   * @throws IllegalArgumentException if the tableName is blank
+   */
+  public void copyToDb(String tableName, List<String> columns, Iterator<Object[]> rows) {
+    XLOGGER.entry(tableName);
+    Validate.notBlank(tableName);
+    Validate.notNull(columns);
+    Validate.notNull(rows);
+
+    String copySql = String.format("COPY %s (%s) FROM STDIN WITH (FORMAT csv)",
+        tableName,
+        String.join(",", columns));
+    XLOGGER.debug("Copy SQL: {}", copySql);
+
+    template.execute((ConnectionCallback<Void>) connection -> {
+      CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(copySql);
+      try {
+        StringBuilder buffer = new StringBuilder(COPY_BUFFER_SIZE);
+        while (rows.hasNext()) {
+          appendRow(buffer, rows.next());
+          if (buffer.length() >= COPY_BUFFER_SIZE) {
+            writeToCopy(copyIn, buffer);
+          }
+        }
+        writeToCopy(copyIn, buffer);
+
+        long copied = copyIn.endCopy();
+        XLOGGER.exit("Total " + tableName + " inserts: " + copied);
+        return null;
+      } finally {
+        if (copyIn.isActive()) {
+          copyIn.cancelCopy();
+        }
+      }
+    });
+  }
+
   /*
    converts a Resource into a List of Strings - used when those strings are direct SQL
    */
@@ -127,12 +190,7 @@ public class Resource2Db {
       // read data rows
       List<Object[]> rows = new ArrayList<>();
       for (CSVRecord record : parser.getRecords()) {
-        if (!record.isConsistent()) {
-          throw new IllegalArgumentException("CSV record inconsistent: " + record);
-        }
-
-        List theRow = IteratorUtils.toList(record.iterator());
-        rows.add(theRow.toArray());
+        rows.add(toRow(record));
       }
       readData.setRight(rows);
 
@@ -157,7 +215,7 @@ public class Resource2Db {
 
   /**
    * Inserts data into a single table.  Given the columns and a list of data to insert, will
-   * run a batch update to insert it.
+   * stream it to the database with {@link #copyToDb(String, List, Iterator)}.
    * @param tableName the name of the table (including schema) to insert into.
    * @param dataWithHeader a pair where pair.left is an ordered list of column names and pair.right
    *                       is an array of rows to insert, where each row is similarly ordered as
@@ -165,25 +223,43 @@ public class Resource2Db {
    */
   public void insertToDbFromBatchedPair(String tableName,
                                         Pair<List<String>, List<Object[]>> dataWithHeader) {
-    XLOGGER.entry(tableName);
+    copyToDb(tableName, dataWithHeader.getLeft(), dataWithHeader.getRight().iterator());
+  }
 
-    String columnDesc = dataWithHeader.getLeft()
-        .stream()
-        .collect(joining(","));
-    String valueDesc = dataWithHeader.getLeft()
-        .stream()
-        .map(s -> "?")
-        .collect((joining(",")));
-    String insertSql = String.format("INSERT INTO %s (%s) VALUES (%s)",
-        tableName,
-        columnDesc,
-        valueDesc);
-    XLOGGER.info("Insert SQL: " + insertSql);
+  private Object[] toRow(CSVRecord record) {
+    if (!record.isConsistent()) {
+      throw new IllegalArgumentException("CSV record inconsistent: " + record);
+    }
 
-    List<Object[]> data = dataWithHeader.getRight();
-    data.forEach(e -> XLOGGER.info(tableName + ": " + Arrays.toString(e)));
-    int[] updateCount = template.batchUpdate(insertSql, data);
+    return IteratorUtils.toList(record.iterator()).toArray();
+  }
 
-    XLOGGER.exit("Total " + tableName + " inserts: " + Arrays.stream(updateCount).sum());
+  /*
+   appends a row in COPY's CSV format - nulls are left unquoted and empty, every other value is
+   quoted so that empty strings, delimiters and line breaks survive the round trip
+   */
+  static void appendRow(StringBuilder buffer, Object[] row) {
+    for (int i = 0; i < row.length; ++i) {
+      if (i > 0) {
+        buffer.append(',');
+      }
+
+      if (null != row[i]) {
+        buffer
+            .append('"')
+            .append(String.valueOf(row[i]).replace("\"", "\"\""))
+            .append('"');
+      }
+    }
+
+    buffer.append('\n');
+  }
+
+  private void writeToCopy(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+    if (buffer.length() > 0) {
+      byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+      copyIn.writeToCopy(bytes, 0, bytes.length);
+      buffer.setLength(0);
+    }
   }
 }
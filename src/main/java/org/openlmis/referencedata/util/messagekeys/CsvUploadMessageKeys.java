@@ -22,6 +22,7 @@ public class CsvUploadMessageKeys {
   private static final String ERROR_PREFIX = SERVICE_ERROR + ".upload";
 
   public static final String ERROR_UPLOAD_RECORD_INVALID = ERROR_PREFIX + ".record.invalid";
+  public static final String ERROR_UPLOAD_RECORDS_INVALID = ERROR_PREFIX + ".records.invalid";
   public static final String ERROR_FILE_IS_EMPTY = ERROR_PREFIX + ".file.empty";
   public static final String ERROR_INCORRECT_FILE_FORMAT = ERROR_PREFIX + ".file.format.incorrect";
   public static final String ERROR_UPLOAD_HEADER_MISSING = ERROR_PREFIX + ".header.missing";
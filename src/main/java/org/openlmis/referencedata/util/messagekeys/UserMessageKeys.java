@@ -24,6 +24,7 @@ public abstract class UserMessageKeys extends MessageKeys {
   private static final String WAREHOUSE_ID = "warehouseId";
   private static final String PROGRAM_ID = "programId";
   private static final String SUPERVISORY_NODE_ID = "supervisoryNodeId";
+  private static final String RIGHT_CHECKS = "rightChecks";
 
   public static final String ERROR_NULL = join(ERROR, NULL);
   public static final String ERROR_ROLE_ID_NULL = join(ERROR, ROLE, ID, NULL);
@@ -45,6 +46,9 @@ public abstract class UserMessageKeys extends MessageKeys {
 
   public static final String ERROR_FIELD_IS_INVARIANT = join(ERROR, "fieldIsInvariant");
 
+  public static final String ERROR_RIGHT_CHECKS_NULL = join(ERROR, RIGHT_CHECKS, NULL);
+  public static final String ERROR_RIGHT_CHECKS_TOO_MANY = join(ERROR, RIGHT_CHECKS, "tooMany");
+
   public static final String WAREHOUSE_ID_REQUIRED =
       join(ERROR, RIGHT_SEARCH, WAREHOUSE_ID, REQUIRED);
   public static final String PROGRAM_ID_REQUIRED =
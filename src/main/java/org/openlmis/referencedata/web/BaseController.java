@@ -25,15 +25,12 @@ import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
-import javax.annotation.Resource;
 import org.apache.commons.lang3.StringUtils;
-import org.javers.core.Javers;
-import org.javers.core.changelog.SimpleTextChangeLog;
-import org.javers.core.diff.Change;
-import org.javers.core.json.JsonConverter;
-import org.javers.repository.jql.QueryBuilder;
 import org.openlmis.referencedata.domain.BaseEntity;
 import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
+import org.openlmis.referencedata.service.AuditLogService;
+import org.openlmis.referencedata.service.AuditLogService.ChangePage;
 import org.openlmis.referencedata.service.ObjectReferenceExpander;
 import org.openlmis.referencedata.service.RightService;
 import org.openlmis.referencedata.util.Message;
@@ -49,6 +46,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RequestMapping(API_PATH)
 public abstract class BaseController {
@@ -57,11 +55,16 @@ public abstract class BaseController {
       DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss z").withZone(ZoneId.of("GMT"));
   public static final String API_PATH = "/api";
 
+  protected static final String CURSOR = "cursor";
+  protected static final String WITH_TOTAL = "withTotal";
+  protected static final String WITH_TOTAL_DEFAULT = "true";
+  protected static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
   @Autowired
   RightService rightService;
 
-  @Resource(name = "javersProvider")
-  private Javers javers;
+  @Autowired
+  private AuditLogService auditLogService;
 
   @Autowired
   private ObjectReferenceExpander objectReferenceExpander;
@@ -91,104 +94,55 @@ public abstract class BaseController {
     return Pagination.getPage(originalList, pageable, totalElements);
   }
 
-  protected ResponseEntity<String> getAuditLogResponse(Class type, UUID id, String author,
-                                                       String changedPropertyName,
-                                                       Pageable page, boolean returnJson) {
-    String auditLogs = getAuditLog(type, id, author, changedPropertyName, page, returnJson);
-
-    MediaType contentType = returnJson ? MediaType.APPLICATION_JSON : MediaType.TEXT_PLAIN;
+  /**
+   * Returns a page of changes of the given object, newest first. The changes are written
+   * directly to the response, either as JSON or, if returnJson is false, as a human-readable
+   * log. The cursor of the next page, if there is one, is returned in the X-Next-Cursor header.
+   */
+  protected ResponseEntity<StreamingResponseBody> getAuditLogResponse(Class type, UUID id,
+      AuditLogSearchParams searchParams, Pageable page, boolean returnJson) {
+    ChangePage changes = auditLogService.getChanges(type, id, searchParams, page);
 
     HttpHeaders headers = new HttpHeaders();
-    headers.setContentType(contentType);
+    headers.setContentType(returnJson ? MediaType.APPLICATION_JSON : MediaType.TEXT_PLAIN);
 
-    return new ResponseEntity<>(auditLogs, headers, HttpStatus.OK);
-  }
-
-  /**
-   * <p>
-   * Convenience method intended to return audit log information via either JSON or raw text,
-   * based on the value of the returnJson argument.
-   * </p><p>
-   * For testing and development, it’s useful to set this to false in order to retrieve a
-   * human-readable response. For production, however, JSON should exclusively be returned.
-   * </p>
-   * See getAuditedChanges() for a list and explanation of the available parameters.
-   */
-  protected String getAuditLog(Class type, UUID id, String author, String changedPropertyName,
-                               Pageable page, boolean returnJson) {
-    if (returnJson) {
-      return getAuditLogJson(type, id, author, changedPropertyName, page);
-    } else {
-      return getAuditLogText(type, id, author, changedPropertyName, page);
+    if (null != changes.getNextCursor()) {
+      headers.set(NEXT_CURSOR_HEADER, changes.getNextCursor());
     }
-  }
 
-  /**
-   * Return a list of audited changes via JSON.
-   * @param type The type of class for which we wish to retrieve historical changes.
-   */
-  protected String getAuditLogJson(Class type) {
-    return getAuditLogJson(type, null, null, null, null);
-  }
+    StreamingResponseBody body = returnJson
+        ? outputStream -> auditLogService.writeJson(changes, outputStream)
+        : outputStream -> auditLogService.writeText(changes, outputStream);
 
-  protected String getAuditLogJson(Class type, UUID id) {
-    return getAuditLogJson(type, id, null, null, null);
+    return new ResponseEntity<>(body, headers, HttpStatus.OK);
   }
 
-  /**
-   * Return a list of changes via JSON.
-   *
-   * @param type The type of class for which we wish to retrieve historical changes.
-   * @param id The ID of class for which we wish to retrieve historical changes.
-   *           If null, entries are returned regardless of their ID.
-   * @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
-   * @param page A Pageable object with PageNumber and PageSize values used for pagination.
-   */
-  protected String getAuditLogJson(Class type, UUID id, String author,
-                                     String changedPropertyName, Pageable page) {
-    List<Change> changes = getChangesByType(type, id, author, changedPropertyName, page);
-    JsonConverter jsonConverter = javers.getJsonConverter();
-    return jsonConverter.toJson(changes);
+  protected void expandDto(Object dto, BaseEntity entity, Set<String> expands) {
+    objectReferenceExpander.expandDto(dto, entity, expands);
   }
 
-
-  /**
-   * Return a list of changes as a log (in other words, as a series of line entries).
-   * @param type The type of class for which we wish to retrieve historical changes.
-   */
-  protected String getAuditLogText(Class type) {
-    return getAuditLogText(type, null, null, null, null);
+  protected ZonedDateTime parseHttpDateToZonedDateTime(String httpDate) {
+    return ZonedDateTime.parse(httpDate, RFC_7231_FORMAT);
   }
 
   /**
-   * Return a list of changes as a log (in other words, as a series of line entries).
-   * @param type The type of class for which we wish to retrieve historical changes.
-   * @param id The ID of class for which we wish to retrieve historical changes.
-   *           If null, entries are returned regardless of their ID.
+   * Checks if any of the entity tags in the given If-None-Match header value matches the given
+   * (unquoted) entity tag. Weak tags are compared as strong ones.
    */
-  protected String getAuditLogText(Class type, UUID id) {
-    return getAuditLogText(type, id, null, null, null);
-  }
+  protected boolean matchesEtag(String ifNoneMatch, String etag) {
+    if (null == ifNoneMatch) {
+      return false;
+    }
 
-  /**
-   * Return a list of changes as a log (in other words, as a series of line entries).
-   * The available parameters and their means are the same as for the getChangesByClass() method.
-   */
-  protected String getAuditLogText(Class type, UUID id, String author,
-                                   String changedPropertyName, Pageable page) {
-    List<Change> changes = getChangesByType(type, id, author, changedPropertyName, page);
-    return javers.processChangeList(changes, new SimpleTextChangeLog());
-  }
+    for (String value : ifNoneMatch.split(",")) {
+      String tag = StringUtils.removeStart(value.trim(), "W/");
 
-  protected void expandDto(Object dto, BaseEntity entity, Set<String> expands) {
-    objectReferenceExpander.expandDto(dto, entity, expands);
-  }
+      if ("*".equals(tag) || tag.equals('"' + etag + '"')) {
+        return true;
+      }
+    }
 
-  protected ZonedDateTime parseHttpDateToZonedDateTime(String httpDate) {
-    return ZonedDateTime.parse(httpDate, RFC_7231_FORMAT);
+    return false;
   }
 
   void validateCsvFile(MultipartFile csvFile) {
@@ -205,39 +159,4 @@ public abstract class BaseController {
           bindingResult.getFieldError().getArguments()));
     }
   }
-
-  /*
-    Return JaVers changes for the specified type, optionally filtered by id, author, and property.
-  */
-  private List<Change> getChangesByType(Class type, UUID id, String author,
-                                        String changedPropertyName, Pageable page) {
-    QueryBuilder queryBuilder;
-
-    if (id != null) {
-      queryBuilder = QueryBuilder.byInstanceId(id, type);
-    } else {
-      queryBuilder = QueryBuilder.byClass(type);
-    }
-
-    int skip = Pagination.getPageNumber(page);
-    int limit = Pagination.getPageSize(page);
-
-    queryBuilder = queryBuilder.withNewObjectChanges(true).skip(skip).limit(limit);
-
-    if (StringUtils.isNotBlank(author)) {
-      queryBuilder = queryBuilder.byAuthor(author);
-    }
-    if (StringUtils.isNotBlank(changedPropertyName)) {
-      queryBuilder = queryBuilder.andProperty(changedPropertyName);
-    }
-
-    /* Depending on the business' preference, we can either use findSnapshots() or findChanges().
-       Whereas the former returns the entire state of the object as it was at each commit, the later
-       returns only the property and values which changed. */
-    List<Change> changes = javers.findChanges(queryBuilder.build());
-
-    changes.sort((o1, o2) -> -1 * o1.getCommitMetadata().get().getCommitDate()
-                                  .compareTo(o2.getCommitMetadata().get().getCommitDate()));
-    return changes;
-  }
 }
@@ -27,6 +27,7 @@ import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.CommodityTypeRepository;
 import org.openlmis.referencedata.repository.TradeItemRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.CommodityTypeMessageKeys;
@@ -47,6 +48,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 public class CommodityTypeController extends BaseController {
@@ -184,21 +186,17 @@ public class CommodityTypeController extends BaseController {
 
   /**
    * Get the audit information related to commodity types.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = RESOURCE_PATH + "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getCommodityTypeAuditLog(
+  public ResponseEntity<StreamingResponseBody> getCommodityTypeAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -212,7 +210,7 @@ public class CommodityTypeController extends BaseController {
       throw new NotFoundException(CommodityTypeMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(CommodityType.class, id, author, changedPropertyName, page,
+    return getAuditLogResponse(CommodityType.class, id, searchParams, page,
         returnJson);
   }
 }
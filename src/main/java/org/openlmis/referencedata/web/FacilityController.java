@@ -15,6 +15,8 @@
 
 package org.openlmis.referencedata.web;
 
+import static org.apache.commons.collections4.CollectionUtils.isEmpty;
+
 import com.vividsolutions.jts.geom.Polygon;
 import java.util.ArrayList;
 import java.util.List;
@@ -39,9 +41,15 @@ import org.openlmis.referencedata.fhir.FhirClient;
 import org.openlmis.referencedata.repository.FacilityRepository;
 import org.openlmis.referencedata.repository.FacilityTypeApprovedProductRepository;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.service.ApprovedProductsSnapshotCache;
+import org.openlmis.referencedata.service.ApprovedProductsSnapshotCache.Snapshot;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.service.FacilityBuilder;
 import org.openlmis.referencedata.service.FacilityService;
+import org.openlmis.referencedata.service.RightAssignmentScope;
 import org.openlmis.referencedata.service.RightAssignmentService;
+import org.openlmis.referencedata.util.KeysetPageable;
+import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.FacilityMessageKeys;
 import org.openlmis.referencedata.validate.FacilityValidator;
 import org.slf4j.ext.XLogger;
@@ -51,8 +59,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.PageableDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
@@ -62,11 +73,13 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @NoArgsConstructor
 @Controller
@@ -87,6 +100,9 @@ public class FacilityController extends BaseController {
   @Autowired
   private OrderableRepository orderableRepository;
 
+  @Autowired
+  private ApprovedProductsSnapshotCache approvedProductsSnapshotCache;
+
   @Autowired
   private FacilityService facilityService;
 
@@ -176,21 +192,17 @@ public class FacilityController extends BaseController {
 
   /**
    * Get the audit information related to facilities.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = RESOURCE_PATH + "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getFacilitiesAuditLog(
+  public ResponseEntity<StreamingResponseBody> getFacilitiesAuditLog(
           @PathVariable("id") UUID id,
-          @RequestParam(name = "author", required = false, defaultValue = "") String author,
-          @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-                        String changedPropertyName,
+          AuditLogSearchParams searchParams,
           //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
           @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
                         boolean returnJson,
@@ -204,8 +216,8 @@ public class FacilityController extends BaseController {
     findFacility(id, profiler);
 
     profiler.start("GET_AUDIT_LOG");
-    ResponseEntity<String> response = getAuditLogResponse(
-        Facility.class, id, author, changedPropertyName, page, returnJson
+    ResponseEntity<StreamingResponseBody> response = getAuditLogResponse(
+        Facility.class, id, searchParams, page, returnJson
     );
 
     profiler.stop().log();
@@ -251,7 +263,8 @@ public class FacilityController extends BaseController {
     fhirClient.synchronizeFacility(facilityToSave);
 
     profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-    rightAssignmentService.regenerateRightAssignments();
+    rightAssignmentService.regenerateRightAssignments(
+        RightAssignmentScope.forFacilities(facilityToSave.getId()));
 
     XLOGGER.info("Saved facility with id: {}", facilityToSave.getId());
     FacilityDto dto = toDto(facilityToSave, profiler);
@@ -287,30 +300,83 @@ public class FacilityController extends BaseController {
    * @param programId  ID of the program
    * @param fullSupply true to retrieve full-supply products, false to retrieve non-full supply
    *                   products
+   * @param lastId     ID of the last approved product from the previous page; if set (or if
+   *                   withTotal is false) products are paged by ID and the total is not counted
+   * @param withTotal  false to skip counting all approved products
+   * @param ifNoneMatch ETag of the approved products the client already has; only unpaged
+   *                    requests without orderable IDs are answered from a snapshot that has one
    * @return collection of approved products
    */
   @RequestMapping(value = RESOURCE_PATH + "/{id}/approvedProducts")
-  @ResponseStatus(HttpStatus.OK)
-  @ResponseBody
-  public Page<ApprovedProductDto> getApprovedProducts(
+  public ResponseEntity<?> getApprovedProducts(
       @PathVariable("id") UUID facilityId,
       @RequestParam(required = false, value = "programId") UUID programId,
       @RequestParam(required = false, value = "fullSupply") Boolean fullSupply,
       @RequestParam(required = false, value = "orderableId") List<UUID> orderablesId,
       @RequestParam(required = false, value = "active") Boolean active,
+      @RequestParam(required = false, value = "lastId") UUID lastId,
+      @RequestParam(value = "withTotal", defaultValue = "true") boolean withTotal,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
       @PageableDefault(size = Integer.MAX_VALUE) Pageable pageable) {
 
     Profiler profiler = new Profiler("GET_FACILITY_APPROVED_PRODUCTS");
     profiler.setLogger(XLOGGER);
 
+    if (null == lastId && withTotal && isEmpty(orderablesId) && isUnpaged(pageable)) {
+      profiler.start("GET_APPROVED_PRODUCTS_SNAPSHOT");
+      ApprovedProductsSnapshotCache.Key key = new ApprovedProductsSnapshotCache.Key(
+          facilityTypeApprovedProductRepository.findFacilityTypeId(facilityId), programId,
+          fullSupply, null == active || active);
+      Snapshot snapshot = approvedProductsSnapshotCache.get(key);
+
+      if (null == snapshot) {
+        long generation = approvedProductsSnapshotCache.getGeneration();
+
+        profiler.start("FIND_APPROVED_PRODUCTS");
+        Page<FacilityTypeApprovedProduct> products = facilityTypeApprovedProductRepository
+            .searchProducts(facilityId, programId, fullSupply, orderablesId, active, pageable);
+
+        Page<ApprovedProductDto> list =
+            toDto(products.getContent(), pageable, products.getTotalElements(), profiler);
+
+        profiler.start("ENCODE_APPROVED_PRODUCTS_SNAPSHOT");
+        snapshot = approvedProductsSnapshotCache.put(key, generation, list);
+      }
+
+      profiler.stop().log();
+
+      if (matchesEtag(ifNoneMatch, snapshot.getEtag())) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+            .eTag(snapshot.getEtag())
+            .build();
+      }
+
+      return ResponseEntity.ok()
+          .contentType(MediaType.APPLICATION_JSON)
+          .eTag(snapshot.getEtag())
+          .body(snapshot.getBody());
+    }
+
     profiler.start("FIND_APPROVED_PRODUCTS");
-    Page<FacilityTypeApprovedProduct> products = facilityTypeApprovedProductRepository
-        .searchProducts(facilityId, programId, fullSupply, orderablesId, active, pageable);
+    Page<ApprovedProductDto> list;
+
+    if (null != lastId || !withTotal) {
+      Slice<FacilityTypeApprovedProduct> products = facilityTypeApprovedProductRepository
+          .searchProductsAfter(facilityId, programId, fullSupply, orderablesId, active, lastId,
+              pageable.getPageSize());
 
-    Page<ApprovedProductDto> list = toDto(products, pageable, profiler);
+      // the total is unknown, the page is only marked as not the last one if there is more
+      long total = products.getNumberOfElements() + (products.hasNext() ? 1 : 0);
+      list = toDto(products.getContent(), products.getPageable(), total, profiler);
+    } else {
+      Page<FacilityTypeApprovedProduct> products = facilityTypeApprovedProductRepository
+          .searchProducts(facilityId, programId, fullSupply, orderablesId, active, pageable);
+
+      list = toDto(products.getContent(), pageable, products.getTotalElements(), profiler);
+    }
 
     profiler.stop().log();
-    return list;
+    return ResponseEntity.ok(list);
   }
 
   /**
@@ -370,7 +436,9 @@ public class FacilityController extends BaseController {
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
   public Page<BasicFacilityDto> getFacilities(
-      @RequestParam MultiValueMap<String, Object> requestParams, Pageable pageable) {
+      @RequestParam MultiValueMap<String, Object> requestParams, Pageable pageable,
+      @RequestParam(value = CURSOR, required = false) String cursor,
+      @RequestParam(value = WITH_TOTAL, defaultValue = WITH_TOTAL_DEFAULT) boolean withTotal) {
     Profiler profiler = new Profiler("GET_FACILITIES");
     profiler.setLogger(XLOGGER);
 
@@ -378,7 +446,8 @@ public class FacilityController extends BaseController {
     FacilitySearchParams params = new FacilitySearchParams(requestParams);
 
     profiler.start("SERVICE_SEARCH");
-    Page<Facility> foundFacilities = facilityService.searchFacilities(params, pageable);
+    Page<Facility> foundFacilities = facilityService.searchFacilities(params,
+        KeysetPageable.of(pageable, cursor, withTotal, FacilityRepository.KEYSET_ORDER));
 
     profiler.start("EXPORT_TO_DTO");
     Page<BasicFacilityDto> dto = toBasicDto(foundFacilities, pageable, profiler);
@@ -399,7 +468,8 @@ public class FacilityController extends BaseController {
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
   public Page<BasicFacilityDto> searchFacilities(@RequestBody Map<String, Object> queryParams,
-                                                 Pageable pageable) {
+      Pageable pageable, @RequestParam(value = CURSOR, required = false) String cursor,
+      @RequestParam(value = WITH_TOTAL, defaultValue = WITH_TOTAL_DEFAULT) boolean withTotal) {
     XLOGGER.entry(queryParams);
     Profiler profiler = new Profiler("SEARCH_FACILITIES");
     profiler.setLogger(XLOGGER);
@@ -410,7 +480,8 @@ public class FacilityController extends BaseController {
     FacilitySearchParams params = new FacilitySearchParams(map);
 
     profiler.start("SERVICE_SEARCH");
-    Page<Facility> foundFacilities = facilityService.searchFacilities(params, pageable);
+    Page<Facility> foundFacilities = facilityService.searchFacilities(params,
+        KeysetPageable.of(pageable, cursor, withTotal, FacilityRepository.KEYSET_ORDER));
 
     Page<BasicFacilityDto> page = toBasicDto(foundFacilities, pageable, profiler);
 
@@ -431,6 +502,11 @@ public class FacilityController extends BaseController {
     return facility;
   }
 
+  private boolean isUnpaged(Pageable pageable) {
+    return pageable.getPageNumber() == 0 && pageable.getPageSize() == Integer.MAX_VALUE
+        && pageable.getSort().isUnsorted();
+  }
+
   private FacilityDto toDto(Facility facility, Profiler profiler) {
     profiler.start("EXPORT_FACILITY_TO_DTO");
     return FacilityDto.newInstance(facility);
@@ -444,19 +520,17 @@ public class FacilityController extends BaseController {
         .collect(Collectors.toList());
   }
 
-  private Page<ApprovedProductDto> toDto(Page<FacilityTypeApprovedProduct> products,
-      Pageable pageable, Profiler profiler) {
+  private Page<ApprovedProductDto> toDto(List<FacilityTypeApprovedProduct> ftaps,
+      Pageable pageable, long total, Profiler profiler) {
     profiler.start("EXPORT_PRODUCTS_TO_DTO");
 
-    List<FacilityTypeApprovedProduct> ftaps = products.getContent();
-
     Set<UUID> orderableId = ftaps
         .stream()
         .map(FacilityTypeApprovedProduct::getOrderableId)
         .collect(Collectors.toSet());
 
     Map<UUID, Orderable> orderables = orderableRepository
-        .findAllLatestByIds(orderableId, PageRequest.of(0, orderableId.size()))
+        .findAllLatestByIds(orderableId, PageRequest.of(0, Math.max(orderableId.size(), 1)))
         .getContent()
         .stream()
         .collect(Collectors.toMap(Orderable::getId, Function.identity()));
@@ -471,7 +545,7 @@ public class FacilityController extends BaseController {
       dtos.add(productDto);
     }
 
-    return toPage(dtos, pageable, products.getTotalElements(), profiler);
+    return toPage(dtos, pageable, total, profiler);
   }
 
   private Page<MinimalFacilityDto> toMinimalDto(Page<Facility> facilities, Profiler profiler,
@@ -495,7 +569,8 @@ public class FacilityController extends BaseController {
         .map(BasicFacilityDto::newInstance)
         .collect(Collectors.toList());
 
-    return toPage(facilityDtos, pageable, facilities.getTotalElements(), profiler);
+    profiler.start("CREATE_PAGE");
+    return Pagination.getPage(facilityDtos, pageable, facilities);
   }
 
 }
@@ -35,6 +35,7 @@ import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.FacilityTypeApprovedProductRepository;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.service.FacilityTypeApprovedProductBuilder;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.UuidUtil;
@@ -60,6 +61,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @Transactional
@@ -302,19 +304,15 @@ public class FacilityTypeApprovedProductController extends BaseController {
 
   /**
    * Get the audit information related to facility type approved products.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @GetMapping("/{id}/auditLog")
-  public ResponseEntity<String> getFacilityTypeApprovedProductAuditLog(
+  public ResponseEntity<StreamingResponseBody> getFacilityTypeApprovedProductAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -331,7 +329,7 @@ public class FacilityTypeApprovedProductController extends BaseController {
     }
 
     return getAuditLogResponse(
-        FacilityTypeApprovedProduct.class, id, author, changedPropertyName, page, returnJson
+        FacilityTypeApprovedProduct.class, id, searchParams, page, returnJson
     );
   }
 
@@ -23,6 +23,7 @@ import org.openlmis.referencedata.domain.RightName;
 import org.openlmis.referencedata.exception.IntegrityViolationException;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.repository.FacilityTypeRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.service.FacilityTypeService;
 import org.openlmis.referencedata.util.messagekeys.FacilityTypeMessageKeys;
 import org.slf4j.Logger;
@@ -45,6 +46,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @RequestMapping(RESOURCE_PATH)
@@ -169,21 +171,17 @@ public class FacilityTypeController extends BaseController {
 
   /**
    * Get the audit information related to facility type.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getFacilityTypeAuditLog(
+  public ResponseEntity<StreamingResponseBody> getFacilityTypeAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -197,7 +195,7 @@ public class FacilityTypeController extends BaseController {
       throw new NotFoundException(FacilityTypeMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(FacilityType.class, id, author, changedPropertyName, page,
+    return getAuditLogResponse(FacilityType.class, id, searchParams, page,
         returnJson);
   }
 }
@@ -22,6 +22,7 @@ import java.util.UUID;
 import org.openlmis.referencedata.domain.GeographicLevel;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.repository.GeographicLevelRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.util.messagekeys.GeographicLevelMessageKeys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +41,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @RequestMapping(RESOURCE_PATH)
@@ -144,21 +146,17 @@ public class GeographicLevelController extends BaseController {
 
   /**
    * Get the audit information related to geographic level.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getGeographicLevelAuditLog(
+  public ResponseEntity<StreamingResponseBody> getGeographicLevelAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -172,7 +170,7 @@ public class GeographicLevelController extends BaseController {
       throw new NotFoundException(GeographicLevelMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(GeographicLevel.class, id, author, changedPropertyName, page,
+    return getAuditLogResponse(GeographicLevel.class, id, searchParams, page,
         returnJson);
   }
 }
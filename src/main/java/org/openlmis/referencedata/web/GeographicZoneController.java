@@ -27,8 +27,10 @@ import org.openlmis.referencedata.dto.GeographicZoneSimpleDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.fhir.FhirClient;
 import org.openlmis.referencedata.repository.GeographicZoneRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.service.GeographicZoneBuilder;
 import org.openlmis.referencedata.service.GeographicZoneService;
+import org.openlmis.referencedata.service.GeographicZoneTree;
 import org.openlmis.referencedata.util.messagekeys.GeographicZoneMessageKeys;
 import org.openlmis.referencedata.validate.GeographicZoneValidator;
 import org.slf4j.ext.XLogger;
@@ -49,6 +51,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @Transactional
@@ -64,6 +67,9 @@ public class GeographicZoneController extends BaseController {
   @Autowired
   private GeographicZoneService geographicZoneService;
 
+  @Autowired
+  private GeographicZoneTree geographicZoneTree;
+
   @Autowired
   private GeographicZoneBuilder geographicZoneBuilder;
 
@@ -101,6 +107,7 @@ public class GeographicZoneController extends BaseController {
 
     profiler.start("SAVE_TO_DB");
     GeographicZone zone = geographicZoneRepository.save(geographicZone);
+    geographicZoneTree.invalidate();
 
     profiler.start("SYNC_FHIR_RESOURCE");
     fhirClient.synchronizeGeographicZone(zone);
@@ -164,6 +171,7 @@ public class GeographicZoneController extends BaseController {
     XLOGGER.debug("Updating geographicZone");
     profiler.start("SAVE");
     GeographicZone zone = geographicZoneRepository.save(geoZoneToSave);
+    geographicZoneTree.invalidate();
 
     profiler.start("SYNC_FHIR_RESOURCE");
     fhirClient.synchronizeGeographicZone(zone);
@@ -227,6 +235,7 @@ public class GeographicZoneController extends BaseController {
 
     profiler.start("DELETE_INSTANCE");
     geographicZoneRepository.deleteById(geographicZoneId);
+    geographicZoneTree.invalidate();
 
     profiler.stop().log();
   }
@@ -283,21 +292,17 @@ public class GeographicZoneController extends BaseController {
 
   /**
    * Get the audit information related to geographic zone.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = RESOURCE_PATH + "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getGeographicZoneAuditLog(
+  public ResponseEntity<StreamingResponseBody> getGeographicZoneAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -316,8 +321,8 @@ public class GeographicZoneController extends BaseController {
     }
 
     profiler.start("GET_AUDIT_LOG");
-    ResponseEntity<String> response = getAuditLogResponse(
-        GeographicZone.class, id, author, changedPropertyName, page, returnJson
+    ResponseEntity<StreamingResponseBody> response = getAuditLogResponse(
+        GeographicZone.class, id, searchParams, page, returnJson
     );
 
     profiler.stop().log();
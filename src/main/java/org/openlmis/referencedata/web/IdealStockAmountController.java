@@ -18,20 +18,25 @@ package org.openlmis.referencedata.web;
 import static org.openlmis.referencedata.util.messagekeys.IdealStockAmountMessageKeys.ERROR_FORMAT_NOT_ALLOWED;
 
 import java.io.IOException;
+import java.net.URI;
 import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.servlet.http.HttpServletResponse;
 import org.openlmis.referencedata.domain.IdealStockAmount;
 import org.openlmis.referencedata.domain.RightName;
+import org.openlmis.referencedata.domain.UploadJob;
 import org.openlmis.referencedata.dto.IdealStockAmountCsvModel;
 import org.openlmis.referencedata.dto.IdealStockAmountDto;
+import org.openlmis.referencedata.dto.UploadJobDto;
 import org.openlmis.referencedata.dto.UploadResultDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.i18n.MessageService;
 import org.openlmis.referencedata.service.IdealStockAmountSearchParams;
 import org.openlmis.referencedata.service.IdealStockAmountService;
+import org.openlmis.referencedata.service.UploadJobService;
 import org.openlmis.referencedata.util.IdealStockAmountDtoBuilder;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
@@ -40,8 +45,7 @@ import org.openlmis.referencedata.validate.CsvHeaderValidator;
 import org.openlmis.referencedata.web.csv.format.CsvFormatter;
 import org.openlmis.referencedata.web.csv.model.ModelClass;
 import org.openlmis.referencedata.web.csv.parser.CsvParser;
-import org.openlmis.referencedata.web.csv.recordhandler.IdealStockAmountProcessor;
-import org.openlmis.referencedata.web.csv.recordhandler.IdealStockAmountWriter;
+import org.openlmis.referencedata.web.csv.recordhandler.IdealStockAmountUploadResource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.profiler.Profiler;
@@ -50,7 +54,9 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -59,6 +65,7 @@ import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 @Controller
 @Transactional
@@ -81,10 +88,10 @@ public class IdealStockAmountController extends BaseController {
   private CsvParser csvParser;
 
   @Autowired
-  private IdealStockAmountProcessor idealStockAmountProcessor;
+  private IdealStockAmountUploadResource idealStockAmountUploadResource;
 
   @Autowired
-  private IdealStockAmountWriter idealStockAmountWriter;
+  private UploadJobService uploadJobService;
 
   @Autowired
   private CsvHeaderValidator csvHeaderValidator;
@@ -123,12 +130,16 @@ public class IdealStockAmountController extends BaseController {
   }
 
   /**
-   * Downloads csv file with all Ideal Stock Amounts.
+   * Downloads csv file with all matching Ideal Stock Amounts. The amounts are written to the
+   * response one by one while they are read from the database.
+   *
+   * @param requestParams request parameters (facilityId, commodityTypeId, processingPeriodId).
    */
   @GetMapping(value = RESOURCE_PATH, params = FORMAT)
   @ResponseBody
   @ResponseStatus(HttpStatus.OK)
   public void download(@RequestParam(FORMAT) String format,
+                       IdealStockAmountSearchParams requestParams,
                        HttpServletResponse response) throws IOException {
 
     Profiler profiler = new Profiler("DOWNLOAD_IDEAL_STOCK_AMOUNTS");
@@ -141,20 +152,14 @@ public class IdealStockAmountController extends BaseController {
       return;
     }
 
-    profiler.start("FIND_ALL_IDEAL_STOCK_AMOUNTS");
-    Iterable<IdealStockAmount> list = service.search();
-
-    profiler.start("CONVERT_IDEAL_STOCK_AMOUNTS_TO_DTO");
-    List<IdealStockAmountCsvModel> items = toCsvDto(list);
-
     response.setContentType("text/csv");
     response.addHeader(HttpHeaders.CONTENT_DISPOSITION,
         DISPOSITION_BASE + "ideal_stock_amounts.csv");
 
-    profiler.start("PARSE_IDEAL_STOCK_AMOUNTS_TO_CSV");
-    try {
-      csvFormatter.process(
-          response.getOutputStream(), new ModelClass(IdealStockAmountCsvModel.class), items);
+    profiler.start("STREAM_IDEAL_STOCK_AMOUNTS_TO_CSV");
+    try (Stream<IdealStockAmount> isas = service.stream(requestParams)) {
+      csvFormatter.process(response.getOutputStream(),
+          new ModelClass<>(IdealStockAmountCsvModel.class), isas.map(this::toCsvDto));
     } catch (IOException ex) {
       throw new ValidationMessageException(ex, MessageKeys.ERROR_IO, ex.getMessage());
     } finally {
@@ -163,16 +168,25 @@ public class IdealStockAmountController extends BaseController {
   }
 
   /**
-   * Uploads csv file and converts to domain object.
+   * Uploads csv file and converts to domain object. The upload does not run in the transaction of
+   * this controller, the parser starts its own transaction if all records should be saved at once.
+   *
+   * <p>If {@code async} is set, the file is uploaded in the background and the created upload job
+   * is returned right away.
    *
    * @param file File in ".csv" format to upload.
-   * @return number of uploaded records
+   * @param allOrNothing whether no records should be saved if any of them is invalid.
+   * @param async whether the file should be uploaded in the background.
+   * @return number of uploaded records, or the upload job if the upload is asynchronous
    */
   @PostMapping(value = RESOURCE_PATH, params = FORMAT)
-  @ResponseBody
-  @ResponseStatus(HttpStatus.OK)
-  public UploadResultDto upload(@RequestParam(FORMAT) String format,
-                                @RequestPart("file") MultipartFile file) {
+  @Transactional(propagation = Propagation.NOT_SUPPORTED)
+  public ResponseEntity<Object> upload(@RequestParam(FORMAT) String format,
+                                       @RequestPart("file") MultipartFile file,
+                                       @RequestParam(value = "allOrNothing",
+                                           defaultValue = "true") boolean allOrNothing,
+                                       @RequestParam(value = "async", defaultValue = "false")
+                                           boolean async) {
     Profiler profiler = new Profiler("UPLOAD_IDEAL_STOCK_AMOUNTS");
     profiler.setLogger(LOGGER);
 
@@ -186,15 +200,29 @@ public class IdealStockAmountController extends BaseController {
 
     profiler.start("VALIDATE_FILE");
     validateCsvFile(file);
-    ModelClass modelClass = new ModelClass(IdealStockAmountCsvModel.class);
+
+    if (async) {
+      profiler.start("SUBMIT_UPLOAD_JOB");
+      UploadJob job = uploadJobService.submit(idealStockAmountUploadResource, file, allOrNothing);
+      URI location = ServletUriComponentsBuilder
+          .fromCurrentContextPath()
+          .path(API_PATH + UploadJobController.RESOURCE_PATH + "/{id}")
+          .buildAndExpand(job.getId())
+          .toUri();
+
+      profiler.stop().log();
+      return ResponseEntity.accepted().location(location).body(UploadJobDto.newInstance(job));
+    }
 
     profiler.start("PARSE_FILE");
     try {
-      int result = csvParser.parse(file.getInputStream(), modelClass, csvHeaderValidator,
-          idealStockAmountProcessor, idealStockAmountWriter);
+      int result = csvParser.parse(file.getInputStream(),
+          idealStockAmountUploadResource.getModelClass(), csvHeaderValidator,
+          idealStockAmountUploadResource.getProcessor(),
+          idealStockAmountUploadResource.getWriter(), allOrNothing);
       profiler.start("UPLOAD_RESULT_DTO");
       UploadResultDto dto = new UploadResultDto(result);
-      return dto;
+      return ResponseEntity.ok(dto);
     } catch (IOException ex) {
       throw new ValidationMessageException(ex, MessageKeys.ERROR_IO, ex.getMessage());
     } finally {
@@ -208,13 +236,6 @@ public class IdealStockAmountController extends BaseController {
     return dto;
   }
 
-  private List<IdealStockAmountCsvModel> toCsvDto(Iterable<IdealStockAmount> items) {
-    return StreamSupport
-        .stream(items.spliterator(), false)
-        .map(this::toCsvDto)
-        .collect(Collectors.toList());
-  }
-
   private List<IdealStockAmountDto> toDto(Iterable<IdealStockAmount> items) {
     return StreamSupport
         .stream(items.spliterator(), false)
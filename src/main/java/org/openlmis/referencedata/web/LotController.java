@@ -26,6 +26,7 @@ import org.openlmis.referencedata.dto.LotDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.repository.LotRepository;
 import org.openlmis.referencedata.repository.TradeItemRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.service.LotSearchParams;
 import org.openlmis.referencedata.service.LotService;
 import org.openlmis.referencedata.util.Message;
@@ -51,6 +52,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @Transactional
@@ -175,21 +177,17 @@ public class LotController extends BaseController {
 
   /**
    * Get the audit information related to lot.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = "/lots/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getLotAuditLog(
+  public ResponseEntity<StreamingResponseBody> getLotAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -203,7 +201,7 @@ public class LotController extends BaseController {
       throw new NotFoundException(LotMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(Lot.class, id, author, changedPropertyName, page, returnJson);
+    return getAuditLogResponse(Lot.class, id, searchParams, page, returnJson);
   }
 
   private LotDto exportToDto(Lot lot) {
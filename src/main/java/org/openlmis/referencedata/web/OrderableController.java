@@ -19,17 +19,21 @@ import static org.openlmis.referencedata.domain.RightName.ORDERABLES_MANAGE;
 
 import java.time.ZonedDateTime;
 import java.util.Collections;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 import org.apache.commons.lang3.tuple.Pair;
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.OrderableHighWaterMark;
 import org.openlmis.referencedata.dto.OrderableDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.OrderableRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.service.OrderableService;
+import org.openlmis.referencedata.util.KeysetPageable;
 import org.openlmis.referencedata.util.OrderableBuilder;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.UuidUtil;
@@ -61,6 +65,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 public class OrderableController extends BaseController {
@@ -165,13 +170,21 @@ public class OrderableController extends BaseController {
   public ResponseEntity<Page<OrderableDto>> findAll(
       @RequestParam MultiValueMap<String, Object> queryParams,
       @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedDate,
-      Pageable pageable) {
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      Pageable pageable,
+      @RequestParam(value = CURSOR, required = false) String cursor,
+      @RequestParam(value = WITH_TOTAL, defaultValue = WITH_TOTAL_DEFAULT) boolean withTotal) {
     XLOGGER.entry(queryParams, pageable);
     Profiler profiler = new Profiler("ORDERABLES_SEARCH");
     profiler.setLogger(XLOGGER);
 
     QueryOrderableSearchParams searchParams = new QueryOrderableSearchParams(queryParams);
-    ZonedDateTime lastUpdated = orderableService.getLatestLastUpdatedDate(searchParams, profiler);
+    Optional<OrderableHighWaterMark> highWaterMark = orderableService
+        .findHighWaterMark(searchParams, profiler);
+    ZonedDateTime lastUpdated = highWaterMark.isPresent()
+        ? highWaterMark.get().getLastUpdated()
+        : orderableService.getLatestLastUpdatedDate(searchParams, profiler);
+    String etag = highWaterMark.map(OrderableHighWaterMark::getEtag).orElse(null);
 
     if (lastUpdated == null) {
       Page<OrderableDto> emptyPage = Pagination.getPage(Collections.emptyList(), pageable, 0);
@@ -179,29 +192,30 @@ public class OrderableController extends BaseController {
               .body(emptyPage);
     }
 
-    if (ifModifiedDate == null
-        || wasModifiedSince(lastUpdated, parseHttpDateToZonedDateTime(ifModifiedDate))) {
+    if (wasModified(lastUpdated, etag, ifModifiedDate, ifNoneMatch)) {
       XLOGGER.info("search orderable query params: {}", queryParams);
 
       profiler.start("ORDERABLE_SERVICE_SEARCH");
+      Pageable keysetPageable = KeysetPageable.of(pageable, cursor, withTotal,
+          OrderableRepository.KEYSET_ORDER);
       Page<Orderable> orderablesPage =
-          orderableService.searchOrderables(searchParams, pageable);
+          orderableService.searchOrderables(searchParams, keysetPageable);
 
       profiler.start("ORDERABLE_PAGINATION");
       Page<OrderableDto> page = Pagination.getPage(
           OrderableDto.newInstance(orderablesPage.getContent()),
-          pageable,
-          orderablesPage.getTotalElements());
+          keysetPageable,
+          orderablesPage);
 
       profiler.stop().log();
       XLOGGER.exit(page);
       return ResponseEntity.ok()
-          .headers(buildLastModifiedHeader(lastUpdated))
+          .headers(buildLastModifiedHeader(lastUpdated, etag))
           .body(page);
     } else {
       profiler.stop().log();
       return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
-          .headers(buildLastModifiedHeader(lastUpdated))
+          .headers(buildLastModifiedHeader(lastUpdated, etag))
           .build();
     }
   }
@@ -216,15 +230,24 @@ public class OrderableController extends BaseController {
   public ResponseEntity<Page<OrderableDto>> searchOrderables(
       @RequestBody OrderableSearchParams body,
       @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false)
-          String ifModifiedDate) {
+          String ifModifiedDate,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+      @RequestParam(value = CURSOR, required = false) String cursor,
+      @RequestParam(value = WITH_TOTAL, defaultValue = WITH_TOTAL_DEFAULT) boolean withTotal) {
     Profiler profiler = new Profiler("ORDERABLES_SEARCH_POST");
     profiler.setLogger(XLOGGER);
 
-    Pageable pageable = body.getPageable();
+    Pageable pageable = KeysetPageable.of(body.getPageable(), cursor, withTotal,
+        OrderableRepository.KEYSET_ORDER);
+    QueryOrderableSearchParams searchParams = getQueryOrderableSearchParams(body);
+    Optional<OrderableHighWaterMark> highWaterMark = orderableService
+        .findHighWaterMark(searchParams, profiler);
 
     profiler.start("GET_LATEST_LAST_UPDATED_DATE");
-    ZonedDateTime lastUpdated = orderableService
-            .getLatestLastUpdatedDate(getQueryOrderableSearchParams(body), profiler);
+    ZonedDateTime lastUpdated = highWaterMark.isPresent()
+        ? highWaterMark.get().getLastUpdated()
+        : orderableService.getLatestLastUpdatedDate(searchParams, profiler);
+    String etag = highWaterMark.map(OrderableHighWaterMark::getEtag).orElse(null);
 
     if (lastUpdated == null) {
       Page<OrderableDto> emptyPage = Pagination.getPage(Collections.emptyList(), pageable, 0);
@@ -232,8 +255,7 @@ public class OrderableController extends BaseController {
               .body(emptyPage);
     }
 
-    if (ifModifiedDate == null
-        || wasModifiedSince(lastUpdated, parseHttpDateToZonedDateTime(ifModifiedDate))) {
+    if (wasModified(lastUpdated, etag, ifModifiedDate, ifNoneMatch)) {
       profiler.start("SEARCH_ORDERABLES");
       Page<Orderable> orderablesPage = repository.search(body, pageable);
 
@@ -241,17 +263,17 @@ public class OrderableController extends BaseController {
       Page<OrderableDto> page = Pagination.getPage(
           OrderableDto.newInstance(orderablesPage.getContent()),
           pageable,
-          orderablesPage.getTotalElements());
+          orderablesPage);
 
       profiler.stop().log();
       XLOGGER.exit(page);
       return ResponseEntity.ok()
-          .headers(buildLastModifiedHeader(lastUpdated))
+          .headers(buildLastModifiedHeader(lastUpdated, etag))
           .body(page);
     } else {
       profiler.stop().log();
       return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
-          .headers(buildLastModifiedHeader(lastUpdated))
+          .headers(buildLastModifiedHeader(lastUpdated, etag))
           .build();
     }
   }
@@ -297,21 +319,17 @@ public class OrderableController extends BaseController {
 
   /**
    * Get the audit information related to orderable.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = RESOURCE_PATH + "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getOrderableAuditLog(
+  public ResponseEntity<StreamingResponseBody> getOrderableAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -324,7 +342,7 @@ public class OrderableController extends BaseController {
       throw new NotFoundException(OrderableMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(Orderable.class, id, author, changedPropertyName, page, returnJson);
+    return getAuditLogResponse(Orderable.class, id, searchParams, page, returnJson);
   }
 
   private HttpHeaders buildLastModifiedHeader(ZonedDateTime lastUpdated) {
@@ -333,10 +351,31 @@ public class OrderableController extends BaseController {
     return headers;
   }
 
+  private HttpHeaders buildLastModifiedHeader(ZonedDateTime lastUpdated, String etag) {
+    HttpHeaders headers = buildLastModifiedHeader(lastUpdated);
+
+    if (null != etag) {
+      headers.setETag('"' + etag + '"');
+    }
+
+    return headers;
+  }
+
   public boolean wasModifiedSince(ZonedDateTime lastUpdated, ZonedDateTime date) {
     return date == null || lastUpdated == null || lastUpdated.isAfter(date);
   }
 
+  // If-None-Match takes precedence, but it can only be checked if the orderables have an ETag
+  private boolean wasModified(ZonedDateTime lastUpdated, String etag, String ifModifiedDate,
+      String ifNoneMatch) {
+    if (null != etag && null != ifNoneMatch) {
+      return !matchesEtag(ifNoneMatch, etag);
+    }
+
+    return ifModifiedDate == null
+        || wasModifiedSince(lastUpdated, parseHttpDateToZonedDateTime(ifModifiedDate));
+  }
+
   private QueryOrderableSearchParams getQueryOrderableSearchParams(
       OrderableSearchParams searchParams) {
 
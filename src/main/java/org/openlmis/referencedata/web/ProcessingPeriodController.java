@@ -26,9 +26,12 @@ import org.openlmis.referencedata.dto.ResultDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.ProcessingPeriodRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.service.ProcessingPeriodSearchParams;
 import org.openlmis.referencedata.service.ProcessingPeriodService;
+import org.openlmis.referencedata.util.KeysetPageable;
 import org.openlmis.referencedata.util.Message;
+import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.ProcessingPeriodMessageKeys;
 import org.openlmis.referencedata.validate.ProcessingPeriodValidator;
 import org.slf4j.Logger;
@@ -53,6 +56,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @Transactional
@@ -108,7 +112,9 @@ public class ProcessingPeriodController extends BaseController {
   @ResponseBody
   public Page<ProcessingPeriodDto> getAllProcessingPeriods(
       @RequestParam MultiValueMap<String, Object> requestParams,
-      @SortDefault(sort = "startDate") Pageable pageable) {
+      @SortDefault(sort = "startDate") Pageable pageable,
+      @RequestParam(value = CURSOR, required = false) String cursor,
+      @RequestParam(value = WITH_TOTAL, defaultValue = WITH_TOTAL_DEFAULT) boolean withTotal) {
 
     Profiler profiler = new Profiler("SEARCH_PROCESSING_PERIODS");
     profiler.setLogger(LOGGER);
@@ -119,7 +125,9 @@ public class ProcessingPeriodController extends BaseController {
     LOGGER.debug("period search end date {}", params.getEndDate());
 
     profiler.start("SEARCH_FOR_PERIODS");
-    Page<ProcessingPeriod> periods = periodService.searchPeriods(params, pageable);
+    Page<ProcessingPeriod> periods = periodService.searchPeriods(params,
+        KeysetPageable.of(pageable, cursor, withTotal,
+            ProcessingPeriodRepository.KEYSET_ORDER));
 
     profiler.start("EXPORT_PERIODS_TO_DTO");
     Page<ProcessingPeriodDto> dtos = exportToDto(periods, profiler, pageable);
@@ -206,21 +214,17 @@ public class ProcessingPeriodController extends BaseController {
 
   /**
    * Get the audit information related to processing period.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = RESOURCE_PATH + "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getProcessingPeriodAuditLog(
+  public ResponseEntity<StreamingResponseBody> getProcessingPeriodAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -234,7 +238,7 @@ public class ProcessingPeriodController extends BaseController {
       throw new NotFoundException(ProcessingPeriodMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(ProcessingPeriod.class, id, author, changedPropertyName, page,
+    return getAuditLogResponse(ProcessingPeriod.class, id, searchParams, page,
         returnJson);
   }
 
@@ -250,6 +254,7 @@ public class ProcessingPeriodController extends BaseController {
         .stream()
         .map(this::exportToDto)
         .collect(toList());
-    return toPage(dtos, pageable, periods.getTotalElements(), profiler);
+    profiler.start("CREATE_PAGE");
+    return Pagination.getPage(dtos, pageable, periods);
   }
 }
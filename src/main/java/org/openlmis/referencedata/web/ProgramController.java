@@ -19,6 +19,8 @@ import static org.apache.commons.collections4.CollectionUtils.isEmpty;
 import static org.apache.commons.lang3.BooleanUtils.isNotTrue;
 import static org.openlmis.referencedata.web.ProgramController.RESOURCE_PATH;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -31,6 +33,7 @@ import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.ProgramRepository;
 import org.openlmis.referencedata.repository.custom.impl.ProgramRedisRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.messagekeys.ProgramMessageKeys;
 import org.openlmis.referencedata.validate.ProgramValidator;
@@ -54,6 +57,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @RequestMapping(RESOURCE_PATH)
@@ -121,6 +125,8 @@ public class ProgramController extends BaseController {
     Iterable<Program> programs;
     if (!isEmpty(ids) && null != name) {
       programs = programRepository.findByIdInAndNameIgnoreCaseContaining(ids, name);
+    } else if (!isEmpty(ids) && AvailableFeatures.REDIS_CACHING.isActive()) {
+      programs = getProgramsFromCache(ids, profiler);
     } else if (!isEmpty(ids)) {
       programs = programRepository.findAllById(ids);
     } else if (null != name) {
@@ -262,21 +268,17 @@ public class ProgramController extends BaseController {
 
   /**
    * Get the audit information related to program.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getProgramAuditLog(
+  public ResponseEntity<StreamingResponseBody> getProgramAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -287,7 +289,7 @@ public class ProgramController extends BaseController {
       throw new NotFoundException(ProgramMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(Program.class, id, author, changedPropertyName, page,
+    return getAuditLogResponse(Program.class, id, searchParams, page,
         returnJson);
   }
 
@@ -317,6 +319,28 @@ public class ProgramController extends BaseController {
     return program;
   }
 
+  /**
+   * Get programs from cache, the ones that are not cached yet are read from the database and
+   * stored in the cache.
+   */
+  private List<Program> getProgramsFromCache(Set<UUID> programIds, Profiler profiler) {
+    profiler.start("GET_PROGRAMS_FROM_CACHE");
+    List<Program> programs = new ArrayList<>(programRedisRepository.findAllById(programIds));
+
+    Set<UUID> notCached = new HashSet<>(programIds);
+    programs.forEach(program -> notCached.remove(program.getId()));
+
+    if (!notCached.isEmpty()) {
+      profiler.start("GET_PROGRAMS_FROM_DATABASE");
+      List<Program> loaded = programRepository.findAllById(notCached);
+      profiler.start("SAVE_PROGRAMS_IN_CACHE");
+      programRedisRepository.saveAll(loaded);
+      programs.addAll(loaded);
+    }
+
+    return programs;
+  }
+
   /**
    * Delete the program from cache.
    */
@@ -20,16 +20,20 @@ import static org.openlmis.referencedata.domain.RightName.REQUISITION_GROUPS_MAN
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 import org.openlmis.referencedata.domain.RequisitionGroup;
 import org.openlmis.referencedata.domain.SupervisoryNode;
 import org.openlmis.referencedata.dto.RequisitionGroupDto;
+import org.openlmis.referencedata.dto.RequisitionGroupSummaryDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.RequisitionGroupRepository;
 import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.service.RequisitionGroupService;
+import org.openlmis.referencedata.service.RightAssignmentScope;
 import org.openlmis.referencedata.service.RightAssignmentService;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.RequisitionGroupMessageKeys;
@@ -55,6 +59,7 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @Transactional
@@ -66,6 +71,8 @@ public class RequisitionGroupController extends BaseController {
   private static final String ID_PATH = RESOURCE_PATH + "/{id}";
   private static final String AUDIT_LOG_PATH = ID_PATH + "/auditLog";
   private static final String SEARCH_PATH = RESOURCE_PATH + "/search";
+  private static final String SUMMARIES_PATH = RESOURCE_PATH + "/summaries";
+  private static final String MEMBER_FACILITIES = "memberFacilities";
 
   @Autowired
   @Qualifier("requisitionGroupValidator")
@@ -112,7 +119,8 @@ public class RequisitionGroupController extends BaseController {
       requisitionGroupRepository.saveAndFlush(requisitionGroup);
 
       profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-      rightAssignmentService.regenerateRightAssignments();
+      rightAssignmentService.regenerateRightAssignments(
+          RightAssignmentScope.forSupervisoryNodes(getSupervisoryNodeId(requisitionGroup)));
 
       LOGGER.info("Created new requisitionGroup with id: {}", requisitionGroup.getId());
       profiler.start("EXPORT_REQUISITION_GROUP_TO_DTO");
@@ -144,6 +152,30 @@ public class RequisitionGroupController extends BaseController {
     return requisitionGroupDtos;
   }
 
+  /**
+   * Get page of requisition group summaries with the number of their member facilities. Member
+   * facilities are returned only if they are expanded.
+   *
+   * @param expand   names of fields to expand; only memberFacilities is supported.
+   * @param pageable object used to encapsulate the pagination related values: page, size and sort.
+   * @return the page of RequisitionGroupSummaryDtos.
+   */
+  @GetMapping(SUMMARIES_PATH)
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public Page<RequisitionGroupSummaryDto> getRequisitionGroupSummaries(
+      @RequestParam(value = "expand", required = false) Set<String> expand, Pageable pageable) {
+    Profiler profiler = new Profiler("GET_REQUISITION_GROUP_SUMMARIES");
+    profiler.setLogger(LOGGER);
+
+    profiler.start("GET_REQUISITION_GROUP_SUMMARIES");
+    Page<RequisitionGroupSummaryDto> page = requisitionGroupService.getRequisitionGroupSummaries(
+        pageable, null != expand && expand.contains(MEMBER_FACILITIES));
+
+    profiler.stop().log();
+    return page;
+  }
+
   /**
    * Get chosen requisition group.
    *
@@ -196,6 +228,8 @@ public class RequisitionGroupController extends BaseController {
         LOGGER.info("Updating requisitionGroup with id: {}", requisitionGroupId);
       }
 
+      final UUID previousNodeId = getSupervisoryNodeId(requisitionGroupToUpdate);
+
       profiler.start("IMPORT_REQUISITION_GROUP_FROM_DTO");
       requisitionGroupToUpdate.updateFrom(
               RequisitionGroup.newRequisitionGroup(requisitionGroupDto));
@@ -208,7 +242,8 @@ public class RequisitionGroupController extends BaseController {
       requisitionGroupToUpdate = requisitionGroupRepository.saveAndFlush(requisitionGroupToUpdate);
 
       profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-      rightAssignmentService.regenerateRightAssignments();
+      rightAssignmentService.regenerateRightAssignments(RightAssignmentScope
+          .forSupervisoryNodes(previousNodeId, getSupervisoryNodeId(requisitionGroupToUpdate)));
 
       LOGGER.info("Saved requisitionGroup with id: {}", requisitionGroupToUpdate.getId());
       profiler.start("EXPORT_REQUISITION_GROUP_TO_DTO");
@@ -244,11 +279,13 @@ public class RequisitionGroupController extends BaseController {
       throw new NotFoundException(RequisitionGroupMessageKeys.ERROR_NOT_FOUND);
     } else {
       profiler.start("DELETE_REQUISITION_GROUP");
+      final UUID supervisoryNodeId = getSupervisoryNodeId(requisitionGroup);
       requisitionGroupRepository.delete(requisitionGroup);
       requisitionGroupRepository.flush();
 
       profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-      rightAssignmentService.regenerateRightAssignments();
+      rightAssignmentService.regenerateRightAssignments(
+          RightAssignmentScope.forSupervisoryNodes(supervisoryNodeId));
 
       profiler.stop().log();
     }
@@ -256,21 +293,17 @@ public class RequisitionGroupController extends BaseController {
 
   /**
    * Get the audit information related to requisition group.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @GetMapping(AUDIT_LOG_PATH)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getRequisitionGroupAuditLog(
+  public ResponseEntity<StreamingResponseBody> getRequisitionGroupAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -283,7 +316,7 @@ public class RequisitionGroupController extends BaseController {
       throw new NotFoundException(RequisitionGroupMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(RequisitionGroup.class, id, author, changedPropertyName, page,
+    return getAuditLogResponse(RequisitionGroup.class, id, searchParams, page,
         returnJson);
   }
 
@@ -326,4 +359,10 @@ public class RequisitionGroupController extends BaseController {
   private SupervisoryNode getUpdatedSupervisoryNode(RequisitionGroupDto dto) {
     return supervisoryNodeRepository.findById(dto.getSupervisoryNode().getId()).orElse(null);
   }
+
+  private UUID getSupervisoryNodeId(RequisitionGroup requisitionGroup) {
+    return null == requisitionGroup.getSupervisoryNode()
+        ? null
+        : requisitionGroup.getSupervisoryNode().getId();
+  }
 }
@@ -34,6 +34,8 @@ import org.openlmis.referencedata.repository.CountResource;
 import org.openlmis.referencedata.repository.RightRepository;
 import org.openlmis.referencedata.repository.RoleAssignmentRepository;
 import org.openlmis.referencedata.repository.RoleRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
+import org.openlmis.referencedata.service.RightAssignmentScope;
 import org.openlmis.referencedata.service.RightAssignmentService;
 import org.openlmis.referencedata.util.messagekeys.RoleMessageKeys;
 import org.slf4j.Logger;
@@ -53,6 +55,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @NoArgsConstructor
 @Controller
@@ -124,21 +127,17 @@ public class RoleController extends BaseController {
 
   /**
    * Get the audit information related to role.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = "/roles/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getRoleAuditLog(
+  public ResponseEntity<StreamingResponseBody> getRoleAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -151,7 +150,7 @@ public class RoleController extends BaseController {
       throw new NotFoundException(RoleMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(Role.class, id, author, changedPropertyName, page, returnJson);
+    return getAuditLogResponse(Role.class, id, searchParams, page, returnJson);
   }
 
   /**
@@ -208,7 +207,8 @@ public class RoleController extends BaseController {
     roleRepository.saveAndFlush(roleToSave);
 
     profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-    rightAssignmentService.regenerateRightAssignments();
+    rightAssignmentService.regenerateRightAssignments(
+        RightAssignmentScope.forRoles(roleToSave.getId()));
     
     LOGGER.info("Saved role with id: {}", roleToSave.getId());
 
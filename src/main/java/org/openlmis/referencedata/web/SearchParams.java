@@ -46,6 +46,8 @@ public final class SearchParams {
   private static final String SIZE = "size";
   private static final String SORT = "sort";
   private static final String ACCESS_TOKEN = "access_token";
+  private static final String CURSOR = "cursor";
+  private static final String WITH_TOTAL = "withTotal";
 
   private MultiValueMap<String, Object> params;
 
@@ -59,6 +61,8 @@ public final class SearchParams {
       params.remove(SIZE);
       params.remove(SORT);
       params.remove(ACCESS_TOKEN);
+      params.remove(CURSOR);
+      params.remove(WITH_TOTAL);
     } else {
       params = new LinkedMultiValueMap<>();
     }
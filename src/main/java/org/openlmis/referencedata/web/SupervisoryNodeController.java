@@ -18,13 +18,16 @@ package org.openlmis.referencedata.web;
 import static java.util.stream.Collectors.toSet;
 import static org.openlmis.referencedata.domain.RightName.SUPERVISORY_NODES_MANAGE;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import org.openlmis.referencedata.AvailableFeatures;
 import org.openlmis.referencedata.domain.Facility;
-import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.RequisitionGroup;
 import org.openlmis.referencedata.domain.RightName;
 import org.openlmis.referencedata.domain.SupervisoryNode;
@@ -34,13 +37,17 @@ import org.openlmis.referencedata.dto.SupervisoryNodeDto;
 import org.openlmis.referencedata.dto.UserDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.repository.FacilityRepository;
 import org.openlmis.referencedata.repository.ProgramRepository;
 import org.openlmis.referencedata.repository.RequisitionGroupRepository;
 import org.openlmis.referencedata.repository.RightRepository;
 import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
 import org.openlmis.referencedata.repository.UserRepository;
 import org.openlmis.referencedata.repository.custom.impl.SupervisoryNodeDtoRedisRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
+import org.openlmis.referencedata.service.RightAssignmentScope;
 import org.openlmis.referencedata.service.RightAssignmentService;
+import org.openlmis.referencedata.service.SupervisedFacilityIndex;
 import org.openlmis.referencedata.service.SupervisoryNodeBuilder;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
@@ -70,6 +77,7 @@ import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Controller
 @Transactional
@@ -87,6 +95,12 @@ public class SupervisoryNodeController extends BaseController {
 
   @Autowired
   private ProgramRepository programRepository;
+
+  @Autowired
+  private FacilityRepository facilityRepository;
+
+  @Autowired
+  private SupervisedFacilityIndex supervisedFacilityIndex;
   
   @Autowired
   private RightRepository rightRepository;
@@ -228,7 +242,8 @@ public class SupervisoryNodeController extends BaseController {
     }
 
     profiler.start("REGENERATE_RIGHT_ASSIGNMENTS");
-    rightAssignmentService.regenerateRightAssignments();
+    rightAssignmentService.regenerateRightAssignments(
+        RightAssignmentScope.forSupervisoryNodes(supervisoryNodeId));
 
     LOGGER.info("Updated supervisoryNode with id: {}", supervisoryNodeId);
     profiler.start("EXPORT_SUPERVISORY_NODE_TO_DTO");
@@ -316,27 +331,29 @@ public class SupervisoryNodeController extends BaseController {
       Pageable pageable) {
     rightService.checkAdminRight(RightName.SUPERVISORY_NODES_MANAGE);
 
-    SupervisoryNode supervisoryNode = supervisoryNodeRepository.findById(supervisoryNodeId)
-        .orElseThrow(() -> new NotFoundException(SupervisoryNodeMessageKeys.ERROR_NOT_FOUND));
-
-    Program program;
+    if (!supervisoryNodeRepository.existsById(supervisoryNodeId)) {
+      throw new NotFoundException(SupervisoryNodeMessageKeys.ERROR_NOT_FOUND);
+    }
 
-    if (null == programId) {
-      program = null;
-    } else {
-      program = programRepository.findById(programId)
-          .orElseThrow(() -> new NotFoundException(ProgramMessageKeys.ERROR_NOT_FOUND));
+    if (null != programId && !programRepository.existsById(programId)) {
+      throw new NotFoundException(ProgramMessageKeys.ERROR_NOT_FOUND);
     }
 
-    Set<Facility> facilities = supervisoryNode.getAllSupervisedFacilities(program);
-    Page<Facility> facilityPage = Pagination.getPage(facilities, pageable);
-    List<FacilityDto> facilityDtos = facilityPage
-        .getContent()
+    List<UUID> facilityIds = supervisedFacilityIndex
+        .get()
+        .getSupervisedFacilityIds(supervisoryNodeId, programId)
+        .stream()
+        .sorted()
+        .collect(Collectors.toList());
+    Page<UUID> facilityIdPage = Pagination.getPage(facilityIds, pageable);
+    List<FacilityDto> facilityDtos = facilityRepository
+        .findAllById(facilityIdPage.getContent())
         .stream()
+        .sorted(Comparator.comparing(Facility::getId))
         .map(FacilityDto::newInstance)
         .collect(Collectors.toList());
 
-    return Pagination.getPage(facilityDtos, pageable, facilities.size());
+    return Pagination.getPage(facilityDtos, pageable, facilityIds.size());
   }
 
   /**
@@ -361,8 +378,13 @@ public class SupervisoryNodeController extends BaseController {
     profiler.start("GET_SUPERVISORY_NODES_FROM_DB");
     Page<SupervisoryNode> supervisoryNodePage = supervisoryNodeRepository.search(params, pageable);
 
-    profiler.start("TO_DTO");
-    Page<SupervisoryNodeDto> dtoPage = exportToDto(supervisoryNodePage, pageable);
+    Page<SupervisoryNodeDto> dtoPage;
+    if (AvailableFeatures.REDIS_CACHING.isActive()) {
+      dtoPage = getSupervisoryNodeDtosFromCache(supervisoryNodePage, pageable, profiler);
+    } else {
+      profiler.start("TO_DTO");
+      dtoPage = exportToDto(supervisoryNodePage, pageable);
+    }
 
     profiler.stop().log();
     return dtoPage;
@@ -370,21 +392,17 @@ public class SupervisoryNodeController extends BaseController {
 
   /**
    * Get the audit information related to stock supervisory node.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @RequestMapping(value = RESOURCE_PATH + "/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getSupervisoryNodeAuditLog(
+  public ResponseEntity<StreamingResponseBody> getSupervisoryNodeAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -397,7 +415,7 @@ public class SupervisoryNodeController extends BaseController {
       throw new NotFoundException(SupervisoryNodeMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(SupervisoryNode.class, id, author, changedPropertyName, page,
+    return getAuditLogResponse(SupervisoryNode.class, id, searchParams, page,
         returnJson);
   }
 
@@ -430,6 +448,43 @@ public class SupervisoryNodeController extends BaseController {
     return supervisoryNodeDto;
   }
 
+  /**
+   * Get the page of supervisory nodes from cache with a single call, the ones that are not cached
+   * yet are exported to DTOs and stored in the cache.
+   */
+  private Page<SupervisoryNodeDto> getSupervisoryNodeDtosFromCache(
+      Page<SupervisoryNode> supervisoryNodePage, Pageable pageable, Profiler profiler) {
+    profiler.start("GET_SUPERVISORY_NODES_FROM_CACHE");
+    List<UUID> ids = supervisoryNodePage
+        .getContent()
+        .stream()
+        .map(SupervisoryNode::getId)
+        .collect(Collectors.toList());
+    Map<UUID, SupervisoryNodeDto> cached = supervisoryNodeDtoRedisRepository
+        .findAllById(ids)
+        .stream()
+        .collect(Collectors.toMap(SupervisoryNodeDto::getId, Function.identity()));
+
+    profiler.start("TO_DTO");
+    List<SupervisoryNodeDto> content = new ArrayList<>();
+    List<SupervisoryNodeDto> notCached = new ArrayList<>();
+    for (SupervisoryNode supervisoryNode : supervisoryNodePage.getContent()) {
+      SupervisoryNodeDto supervisoryNodeDto = cached.get(supervisoryNode.getId());
+
+      if (null == supervisoryNodeDto) {
+        supervisoryNodeDto = exportToDto(supervisoryNode);
+        notCached.add(supervisoryNodeDto);
+      }
+
+      content.add(supervisoryNodeDto);
+    }
+
+    profiler.start("SAVE_SUPERVISORY_NODES_IN_CACHE");
+    supervisoryNodeDtoRedisRepository.saveAll(notCached);
+
+    return Pagination.getPage(content, pageable, supervisoryNodePage.getTotalElements());
+  }
+
   /**
    * Delete the supervisory node from cache.
    */
@@ -26,6 +26,8 @@ import org.openlmis.referencedata.dto.SupplyLineDto;
 import org.openlmis.referencedata.dto.SupplyLineObjectReferenceDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.repository.SupplyLineRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
+import org.openlmis.referencedata.util.KeysetPageable;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.SupplyLineMessageKeys;
 import org.slf4j.Logger;
@@ -49,6 +51,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @RestController
 @Transactional
@@ -93,7 +96,9 @@ public class SupplyLineController extends BaseController {
   @ResponseStatus(HttpStatus.OK)
   public Page<SupplyLineObjectReferenceDto> search(
       @RequestParam MultiValueMap<String, Object> queryMap,
-      Pageable pageable) {
+      Pageable pageable,
+      @RequestParam(value = CURSOR, required = false) String cursor,
+      @RequestParam(value = WITH_TOTAL, defaultValue = WITH_TOTAL_DEFAULT) boolean withTotal) {
     Profiler profiler = new Profiler("SEARCH_SUPPLY_LINES");
     profiler.setLogger(LOGGER);
 
@@ -103,7 +108,7 @@ public class SupplyLineController extends BaseController {
     profiler.start("REPOSITORY_SEARCH");
     Page<SupplyLine> result = supplyLineRepository.search(
         params.getProgramId(), params.getSupervisoryNodeId(), params.getSupplyingFacilityIds(),
-        pageable);
+        KeysetPageable.of(pageable, cursor, withTotal, SupplyLineRepository.KEYSET_ORDER));
 
     profiler.start("BUILD_DTO_WITH_EXPAND");
     Page<SupplyLineObjectReferenceDto> page =
@@ -143,20 +148,16 @@ public class SupplyLineController extends BaseController {
 
   /**
    * Get the audit information related to stock supply line.
-   *  @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *               If null or empty, changes associated with any and all properties are returned.
+   *  @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page A Pageable object that allows client to optionally add "page" (page number)
    *             and "size" (page size) query parameters to the request.
    */
   @GetMapping("{id}/auditLog")
   @ResponseStatus(HttpStatus.OK)
-  public ResponseEntity<String> getSupplyLineAuditLog(
+  public ResponseEntity<StreamingResponseBody> getSupplyLineAuditLog(
       @PathVariable UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -169,7 +170,7 @@ public class SupplyLineController extends BaseController {
       throw new NotFoundException(SupplyLineMessageKeys.ERROR_NOT_FOUND);
     }
 
-    return getAuditLogResponse(SupplyLine.class, id, author, changedPropertyName, page,
+    return getAuditLogResponse(SupplyLine.class, id, searchParams, page,
         returnJson);
   }
 
@@ -235,6 +236,6 @@ public class SupplyLineController extends BaseController {
     List<SupplyLineObjectReferenceDto> list = page.getContent().stream()
         .map(supplyLine -> export(supplyLine, expand))
         .collect(Collectors.toList());
-    return Pagination.getPage(list, pageable, page.getTotalElements());
+    return Pagination.getPage(list, pageable, page);
   }
 }
@@ -32,6 +32,7 @@ import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.SystemNotificationRepository;
 import org.openlmis.referencedata.repository.UserRepository;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.SystemNotificationMessageKeys;
@@ -58,6 +59,7 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @Transactional
 @RestController
@@ -205,20 +207,15 @@ public class SystemNotificationController extends BaseController {
   /**
    * Get the audit information related to system notifications.
    *
-   * @param author The author of the changes which should be returned.
-   *               If null or empty, changes are returned regardless of author.
-   * @param changedPropertyName The name of the property about which changes should be returned.
-   *                            If null or empty, changes associated with any and all properties
-   *                            are returned.
+   * @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param pageable A Pageable object that allows client to optionally add "page" (page number)
    *                 and "size" (page size) query parameters to the request.
    */
   @GetMapping(AUDIT_LOG_URL)
-  public ResponseEntity<String> getAuditLog(
+  public ResponseEntity<StreamingResponseBody> getAuditLog(
       @PathVariable("id") UUID id,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -231,8 +228,8 @@ public class SystemNotificationController extends BaseController {
     findSystemNotification(id, profiler);
 
     profiler.start("GET_AUDIT_LOG");
-    ResponseEntity<String> response = getAuditLogResponse(
-        SystemNotification.class, id, author, changedPropertyName, pageable, returnJson
+    ResponseEntity<StreamingResponseBody> response = getAuditLogResponse(
+        SystemNotification.class, id, searchParams, pageable, returnJson
     );
 
     profiler.stop().log();
@@ -0,0 +1,79 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web;
+
+import static org.openlmis.referencedata.util.messagekeys.UploadJobMessageKeys.ERROR_NOT_FOUND;
+
+import java.util.UUID;
+import org.openlmis.referencedata.domain.UploadJob;
+import org.openlmis.referencedata.dto.UploadJobDto;
+import org.openlmis.referencedata.exception.NotFoundException;
+import org.openlmis.referencedata.repository.UploadJobRepository;
+import org.openlmis.referencedata.service.UploadJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Controller;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@Controller
+@Transactional
+public class UploadJobController extends BaseController {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(UploadJobController.class);
+
+  public static final String RESOURCE_PATH = "/jobs";
+
+  @Autowired
+  private UploadJobRepository uploadJobRepository;
+
+  @Autowired
+  private UploadJobService uploadJobService;
+
+  /**
+   * Retrieves progress of an upload job. The user needs the right required to upload the resource
+   * of the job.
+   *
+   * @param id id of the upload job
+   * @return the upload job
+   */
+  @GetMapping(RESOURCE_PATH + "/{id}")
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public UploadJobDto getUploadJob(@PathVariable("id") UUID id) {
+    Profiler profiler = new Profiler("GET_UPLOAD_JOB");
+    profiler.setLogger(LOGGER);
+
+    profiler.start("FIND_UPLOAD_JOB");
+    UploadJob job = uploadJobRepository
+        .findById(id)
+        .orElseThrow(() -> new NotFoundException(ERROR_NOT_FOUND));
+
+    checkAdminRight(uploadJobService.getResource(job.getResourceName()).getRightName(), profiler);
+
+    profiler.start("EXPORT_TO_DTO");
+    UploadJobDto dto = UploadJobDto.newInstance(job);
+
+    profiler.stop().log();
+    return dto;
+  }
+}
@@ -16,14 +16,18 @@
 package org.openlmis.referencedata.web;
 
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.validation.Valid;
 import lombok.NoArgsConstructor;
@@ -39,25 +43,32 @@ import org.openlmis.referencedata.domain.RoleAssignment;
 import org.openlmis.referencedata.domain.SupervisionRoleAssignment;
 import org.openlmis.referencedata.domain.SupervisoryNode;
 import org.openlmis.referencedata.domain.User;
+import org.openlmis.referencedata.dto.CompactPermissionStringsDto;
 import org.openlmis.referencedata.dto.DetailedRoleAssignmentDto;
 import org.openlmis.referencedata.dto.FacilityDto;
 import org.openlmis.referencedata.dto.NamedResource;
+import org.openlmis.referencedata.dto.PermissionStringsDeltaDto;
 import org.openlmis.referencedata.dto.ProgramDto;
 import org.openlmis.referencedata.dto.ResultDto;
+import org.openlmis.referencedata.dto.RightCheckDto;
 import org.openlmis.referencedata.dto.RoleAssignmentDto;
 import org.openlmis.referencedata.dto.UserDto;
 import org.openlmis.referencedata.exception.NotFoundException;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.FacilityRepository;
 import org.openlmis.referencedata.repository.ProgramRepository;
-import org.openlmis.referencedata.repository.RightAssignmentRepository;
 import org.openlmis.referencedata.repository.RightRepository;
 import org.openlmis.referencedata.repository.RoleAssignmentRepository;
 import org.openlmis.referencedata.repository.RoleRepository;
 import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
 import org.openlmis.referencedata.repository.UserRepository;
 import org.openlmis.referencedata.repository.UserSearchParams;
+import org.openlmis.referencedata.service.AuditLogSearchParams;
+import org.openlmis.referencedata.service.UserPermissionCache;
+import org.openlmis.referencedata.service.UserPermissionVersionService;
+import org.openlmis.referencedata.service.UserPermissions;
 import org.openlmis.referencedata.service.UserService;
+import org.openlmis.referencedata.util.KeysetPageable;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.Pagination;
 import org.openlmis.referencedata.util.messagekeys.FacilityMessageKeys;
@@ -75,6 +86,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -85,11 +97,13 @@ import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.InitBinder;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 @NoArgsConstructor
 @SuppressWarnings({"PMD.AvoidDuplicateLiterals", "PMD.TooManyMethods"})
@@ -98,11 +112,14 @@ import org.springframework.web.bind.annotation.ResponseStatus;
 public class UserController extends BaseController {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(UserController.class);
+  private static final String COMPACT_ETAG_SUFFIX = "-compact";
   private static final XLogger XLOGGER = XLoggerFactory.getXLogger(UserController.class);
   private static final String USER_ID = "userId";
 
   private static final String PROFILER_TO_DTO = "TO_DTO";
 
+  static final int MAX_RIGHT_CHECKS = 1000;
+
   @Autowired
   private UserService userService;
 
@@ -131,7 +148,10 @@ public class UserController extends BaseController {
   private UserValidator userValidator;
   
   @Autowired
-  private RightAssignmentRepository rightAssignmentRepository;
+  private UserPermissionCache userPermissionCache;
+
+  @Autowired
+  private UserPermissionVersionService userPermissionVersionService;
   
   @Autowired
   private RoleAssignmentRepository roleAssignmentRepository;
@@ -376,7 +396,9 @@ public class UserController extends BaseController {
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
   public Page<UserDto> searchUsers(
-      @RequestBody UserSearchParams queryParams, Pageable pageable) {
+      @RequestBody UserSearchParams queryParams, Pageable pageable,
+      @RequestParam(value = CURSOR, required = false) String cursor,
+      @RequestParam(value = WITH_TOTAL, defaultValue = WITH_TOTAL_DEFAULT) boolean withTotal) {
 
     Profiler profiler = new Profiler("POST_USER_SEARCH");
     profiler.setLogger(LOGGER);
@@ -384,7 +406,8 @@ public class UserController extends BaseController {
     checkAdminRight(RightName.USERS_MANAGE_RIGHT, profiler);
 
     profiler.start("SEARCH_USERS");
-    Page<User> result = userService.searchUsers(queryParams, pageable);
+    Page<User> result = userService.searchUsers(queryParams,
+        KeysetPageable.of(pageable, cursor, withTotal, UserRepository.KEYSET_ORDER));
 
     profiler.start("EXPORT_TO_DTOS");
     Page<UserDto> userDtos = exportUsersToDtos(result, pageable);
@@ -443,8 +466,8 @@ public class UserController extends BaseController {
         }
 
         profiler.start("CHECK_HAS_RIGHT_BY_USER_RIGHT_FACILITY_PROGRAM");
-        hasRight = rightAssignmentRepository.existsByUserIdAndAndRightNameAndFacilityIdAndProgramId(
-            userId, right.getName(), facilityId, programId);
+        hasRight = userPermissionCache.get(userId)
+            .hasRight(right.getName(), facilityId, programId);
 
       } else {
         throw new ValidationMessageException(UserMessageKeys.ERROR_PROGRAM_WITHOUT_FACILITY);
@@ -459,12 +482,11 @@ public class UserController extends BaseController {
       }
 
       profiler.start("CHECK_HAS_RIGHT_BY_USER_RIGHT_WAREHOUSE");
-      hasRight = rightAssignmentRepository.existsByUserIdAndAndRightNameAndFacilityId(
-          userId, right.getName(), warehouseId);
+      hasRight = userPermissionCache.get(userId).hasRight(right.getName(), warehouseId);
 
     } else {
       profiler.start("CHECK_HAS_RIGHT_BY_USER_RIGHT");
-      hasRight = rightAssignmentRepository.existsByUserIdAndRightName(userId, right.getName());
+      hasRight = userPermissionCache.get(userId).hasRight(right.getName());
     }
 
     profiler.stop().log();
@@ -473,6 +495,91 @@ public class UserController extends BaseController {
     return new ResultDto<>(hasRight);
   }
 
+  /**
+   * Check in one call if user has rights with certain criteria. Each check accepts the same
+   * criteria as the single right check. Rights, programs and facilities referenced by all checks
+   * are validated with one query per type and the checks are evaluated against the cached
+   * permissions of the user. At most {@link #MAX_RIGHT_CHECKS} checks are accepted and none of
+   * them may be null.
+   *
+   * @param userId id of user to check for rights
+   * @param checks rights to check with their program, facility and warehouse
+   * @return the given checks, in the same order, with the result set
+   */
+  @RequestMapping(value = "/users/{userId}/hasRight", method = RequestMethod.POST)
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public List<RightCheckDto> checkIfUserHasRights(@PathVariable(USER_ID) UUID userId,
+                                                  @RequestBody List<RightCheckDto> checks) {
+    Profiler profiler = new Profiler("GET_USER_HAS_RIGHTS");
+    profiler.setLogger(LOGGER);
+
+    checkAdminRight(RightName.USERS_MANAGE_RIGHT, true, userId, profiler);
+
+    checkUserExists(userId, profiler);
+
+    if (checks.size() > MAX_RIGHT_CHECKS) {
+      throw new ValidationMessageException(
+          new Message(UserMessageKeys.ERROR_RIGHT_CHECKS_TOO_MANY, MAX_RIGHT_CHECKS));
+    }
+
+    if (checks.contains(null)) {
+      throw new ValidationMessageException(UserMessageKeys.ERROR_RIGHT_CHECKS_NULL);
+    }
+
+    profiler.start("GET_RIGHTS");
+    Set<UUID> rightIds = checks.stream().map(RightCheckDto::getRightId).collect(toSet());
+    Map<UUID, String> rightNames = new HashMap<>();
+    if (!rightIds.contains(null)) {
+      rightRepository.findAllById(rightIds)
+          .forEach(right -> rightNames.put(right.getId(), right.getName()));
+    }
+
+    Set<UUID> programIds = new HashSet<>();
+    Set<UUID> facilityIds = new HashSet<>();
+    for (RightCheckDto check : checks) {
+      if (!rightNames.containsKey(check.getRightId())) {
+        throw new ValidationMessageException(
+            new Message(RightMessageKeys.ERROR_NOT_FOUND_WITH_ID, check.getRightId()));
+      }
+
+      if (check.getProgramId() != null) {
+        if (check.getFacilityId() == null) {
+          throw new ValidationMessageException(UserMessageKeys.ERROR_PROGRAM_WITHOUT_FACILITY);
+        }
+        programIds.add(check.getProgramId());
+        facilityIds.add(check.getFacilityId());
+      } else if (check.getWarehouseId() != null) {
+        facilityIds.add(check.getWarehouseId());
+      }
+    }
+
+    profiler.start("CHECK_PROGRAMS_EXIST");
+    checkAllExist(programIds, programRepository::findExistingIds,
+        ProgramMessageKeys.ERROR_NOT_FOUND_WITH_ID);
+
+    profiler.start("CHECK_FACILITIES_EXIST");
+    checkAllExist(facilityIds, facilityRepository::findExistingIds,
+        FacilityMessageKeys.ERROR_NOT_FOUND_WITH_ID);
+
+    profiler.start("CHECK_HAS_RIGHTS");
+    UserPermissions permissions = userPermissionCache.get(userId);
+    for (RightCheckDto check : checks) {
+      String rightName = rightNames.get(check.getRightId());
+      if (check.getProgramId() != null) {
+        check.setResult(
+            permissions.hasRight(rightName, check.getFacilityId(), check.getProgramId()));
+      } else if (check.getWarehouseId() != null) {
+        check.setResult(permissions.hasRight(rightName, check.getWarehouseId()));
+      } else {
+        check.setResult(permissions.hasRight(rightName));
+      }
+    }
+
+    profiler.stop().log();
+    return checks;
+  }
+
   /**
    * Get the programs at a user's home facility or programs that the user supervises.
    *
@@ -601,11 +708,8 @@ public class UserController extends BaseController {
   /**
    * Get the audit information related to users.
    *
-   * @param author  The author of the changes which should be returned. If null or empty, changes
-   *               are returned regardless of author.
-   * @param changedPropertyName  The name of the property about which changes should be returned.
-   *                             If null or empty, changes associated with any and all properties
-   *                             are returned.
+   * @param searchParams The author, changed property, date range and cursor of
+   *                     the changes which should be returned.
    * @param page  A Pageable object that allows client to optionally add "page" (page number) and
    *              "size" (page size) query parameters to the request.
    * @return the list of all matching audit logs as string
@@ -613,11 +717,9 @@ public class UserController extends BaseController {
   @RequestMapping(value = "/users/{id}/auditLog", method = RequestMethod.GET)
   @ResponseStatus(HttpStatus.OK)
   @ResponseBody
-  public ResponseEntity<String> getUsersAuditLog(
+  public ResponseEntity<StreamingResponseBody> getUsersAuditLog(
       @PathVariable("id") UUID userId,
-      @RequestParam(name = "author", required = false, defaultValue = "") String author,
-      @RequestParam(name = "changedPropertyName", required = false, defaultValue = "")
-          String changedPropertyName,
+      AuditLogSearchParams searchParams,
       //Because JSON is all we formally support, returnJSON is excluded from our JavaDoc
       @RequestParam(name = "returnJSON", required = false, defaultValue = "true")
           boolean returnJson,
@@ -630,11 +732,9 @@ public class UserController extends BaseController {
     checkUserExists(userId, profiler);
 
     profiler.start("GET_AUDIT_LOG");
-    ResponseEntity<String> responseEntity = getAuditLogResponse(User.class,
+    ResponseEntity<StreamingResponseBody> responseEntity = getAuditLogResponse(User.class,
         userId,
-        author,
-        changedPropertyName,
-        page,
+        searchParams, page,
         returnJson);
 
     profiler.stop().log();
@@ -642,13 +742,17 @@ public class UserController extends BaseController {
   }
   
   /**
-   * Get permissions (in string format) of the specified user.
+   * Get permissions (in string format) of the specified user. The ETag is the digest of the
+   * permission strings, so a request with a matching If-None-Match header is answered with 304
+   * from the cached permissions.
    *
-   * @param userId UUID of the user to retrieve.
+   * @param userId      UUID of the user to retrieve.
+   * @param ifNoneMatch ETag of the permission strings the client already has.
    * @return a set of user permission strings.
    */
   @RequestMapping(value = "/users/{id}/permissionStrings", method = RequestMethod.GET)
-  public ResponseEntity<Set<String>> getUserPermissionStrings(@PathVariable("id") UUID userId) {
+  public ResponseEntity<Set<String>> getUserPermissionStrings(@PathVariable("id") UUID userId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
     XLOGGER.entry(userId);
     Profiler profiler = new Profiler("GET_USER_PERM_STRINGS");
     profiler.setLogger(LOGGER);
@@ -656,17 +760,102 @@ public class UserController extends BaseController {
     checkAdminRight(RightName.USERS_MANAGE_RIGHT, true, userId, profiler);
     checkUserExists(userId, profiler);
 
-    profiler.start("GET_PERM_STRINGS_FROM_RIGHT_ASSIGNMENTS");
-    Set<String> permissionStrings = rightAssignmentRepository.findByUser(userId);
+    profiler.start("GET_PERM_STRINGS_FROM_USER_PERMISSIONS");
+    UserPermissions permissions = userPermissionCache.get(userId);
+
+    if (matchesEtag(ifNoneMatch, permissions.getDigest())) {
+      profiler.stop().log();
+      XLOGGER.exit(HttpStatus.NOT_MODIFIED);
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+          .eTag(permissions.getDigest())
+          .build();
+    }
+
+    Set<String> permissionStrings = permissions.getPermissionStrings();
 
     profiler.stop().log();
     XLOGGER.exit(permissionStrings);
     return ResponseEntity
         .ok()
-        .eTag(Integer.toString(permissionStrings.hashCode()))
+        .eTag(permissions.getDigest())
         .body(permissionStrings);
   }
 
+  /**
+   * Get permissions of the specified user in the dictionary-encoded compact format. Supports
+   * conditional requests in the same way as {@link #getUserPermissionStrings(UUID, String)}.
+   *
+   * @param userId      UUID of the user to retrieve.
+   * @param ifNoneMatch ETag of the compact permissions the client already has.
+   * @return compact user permissions with their version and digest.
+   */
+  @RequestMapping(value = "/users/{id}/permissionStrings/compact", method = RequestMethod.GET)
+  public ResponseEntity<CompactPermissionStringsDto> getUserCompactPermissionStrings(
+      @PathVariable("id") UUID userId,
+      @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+    Profiler profiler = new Profiler("GET_USER_COMPACT_PERM_STRINGS");
+    profiler.setLogger(LOGGER);
+
+    checkAdminRight(RightName.USERS_MANAGE_RIGHT, true, userId, profiler);
+    checkUserExists(userId, profiler);
+
+    profiler.start("GET_PERM_STRINGS_FROM_USER_PERMISSIONS");
+    UserPermissions permissions = userPermissionCache.get(userId);
+    String etag = permissions.getDigest() + COMPACT_ETAG_SUFFIX;
+
+    if (matchesEtag(ifNoneMatch, etag)) {
+      profiler.stop().log();
+      return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+    }
+
+    profiler.start("ENCODE_PERM_STRINGS");
+    CompactPermissionStringsDto compact = CompactPermissionStringsDto.of(
+        permissions.getVersion(), permissions.getDigest(), permissions.getPermissionStrings());
+
+    profiler.stop().log();
+    return ResponseEntity.ok().eTag(etag).body(compact);
+  }
+
+  /**
+   * Get permission strings of the specified user added and removed since the given version. If
+   * the changes since that version are not known, all permission strings are returned as added
+   * and the response is marked as complete.
+   *
+   * @param userId       UUID of the user to retrieve.
+   * @param sinceVersion version of the permission strings the client already has.
+   * @return added and removed permission strings with the current version and digest.
+   */
+  @RequestMapping(value = "/users/{id}/permissionStrings/delta", method = RequestMethod.GET)
+  @ResponseStatus(HttpStatus.OK)
+  @ResponseBody
+  public PermissionStringsDeltaDto getUserPermissionStringsDelta(
+      @PathVariable("id") UUID userId,
+      @RequestParam(value = "sinceVersion") long sinceVersion) {
+    Profiler profiler = new Profiler("GET_USER_PERM_STRINGS_DELTA");
+    profiler.setLogger(LOGGER);
+
+    checkAdminRight(RightName.USERS_MANAGE_RIGHT, true, userId, profiler);
+    checkUserExists(userId, profiler);
+
+    profiler.start("GET_PERM_STRINGS_DELTA");
+    PermissionStringsDeltaDto delta = userPermissionVersionService
+        .getDelta(userId, sinceVersion)
+        .map(changes -> new PermissionStringsDeltaDto(sinceVersion, changes.getVersion(),
+            changes.getDigest(), false, changes.getAdded(), changes.getRemoved()))
+        .orElse(null);
+
+    if (null == delta) {
+      profiler.start("GET_PERM_STRINGS_FROM_USER_PERMISSIONS");
+      UserPermissions permissions = userPermissionCache.get(userId);
+      delta = new PermissionStringsDeltaDto(sinceVersion, permissions.getVersion(),
+          permissions.getDigest(), true, permissions.getPermissionStrings(),
+          Collections.emptySet());
+    }
+
+    profiler.stop().log();
+    return delta;
+  }
+
   /**
    * Get all the facilities that the user has supervision rights (home facility and supervised 
    * facilities).
@@ -740,7 +929,11 @@ public class UserController extends BaseController {
 
           SupervisoryNode supervisoryNode = supervisoryNodeRepository.findById(
               supervisoryNodeId).orElse(null);
-          roleAssignment = new SupervisionRoleAssignment(role, user, program, supervisoryNode);
+          Set<UUID> supervisedFacilityIds = null == supervisoryNode
+              ? Collections.emptySet()
+              : supervisoryNodeRepository.findSupervisedFacilityIds(supervisoryNodeId, programId);
+          roleAssignment = new SupervisionRoleAssignment(role, user, program, supervisoryNode,
+              supervisedFacilityIds);
 
         } else {
           roleAssignment = new SupervisionRoleAssignment(role, user, program);
@@ -804,7 +997,7 @@ public class UserController extends BaseController {
     List<UserDto> userDtos = users.getContent().stream()
         .map(this::exportUserToDto)
         .collect(Collectors.toList());
-    return Pagination.getPage(userDtos, pageable, users.getTotalElements());
+    return Pagination.getPage(userDtos, pageable, users);
   }
   
   private void addRoleAssignmentIdsToUserDto(UserDto userDto) {
@@ -838,6 +1031,21 @@ public class UserController extends BaseController {
     return dtos;
   }
 
+  private void checkAllExist(Set<UUID> ids, Function<Set<UUID>, Set<UUID>> findExisting,
+      String notFoundMessageKey) {
+    if (ids.isEmpty()) {
+      return;
+    }
+
+    Set<UUID> existing = findExisting.apply(ids);
+    ids.stream()
+        .filter(id -> !existing.contains(id))
+        .findFirst()
+        .ifPresent(id -> {
+          throw new ValidationMessageException(new Message(notFoundMessageKey, id));
+        });
+  }
+
   private void checkUserExists(UUID userId, Profiler profiler) {
     profiler.start("CHECK_USER_EXISTS");
     if (!userRepository.existsById(userId)) {
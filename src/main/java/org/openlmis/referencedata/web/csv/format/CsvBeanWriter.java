@@ -21,6 +21,7 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.Iterator;
 import java.util.List;
 import lombok.Getter;
 import org.openlmis.referencedata.dto.BaseDto;
@@ -65,7 +66,7 @@ class CsvBeanWriter<T extends BaseDto> {
     profiler.stop().log();
   }
 
-  void writeWithCellProcessors(List<? extends BaseDto> dtos) throws IOException {
+  void writeWithCellProcessors(Iterator<? extends BaseDto> dtos) throws IOException {
     Profiler profiler = new Profiler("CSV_WRITE_CELLS");
     profiler.setLogger(LOGGER);
 
@@ -73,8 +74,8 @@ class CsvBeanWriter<T extends BaseDto> {
     csvDozerBeanWriter.writeHeader(headers);
 
     profiler.start("WRITE_LINE_ITEMS");
-    for (Object dto : dtos) {
-      csvDozerBeanWriter.write(dto, processors);
+    while (dtos.hasNext()) {
+      csvDozerBeanWriter.write(dtos.next(), processors);
     }
 
     profiler.start("CLOSE_STREAM");
@@ -19,7 +19,7 @@ import static org.openlmis.referencedata.util.messagekeys.CsvExportMessageKeys.E
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.List;
+import java.util.stream.Stream;
 import lombok.NoArgsConstructor;
 import org.openlmis.referencedata.dto.BaseDto;
 import org.openlmis.referencedata.exception.ValidationMessageException;
@@ -43,14 +43,16 @@ public class CsvFormatter {
   private static final Logger LOGGER = LoggerFactory.getLogger(CsvFormatter.class);
 
   /**
-   * Parses data from input stream into the corresponding model.
+   * Writes the given records to the output stream one by one, so that the records do not have to
+   * be loaded into memory at once.
    *
-   * @param outputStream input stream of csv file
-   * @param modelClass   java model to which the csv row will be mapped
+   * @param outputStream output stream of csv file
+   * @param modelClass   java model from which the csv row will be mapped
+   * @param dtos         records to write
    */
   public <T extends BaseDto> void process(OutputStream outputStream,
                                           ModelClass<T> modelClass,
-                                          List<T> dtos) throws IOException {
+                                          Stream<T> dtos) throws IOException {
 
     Profiler profiler = new Profiler("CSV_PROCESS");
     profiler.setLogger(LOGGER);
@@ -60,7 +62,7 @@ public class CsvFormatter {
 
     profiler.start("WRITE_CSV");
     try {
-      csvBeanWriter.writeWithCellProcessors(dtos);
+      csvBeanWriter.writeWithCellProcessors(dtos.iterator());
     } catch (SuperCsvException err) {
       Message message = getCsvRowErrorMessage(err);
       throw new ValidationMessageException(err, message);
@@ -15,16 +15,31 @@
 
 package org.openlmis.referencedata.web.csv.parser;
 
+import static org.openlmis.referencedata.util.messagekeys.CsvUploadMessageKeys.ERROR_UPLOAD_RECORDS_INVALID;
 import static org.openlmis.referencedata.util.messagekeys.CsvUploadMessageKeys.ERROR_UPLOAD_RECORD_INVALID;
 
 import com.google.common.collect.Lists;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntConsumer;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
 import lombok.NoArgsConstructor;
 import org.openlmis.referencedata.domain.BaseEntity;
 import org.openlmis.referencedata.dto.BaseDto;
 import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.i18n.MessageService;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.validate.CsvHeaderValidator;
 import org.openlmis.referencedata.web.csv.model.ModelClass;
@@ -33,16 +48,24 @@ import org.openlmis.referencedata.web.csv.recordhandler.RecordWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.profiler.Profiler;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
 import org.supercsv.exception.SuperCsvException;
 import org.supercsv.util.CsvContext;
 
 /**
  * This class has logic to invoke corresponding respective record handler to parse data from input
  * stream into the corresponding model. To speed up the process for huge files the stream is divided
- * into smaller chunks. The chunk size is set by {@code csvParser.chunkSize} property. Each chunk is
- * executed asynchronously in the thread pool with size set by {@code csvParser.poolSize}.
+ * into smaller chunks. The chunk size is set by {@code csvParser.chunkSize} property. Chunks are
+ * read on the calling thread and processed asynchronously in the thread pool with size set by
+ * {@code csvParser.poolSize}. Processed chunks are written on the calling thread in the order they
+ * were read. At most {@code csvParser.queueSize} chunks can be read but not yet written, so reading
+ * waits for the writer if processing or writing falls behind.
  */
 @Component
 @NoArgsConstructor
@@ -53,8 +76,36 @@ public class CsvParser {
   @Value("${csvParser.chunkSize}")
   private int chunkSize;
 
+  @Value("${csvParser.poolSize}")
+  private int poolSize;
+
+  @Value("${csvParser.queueSize}")
+  private int queueSize;
+
+  @Autowired
+  private PlatformTransactionManager transactionManager;
+
+  @Autowired
+  private MessageService messageService;
+
+  @PersistenceContext
+  private EntityManager entityManager;
+
+  private ExecutorService executor;
+
+  @PostConstruct
+  public void init() {
+    executor = Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("csv-parser-"));
+  }
+
+  @PreDestroy
+  public void destroy() {
+    executor.shutdownNow();
+  }
+
   /**
-   * Parses data from input stream into the corresponding model.
+   * Parses data from input stream into the corresponding model. Each chunk is written in its own
+   * transaction, so chunks written before an error are kept.
    *
    * @return number of uploaded records
    */
@@ -64,6 +115,40 @@ public class CsvParser {
                                                              RecordProcessor<D, E> processor,
                                                              RecordWriter<E> writer)
       throws IOException {
+    return parse(inputStream, modelClass, headerValidator, processor, writer, false);
+  }
+
+  /**
+   * Parses data from input stream into the corresponding model. If {@code allOrNothing} is set,
+   * all chunks are written in a single transaction that is rolled back on any error.
+   *
+   * @return number of uploaded records
+   */
+  public <D extends BaseDto, E extends BaseEntity> int parse(InputStream inputStream,
+                                                             ModelClass<D> modelClass,
+                                                             CsvHeaderValidator headerValidator,
+                                                             RecordProcessor<D, E> processor,
+                                                             RecordWriter<E> writer,
+                                                             boolean allOrNothing)
+      throws IOException {
+    return parse(inputStream, modelClass, headerValidator, processor, writer, allOrNothing,
+        rows -> { });
+  }
+
+  /**
+   * Parses data from input stream into the corresponding model. After each chunk is written, the
+   * given listener is notified with the number of records written so far.
+   *
+   * @return number of uploaded records
+   */
+  public <D extends BaseDto, E extends BaseEntity> int parse(InputStream inputStream,
+                                                             ModelClass<D> modelClass,
+                                                             CsvHeaderValidator headerValidator,
+                                                             RecordProcessor<D, E> processor,
+                                                             RecordWriter<E> writer,
+                                                             boolean allOrNothing,
+                                                             IntConsumer progressListener)
+      throws IOException {
     Profiler profiler = new Profiler("PARSE_CSV_FILE");
     profiler.setLogger(LOGGER);
 
@@ -76,20 +161,60 @@ public class CsvParser {
     csvBeanReader.validateHeaders();
 
     profiler.start("PROCESS_CSV");
-    while (true) {
-      List<D> imported = doRead(csvBeanReader);
+    if (allOrNothing) {
+      TransactionStatus transaction = transactionManager
+          .getTransaction(new DefaultTransactionDefinition());
 
-      if (imported.isEmpty()) {
-        break;
+      try {
+        doProcess(csvBeanReader, processor, writer, true, progressListener);
+      } catch (IOException | RuntimeException | Error ex) {
+        transactionManager.rollback(transaction);
+        throw ex;
       }
 
-      doWrite(processor, writer, imported);
+      transactionManager.commit(transaction);
+    } else {
+      doProcess(csvBeanReader, processor, writer, false, progressListener);
     }
 
     profiler.stop().log();
     return csvBeanReader.getRowNumber() - 1;
   }
 
+  private <D extends BaseDto, E extends BaseEntity> void doProcess(CsvBeanReader<D> csvBeanReader,
+                                                                   RecordProcessor<D, E> processor,
+                                                                   RecordWriter<E> writer,
+                                                                   boolean transactional,
+                                                                   IntConsumer progressListener)
+      throws IOException {
+    Deque<Chunk<E>> pending = new ArrayDeque<>();
+
+    try {
+      while (true) {
+        List<D> imported = doRead(csvBeanReader);
+
+        if (imported.isEmpty()) {
+          break;
+        }
+
+        int lastRow = csvBeanReader.getRowNumber() - 1;
+        int firstRow = lastRow - imported.size() + 1;
+        Future<List<E>> entities = executor.submit(() -> processor.process(imported));
+        pending.add(new Chunk<>(firstRow, lastRow, entities));
+
+        if (pending.size() >= queueSize) {
+          doWrite(writer, pending.poll(), transactional, progressListener);
+        }
+      }
+
+      while (!pending.isEmpty()) {
+        doWrite(writer, pending.poll(), transactional, progressListener);
+      }
+    } finally {
+      pending.forEach(chunk -> chunk.getEntities().cancel(true));
+    }
+  }
+
   private <D extends BaseDto> List<D> doRead(CsvBeanReader<D> csvBeanReader) throws IOException {
     try {
       List<D> list = Lists.newArrayList();
@@ -111,19 +236,34 @@ public class CsvParser {
     }
   }
 
-  private <D extends BaseDto, E extends BaseEntity> void doWrite(RecordProcessor<D, E> processor,
-                                                                 RecordWriter<E> writer,
-                                                                 List<D> imported) {
+  private <E extends BaseEntity> void doWrite(RecordWriter<E> writer, Chunk<E> chunk,
+                                              boolean transactional,
+                                              IntConsumer progressListener) {
     Profiler profiler = new Profiler("WRITE_CSV_CHUNK");
     profiler.setLogger(LOGGER);
 
-    profiler.start("PROCESS");
-    List<E> entities = processor.process(imported);
+    try {
+      profiler.start("WAIT_FOR_PROCESSING");
+      List<E> entities = chunk.getEntities().get();
 
-    profiler.start("WRITE_TO_DB");
-    writer.write(entities);
+      profiler.start("WRITE_TO_DB");
+      writer.write(entities);
 
-    profiler.stop().log();
+      if (transactional) {
+        profiler.start("FLUSH_AND_CLEAR");
+        entityManager.flush();
+        entityManager.clear();
+      }
+
+      progressListener.accept(chunk.getLastRow());
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(ex);
+    } catch (ExecutionException | RuntimeException ex) {
+      throw getChunkException(chunk, ex);
+    } finally {
+      profiler.stop().log();
+    }
   }
 
   private Message getCsvRowErrorMessage(SuperCsvException err) {
@@ -132,4 +272,35 @@ public class CsvParser {
     return new Message(ERROR_UPLOAD_RECORD_INVALID, row, err.getMessage());
   }
 
+  private RuntimeException getChunkException(Chunk<?> chunk, Exception exception) {
+    Throwable cause = exception instanceof ExecutionException ? exception.getCause() : exception;
+    LOGGER.warn("Could not import rows {} to {}", chunk.getFirstRow(), chunk.getLastRow(), cause);
+
+    if (cause instanceof ValidationMessageException) {
+      String reason = messageService
+          .localize(((ValidationMessageException) cause).asMessage())
+          .asMessage();
+      return new ValidationMessageException(cause, new Message(ERROR_UPLOAD_RECORDS_INVALID,
+          chunk.getFirstRow(), chunk.getLastRow(), reason));
+    }
+
+    if (cause instanceof RuntimeException) {
+      return (RuntimeException) cause;
+    }
+
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+
+    return new IllegalStateException(cause);
+  }
+
+  @Getter
+  @AllArgsConstructor
+  private static final class Chunk<E> {
+    private final int firstRow;
+    private final int lastRow;
+    private final Future<List<E>> entities;
+  }
+
 }
@@ -0,0 +1,45 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web.csv.recordhandler;
+
+import org.openlmis.referencedata.domain.BaseEntity;
+import org.openlmis.referencedata.dto.BaseDto;
+import org.openlmis.referencedata.web.csv.model.ModelClass;
+
+/**
+ * Resource that can be uploaded as a CSV file, synchronously or as an upload job.
+ */
+public interface CsvUploadResource<D extends BaseDto, E extends BaseEntity> {
+
+  /**
+   * Name of the resource, used to find it again when an upload job is processed.
+   */
+  String getName();
+
+  /**
+   * Name of the admin right required to upload the resource and to see its upload jobs.
+   */
+  String getRightName();
+
+  ModelClass<D> getModelClass();
+
+  /**
+   * Returns processor of the records. A new processor should be used for each uploaded file.
+   */
+  RecordProcessor<D, E> getProcessor();
+
+  RecordWriter<E> getWriter();
+}
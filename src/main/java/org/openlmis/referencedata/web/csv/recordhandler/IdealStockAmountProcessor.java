@@ -20,10 +20,13 @@ import static org.openlmis.referencedata.util.messagekeys.IdealStockAmountMessag
 import static org.openlmis.referencedata.util.messagekeys.IdealStockAmountMessageKeys.ERROR_PROCESSING_PERIOD_NOT_FOUND;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
 import org.openlmis.referencedata.domain.Code;
 import org.openlmis.referencedata.domain.CommodityType;
 import org.openlmis.referencedata.domain.Facility;
@@ -36,28 +39,28 @@ import org.openlmis.referencedata.repository.CommodityTypeRepository;
 import org.openlmis.referencedata.repository.FacilityRepository;
 import org.openlmis.referencedata.repository.ProcessingPeriodRepository;
 import org.openlmis.referencedata.repository.ProcessingScheduleRepository;
-import org.openlmis.referencedata.service.IdealStockAmountService;
 import org.openlmis.referencedata.util.Message;
 import org.openlmis.referencedata.util.messagekeys.ProcessingScheduleMessageKeys;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.profiler.Profiler;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
 
 /**
- * IdealStockAmountProcessor is used for uploads of Ideal Stock Amount.
- * It uploads each ideal stock amount by record.
+ * Resolves facilities, commodity types and processing periods of a chunk of ideal stock amounts
+ * with one query per kind of reference. Resolved references are cached, so a new instance should
+ * be used for each upload. Chunks of the same upload may be processed concurrently.
  */
 @Component
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class IdealStockAmountProcessor
     implements RecordProcessor<IdealStockAmountCsvModel, IdealStockAmount> {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(IdealStockAmountProcessor.class);
 
-  @Autowired
-  private IdealStockAmountService idealStockAmountService;
-
   @Autowired
   private FacilityRepository facilityRepository;
 
@@ -70,29 +73,31 @@ public class IdealStockAmountProcessor
   @Autowired
   private CommodityTypeRepository commodityTypeRepository;
 
+  private final Map<String, Facility> facilities = new ConcurrentHashMap<>();
+  private final Map<Code, ProcessingSchedule> schedules = new ConcurrentHashMap<>();
+  private final Map<Pair<Code, String>, ProcessingPeriod> periods = new ConcurrentHashMap<>();
+  private final Map<Pair<String, String>, CommodityType> commodityTypes =
+      new ConcurrentHashMap<>();
+
   @Override
   public List<IdealStockAmount> process(List<IdealStockAmountCsvModel> records) {
     Profiler profiler = new Profiler("PROCESS_DTO_CHUNK");
     profiler.setLogger(LOGGER);
 
-    profiler.start("SEARCH_EXISTING_ISA");
-    List<IdealStockAmount> idealStockAmounts = convert(records);
-    Map<Integer, IdealStockAmount> isaMap = new HashMap<>();
-    for (IdealStockAmount isa : idealStockAmountService.search(idealStockAmounts)) {
-      isaMap.put(hash(isa), isa);
-    }
+    profiler.start("RESOLVE_FACILITIES");
+    resolveFacilities(records);
 
-    List<IdealStockAmount> resultList = new ArrayList<>();
+    profiler.start("RESOLVE_PROCESSING_PERIODS");
+    resolveProcessingPeriods(records);
+
+    profiler.start("RESOLVE_COMMODITY_TYPES");
+    resolveCommodityTypes(records);
 
     profiler.start("PROCESS_RECORDS");
-    for (IdealStockAmount isa : idealStockAmounts) {
-      IdealStockAmount result = isaMap.getOrDefault(hash(isa), null);
-      if (null == result) {
-        resultList.add(prepareNewIdealStockAmountObject(isa));
-      } else {
-        result.setAmount(isa.getAmount());
-        resultList.add(result);
-      }
+    List<IdealStockAmount> resultList = new ArrayList<>();
+
+    for (IdealStockAmountCsvModel isa : records) {
+      resultList.add(prepareIdealStockAmountObject(isa));
     }
 
     profiler.stop().log();
@@ -100,63 +105,125 @@ public class IdealStockAmountProcessor
     return resultList;
   }
 
-  private IdealStockAmount prepareNewIdealStockAmountObject(IdealStockAmount isa) {
-    Facility facility = facilityRepository.findByCode(isa.getFacility().getCode())
-        .orElseThrow(() -> new ValidationMessageException(new Message(ERROR_FACILITY_NOT_FOUND,
-            isa.getFacility().getCode())));
-
-    ProcessingSchedule schedule = processingScheduleRepository
-        .findOneByCode(isa.getProcessingPeriod().getProcessingSchedule().getCode())
-        .orElseThrow(() -> new ValidationMessageException(new Message(
-            ProcessingScheduleMessageKeys.ERROR_NOT_FOUND_WITH_CODE,
-            isa.getProcessingPeriod().getProcessingSchedule().getCode()
-        )));
-    ProcessingPeriod period = processingPeriodRepository.findOneByNameAndProcessingSchedule(
-        isa.getProcessingPeriod().getName(),
-        schedule)
-        .orElseThrow(() -> new ValidationMessageException(
-            new Message(ERROR_PROCESSING_PERIOD_NOT_FOUND,
-            isa.getProcessingPeriod().getName(),
-            isa.getProcessingPeriod().getProcessingSchedule().getCode())));
-
-    CommodityType commodityType = commodityTypeRepository
-        .findByClassificationIdAndClassificationSystem(isa.getCommodityType().getClassificationId(),
-            isa.getCommodityType().getClassificationSystem())
-        .orElseThrow(() -> new ValidationMessageException(new Message(
-            ERROR_COMMODITY_TYPE_NOT_FOUND,
-            isa.getCommodityType().getClassificationId(),
-            isa.getCommodityType().getClassificationSystem())));
+  private void resolveFacilities(List<IdealStockAmountCsvModel> records) {
+    Set<String> missing = records
+        .stream()
+        .map(isa -> isa.getFacility().getCode())
+        .filter(code -> !facilities.containsKey(code))
+        .collect(Collectors.toSet());
+
+    if (!missing.isEmpty()) {
+      facilityRepository
+          .findByCodeIn(missing)
+          .forEach(facility -> facilities.put(facility.getCode(), facility));
+    }
+  }
 
-    return new IdealStockAmount(facility, commodityType, period, isa.getAmount());
+  private void resolveProcessingPeriods(List<IdealStockAmountCsvModel> records) {
+    Set<Pair<Code, String>> missing = records
+        .stream()
+        .map(this::getPeriodKey)
+        .filter(key -> !periods.containsKey(key))
+        .collect(Collectors.toSet());
+
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    Set<Code> missingSchedules = missing
+        .stream()
+        .map(Pair::getLeft)
+        .filter(code -> !schedules.containsKey(code))
+        .collect(Collectors.toSet());
+
+    if (!missingSchedules.isEmpty()) {
+      processingScheduleRepository
+          .findByCodeIn(missingSchedules)
+          .forEach(schedule -> schedules.put(schedule.getCode(), schedule));
+    }
+
+    Set<ProcessingSchedule> periodSchedules = missing
+        .stream()
+        .map(key -> schedules.get(key.getLeft()))
+        .filter(schedule -> null != schedule)
+        .collect(Collectors.toSet());
+    Set<String> periodNames = missing
+        .stream()
+        .map(Pair::getRight)
+        .collect(Collectors.toSet());
+
+    if (!periodSchedules.isEmpty()) {
+      processingPeriodRepository
+          .findByProcessingScheduleInAndNameIn(periodSchedules, periodNames)
+          .forEach(period -> periods.put(new ImmutablePair<>(
+              period.getProcessingSchedule().getCode(), period.getName()), period));
+    }
+  }
+
+  private void resolveCommodityTypes(List<IdealStockAmountCsvModel> records) {
+    Set<Pair<String, String>> missing = records
+        .stream()
+        .map(this::getCommodityTypeKey)
+        .filter(key -> !commodityTypes.containsKey(key))
+        .collect(Collectors.toSet());
+
+    if (missing.isEmpty()) {
+      return;
+    }
+
+    Set<String> systems = missing.stream().map(Pair::getLeft).collect(Collectors.toSet());
+    Set<String> ids = missing.stream().map(Pair::getRight).collect(Collectors.toSet());
+
+    commodityTypeRepository
+        .findByClassificationSystemInAndClassificationIdIn(systems, ids)
+        .forEach(commodityType -> commodityTypes.put(new ImmutablePair<>(
+            commodityType.getClassificationSystem(), commodityType.getClassificationId()),
+            commodityType));
   }
 
-  private List<IdealStockAmount> convert(List<IdealStockAmountCsvModel> list) {
-    List<IdealStockAmount> result = new ArrayList<>();
+  private IdealStockAmount prepareIdealStockAmountObject(IdealStockAmountCsvModel isa) {
+    String facilityCode = isa.getFacility().getCode();
+    Facility facility = facilities.get(facilityCode);
+
+    if (null == facility) {
+      throw new ValidationMessageException(new Message(ERROR_FACILITY_NOT_FOUND, facilityCode));
+    }
+
+    Pair<Code, String> periodKey = getPeriodKey(isa);
+
+    if (!schedules.containsKey(periodKey.getLeft())) {
+      throw new ValidationMessageException(new Message(
+          ProcessingScheduleMessageKeys.ERROR_NOT_FOUND_WITH_CODE,
+          isa.getProcessingPeriod().getProcessingSchedule().getCode()));
+    }
 
-    for (IdealStockAmountCsvModel isa : list) {
-      final Facility facility = new Facility(isa.getFacility().getCode());
+    ProcessingPeriod period = periods.get(periodKey);
 
-      ProcessingSchedule schedule = new ProcessingSchedule();
-      schedule.setCode(Code.code(isa.getProcessingPeriod().getProcessingSchedule().getCode()));
-      ProcessingPeriod period = new ProcessingPeriod();
-      period.setName(isa.getProcessingPeriod().getName());
-      period.setProcessingSchedule(schedule);
+    if (null == period) {
+      throw new ValidationMessageException(new Message(ERROR_PROCESSING_PERIOD_NOT_FOUND,
+          isa.getProcessingPeriod().getName(),
+          isa.getProcessingPeriod().getProcessingSchedule().getCode()));
+    }
 
-      CommodityType commodityType = new CommodityType();
-      commodityType.setClassificationId(isa.getCommodityType().getClassificationId());
-      commodityType.setClassificationSystem(isa.getCommodityType().getClassificationSystem());
+    Pair<String, String> commodityTypeKey = getCommodityTypeKey(isa);
+    CommodityType commodityType = commodityTypes.get(commodityTypeKey);
 
-      result.add(new IdealStockAmount(facility, commodityType, period, isa.getAmount()));
+    if (null == commodityType) {
+      throw new ValidationMessageException(new Message(ERROR_COMMODITY_TYPE_NOT_FOUND,
+          commodityTypeKey.getRight(), commodityTypeKey.getLeft()));
     }
 
-    return result;
+    return new IdealStockAmount(facility, commodityType, period, isa.getAmount());
+  }
+
+  private Pair<Code, String> getPeriodKey(IdealStockAmountCsvModel isa) {
+    return new ImmutablePair<>(
+        Code.code(isa.getProcessingPeriod().getProcessingSchedule().getCode()),
+        isa.getProcessingPeriod().getName());
   }
 
-  private int hash(IdealStockAmount isa) {
-    return Objects.hash(isa.getFacility().getCode(),
-        isa.getCommodityType().getClassificationId(),
-        isa.getCommodityType().getClassificationSystem(),
-        isa.getProcessingPeriod().getName(),
-        isa.getProcessingPeriod().getProcessingSchedule().getCode());
+  private Pair<String, String> getCommodityTypeKey(IdealStockAmountCsvModel isa) {
+    return new ImmutablePair<>(isa.getCommodityType().getClassificationSystem(),
+        isa.getCommodityType().getClassificationId());
   }
 }
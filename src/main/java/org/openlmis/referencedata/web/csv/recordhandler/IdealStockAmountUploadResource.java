@@ -0,0 +1,62 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web.csv.recordhandler;
+
+import org.openlmis.referencedata.domain.IdealStockAmount;
+import org.openlmis.referencedata.domain.RightName;
+import org.openlmis.referencedata.dto.IdealStockAmountCsvModel;
+import org.openlmis.referencedata.web.csv.model.ModelClass;
+import org.springframework.beans.factory.ObjectFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+@Component
+public class IdealStockAmountUploadResource
+    implements CsvUploadResource<IdealStockAmountCsvModel, IdealStockAmount> {
+
+  public static final String NAME = "idealStockAmounts";
+
+  @Autowired
+  private ObjectFactory<IdealStockAmountProcessor> processorFactory;
+
+  @Autowired
+  private IdealStockAmountWriter writer;
+
+  @Override
+  public String getName() {
+    return NAME;
+  }
+
+  @Override
+  public String getRightName() {
+    return RightName.SYSTEM_IDEAL_STOCK_AMOUNTS_MANAGE;
+  }
+
+  @Override
+  public ModelClass<IdealStockAmountCsvModel> getModelClass() {
+    return new ModelClass<>(IdealStockAmountCsvModel.class);
+  }
+
+  @Override
+  public RecordProcessor<IdealStockAmountCsvModel, IdealStockAmount> getProcessor() {
+    return processorFactory.getObject();
+  }
+
+  @Override
+  public RecordWriter<IdealStockAmount> getWriter() {
+    return writer;
+  }
+}
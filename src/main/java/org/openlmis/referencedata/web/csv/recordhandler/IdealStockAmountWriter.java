@@ -15,10 +15,12 @@
 
 package org.openlmis.referencedata.web.csv.recordhandler;
 
+import com.google.common.collect.Lists;
 import org.openlmis.referencedata.domain.IdealStockAmount;
 import org.openlmis.referencedata.repository.IdealStockAmountRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 /**
  * This class is responsible for saving {@link IdealStockAmount} instances to the database.
@@ -30,7 +32,8 @@ public class IdealStockAmountWriter implements RecordWriter<IdealStockAmount> {
   private IdealStockAmountRepository repository;
 
   @Override
+  @Transactional
   public void write(Iterable<IdealStockAmount> records) {
-    repository.saveAll(records);
+    repository.upsert(Lists.newArrayList(records));
   }
 }
@@ -0,0 +1,88 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+CREATE TABLE latest_orderable_versions (
+    id uuid PRIMARY KEY,
+    versionNumber bigint NOT NULL
+);
+
+CREATE TABLE latest_facility_type_approved_product_versions (
+    id uuid PRIMARY KEY,
+    versionNumber bigint NOT NULL
+);
+
+INSERT INTO latest_orderable_versions (id, versionNumber)
+  SELECT id, MAX(versionNumber)
+  FROM orderables
+  GROUP BY id;
+
+INSERT INTO latest_facility_type_approved_product_versions (id, versionNumber)
+  SELECT id, MAX(versionNumber)
+  FROM facility_type_approved_products
+  GROUP BY id;
+
+-- The latest version of each id is kept up to date by the triggers below, whatever the way
+-- rows are written (JPA, batch inserts, COPY). On delete or key change the row is recalculated.
+
+CREATE OR REPLACE FUNCTION refresh_latest_orderable_version() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    DELETE FROM referencedata.latest_orderable_versions
+    WHERE id = OLD.id;
+
+    INSERT INTO referencedata.latest_orderable_versions (id, versionNumber)
+      SELECT id, MAX(versionNumber)
+      FROM referencedata.orderables
+      WHERE id = OLD.id
+      GROUP BY id;
+  END IF;
+
+  IF TG_OP IN ('INSERT', 'UPDATE') THEN
+    INSERT INTO referencedata.latest_orderable_versions AS latest (id, versionNumber)
+      VALUES (NEW.id, NEW.versionNumber)
+    ON CONFLICT (id) DO UPDATE
+      SET versionNumber = EXCLUDED.versionNumber
+      WHERE latest.versionNumber < EXCLUDED.versionNumber;
+  END IF;
+
+  RETURN NULL;
+
+END $$;
+
+CREATE OR REPLACE FUNCTION refresh_latest_ftap_version() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    DELETE FROM referencedata.latest_facility_type_approved_product_versions
+    WHERE id = OLD.id;
+
+    INSERT INTO referencedata.latest_facility_type_approved_product_versions (id, versionNumber)
+      SELECT id, MAX(versionNumber)
+      FROM referencedata.facility_type_approved_products
+      WHERE id = OLD.id
+      GROUP BY id;
+  END IF;
+
+  IF TG_OP IN ('INSERT', 'UPDATE') THEN
+    INSERT INTO referencedata.latest_facility_type_approved_product_versions AS latest (id, versionNumber)
+      VALUES (NEW.id, NEW.versionNumber)
+    ON CONFLICT (id) DO UPDATE
+      SET versionNumber = EXCLUDED.versionNumber
+      WHERE latest.versionNumber < EXCLUDED.versionNumber;
+  END IF;
+
+  RETURN NULL;
+
+END $$;
+
+CREATE TRIGGER refresh_latest_orderable_version
+    AFTER INSERT OR DELETE OR UPDATE OF id, versionNumber ON orderables
+    FOR EACH ROW
+    EXECUTE PROCEDURE refresh_latest_orderable_version();
+
+CREATE TRIGGER refresh_latest_ftap_version
+    AFTER INSERT OR DELETE OR UPDATE OF id, versionNumber ON facility_type_approved_products
+    FOR EACH ROW
+    EXECUTE PROCEDURE refresh_latest_ftap_version();
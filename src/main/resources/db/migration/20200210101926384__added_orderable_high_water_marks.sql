@@ -0,0 +1,106 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+-- The mark of all orderables is kept under the nil UUID, marks of orderables of a program under
+-- the program id. The version is increased on every change, including removals. Marks are raised
+-- to the database clock only, so they never depend on the clocks of the service instances.
+CREATE TABLE orderable_high_water_marks (
+    programId uuid PRIMARY KEY,
+    lastUpdated timestamp with time zone NOT NULL,
+    version bigint NOT NULL
+);
+
+INSERT INTO orderable_high_water_marks (programId, lastUpdated, version)
+  SELECT '00000000-0000-0000-0000-000000000000', MAX(o.lastUpdated), 1
+  FROM orderables AS o
+    INNER JOIN latest_orderable_versions AS latest
+      ON latest.id = o.id AND latest.versionNumber = o.versionNumber
+  HAVING COUNT(*) > 0;
+
+INSERT INTO orderable_high_water_marks (programId, lastUpdated, version)
+  SELECT po.programId, MAX(o.lastUpdated), 1
+  FROM orderables AS o
+    INNER JOIN latest_orderable_versions AS latest
+      ON latest.id = o.id AND latest.versionNumber = o.versionNumber
+    INNER JOIN program_orderables AS po
+      ON po.orderableId = o.id AND po.orderableVersionNumber = o.versionNumber
+  GROUP BY po.programId;
+
+CREATE OR REPLACE FUNCTION raise_orderable_high_water_mark(markProgramId uuid,
+    markLastUpdated timestamp with time zone) RETURNS void LANGUAGE sql AS $$
+  INSERT INTO referencedata.orderable_high_water_marks AS mark (programId, lastUpdated, version)
+    VALUES (markProgramId, markLastUpdated, 1)
+  ON CONFLICT (programId) DO UPDATE
+    SET lastUpdated = GREATEST(mark.lastUpdated, EXCLUDED.lastUpdated),
+        version = mark.version + 1;
+$$;
+
+-- A new version of an orderable may leave a program, so programs of all versions are raised.
+CREATE OR REPLACE FUNCTION raise_orderable_high_water_marks() RETURNS trigger LANGUAGE plpgsql AS $$
+DECLARE
+  changedId uuid;
+BEGIN
+
+  IF TG_OP = 'DELETE' THEN
+    changedId := OLD.id;
+  ELSE
+    changedId := NEW.id;
+  END IF;
+
+  PERFORM referencedata.raise_orderable_high_water_mark(programs.programId, clock_timestamp())
+  FROM (
+    SELECT DISTINCT programId
+    FROM referencedata.program_orderables
+    WHERE orderableId = changedId
+  ) AS programs;
+
+  RETURN NULL;
+
+END $$;
+
+CREATE OR REPLACE FUNCTION raise_program_orderable_high_water_marks() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+
+  IF TG_OP IN ('UPDATE', 'DELETE') THEN
+    PERFORM referencedata.raise_orderable_high_water_mark(OLD.programId, clock_timestamp());
+  END IF;
+
+  IF TG_OP IN ('INSERT', 'UPDATE') THEN
+    PERFORM referencedata.raise_orderable_high_water_mark(NEW.programId, clock_timestamp());
+  END IF;
+
+  RETURN NULL;
+
+END $$;
+
+-- The mark of all orderables is raised once per statement, not once per changed row.
+CREATE OR REPLACE FUNCTION raise_all_orderables_high_water_mark() RETURNS trigger LANGUAGE plpgsql AS $$
+BEGIN
+
+  PERFORM referencedata.raise_orderable_high_water_mark(
+    '00000000-0000-0000-0000-000000000000', clock_timestamp());
+
+  RETURN NULL;
+
+END $$;
+
+CREATE TRIGGER raise_orderable_high_water_marks
+    AFTER INSERT OR DELETE OR UPDATE ON orderables
+    FOR EACH ROW
+    EXECUTE PROCEDURE raise_orderable_high_water_marks();
+
+CREATE TRIGGER raise_program_orderable_high_water_marks
+    AFTER INSERT OR DELETE OR UPDATE ON program_orderables
+    FOR EACH ROW
+    EXECUTE PROCEDURE raise_program_orderable_high_water_marks();
+
+CREATE TRIGGER raise_all_orderables_high_water_mark
+    AFTER INSERT OR DELETE OR UPDATE ON orderables
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE raise_all_orderables_high_water_mark();
+
+CREATE TRIGGER raise_all_program_orderables_high_water_mark
+    AFTER INSERT OR DELETE OR UPDATE ON program_orderables
+    FOR EACH STATEMENT
+    EXECUTE PROCEDURE raise_all_orderables_high_water_mark();
@@ -0,0 +1,15 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+-- only one ideal stock amount is kept for each facility, commodity type and period
+DELETE FROM ideal_stock_amounts isa
+    USING ideal_stock_amounts duplicate
+    WHERE isa.facilityid = duplicate.facilityid
+        AND isa.commoditytypeid = duplicate.commoditytypeid
+        AND isa.processingperiodid = duplicate.processingperiodid
+        AND isa.id < duplicate.id;
+
+-- ideal stock amount uploads update existing rows by facility, commodity type and period
+CREATE UNIQUE INDEX unq_ideal_stock_amounts_facilityid_commoditytypeid_periodid
+    ON ideal_stock_amounts (facilityid, commoditytypeid, processingperiodid);
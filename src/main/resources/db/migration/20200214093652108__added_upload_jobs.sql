@@ -0,0 +1,21 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+CREATE TABLE upload_jobs (
+    id uuid PRIMARY KEY,
+    resourceName text NOT NULL,
+    fileName text NOT NULL,
+    filePath text NOT NULL,
+    allOrNothing boolean NOT NULL,
+    status text NOT NULL,
+    totalRows integer NOT NULL,
+    processedRows integer NOT NULL,
+    errorMessage text,
+    createdDate timestamp with time zone NOT NULL,
+    startedDate timestamp with time zone,
+    finishedDate timestamp with time zone
+);
+
+-- unfinished jobs are resumed on startup
+CREATE INDEX upload_jobs_status_idx ON upload_jobs (status);
@@ -0,0 +1,22 @@
+-- WHEN COMMITTING OR REVIEWING THIS FILE: Make sure that the timestamp in the file name (that serves as a version) is the latest timestamp, and that no new migration have been added in the meanwhile.
+-- Adding migrations out of order may cause this migration to never execute or behave in an unexpected way.
+-- Migrations should NOT BE EDITED. Add a new migration to apply changes.
+
+-- version and digest of the permission strings of each user, maintained when right assignments
+-- are re-generated; deltas are available from baseVersion up to version
+CREATE TABLE user_permission_versions (
+    userId uuid PRIMARY KEY,
+    version bigint NOT NULL,
+    baseVersion bigint NOT NULL,
+    digest varchar(64) NOT NULL
+);
+
+CREATE TABLE user_permission_changes (
+    userId uuid NOT NULL,
+    version bigint NOT NULL,
+    permissionString text NOT NULL,
+    added boolean NOT NULL
+);
+
+CREATE INDEX user_permission_changes_userid_version_idx
+    ON user_permission_changes (userId, version);
@@ -0,0 +1,36 @@
+-- This SQL is the same as get_right_assignments.sql, but it is limited to the given users. It is
+-- used by the incremental re-generation, which only recalculates right assignments of the users
+-- affected by a change.
+--
+-- Input: list of user IDs (named parameter userIds)
+-- Output: intermediate right assignments of these users, with supervisory node IDs not expanded
+WITH filtered_role_assignments AS
+(
+  SELECT ra.*
+  FROM referencedata.role_assignments ra
+  WHERE ra.userid IN (:userIds)
+  EXCEPT
+  SELECT ra.*
+  FROM referencedata.role_assignments ra
+    INNER JOIN referencedata.users u ON ra.userid = u.id
+    LEFT JOIN referencedata.supported_programs sp ON sp.facilityid = u.homefacilityid
+      AND sp.programid = ra.programid
+  WHERE ra.type = 'supervision'
+    AND ra.userid IN (:userIds)
+    AND ra.programid IS NOT NULL
+    AND ra.supervisorynodeid IS NULL
+    AND (sp.active = FALSE OR sp.active IS NULL)
+)
+SELECT DISTINCT ra.userid
+  , ri.name AS rightname
+  , CASE WHEN ra.programid IS NOT NULL THEN u.homefacilityid
+         WHEN ra.warehouseid IS NOT NULL THEN ra.warehouseid
+         ELSE NULL
+    END AS facilityid
+  , ra.programid
+  , ra.supervisorynodeid
+FROM filtered_role_assignments ra
+  INNER JOIN referencedata.role_rights rr ON rr.roleid = ra.roleid
+  INNER JOIN referencedata.rights ri ON ri.id = rr.rightid
+  INNER JOIN referencedata.users u ON u.id = ra.userid
+;
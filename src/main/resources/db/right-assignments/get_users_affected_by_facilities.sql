@@ -0,0 +1,26 @@
+-- This SQL returns users whose right assignments may change when supported programs of any of
+-- the given facilities change. Those are the users with the facility set as the home facility
+-- and the users that supervise the facility through the supervisory node hierarchy.
+--
+-- Input: list of facility IDs (named parameter facilityIds)
+-- Output: a distinct list of user IDs
+WITH RECURSIVE ancestors AS
+(
+  SELECT sn.id, sn.parentid
+  FROM referencedata.supervisory_nodes sn
+    JOIN referencedata.requisition_groups rg ON rg.supervisorynodeid = sn.id
+    JOIN referencedata.requisition_group_members rgm ON rgm.requisitiongroupid = rg.id
+  WHERE rgm.facilityid IN (:facilityIds)
+  UNION
+  SELECT sn.id, sn.parentid
+  FROM ancestors
+  JOIN referencedata.supervisory_nodes sn ON sn.id = ancestors.parentid
+)
+SELECT u.id AS userid
+FROM referencedata.users u
+WHERE u.homefacilityid IN (:facilityIds)
+UNION
+SELECT ra.userid
+FROM ancestors
+  JOIN referencedata.role_assignments ra ON ra.supervisorynodeid = ancestors.id
+;
@@ -0,0 +1,43 @@
+-- This SQL returns users whose right assignments may change when the subtree of any of the given
+-- supervisory nodes changes (parent, child nodes, requisition group or its members).
+--
+-- The recursive CTE ancestors returns the given supervisory nodes and all of their ancestors.
+-- Users with a supervision role assignment at any of those nodes supervise the changed subtree.
+--
+-- The recursive CTE descendants returns the given supervisory nodes and all of their
+-- descendants. Users that already have right assignments for facilities in that subtree are also
+-- returned, because the subtree might have been moved away from the nodes they supervise.
+--
+-- Input: list of supervisory node IDs (named parameter supervisoryNodeIds)
+-- Output: a distinct list of user IDs
+WITH RECURSIVE ancestors AS
+(
+  SELECT sn.id, sn.parentid
+  FROM referencedata.supervisory_nodes sn
+  WHERE sn.id IN (:supervisoryNodeIds)
+  UNION
+  SELECT sn.id, sn.parentid
+  FROM ancestors
+  JOIN referencedata.supervisory_nodes sn ON sn.id = ancestors.parentid
+),
+descendants AS
+(
+  SELECT sn.id
+  FROM referencedata.supervisory_nodes sn
+  WHERE sn.id IN (:supervisoryNodeIds)
+  UNION
+  SELECT sn.id
+  FROM descendants
+  JOIN referencedata.supervisory_nodes sn ON sn.parentid = descendants.id
+)
+SELECT ra.userid
+FROM ancestors
+  JOIN referencedata.role_assignments ra ON ra.supervisorynodeid = ancestors.id
+UNION
+SELECT ria.userid
+FROM descendants
+  JOIN referencedata.requisition_groups rg ON rg.supervisorynodeid = descendants.id
+  JOIN referencedata.requisition_group_members rgm ON rgm.requisitiongroupid = rg.id
+  JOIN referencedata.right_assignments ria ON ria.facilityid = rgm.facilityid
+WHERE ria.programid IS NOT NULL
+;
@@ -18,39 +18,44 @@ package org.openlmis.referencedata;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Lists;
-import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import org.javers.core.Javers;
-import org.javers.core.metamodel.object.CdoSnapshot;
-import org.javers.repository.jql.JqlQuery;
+import org.javers.core.JaversBuilder;
+import org.javers.core.json.JsonConverter;
 import org.javers.spring.annotation.JaversSpringDataAuditable;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.openlmis.referencedata.domain.FacilityType;
 import org.openlmis.referencedata.domain.TradeItem;
+import org.openlmis.referencedata.repository.FacilityTypeRepository;
 import org.openlmis.referencedata.repository.TradeItemRepository;
+import org.openlmis.referencedata.testbuilder.FacilityTypeDataBuilder;
 import org.openlmis.referencedata.testbuilder.TradeItemDataBuilder;
-import org.powermock.api.mockito.PowerMockito;
-import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 import org.springframework.context.ApplicationContext;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @RunWith(PowerMockRunner.class)
-@PrepareForTest({CdoSnapshot.class})
 public class AuditLogInitializerTest {
 
   @Mock
@@ -63,21 +68,44 @@ public class AuditLogInitializerTest {
   private TradeItemRepository tradeItemRepository;
 
   @Mock
-  private CdoSnapshot snapshot;
+  private TestItemRepository testItemRepository;
 
   @Mock
-  private TestItemRepository testItemRepository;
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private NamedParameterJdbcTemplate jdbcTemplate;
+
+  @Mock
+  private FacilityTypeRepository facilityTypeRepository;
 
   private AuditLogInitializer auditLogInitializer;
 
   private Map<String, Object> repositoryMap = new HashMap<>();
 
+  private Javers inMemoryJavers = JaversBuilder.javers().build();
+
+  private JsonConverter jsonConverter = inMemoryJavers.getJsonConverter();
+
+  private TradeItem tradeItem = new TradeItemDataBuilder().build();
+
   @Before
   public void setUp() {
-    auditLogInitializer = new AuditLogInitializer(applicationContext, javers);
+    auditLogInitializer = new AuditLogInitializer(applicationContext, javers,
+        transactionManager, jdbcTemplate);
 
     when(applicationContext.getBeansWithAnnotation(JaversSpringDataAuditable.class))
         .thenReturn(repositoryMap);
+    when(javers.getJsonConverter()).thenReturn(jsonConverter);
+    when(jdbcTemplate.queryForList(eq(AuditLogInitializer.EXISTING_SNAPSHOTS_SQL),
+        any(SqlParameterSource.class), eq(String.class)))
+        .thenReturn(Collections.emptyList());
+    when(javers.commit(eq(AuditLogInitializer.AUTHOR), any())).thenAnswer(invocation -> {
+      // repositories may be processed in parallel
+      synchronized (inMemoryJavers) {
+        return inMemoryJavers.commit(AuditLogInitializer.AUTHOR, invocation.getArguments()[1]);
+      }
+    });
   }
 
   @Test
@@ -93,18 +121,77 @@ public class AuditLogInitializerTest {
   public void shouldNotCreateSecondSnapshot() {
     repositoryMap.put("tradeItemRepository", tradeItemRepository);
 
-    ArrayList<TradeItem> content = Lists.newArrayList(new TradeItemDataBuilder().build());
-    Page<TradeItem> page = new PageImpl<>(content);
+    when(tradeItemRepository.findAllWithoutSnapshots(any(Pageable.class)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList(tradeItem)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList()));
+
+    when(jdbcTemplate.queryForList(eq(AuditLogInitializer.EXISTING_SNAPSHOTS_SQL),
+        any(SqlParameterSource.class), eq(String.class)))
+        .thenReturn(Collections.singletonList(jsonConverter.toJson(tradeItem.getId())));
+
+    auditLogInitializer.run();
+    verify(javers, never()).commit(eq(AuditLogInitializer.AUTHOR), any());
+    // nothing on the first page could be committed, so the next page is read
+    verify(tradeItemRepository).findAllWithoutSnapshots(PageRequest.of(1, 2000));
+  }
+
+  @Test
+  public void shouldCreateSnapshotsOfWholePageAndReadItAgain() {
+    repositoryMap.put("tradeItemRepository", tradeItemRepository);
+    TradeItem other = new TradeItemDataBuilder().build();
 
     when(tradeItemRepository.findAllWithoutSnapshots(any(Pageable.class)))
-        .thenReturn(page)
+        .thenReturn(new PageImpl<>(Lists.newArrayList(tradeItem, other)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList()));
+
+    auditLogInitializer.run();
+
+    verify(javers).commit(AuditLogInitializer.AUTHOR, tradeItem);
+    verify(javers).commit(AuditLogInitializer.AUTHOR, other);
+    verify(jdbcTemplate).queryForList(eq(AuditLogInitializer.EXISTING_SNAPSHOTS_SQL),
+        any(SqlParameterSource.class), eq(String.class));
+    // committed objects are no longer returned, so the first page is read again
+    verify(tradeItemRepository, times(2))
+        .findAllWithoutSnapshots(PageRequest.of(0, 2000));
+    verify(transactionManager, times(2)).commit(any());
+  }
+
+  @Test
+  public void shouldReadNextPageIfCommitsCreateNoSnapshots() {
+    repositoryMap.put("tradeItemRepository", tradeItemRepository);
+    // the object has not changed since its last commit, so no snapshot is created
+    inMemoryJavers.commit(AuditLogInitializer.AUTHOR, tradeItem);
+
+    when(tradeItemRepository.findAllWithoutSnapshots(PageRequest.of(0, 2000)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList(tradeItem)));
+    when(tradeItemRepository.findAllWithoutSnapshots(PageRequest.of(1, 2000)))
         .thenReturn(new PageImpl<>(Lists.newArrayList()));
 
-    PowerMockito.when(javers.findSnapshots(any(JqlQuery.class)))
-        .thenReturn(Lists.newArrayList(snapshot));
+    auditLogInitializer.run();
+
+    verify(javers).commit(AuditLogInitializer.AUTHOR, tradeItem);
+    verify(tradeItemRepository).findAllWithoutSnapshots(PageRequest.of(0, 2000));
+    verify(tradeItemRepository).findAllWithoutSnapshots(PageRequest.of(1, 2000));
+  }
+
+  @Test
+  public void shouldCreateSnapshotsOfRepositoriesInParallel() {
+    ReflectionTestUtils.setField(auditLogInitializer, "poolSize", 2);
+    repositoryMap.put("tradeItemRepository", tradeItemRepository);
+    repositoryMap.put("facilityTypeRepository", facilityTypeRepository);
+    FacilityType facilityType = new FacilityTypeDataBuilder().build();
+
+    when(tradeItemRepository.findAllWithoutSnapshots(any(Pageable.class)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList(tradeItem)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList()));
+    when(facilityTypeRepository.findAllWithoutSnapshots(any(Pageable.class)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList(facilityType)))
+        .thenReturn(new PageImpl<>(Lists.newArrayList()));
 
     auditLogInitializer.run();
-    verify(javers, never()).commit(eq("System: AuditLogInitializer"), any());
+
+    verify(javers).commit(AuditLogInitializer.AUTHOR, tradeItem);
+    verify(javers).commit(AuditLogInitializer.AUTHOR, facilityType);
   }
 
   @Getter
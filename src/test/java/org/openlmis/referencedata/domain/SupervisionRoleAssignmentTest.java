@@ -25,13 +25,11 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.openlmis.referencedata.domain.RightType.SUPERVISION;
 
-import com.google.common.collect.Sets;
 import java.util.Collections;
 import java.util.Set;
 import java.util.UUID;
 import org.junit.Test;
 import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
-import org.openlmis.referencedata.testbuilder.SupportedProgramDataBuilder;
 import org.openlmis.referencedata.testbuilder.UserDataBuilder;
 
 @SuppressWarnings({"PMD.TooManyMethods"})
@@ -54,6 +52,7 @@ public class SupervisionRoleAssignmentTest {
     right = Right.newRight("right", SUPERVISION);
     role = Role.newRole("role", right);
     program = new Program("P1");
+    program.setId(UUID.randomUUID());
     homeFacility = new Facility("F1");
     UUID homeFacilityId = UUID.randomUUID();
     homeFacility.setId(homeFacilityId);
@@ -65,22 +64,10 @@ public class SupervisionRoleAssignmentTest {
     homeFacilityRoleAssignment = new SupervisionRoleAssignment(role, user, program);
 
     supervisoryNode = new SupervisoryNodeDataBuilder().build();
-    RequisitionGroup requisitionGroup = new RequisitionGroup("RG1", "RGN1", supervisoryNode);
     supervisedFacility = new Facility("F2");
-    SupportedProgram supportedProgram = new SupportedProgramDataBuilder()
-        .withFacility(supervisedFacility)
-        .withProgram(program)
-        .build();
-    supervisedFacility.setSupportedPrograms(Sets.newHashSet(supportedProgram));
-    requisitionGroup.setMemberFacilities(Sets.newHashSet(supervisedFacility));
-    ProcessingSchedule processingSchedule = new ProcessingSchedule(Code.code("PS1"), "Schedule1");
-    RequisitionGroupProgramSchedule requisitionGroupProgramSchedule =
-        RequisitionGroupProgramSchedule.newRequisitionGroupProgramSchedule(
-            requisitionGroup, program, processingSchedule, false);
-    requisitionGroup.setRequisitionGroupProgramSchedules(
-        Collections.singletonList(requisitionGroupProgramSchedule));
-    supervisoryNode.setRequisitionGroup(requisitionGroup);
-    supervisedRoleAssignment = new SupervisionRoleAssignment(role, user, program, supervisoryNode);
+    supervisedFacility.setId(UUID.randomUUID());
+    supervisedRoleAssignment = new SupervisionRoleAssignment(role, user, program, supervisoryNode,
+        Collections.singleton(supervisedFacility.getId()));
   }
 
   @Test
@@ -132,7 +119,9 @@ public class SupervisionRoleAssignmentTest {
   public void shouldNotHaveRightWhenFacilityDoesNotMatch() {
 
     //when
-    RightQuery rightQuery = new RightQuery(right, program, new Facility("Another"));
+    Facility anotherFacility = new Facility("Another");
+    anotherFacility.setId(UUID.randomUUID());
+    RightQuery rightQuery = new RightQuery(right, program, anotherFacility);
     boolean hasRight = supervisedRoleAssignment.hasRight(rightQuery);
 
     //then
@@ -143,19 +132,19 @@ public class SupervisionRoleAssignmentTest {
   public void shouldGetSupervisedFacilitiesWhenRightAndProgramMatch() {
 
     //when
-    Set<Facility> supervisedFacilities = supervisedRoleAssignment.getSupervisedFacilities(right,
+    Set<UUID> supervisedFacilities = supervisedRoleAssignment.getSupervisedFacilityIds(right,
         program);
 
     //then
     assertThat(supervisedFacilities.size(), is(1));
-    assertEquals(supervisedFacility, supervisedFacilities.iterator().next());
+    assertEquals(supervisedFacility.getId(), supervisedFacilities.iterator().next());
   }
 
   @Test
   public void shouldNotGetSupervisedFacilitiesWhenRightDoesNotMatch() {
 
     //when
-    Set<Facility> supervisedFacilities = supervisedRoleAssignment.getSupervisedFacilities(
+    Set<UUID> supervisedFacilities = supervisedRoleAssignment.getSupervisedFacilityIds(
         Right.newRight("another", SUPERVISION), program);
 
     //then
@@ -166,7 +155,7 @@ public class SupervisionRoleAssignmentTest {
   public void shouldNotGetSupervisedFacilitiesWhenProgramDoesNotMatch() {
 
     //when
-    Set<Facility> supervisedFacilities = supervisedRoleAssignment.getSupervisedFacilities(right,
+    Set<UUID> supervisedFacilities = supervisedRoleAssignment.getSupervisedFacilityIds(right,
         new Program("another"));
 
     //then
@@ -177,7 +166,7 @@ public class SupervisionRoleAssignmentTest {
   public void shouldNotGetSupervisedFacilitiesForHomeFacilitySupervision() {
 
     //when
-    Set<Facility> supervisedFacilities = homeFacilityRoleAssignment.getSupervisedFacilities(right,
+    Set<UUID> supervisedFacilities = homeFacilityRoleAssignment.getSupervisedFacilityIds(right,
         program);
 
     //then
@@ -208,4 +197,17 @@ public class SupervisionRoleAssignmentTest {
         not(hasItem(hasProperty("facilityId", is(user.getHomeFacilityId()))))
     );
   }
+
+  @Test
+  public void shouldAddRightAssignmentsForGivenSupervisedFacilities() {
+    UUID facilityId = UUID.randomUUID();
+    user.getRightAssignments().clear();
+
+    new SupervisionRoleAssignment(role, user, program, supervisoryNode,
+        Collections.singleton(facilityId));
+
+    assertThat(user.getRightAssignments(), hasItem(hasProperty("facilityId", is(facilityId))));
+    assertThat(user.getRightAssignments(),
+        not(hasItem(hasProperty("facilityId", is(supervisedFacility.getId())))));
+  }
 }
@@ -21,9 +21,7 @@ import static org.hamcrest.Matchers.hasItem;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
-import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
-import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.Sets;
 import java.util.Collections;
@@ -39,21 +37,18 @@ import org.openlmis.referencedata.testbuilder.SupportedProgramDataBuilder;
 public class SupervisoryNodeTest {
 
   private SupervisoryNode supervisoryNode1;
-  private Facility facility2;
   private RequisitionGroup requisitionGroup1;
   private Program program;
-  private ProcessingSchedule processingSchedule;
 
   @Before
   public void setUp() {
     program = new Program("P1");
-    facility2 = new Facility("C2");
     supervisoryNode1 = new SupervisoryNodeDataBuilder().build();
     requisitionGroup1 = new RequisitionGroup("RG1", "RGN1", supervisoryNode1);
     requisitionGroup1.setId(UUID.randomUUID());
-    requisitionGroup1.setMemberFacilities(Sets.newHashSet(facility2, new Facility("C3")));
+    requisitionGroup1.setMemberFacilities(Sets.newHashSet(new Facility("C2"), new Facility("C3")));
     addSupportedPrograms(requisitionGroup1);
-    processingSchedule = new ProcessingSchedule(Code.code("PS1"), "Schedule1");
+    ProcessingSchedule processingSchedule = new ProcessingSchedule(Code.code("PS1"), "Schedule1");
     RequisitionGroupProgramSchedule requisitionGroupProgramSchedule1 =
         RequisitionGroupProgramSchedule.newRequisitionGroupProgramSchedule(
             requisitionGroup1, program, processingSchedule, false);
@@ -92,107 +87,6 @@ public class SupervisoryNodeTest {
     assertThat(sn.getRequisitionGroup().getId(), equalTo(dto.getRequisitionGroup().getId()));
   }
 
-  @Test
-  public void shouldGetAllDirectSupervisedFacilities() {
-    //when
-    Set<Facility> facilities = supervisoryNode1.getAllSupervisedFacilities(program);
-
-    //then
-    assertThat(facilities.size(), is(2));
-  }
-
-  @Test
-  public void shouldGetAllIndirectSupervisedFacilities() {
-    testGetAllIndirectSupervisedFacilities(program);
-  }
-
-  @Test
-  public void shouldGetAllSupervisedFacilitiesIfProgramIsNotProvided() {
-    testGetAllIndirectSupervisedFacilities(null);
-  }
-
-  private void testGetAllIndirectSupervisedFacilities(Program program) {
-    //given
-    SupervisoryNode supervisoryNode2 = new SupervisoryNodeDataBuilder().build();
-    RequisitionGroup requisitionGroup2 = new RequisitionGroup("RG2", "RGN2", supervisoryNode2);
-    requisitionGroup2.setMemberFacilities(Sets.newHashSet(new Facility("C5")));
-    addSupportedPrograms(requisitionGroup2);
-    RequisitionGroupProgramSchedule requisitionGroupProgramSchedule2 =
-        RequisitionGroupProgramSchedule.newRequisitionGroupProgramSchedule(
-            requisitionGroup2, this.program, processingSchedule, false);
-    requisitionGroup2.setRequisitionGroupProgramSchedules(
-        Collections.singletonList(requisitionGroupProgramSchedule2));
-    supervisoryNode2.setRequisitionGroup(requisitionGroup2);
-
-    supervisoryNode2.assignParentNode(supervisoryNode1);
-
-    //when
-    Set<Facility> facilities = supervisoryNode1.getAllSupervisedFacilities(program);
-
-    //then
-    assertThat(facilities.size(), is(3));
-  }
-
-  @Test
-  public void shouldNotGetSupervisedFacilitiesIfNoRequisitionGroup() {
-    //given
-    supervisoryNode1.setRequisitionGroup(null);
-
-    //when
-    Set<Facility> facilities = supervisoryNode1.getAllSupervisedFacilities(program);
-
-    //then
-    assertThat(facilities.size(), is(0));
-  }
-
-  @Test
-  public void shouldNotGetSupervisedFacilitiesIfNoMemberFacilities() {
-    //given
-    requisitionGroup1.setMemberFacilities(Collections.emptySet());
-
-    //when
-    Set<Facility> facilities = supervisoryNode1.getAllSupervisedFacilities(program);
-
-    //then
-    assertThat(facilities.size(), is(0));
-  }
-
-  @Test
-  public void shouldNotGetSupervisedFacilitiesIfNoProgramsInRequisitionGroup() {
-    //given
-    requisitionGroup1.setRequisitionGroupProgramSchedules(Collections.emptyList());
-
-    //when
-    Set<Facility> facilities = supervisoryNode1.getAllSupervisedFacilities(program);
-
-    //then
-    assertThat(facilities.size(), is(0));
-  }
-
-  @Test
-  public void shouldNotGetSupervisedFacilitiesIfNoMatchingProgramInRequisitionGroup() {
-    //when
-    Set<Facility> facilities = supervisoryNode1.getAllSupervisedFacilities(new Program("another"));
-
-    //then
-    assertThat(facilities.size(), is(0));
-  }
-
-  @Test
-  public void shouldReturnTrueIfSupervisesFacilityByProgram() {
-    assertTrue(supervisoryNode1.supervises(facility2, program));
-  }
-
-  @Test
-  public void shouldReturnFalseIfDoesNotSuperviseFacility() {
-    assertFalse(supervisoryNode1.supervises(new Facility("New Facility"), program));
-  }
-
-  @Test
-  public void shouldReturnFalseIfSupervisesFacilityNotByProgram() {
-    assertFalse(supervisoryNode1.supervises(facility2, new Program("another")));
-  }
-
   @Test
   public void shouldAssignParentNode() {
     SupervisoryNode parent = new SupervisoryNodeDataBuilder().build();
@@ -0,0 +1,82 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.ZonedDateTime;
+import org.junit.Test;
+import org.openlmis.referencedata.dto.UploadJobDto;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class UploadJobTest {
+
+  private UploadJob job = UploadJob.newUploadJob("idealStockAmounts", "isa.csv",
+      "/tmp/isa.csv", true, 100);
+
+  @Test
+  public void shouldCreatePendingJob() {
+    assertThat(job.getStatus()).isEqualTo(UploadJob.Status.PENDING);
+    assertThat(job.getProcessedRows()).isZero();
+    assertThat(job.getCreatedDate()).isNotNull();
+    assertThat(job.isFinished()).isFalse();
+  }
+
+  @Test
+  public void shouldExportRateAndRemainingTimeOfRunningJob() {
+    ReflectionTestUtils.setField(job, "status", UploadJob.Status.RUNNING);
+    ReflectionTestUtils.setField(job, "startedDate", ZonedDateTime.now().minusSeconds(10));
+    ReflectionTestUtils.setField(job, "processedRows", 20);
+
+    UploadJobDto dto = UploadJobDto.newInstance(job);
+
+    assertThat(dto.getStatus()).isEqualTo(UploadJob.Status.RUNNING);
+    assertThat(dto.getTotalRows()).isEqualTo(100);
+    assertThat(dto.getProcessedRows()).isEqualTo(20);
+    assertThat(dto.getRowsPerSecond()).isBetween(1.5, 2.0);
+    assertThat(dto.getEstimatedSecondsRemaining()).isBetween(40L, 54L);
+  }
+
+  @Test
+  public void shouldNotExportRemainingTimeOfFinishedJob() {
+    ReflectionTestUtils.setField(job, "startedDate", ZonedDateTime.now().minusSeconds(10));
+    job.complete(100);
+
+    UploadJobDto dto = UploadJobDto.newInstance(job);
+
+    assertThat(dto.getStatus()).isEqualTo(UploadJob.Status.COMPLETED);
+    assertThat(dto.getFinishedDate()).isNotNull();
+    assertThat(dto.getRowsPerSecond()).isNotNull();
+    assertThat(dto.getEstimatedSecondsRemaining()).isNull();
+  }
+
+  @Test
+  public void shouldNotExportRateOfJobThatHasNotStarted() {
+    UploadJobDto dto = UploadJobDto.newInstance(job);
+
+    assertThat(dto.getRowsPerSecond()).isNull();
+    assertThat(dto.getEstimatedSecondsRemaining()).isNull();
+  }
+
+  @Test
+  public void shouldKeepErrorMessageOfFailedJob() {
+    job.fail("invalid row");
+
+    assertThat(job.getStatus()).isEqualTo(UploadJob.Status.FAILED);
+    assertThat(job.getErrorMessage()).isEqualTo("invalid row");
+    assertThat(job.isFinished()).isTrue();
+  }
+}
@@ -22,15 +22,13 @@ import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
-import java.util.Collections;
 import java.util.Set;
+import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
 import org.openlmis.referencedata.dto.UserDto;
 import org.openlmis.referencedata.testbuilder.DirectRoleAssignmentDataBuilder;
-import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
 import org.openlmis.referencedata.testbuilder.SupervisoryNodeDataBuilder;
-import org.openlmis.referencedata.testbuilder.SupportedProgramDataBuilder;
 import org.openlmis.referencedata.testbuilder.UserDataBuilder;
 
 @SuppressWarnings("PMD.TooManyMethods")
@@ -101,17 +99,18 @@ public class UserTest {
   @Test
   public void shouldGetSupervisedFacilities() {
     //given
-    SupervisoryNode provinceNode = getSupervisoryHierarchy();
+    SupervisoryNode supervisoryNode = new SupervisoryNodeDataBuilder().build();
 
     Right right = Right.newRight(RIGHT_NAME, RightType.SUPERVISION);
     Role role = Role.newRole(roleName, right);
 
-    RoleAssignment assignment = new SupervisionRoleAssignment(role, user, program, provinceNode);
+    RoleAssignment assignment = new SupervisionRoleAssignment(role, user, program,
+        supervisoryNode, getSupervisedFacilityIds());
 
     user.assignRoles(assignment);
 
     //when
-    Set<Facility> facilities = user.getSupervisedFacilities(right, program);
+    Set<UUID> facilities = user.getSupervisedFacilityIds(right, program);
 
     //then
     assertThat(facilities.size()).isEqualTo(3);
@@ -120,20 +119,20 @@ public class UserTest {
   @Test
   public void shouldNotGetSupervisedFacilitiesForNonMatchingPrograms() {
     //given
-    SupervisoryNode provinceNode = getSupervisoryHierarchy();
+    SupervisoryNode supervisoryNode = new SupervisoryNodeDataBuilder().build();
 
     Right right = Right.newRight(RIGHT_NAME, RightType.SUPERVISION);
     Role role = Role.newRole(roleName, right);
 
     Program anotherProgram = new Program("another");
 
-    RoleAssignment assignment = new SupervisionRoleAssignment(role, user, anotherProgram,
-        provinceNode);
+    RoleAssignment assignment = new SupervisionRoleAssignment(role, user, program,
+        supervisoryNode, getSupervisedFacilityIds());
 
     user.assignRoles(assignment);
 
     //when
-    Set<Facility> facilities = user.getSupervisedFacilities(right, anotherProgram);
+    Set<UUID> facilities = user.getSupervisedFacilityIds(right, anotherProgram);
 
     //then
     assertThat(facilities.size()).isEqualTo(0);
@@ -142,17 +141,18 @@ public class UserTest {
   @Test
   public void shouldNotGetSupervisedFacilitiesForNonMatchingRight() {
     //given
-    SupervisoryNode provinceNode = getSupervisoryHierarchy();
+    SupervisoryNode supervisoryNode = new SupervisoryNodeDataBuilder().build();
 
     Right right = Right.newRight(RIGHT_NAME, RightType.SUPERVISION);
     Role role = Role.newRole(roleName, right);
 
-    RoleAssignment assignment = new SupervisionRoleAssignment(role, user, program, provinceNode);
+    RoleAssignment assignment = new SupervisionRoleAssignment(role, user, program,
+        supervisoryNode, getSupervisedFacilityIds());
 
     user.assignRoles(assignment);
 
     //when
-    Set<Facility> facilities = user.getSupervisedFacilities(
+    Set<UUID> facilities = user.getSupervisedFacilityIds(
         Right.newRight("anotherRight", RightType.SUPERVISION), program);
 
     //then
@@ -221,44 +221,7 @@ public class UserTest {
     assertEquals(user.getRoleAssignments().size(), 0);
   }
 
-  private SupervisoryNode getSupervisoryHierarchy() {
-    Facility facility = new FacilityDataBuilder().build();
-
-    SupervisoryNode districtNode = new SupervisoryNodeDataBuilder().build();
-    RequisitionGroup districtGroup = new RequisitionGroup("DG", "DGN", districtNode);
-    districtGroup.setMemberFacilities(newHashSet(new Facility("C2")));
-    addSupportedPrograms(districtGroup);
-    districtGroup.getMemberFacilities().add(facility);
-    ProcessingSchedule processingSchedule = new ProcessingSchedule(Code.code("PS1"), "Schedule1");
-    RequisitionGroupProgramSchedule districtGroupProgramSchedule =
-        RequisitionGroupProgramSchedule.newRequisitionGroupProgramSchedule(
-            districtGroup, program, processingSchedule, false);
-    districtGroup.setRequisitionGroupProgramSchedules(
-        Collections.singletonList(districtGroupProgramSchedule));
-    districtNode.setRequisitionGroup(districtGroup);
-
-    SupervisoryNode provinceNode = new SupervisoryNodeDataBuilder().build();
-    RequisitionGroup provinceGroup = new RequisitionGroup("PG", "PGN", provinceNode);
-    provinceGroup.setMemberFacilities(newHashSet(new Facility("C4"),
-        new Facility("C5")));
-    addSupportedPrograms(provinceGroup);
-    RequisitionGroupProgramSchedule provinceGroupProgramSchedule =
-        RequisitionGroupProgramSchedule.newRequisitionGroupProgramSchedule(
-            provinceGroup, program, processingSchedule, false);
-    provinceGroup.setRequisitionGroupProgramSchedules(
-        Collections.singletonList(provinceGroupProgramSchedule));
-    provinceNode.setRequisitionGroup(provinceGroup);
-
-    districtNode.assignParentNode(provinceNode);
-
-    return provinceNode;
-  }
-
-  private void addSupportedPrograms(RequisitionGroup group) {
-    group
-        .getMemberFacilities()
-        .forEach(facility -> facility
-            .setSupportedPrograms(newHashSet(new SupportedProgramDataBuilder()
-                .withFacility(facility).withProgram(program).build())));
+  private Set<UUID> getSupervisedFacilityIds() {
+    return newHashSet(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
   }
 }
@@ -0,0 +1,58 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.dto;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.UUID;
+import org.junit.Test;
+
+public class CompactPermissionStringsDtoTest {
+
+  private static final String RIGHT = "RIGHT";
+  private static final String OTHER_RIGHT = "OTHER_RIGHT";
+
+  @Test
+  public void shouldEncodeEachRightFacilityAndProgramOnce() {
+    // given
+    UUID facilityId = UUID.randomUUID();
+    UUID programId = UUID.randomUUID();
+    UUID otherProgramId = UUID.randomUUID();
+
+    // when
+    CompactPermissionStringsDto compact = CompactPermissionStringsDto.of(2, "digest",
+        Arrays.asList(
+            RIGHT + '|' + facilityId + '|' + programId,
+            RIGHT + '|' + facilityId + '|' + otherProgramId,
+            OTHER_RIGHT + '|' + facilityId,
+            OTHER_RIGHT));
+
+    // then
+    assertEquals(2, compact.getVersion());
+    assertEquals("digest", compact.getDigest());
+    assertEquals(Arrays.asList(RIGHT, OTHER_RIGHT), compact.getRights());
+    assertEquals(Arrays.asList(facilityId.toString()), compact.getFacilities());
+    assertEquals(Arrays.asList(programId.toString(), otherProgramId.toString()),
+        compact.getPrograms());
+    assertEquals(4, compact.getPermissions().size());
+    assertArrayEquals(new int[]{0, 0, 0}, compact.getPermissions().get(0));
+    assertArrayEquals(new int[]{0, 0, 1}, compact.getPermissions().get(1));
+    assertArrayEquals(new int[]{1, 0}, compact.getPermissions().get(2));
+    assertArrayEquals(new int[]{1}, compact.getPermissions().get(3));
+  }
+}
@@ -16,17 +16,29 @@
 package org.openlmis.referencedata.repository.custom.impl;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import java.util.UUID;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.util.KeysetPageable;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
 
 public class PageableUtilTest {
 
+  private static final Map<String, String> SORTABLE_COLUMNS = ImmutableMap.of(
+      "name", "f.name", "goLiveDate", "f.golivedate");
+
   @Test
   public void querysMaxAndFirstResultShouldBeSafeWithNullPageable() {
     // when
@@ -53,4 +65,57 @@ public class PageableUtilTest {
     assertEquals(10, maxAndFirst.getLeft());
     assertEquals(20, maxAndFirst.getRight());
   }
+
+  @Test
+  public void querysMaxAndFirstShouldFetchOneMoreRowForKeysetPageable() {
+    // given
+    Pageable pageable = KeysetPageable.of(PageRequest.of(3, 10), null, false, Sort.by("id"));
+
+    // when
+    Pair maxAndFirst = PageableUtil.querysMaxAndFirstResult(pageable);
+
+    // then
+    assertEquals(11, maxAndFirst.getLeft());
+    assertEquals(0, maxAndFirst.getRight());
+  }
+
+  @Test
+  public void shouldCompareUuidsAsUnsignedBytes() {
+    UUID low = UUID.fromString("7fffffff-ffff-ffff-ffff-ffffffffffff");
+    UUID high = UUID.fromString("80000000-0000-0000-0000-000000000000");
+
+    assertTrue(PageableUtil.compareUuids(low, high) < 0);
+    assertTrue(PageableUtil.compareUuids(high, low) > 0);
+    assertEquals(0, PageableUtil.compareUuids(low, UUID.fromString(low.toString())));
+  }
+
+  @Test
+  public void getOrderPredicateShouldMapSortedPropertiesToColumns() {
+    Pageable pageable = PageRequest.of(0, 10,
+        Sort.by(Direction.DESC, "goLiveDate").and(Sort.by(Direction.ASC, "name")));
+
+    assertEquals("f.golivedate DESC, f.name ASC",
+        PageableUtil.getOrderPredicate(pageable, SORTABLE_COLUMNS, "f.name ASC"));
+  }
+
+  @Test
+  public void getOrderPredicateShouldReturnDefaultSortIfPageableIsUnsorted() {
+    assertEquals("f.name ASC", PageableUtil
+        .getOrderPredicate(PageRequest.of(0, 10), SORTABLE_COLUMNS, "f.name ASC"));
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void getOrderPredicateShouldRejectPropertyOutsideOfWhitelist() {
+    Pageable pageable = PageRequest.of(0, 10,
+        Sort.by("name/(SELECT 1 FROM pg_sleep(10))"));
+
+    PageableUtil.getOrderPredicate(pageable, SORTABLE_COLUMNS, "f.name ASC");
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void getOrderPredicateShouldRejectAssociationProperty() {
+    Pageable pageable = PageRequest.of(0, 10, Sort.by("type.code"));
+
+    PageableUtil.getOrderPredicate(pageable, SORTABLE_COLUMNS, "f.name ASC");
+  }
 }
@@ -0,0 +1,130 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.repository.custom.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class RedisNearCacheTest {
+
+  private static final String NAME = "PROGRAM";
+
+  private RedisTemplate redisTemplate = mock(RedisTemplate.class);
+  private RedisNearCache<Object> nearCache;
+
+  private UUID id = UUID.randomUUID();
+  private Object value = new Object();
+
+  @Before
+  public void setUp() {
+    nearCache = new RedisNearCache<>(redisTemplate, NAME, 10, 60);
+  }
+
+  @Test
+  public void shouldReturnCachedValueAndCountHitsAndMisses() {
+    // when
+    Object miss = nearCache.get(id);
+    nearCache.put(id, value);
+    Object hit = nearCache.get(id);
+
+    // then
+    assertNull(miss);
+    assertSame(value, hit);
+    assertEquals(1, nearCache.getStats().hitCount());
+    assertEquals(1, nearCache.getStats().missCount());
+  }
+
+  @Test
+  public void shouldEvictEntriesAboveMaxSize() {
+    // given
+    nearCache = new RedisNearCache<>(redisTemplate, NAME, 0, 60);
+
+    // when
+    nearCache.put(id, value);
+
+    // then
+    assertNull(nearCache.get(id));
+    assertEquals(1, nearCache.getStats().evictionCount());
+  }
+
+  @Test
+  public void shouldInvalidateEntryAndPublishMessage() {
+    // given
+    nearCache.put(id, value);
+
+    // when
+    nearCache.invalidate(id);
+
+    // then
+    assertNull(nearCache.get(id));
+    verify(redisTemplate).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldInvalidateEntryOnMessage() {
+    // given
+    nearCache.put(id, value);
+    Message message = mock(Message.class);
+    when(message.getBody()).thenReturn(id.toString().getBytes(StandardCharsets.UTF_8));
+
+    // when
+    ((CacheInvalidator) ReflectionTestUtils.getField(nearCache, "invalidator"))
+        .onMessage(message, null);
+
+    // then
+    assertNull(nearCache.get(id));
+  }
+
+  @Test
+  public void shouldInvalidateAllEntriesFromSingleMessage() {
+    // given
+    UUID otherId = UUID.randomUUID();
+    nearCache.put(id, value);
+    nearCache.put(otherId, value);
+    Message message = mock(Message.class);
+    when(message.getBody())
+        .thenReturn((id + "," + otherId).getBytes(StandardCharsets.UTF_8));
+
+    // when
+    ((CacheInvalidator) ReflectionTestUtils.getField(nearCache, "invalidator"))
+        .onMessage(message, null);
+
+    // then
+    assertNull(nearCache.get(id));
+    assertNull(nearCache.get(otherId));
+  }
+
+  @Test
+  public void shouldUseChannelBasedOnName() {
+    assertEquals(RedisNearCache.CHANNEL_PREFIX + NAME, nearCache.getChannel());
+  }
+}
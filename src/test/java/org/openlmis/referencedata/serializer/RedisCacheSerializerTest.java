@@ -0,0 +1,92 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.serializer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.openlmis.referencedata.dto.ProgramDto;
+import org.openlmis.referencedata.serializer.RedisCacheSerializer.Format;
+
+public class RedisCacheSerializerTest {
+
+  private ObjectMapper jsonMapper = new ObjectMapper();
+  private ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+
+  private ProgramDto program;
+
+  @Before
+  public void setUp() {
+    program = new ProgramDto();
+    program.setId(UUID.randomUUID());
+    program.setCode("PRG001");
+    program.setName("Family Planning");
+    program.setActive(true);
+  }
+
+  @Test
+  public void shouldWriteAndReadJson() {
+    RedisCacheSerializer<ProgramDto> serializer = createSerializer(Format.JSON, 0);
+
+    byte[] bytes = serializer.serialize(program);
+
+    assertEquals('{', bytes[0]);
+    assertEquals(program, serializer.deserialize(bytes));
+  }
+
+  @Test
+  public void shouldWriteAndReadSmile() {
+    RedisCacheSerializer<ProgramDto> serializer = createSerializer(Format.SMILE, 0);
+
+    byte[] bytes = serializer.serialize(program);
+
+    assertEquals(':', bytes[0]);
+    assertEquals(program, serializer.deserialize(bytes));
+  }
+
+  @Test
+  public void shouldCompressValuesAboveThreshold() {
+    RedisCacheSerializer<ProgramDto> serializer = createSerializer(Format.SMILE, 1);
+
+    byte[] bytes = serializer.serialize(program);
+
+    assertEquals((byte) 0x1f, bytes[0]);
+    assertEquals((byte) 0x8b, bytes[1]);
+    assertEquals(program, serializer.deserialize(bytes));
+  }
+
+  @Test
+  public void shouldReadJsonWrittenBeforeSwitchingToSmile() {
+    byte[] legacy = createSerializer(Format.JSON, 0).serialize(program);
+
+    assertEquals(program, createSerializer(Format.SMILE, 1).deserialize(legacy));
+  }
+
+  @Test
+  public void shouldReturnNullForMissingValue() {
+    assertNull(createSerializer(Format.JSON, 0).deserialize(null));
+  }
+
+  private RedisCacheSerializer<ProgramDto> createSerializer(Format format, int threshold) {
+    return new RedisCacheSerializer<>(jsonMapper, smileMapper, ProgramDto.class, format,
+        threshold);
+  }
+}
@@ -0,0 +1,153 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.verify;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.util.Collections;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.dto.ApprovedProductDto;
+import org.openlmis.referencedata.repository.FacilityTypeApprovedProductRepository;
+import org.openlmis.referencedata.service.ApprovedProductsSnapshotCache.Key;
+import org.openlmis.referencedata.service.ApprovedProductsSnapshotCache.Snapshot;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.openlmis.referencedata.util.Pagination;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ApprovedProductsSnapshotCacheTest {
+
+  private static final Pageable PAGEABLE = PageRequest.of(0, Integer.MAX_VALUE);
+
+  @Spy
+  private ObjectMapper objectMapper = new ObjectMapper();
+
+  @Mock
+  private RedisTemplate redisTemplate;
+
+  @Mock
+  private FacilityTypeApprovedProductRepository facilityTypeApprovedProductRepository;
+
+  @InjectMocks
+  private ApprovedProductsSnapshotCache cache;
+
+  private Key key = new Key(UUID.randomUUID(), UUID.randomUUID(), true, true);
+  private Page<ApprovedProductDto> page;
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(cache, "maxSize", 10);
+    ReflectionTestUtils.setField(cache, "timeToLive", 60);
+    cache.init();
+
+    ApprovedProductDto product = new ApprovedProductDto();
+    product.setId(UUID.randomUUID());
+    page = Pagination.getPage(Collections.singletonList(product), PAGEABLE);
+  }
+
+  @Test
+  public void shouldCacheEncodedPageWithContentHash() throws Exception {
+    // when
+    Snapshot snapshot = cache.put(key, cache.getGeneration(), page);
+
+    // then
+    assertSame(snapshot, cache.get(key));
+    assertArrayEquals(objectMapper.writeValueAsBytes(page), snapshot.getBody());
+    assertEquals(snapshot.getEtag(), cache.put(key, cache.getGeneration(), page).getEtag());
+  }
+
+  @Test
+  public void shouldChangeETagWhenContentChanges() {
+    // given
+    Snapshot snapshot = cache.put(key, cache.getGeneration(), page);
+
+    // when
+    Snapshot changed = cache.put(key, cache.getGeneration(), Pagination.getPage(
+        Collections.<ApprovedProductDto>emptyList(), PAGEABLE));
+
+    // then
+    assertNotEquals(snapshot.getEtag(), changed.getEtag());
+  }
+
+  @Test
+  public void shouldNotCachePageLoadedBeforeInvalidation() {
+    // given
+    long generation = cache.getGeneration();
+    cache.invalidateAll();
+
+    // when
+    Snapshot snapshot = cache.put(key, generation, page);
+
+    // then
+    assertNull(cache.get(key));
+    assertArrayEquals(snapshot.getBody(), cache.put(key, cache.getGeneration(), page).getBody());
+  }
+
+  @Test
+  public void shouldInvalidateSnapshotsAndPublishMessage() {
+    // given
+    cache.put(key, cache.getGeneration(), page);
+
+    // when
+    cache.invalidateAll();
+
+    // then
+    assertNull(cache.get(key));
+    verify(facilityTypeApprovedProductRepository).evictFacilityTypes();
+    verify(redisTemplate).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldInvalidateSnapshotsOnMessage() {
+    // given
+    cache.put(key, cache.getGeneration(), page);
+
+    // when
+    receiveInvalidation(CacheInvalidator.ALL_KEYS);
+
+    // then
+    assertNull(cache.get(key));
+    verify(facilityTypeApprovedProductRepository).evictFacilityTypes();
+  }
+
+  private void receiveInvalidation(String body) {
+    CacheInvalidator invalidator =
+        (CacheInvalidator) ReflectionTestUtils.getField(cache, "invalidator");
+    invalidator.onMessage(new DefaultMessage(invalidator.getChannel().getBytes(),
+        body.getBytes()), null);
+  }
+}
@@ -0,0 +1,315 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.gson.JsonParser;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import org.javers.core.Javers;
+import org.javers.core.JaversBuilder;
+import org.javers.core.diff.Change;
+import org.javers.core.metamodel.annotation.Id;
+import org.javers.repository.jql.JqlQuery;
+import org.javers.repository.jql.QueryBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.domain.Facility;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.service.AuditLogService.ChangePage;
+import org.openlmis.referencedata.util.PageCursor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AuditLogServiceTest {
+
+  @Mock
+  private Javers javers;
+
+  @Mock
+  private NamedParameterJdbcTemplate jdbcTemplate;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @InjectMocks
+  private AuditLogService auditLogService;
+
+  @Captor
+  private ArgumentCaptor<String> sqlCaptor;
+
+  @Captor
+  private ArgumentCaptor<MapSqlParameterSource> paramsCaptor;
+
+  private Javers realJavers = JaversBuilder.javers().build();
+  private UUID id = UUID.randomUUID();
+  private AuditLogSearchParams params = new AuditLogSearchParams();
+
+  @Before
+  public void setUp() {
+    when(javers.getJsonConverter()).thenReturn(realJavers.getJsonConverter());
+    when(javers.findChanges(any(JqlQuery.class))).thenReturn(Collections.emptyList());
+    when(jdbcTemplate.queryForObject(anyString(), any(MapSqlParameterSource.class),
+        eq(Integer.class))).thenReturn(1);
+  }
+
+  @Test
+  public void shouldNotAskJaversForChangesIfNoCommitMatches() throws Exception {
+    mockCommits();
+
+    ChangePage page = auditLogService.getChanges(Facility.class, id, params,
+        PageRequest.of(0, 10));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    auditLogService.writeJson(page, outputStream);
+
+    assertEquals("[]", outputStream.toString(StandardCharsets.UTF_8.name()));
+    assertNull(page.getNextCursor());
+    verify(javers, never()).findChanges(any(JqlQuery.class));
+  }
+
+  @Test
+  public void shouldNotAskJaversForChangesUntilPageIsWritten() {
+    mockCommits(3L);
+
+    auditLogService.getChanges(Facility.class, id, params, PageRequest.of(0, 10));
+
+    verify(javers, never()).findChanges(any(JqlQuery.class));
+  }
+
+  @Test
+  public void shouldAskJaversForChangesOneBatchOfCommitsAtATime() throws Exception {
+    Long[] pks = new Long[AuditLogService.COMMIT_BATCH_SIZE * 2 + 1];
+
+    for (int i = 0; i < pks.length; ++i) {
+      pks[i] = (long) (pks.length - i);
+    }
+
+    mockCommits(pks);
+
+    ChangePage page = auditLogService.getChanges(Facility.class, id, params,
+        PageRequest.of(0, pks.length));
+    auditLogService.writeJson(page, new ByteArrayOutputStream());
+
+    verify(javers, times(3)).findChanges(any(JqlQuery.class));
+  }
+
+  @Test
+  public void shouldEscapeChangedPropertyNameInQuery() {
+    mockCommits();
+    params.setChangedPropertyName("a_b%c\\d");
+
+    auditLogService.getChanges(Facility.class, id, params, PageRequest.of(0, 10));
+
+    verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(),
+        any(RowMapper.class));
+
+    assertEquals("%\"a\\_b\\%c\\\\d\"%", paramsCaptor.getValue().getValue("property"));
+    assertThat(sqlCaptor.getValue(), containsString("ESCAPE '\\'"));
+  }
+
+  @Test
+  public void shouldFilterCommitsInQuery() throws Exception {
+    mockCommits(3L);
+    params.setAuthor("admin");
+    params.setChangedPropertyName("name");
+    params.setFrom(ZonedDateTime.of(2020, 1, 1, 12, 0, 0, 0, ZoneId.of("+02:00")));
+    params.setTo(ZonedDateTime.of(2020, 2, 1, 12, 0, 0, 0, ZoneId.of("UTC")));
+
+    ChangePage page = auditLogService.getChanges(Facility.class, id, params,
+        PageRequest.of(1, 10));
+    auditLogService.writeJson(page, new ByteArrayOutputStream());
+
+    verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(),
+        any(RowMapper.class));
+
+    MapSqlParameterSource sqlParams = paramsCaptor.getValue();
+    assertEquals("Facility", sqlParams.getValue("typeName"));
+    assertEquals(Collections.singletonList("\"" + id + "\""), sqlParams.getValue("localIds"));
+    assertEquals("admin", sqlParams.getValue("author"));
+    assertEquals("%\"name\"%", sqlParams.getValue("property"));
+    assertEquals(Timestamp.valueOf("2020-01-01 10:00:00"), sqlParams.getValue("from"));
+    assertEquals(Timestamp.valueOf("2020-02-01 12:00:00"), sqlParams.getValue("to"));
+    assertEquals(11, sqlParams.getValue("limit"));
+    assertEquals(10L, sqlParams.getValue("offset"));
+    assertThat(sqlCaptor.getValue(), containsString("c.author = :author"));
+    assertThat(sqlCaptor.getValue(), not(containsString(":cursor")));
+    verify(javers).findChanges(any(JqlQuery.class));
+  }
+
+  @Test
+  public void shouldReturnCursorOfNextPage() {
+    mockCommits(9L, 7L, 4L);
+
+    ChangePage page = auditLogService.getChanges(Facility.class, id, params,
+        PageRequest.of(0, 2));
+
+    PageCursor cursor = PageCursor.decode(page.getNextCursor());
+    assertEquals(id, cursor.getId());
+    assertEquals(Long.valueOf(7L), cursor.getValue(AuditLogService.CURSOR_KEY, Long::valueOf));
+  }
+
+  @Test
+  public void shouldNotReturnCursorOfLastPage() {
+    mockCommits(9L, 7L);
+
+    ChangePage page = auditLogService.getChanges(Facility.class, id, params,
+        PageRequest.of(0, 2));
+
+    assertNull(page.getNextCursor());
+  }
+
+  @Test
+  public void shouldContinueAfterCursor() {
+    mockCommits(4L);
+    params.setCursor(PageCursor.of(AuditLogService.CURSOR_KEY, id, 7L).encode());
+
+    auditLogService.getChanges(Facility.class, id, params, PageRequest.of(3, 2));
+
+    verify(jdbcTemplate).query(sqlCaptor.capture(), paramsCaptor.capture(),
+        any(RowMapper.class));
+
+    assertEquals(7L, paramsCaptor.getValue().getValue("cursor"));
+    assertThat(sqlCaptor.getValue(), not(containsString(":offset")));
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldRejectCursorOfOtherObject() {
+    params.setCursor(PageCursor.of(AuditLogService.CURSOR_KEY, UUID.randomUUID(), 7L).encode());
+
+    auditLogService.getChanges(Facility.class, id, params, PageRequest.of(0, 2));
+  }
+
+  @Test
+  public void shouldWriteChangesAsJsonArray() throws Exception {
+    List<Change> changes = commitItemChanges();
+    when(javers.findChanges(any(JqlQuery.class))).thenReturn(changes);
+    mockCommits(3L, 2L);
+
+    ChangePage page = auditLogService.getChanges(Facility.class, id, params,
+        PageRequest.of(0, 10));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    auditLogService.writeJson(page, outputStream);
+
+    JsonParser parser = new JsonParser();
+    assertEquals(parser.parse(realJavers.getJsonConverter().toJson(changes)),
+        parser.parse(outputStream.toString(StandardCharsets.UTF_8.name())));
+  }
+
+  @Test
+  public void shouldSkipChangesOfCommitsFromOutsideOfBatch() throws Exception {
+    List<Change> changes = commitItemChanges();
+    when(javers.findChanges(any(JqlQuery.class))).thenReturn(changes);
+    mockCommits(3L);
+
+    ChangePage page = auditLogService.getChanges(Facility.class, id, params,
+        PageRequest.of(0, 10));
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    auditLogService.writeJson(page, outputStream);
+
+    JsonParser parser = new JsonParser();
+    assertEquals(parser.parse(realJavers.getJsonConverter().toJson(changes.subList(0, 1))),
+        parser.parse(outputStream.toString(StandardCharsets.UTF_8.name())));
+  }
+
+  @Test
+  public void shouldNotAskJaversForChangesIfNoSnapshotMatches() throws Exception {
+    when(jdbcTemplate.queryForObject(anyString(), any(MapSqlParameterSource.class),
+        eq(Integer.class))).thenReturn(0);
+    mockCommits(1L);
+
+    ChangePage page = auditLogService.getChanges(Facility.class, id, params,
+        PageRequest.of(0, 10));
+    auditLogService.writeJson(page, new ByteArrayOutputStream());
+
+    verify(javers, never()).findChanges(any(JqlQuery.class));
+  }
+
+  private List<Change> commitItemChanges() {
+    realJavers.commit("admin", new Item("a", 1, "x"));
+    realJavers.commit("admin", new Item("a", 2, "x"));
+    realJavers.commit("admin", new Item("a", 2, "y"));
+
+    // newest first, one change in each of commits 2 and 3
+    List<Change> changes = new ArrayList<>(realJavers
+        .findChanges(QueryBuilder.byInstanceId("a", Item.class).build()));
+    assertEquals(2, changes.size());
+    return changes;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void mockCommits(Long... pks) {
+    when(jdbcTemplate.query(anyString(), any(MapSqlParameterSource.class), any(RowMapper.class)))
+        .thenAnswer(invocation -> {
+          RowMapper<Object> mapper = (RowMapper<Object>) invocation.getArguments()[2];
+          List<Object> commits = new ArrayList<>();
+
+          for (int i = 0; i < pks.length; ++i) {
+            ResultSet rs = mock(ResultSet.class);
+            when(rs.getLong("commit_pk")).thenReturn(pks[i]);
+            when(rs.getBigDecimal("commit_id")).thenReturn(BigDecimal.valueOf(pks[i]));
+            when(rs.getTimestamp("commit_date")).thenReturn(new Timestamp(pks[i] * 1000));
+            commits.add(mapper.mapRow(rs, i));
+          }
+
+          return commits;
+        });
+  }
+
+  private static final class Item {
+    @Id
+    private final String name;
+    private final int number;
+    private final String label;
+
+    Item(String name, int number, String label) {
+      this.name = name;
+      this.number = number;
+      this.label = label;
+    }
+  }
+}
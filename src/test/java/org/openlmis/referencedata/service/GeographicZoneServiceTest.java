@@ -29,7 +29,7 @@ import static org.openlmis.referencedata.service.GeographicZoneService.NAME;
 import static org.openlmis.referencedata.service.GeographicZoneService.PARENT;
 
 import com.google.common.collect.Lists;
-import com.google.common.collect.Sets;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -63,6 +63,9 @@ public class GeographicZoneServiceTest {
   @Mock
   private GeographicLevelRepository geographicLevelRepository;
 
+  @Mock
+  private GeographicZoneTree geographicZoneTree;
+
   @Mock
   private GeographicZone parent;
 
@@ -95,27 +98,25 @@ public class GeographicZoneServiceTest {
 
   @Test
   public void shouldRetrieveOneDescendantWhenParentHasOneChild() {
-    mockFindIdByParent(parentId, childId);
+    mockZones(parentId, null, childId, parentId);
     assertGetAllZonesInHierarchy(parentId, childId);
   }
 
   @Test
   public void shouldRetrieveManyDescendantsWhenTheChildHasAChild() {
-    mockFindIdByParent(parentId, childId);
-    mockFindIdByParent(childId, childOfChildId);
-
+    mockZones(parentId, null, childId, parentId, childOfChildId, childId);
     assertGetAllZonesInHierarchy(parentId, childId, childOfChildId);
   }
 
   @Test
   public void shouldRetrieveManyDescendantsWhenParentHasManyChildren() {
-    mockFindIdByParent(parentId, childId, childOfChildId);
+    mockZones(parentId, null, childId, parentId, childOfChildId, parentId);
     assertGetAllZonesInHierarchy(parentId, childId, childOfChildId);
   }
 
   @Test
   public void shouldNotRetrieveAnyDescendantsWhenParentHasNoChildren() {
-    mockFindIdByParent(parentId);
+    mockZones(parentId, null);
     assertGetAllZonesInHierarchy(parentId);
   }
 
@@ -172,9 +173,14 @@ public class GeographicZoneServiceTest {
     assertEquals(geographicZones, actual.getContent());
   }
 
-  private void mockFindIdByParent(UUID parentId, UUID... children) {
-    when(geographicZoneRepository.findIdsByParent(parentId))
-        .thenReturn(Sets.newHashSet(children));
+  private void mockZones(UUID... zoneAndParentIds) {
+    Map<UUID, UUID> parents = new HashMap<>();
+    for (int i = 0; i < zoneAndParentIds.length; i += 2) {
+      parents.put(zoneAndParentIds[i], zoneAndParentIds[i + 1]);
+    }
+
+    when(geographicZoneTree.get())
+        .thenReturn(new GeographicZoneTree.Snapshot(Instant.now(), parents));
   }
 
   private void assertGetAllZonesInHierarchy(UUID parentId, UUID... expected) {
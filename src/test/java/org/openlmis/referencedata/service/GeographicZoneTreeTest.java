@@ -0,0 +1,175 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Sets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class GeographicZoneTreeTest {
+
+  @Mock
+  private JdbcTemplate template;
+
+  @Mock
+  private Clock clock;
+
+  @Mock
+  private RedisTemplate redisTemplate;
+
+  @InjectMocks
+  private GeographicZoneTree tree;
+
+  private UUID countryId = UUID.randomUUID();
+  private UUID regionId = UUID.randomUUID();
+  private UUID otherRegionId = UUID.randomUUID();
+  private UUID districtId = UUID.randomUUID();
+  private UUID otherCountryId = UUID.randomUUID();
+
+  private GeographicZoneTree.Snapshot snapshot;
+
+  @Before
+  public void setUp() {
+    Map<UUID, UUID> parents = new HashMap<>();
+    parents.put(countryId, null);
+    parents.put(regionId, countryId);
+    parents.put(otherRegionId, countryId);
+    parents.put(districtId, regionId);
+    parents.put(otherCountryId, null);
+
+    snapshot = new GeographicZoneTree.Snapshot(Instant.now(), parents);
+
+    ReflectionTestUtils.setField(tree, "timeToLive", 60L);
+    tree.init();
+  }
+
+  @Test
+  public void shouldReturnAllDescendantsOfZone() {
+    assertEquals(Sets.newHashSet(regionId, otherRegionId, districtId),
+        snapshot.getDescendantIds(countryId));
+    assertEquals(Sets.newHashSet(districtId), snapshot.getDescendantIds(regionId));
+  }
+
+  @Test
+  public void shouldReturnEmptySetForLeafOrUnknownZone() {
+    assertTrue(snapshot.getDescendantIds(districtId).isEmpty());
+    assertTrue(snapshot.getDescendantIds(otherCountryId).isEmpty());
+    assertTrue(snapshot.getDescendantIds(UUID.randomUUID()).isEmpty());
+  }
+
+  @Test
+  public void shouldReturnAncestorsStartingWithParent() {
+    assertEquals(Arrays.asList(regionId, countryId), snapshot.getAncestorIds(districtId));
+    assertTrue(snapshot.getAncestorIds(countryId).isEmpty());
+    assertTrue(snapshot.getAncestorIds(UUID.randomUUID()).isEmpty());
+  }
+
+  @Test
+  public void shouldNotLoopForeverIfZonesFormCycle() {
+    Map<UUID, UUID> parents = new HashMap<>();
+    parents.put(regionId, districtId);
+    parents.put(districtId, regionId);
+
+    GeographicZoneTree.Snapshot cycle = new GeographicZoneTree.Snapshot(Instant.now(), parents);
+
+    assertTrue(cycle.getDescendantIds(regionId).isEmpty());
+    assertEquals(2, cycle.getAncestorIds(regionId).size());
+  }
+
+  @Test
+  public void shouldReuseTreeUntilItExpiresOrIsInvalidated() {
+    Instant now = Instant.now();
+    when(clock.instant()).thenReturn(now);
+    GeographicZoneTree.Snapshot first = tree.get();
+
+    when(clock.instant()).thenReturn(now.plusSeconds(30));
+    assertSame(first, tree.get());
+
+    when(clock.instant()).thenReturn(now.plusSeconds(61));
+    GeographicZoneTree.Snapshot second = tree.get();
+    assertNotSame(first, second);
+
+    tree.invalidate();
+    assertNotSame(second, tree.get());
+  }
+
+  @Test
+  public void shouldNotKeepTreeBuiltFromDataReadBeforeInvalidation() {
+    when(clock.instant()).thenReturn(Instant.now());
+    doAnswer(invocation -> {
+      receiveInvalidation(CacheInvalidator.ALL_KEYS);
+      return null;
+    }).when(template).query(anyString(), any(RowCallbackHandler.class));
+
+    GeographicZoneTree.Snapshot first = tree.refresh();
+
+    assertNotSame(first, tree.get());
+  }
+
+  @Test
+  public void shouldPublishInvalidation() {
+    tree.invalidate();
+
+    verify(redisTemplate).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldDropTreeOnMessage() {
+    when(clock.instant()).thenReturn(Instant.now());
+    GeographicZoneTree.Snapshot first = tree.get();
+
+    receiveInvalidation(CacheInvalidator.ALL_KEYS);
+
+    assertNotSame(first, tree.get());
+  }
+
+  private void receiveInvalidation(String body) {
+    CacheInvalidator invalidator =
+        (CacheInvalidator) ReflectionTestUtils.getField(tree, "invalidator");
+    invalidator.onMessage(new DefaultMessage(invalidator.getChannel().getBytes(),
+        body.getBytes()), null);
+  }
+}
@@ -51,18 +51,6 @@ public class IdealStockAmountServiceTest {
     MockitoAnnotations.initMocks(this);
   }
 
-  @Test
-  public void shouldCallRepositorySearch() {
-    when(repository.search(null))
-        .thenReturn(Collections.singletonList(isaId));
-    when(repository.findAllById(any(Iterable.class)))
-        .thenReturn(Collections.singletonList(isa));
-
-    assertEquals(Collections.singletonList(isa), service.search());
-    verify(repository).search(null);
-    verify(repository).findAllById(any(Iterable.class));
-  }
-
   @Test
   public void shouldCallRepositorySearchWithListParameter() {
     when(repository.search(Collections.singletonList(isa)))
@@ -17,6 +17,7 @@ package org.openlmis.referencedata.service;
 
 import static org.hamcrest.Matchers.hasItem;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertThat;
 import static org.mockito.ArgumentMatchers.nullable;
 import static org.mockito.BDDMockito.given;
@@ -24,6 +25,7 @@ import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.anySetOf;
 import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.common.collect.Lists;
@@ -33,6 +35,7 @@ import java.time.ZonedDateTime;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
@@ -42,7 +45,9 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.referencedata.domain.Orderable;
+import org.openlmis.referencedata.domain.OrderableHighWaterMark;
 import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.repository.OrderableHighWaterMarkRepository;
 import org.openlmis.referencedata.repository.OrderableRepository;
 import org.openlmis.referencedata.repository.custom.OrderableRepositoryCustom.SearchParams;
 import org.openlmis.referencedata.util.Pagination;
@@ -73,6 +78,12 @@ public class OrderableServiceTest {
   @Mock
   private Orderable orderable2;
 
+  @Mock
+  private OrderableHighWaterMarkRepository orderableHighWaterMarkRepository;
+
+  @Mock
+  private OrderableHighWaterMark highWaterMark;
+
   @Mock
   private Pageable pageable;
 
@@ -306,4 +317,49 @@ public class OrderableServiceTest {
     verify(orderableRepository).findLatestModifiedDateByIds(queryMap.getIds());
     assertEquals(orderable2.getLastUpdated(), lastUpdated);
   }
+
+  @Test
+  public void shouldFindHighWaterMarkOfAllOrderablesIfQueryMapIsEmpty() {
+    // given
+    given(orderableHighWaterMarkRepository.findById(OrderableHighWaterMark.ALL_PROGRAMS))
+        .willReturn(Optional.of(highWaterMark));
+
+    // when
+    Optional<OrderableHighWaterMark> result = orderableService.findHighWaterMark(
+        new QueryOrderableSearchParams(searchParams), profiler);
+
+    // then
+    assertEquals(Optional.of(highWaterMark), result);
+    verifyZeroInteractions(orderableRepository);
+  }
+
+  @Test
+  public void shouldFindHighWaterMarkOfProgramIfOnlyProgramCodeIsGiven() {
+    // given
+    given(orderableHighWaterMarkRepository.findByProgramCode(programCode))
+        .willReturn(Optional.of(highWaterMark));
+    searchParams.add(PROGRAM_CODE, programCode);
+
+    // when
+    Optional<OrderableHighWaterMark> result = orderableService.findHighWaterMark(
+        new QueryOrderableSearchParams(searchParams), profiler);
+
+    // then
+    assertEquals(Optional.of(highWaterMark), result);
+  }
+
+  @Test
+  public void shouldNotFindHighWaterMarkIfOtherParamsAreGiven() {
+    // given
+    searchParams.add(CODE, "ORD1");
+    searchParams.add(PROGRAM_CODE, programCode);
+
+    // when
+    Optional<OrderableHighWaterMark> result = orderableService.findHighWaterMark(
+        new QueryOrderableSearchParams(searchParams), profiler);
+
+    // then
+    assertFalse(result.isPresent());
+    verifyZeroInteractions(orderableHighWaterMarkRepository);
+  }
 }
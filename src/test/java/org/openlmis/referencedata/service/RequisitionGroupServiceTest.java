@@ -16,8 +16,10 @@
 package org.openlmis.referencedata.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.Matchers.any;
-import static org.mockito.Mockito.doReturn;
+import static org.mockito.Matchers.anyCollection;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -34,20 +36,21 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.openlmis.referencedata.domain.Code;
+import org.openlmis.referencedata.domain.Facility;
 import org.openlmis.referencedata.domain.GeographicZone;
 import org.openlmis.referencedata.domain.Program;
 import org.openlmis.referencedata.domain.RequisitionGroup;
-import org.openlmis.referencedata.domain.SupervisoryNode;
+import org.openlmis.referencedata.dto.RequisitionGroupSummaryDto;
 import org.openlmis.referencedata.exception.ValidationMessageException;
 import org.openlmis.referencedata.repository.GeographicZoneRepository;
 import org.openlmis.referencedata.repository.ProgramRepository;
 import org.openlmis.referencedata.repository.RequisitionGroupRepository;
-import org.openlmis.referencedata.repository.SupervisoryNodeRepository;
+import org.openlmis.referencedata.testbuilder.FacilityDataBuilder;
 import org.openlmis.referencedata.util.Pagination;
 import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 
 public class RequisitionGroupServiceTest {
 
@@ -62,9 +65,6 @@ public class RequisitionGroupServiceTest {
   @Mock
   private GeographicZoneRepository geographicZoneRepository;
 
-  @Mock
-  private SupervisoryNodeRepository supervisoryNodeRepository;
-
   @Mock
   private ProgramRepository programRepository;
 
@@ -77,9 +77,6 @@ public class RequisitionGroupServiceTest {
   @Mock
   private Program program;
 
-  @Mock
-  private SupervisoryNode supervisoryNode;
-
   @Mock
   private RequisitionGroup requisitionGroup1;
 
@@ -130,23 +127,64 @@ public class RequisitionGroupServiceTest {
 
   @Test
   public void shouldReturnAllElementsIfNoSearchCriteriaProvided() {
-    when(requisitionGroupRepository.findAll()).thenReturn(requisitionGroups);
+    PageRequest sortedByName = PageRequest.of(0, 10, Sort.by(NAME));
+    when(pageable.getSort()).thenReturn(Sort.unsorted());
+    when(requisitionGroupRepository.findAll(sortedByName))
+        .thenReturn(Pagination.getPage(requisitionGroups, sortedByName, 2));
 
     Page<RequisitionGroup> actual = requisitionGroupService
         .searchRequisitionGroups(new HashMap<>(), pageable);
-    verify(requisitionGroupRepository).findAll();
+    verify(requisitionGroupRepository).findAll(sortedByName);
     assertEquals(requisitionGroups, actual.getContent());
   }
 
+  @Test
+  public void shouldReturnRequisitionGroupSummariesWithoutMemberFacilities() {
+    RequisitionGroupSummaryDto summary = new RequisitionGroupSummaryDto(
+        requisitionGroup1Id, "RG1", "RG-1", null, null, 3L);
+    Page<RequisitionGroupSummaryDto> page =
+        Pagination.getPage(Collections.singletonList(summary), pageable, 1);
+    when(requisitionGroupRepository.findAllSummaries(pageable)).thenReturn(page);
+
+    Page<RequisitionGroupSummaryDto> actual = requisitionGroupService
+        .getRequisitionGroupSummaries(pageable, false);
+
+    assertEquals(Collections.singletonList(summary), actual.getContent());
+    assertNull(summary.getMemberFacilities());
+    verify(requisitionGroupRepository, never()).findMemberFacilities(anyCollection());
+  }
+
+  @Test
+  public void shouldReturnRequisitionGroupSummariesWithMemberFacilities() {
+    RequisitionGroupSummaryDto summary = new RequisitionGroupSummaryDto(
+        requisitionGroup1Id, "RG1", "RG-1", null, null, 1L);
+    RequisitionGroupSummaryDto empty = new RequisitionGroupSummaryDto(
+        UUID.randomUUID(), "RG2", "RG-2", null, null, 0L);
+    Facility facility = new FacilityDataBuilder().build();
+    Page<RequisitionGroupSummaryDto> page =
+        Pagination.getPage(Lists.newArrayList(summary, empty), pageable, 2);
+    when(requisitionGroupRepository.findAllSummaries(pageable)).thenReturn(page);
+    when(requisitionGroupRepository.findMemberFacilities(anyCollection()))
+        .thenReturn(Collections.singletonMap(requisitionGroup1Id,
+            Collections.singleton(facility)));
+
+    requisitionGroupService.getRequisitionGroupSummaries(pageable, true);
+
+    verify(requisitionGroupRepository)
+        .findMemberFacilities(Lists.newArrayList(requisitionGroup1Id, empty.getId()));
+    assertEquals(1, summary.getMemberFacilities().size());
+    assertEquals(facility.getId(), summary.getMemberFacilities().iterator().next().getId());
+    assertEquals(0, empty.getMemberFacilities().size());
+  }
+
   @Test
   public void shouldSearchForRequisitionGroupsWithAllParametersProvided() {
+    UUID zoneId = UUID.randomUUID();
+    when(zone.getId()).thenReturn(zoneId);
     when(geographicZoneRepository.findByCode(any(String.class))).thenReturn(zone);
     when(programRepository.findByCode(any(Code.class))).thenReturn(program);
-    List<SupervisoryNode> nodes = Collections.singletonList(supervisoryNode);
-    doReturn(new PageImpl(nodes, pageable, nodes.size()))
-        .when(supervisoryNodeRepository).search(any(), any());
     when(requisitionGroupRepository.search(any(String.class), any(String.class),
-        any(Program.class), any(List.class), any(Pageable.class)))
+        any(Program.class), any(UUID.class), any(Pageable.class)))
         .thenReturn(Pagination.getPage(requisitionGroups, PageRequest.of(0, 2), 2));
 
     Map<String, Object> searchParams = new HashMap<>();
@@ -157,7 +195,7 @@ public class RequisitionGroupServiceTest {
 
     Page<RequisitionGroup> actual = requisitionGroupService
         .searchRequisitionGroups(searchParams, pageable);
-    verify(requisitionGroupRepository).search("code", "name", program, nodes, pageable);
+    verify(requisitionGroupRepository).search("code", "name", program, zoneId, pageable);
     assertEquals(requisitionGroups, actual.getContent());
   }
 }
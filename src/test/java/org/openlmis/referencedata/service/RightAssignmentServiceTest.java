@@ -16,29 +16,54 @@
 package org.openlmis.referencedata.service;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.Sets;
 import java.io.IOException;
-import java.io.InputStream;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Future;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.openlmis.referencedata.dto.RightAssignmentDto;
 import org.springframework.core.io.Resource;
+import org.springframework.core.task.SyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
 
 @RunWith(MockitoJUnitRunner.class)
 public class RightAssignmentServiceTest {
@@ -48,6 +73,18 @@ public class RightAssignmentServiceTest {
   @Mock
   private JdbcTemplate jdbcTemplate;
 
+  @Mock
+  private SupervisedFacilityIndex supervisedFacilityIndex;
+
+  @Mock
+  private UserPermissionCache userPermissionCache;
+
+  @Mock
+  private UserPermissionVersionService userPermissionVersionService;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
   @InjectMocks
   private RightAssignmentService rightAssignmentService;
 
@@ -56,15 +93,20 @@ public class RightAssignmentServiceTest {
   private UUID programId;
   
   @Before
-  public void setUp() {
+  public void setUp() throws IOException {
     userId = UUID.randomUUID();
     supervisoryNodeId = UUID.randomUUID();
     programId = UUID.randomUUID();
+
+    ReflectionTestUtils.setField(rightAssignmentService, "rightAssignmentTaskExecutor",
+        new SyncTaskExecutor());
+    ReflectionTestUtils.setField(rightAssignmentService, "incrementalEnabled", true);
+    ReflectionTestUtils.setField(rightAssignmentService, "userRightAssignmentsResource",
+        mockResource());
   }
 
   @Test
-  public void convertForInsertShouldConvertDirectFulfillmentAndHomeFacilityRightAssignments()
-      throws IOException {
+  public void convertForInsertShouldConvertDirectFulfillmentAndHomeFacilityRightAssignments() {
     // given
     RightAssignmentDto expected = new RightAssignmentDto(
         userId,
@@ -83,14 +125,8 @@ public class RightAssignmentServiceTest {
   }
 
   @Test
-  public void convertForInsertShouldConvertSupervisoryNodeRightAssignments()
-      throws IOException {
+  public void convertForInsertShouldConvertSupervisoryNodeRightAssignments() {
     // given
-    Resource resource = mock(Resource.class);
-    when(resource.getDescription()).thenReturn("description");
-    InputStream inputStream = spy(IOUtils.toInputStream("some data"));
-    when(resource.getInputStream()).thenReturn(inputStream);
-
     RightAssignmentDto rightAssignmentDto = new RightAssignmentDto(
         userId,
         RIGHT_NAME,
@@ -101,15 +137,13 @@ public class RightAssignmentServiceTest {
     UUID facility1Id = UUID.randomUUID();
     UUID facility2Id = UUID.randomUUID();
     List<UUID> facilityIds = Arrays.asList(facility1Id, facility2Id);
-    when(jdbcTemplate.queryForList(
-        any(String.class),
-        any(Class.class),
-        any(UUID.class),
-        any(UUID.class))).thenReturn(facilityIds);
-    
+    SupervisedFacilityIndex.Snapshot index = new SupervisedFacilityIndex.Snapshot(Instant.now(),
+        Collections.emptyMap(), Collections.emptyMap(), Collections.singletonMap(
+            ImmutablePair.of(supervisoryNodeId, programId), new HashSet<>(facilityIds)));
+
     // when
     Set<RightAssignmentDto> actual = rightAssignmentService
-        .convertForInsert(Collections.singletonList(rightAssignmentDto), resource);
+        .convertForInsert(Collections.singletonList(rightAssignmentDto), index);
 
     // then
     assertEquals(2, actual.size());
@@ -120,4 +154,207 @@ public class RightAssignmentServiceTest {
       assertTrue(facilityIds.contains(current.getFacilityId()));
     }
   }
+
+  @Test
+  public void findAffectedUserIdsShouldNotQueryDbForUserScope() throws IOException {
+    // given
+    UUID otherUserId = UUID.randomUUID();
+
+    // when
+    Set<UUID> actual = rightAssignmentService
+        .findAffectedUserIds(RightAssignmentScope.forUsers(userId, otherUserId, null));
+
+    // then
+    assertEquals(Sets.newHashSet(userId, otherUserId), actual);
+    verifyZeroInteractions(jdbcTemplate);
+  }
+
+  @Test
+  public void shouldRebuildAllRightAssignmentsIfIncrementalRegenerationIsDisabled()
+      throws IOException {
+    // given
+    Resource resource = mock(Resource.class);
+    when(resource.getDescription()).thenReturn("description");
+    when(resource.getInputStream()).thenReturn(IOUtils.toInputStream("some data"));
+    ReflectionTestUtils.setField(rightAssignmentService, "rightAssignmentsResource", resource);
+    ReflectionTestUtils.setField(rightAssignmentService, "incrementalEnabled", false);
+    when(jdbcTemplate.query(any(String.class), any(RowMapper.class)))
+        .thenReturn(Collections.emptyList());
+
+    // when
+    rightAssignmentService.regenerateRightAssignments(RightAssignmentScope.forUsers(userId));
+
+    // then
+    verify(jdbcTemplate).update(RightAssignmentService.DELETE_SQL);
+    verify(userPermissionVersionService).reset(Collections.emptyMap());
+    verify(userPermissionCache).invalidateAll();
+    verify(supervisedFacilityIndex).invalidate();
+  }
+
+  @Test
+  public void shouldDeleteOutdatedAndInsertMissingRightAssignmentsOfAffectedUsers() {
+    // given
+    UUID keptFacilityId = UUID.randomUUID();
+    UUID addedFacilityId = UUID.randomUUID();
+    UUID removedFacilityId = UUID.randomUUID();
+
+    mockIntermediateRightAssignments(
+        new RightAssignmentDto(userId, RIGHT_NAME, keptFacilityId, programId, null),
+        new RightAssignmentDto(userId, RIGHT_NAME, addedFacilityId, programId, null));
+    mockExistingRightAssignments(
+        new RightAssignmentDto(userId, RIGHT_NAME, keptFacilityId, programId),
+        new RightAssignmentDto(userId, RIGHT_NAME, removedFacilityId, programId));
+
+    // when
+    rightAssignmentService.regenerateRightAssignments(RightAssignmentScope.forUsers(userId));
+
+    // then
+    ArgumentCaptor<Map> previous = ArgumentCaptor.forClass(Map.class);
+    ArgumentCaptor<Map> current = ArgumentCaptor.forClass(Map.class);
+    verify(userPermissionVersionService).record(eq(Collections.singletonList(userId)),
+        previous.capture(), current.capture());
+    assertEquals(Sets.newHashSet(permissionString(keptFacilityId),
+        permissionString(removedFacilityId)), previous.getValue().get(userId));
+    assertEquals(Sets.newHashSet(permissionString(keptFacilityId),
+        permissionString(addedFacilityId)), current.getValue().get(userId));
+
+    // only the outdated right assignment is deleted
+    verify(jdbcTemplate).update(any(PreparedStatementCreator.class));
+    verify(userPermissionCache).invalidate(Collections.singleton(userId));
+  }
+
+  @Test
+  public void shouldNotDeleteAnythingIfRightAssignmentsDidNotChange() {
+    // given
+    UUID facilityId = UUID.randomUUID();
+    mockIntermediateRightAssignments(
+        new RightAssignmentDto(userId, RIGHT_NAME, facilityId, programId, null));
+    mockExistingRightAssignments(
+        new RightAssignmentDto(userId, RIGHT_NAME, facilityId, programId));
+
+    // when
+    rightAssignmentService.regenerateRightAssignments(RightAssignmentScope.forUsers(userId));
+
+    // then
+    verify(jdbcTemplate, never()).update(any(PreparedStatementCreator.class));
+  }
+
+  @Test
+  public void shouldMergeScopesRequestedWhileEarlierOnesAreWaiting() {
+    // given
+    List<Runnable> tasks = new ArrayList<>();
+    TaskExecutor executor = tasks::add;
+    ReflectionTestUtils.setField(rightAssignmentService, "rightAssignmentTaskExecutor", executor);
+    UUID otherUserId = UUID.randomUUID();
+    mockIntermediateRightAssignments();
+    mockExistingRightAssignments();
+
+    // when
+    Future<Void> first = rightAssignmentService
+        .regenerateRightAssignments(RightAssignmentScope.forUsers(userId));
+    Future<Void> second = rightAssignmentService
+        .regenerateRightAssignments(RightAssignmentScope.forUsers(otherUserId));
+
+    // then
+    assertEquals(1, tasks.size());
+    assertSame(first, second);
+    assertFalse(first.isDone());
+
+    tasks.get(0).run();
+
+    ArgumentCaptor<Collection> userIds = ArgumentCaptor.forClass(Collection.class);
+    verify(userPermissionVersionService, times(1))
+        .record(userIds.capture(), any(Map.class), any(Map.class));
+    assertEquals(Sets.newHashSet(userId, otherUserId), new HashSet<>(userIds.getValue()));
+    assertTrue(first.isDone());
+  }
+
+  @Test
+  public void shouldProcessScopeRequestedAfterEarlierOnesWereProcessed() {
+    // given
+    mockIntermediateRightAssignments();
+    mockExistingRightAssignments();
+
+    // when
+    rightAssignmentService.regenerateRightAssignments(RightAssignmentScope.forUsers(userId));
+    rightAssignmentService.regenerateRightAssignments(RightAssignmentScope.forUsers(userId));
+
+    // then
+    verify(userPermissionVersionService, times(2))
+        .record(anyCollectionOf(UUID.class), any(Map.class), any(Map.class));
+  }
+
+  @Test
+  public void shouldNotRebuildSupervisedFacilityIndexIfHierarchyDidNotChange() {
+    // given
+    mockIntermediateRightAssignments();
+    mockExistingRightAssignments();
+
+    // when
+    rightAssignmentService.regenerateRightAssignments(RightAssignmentScope.forUsers(userId));
+
+    // then
+    verify(supervisedFacilityIndex).get();
+    verify(supervisedFacilityIndex, never()).refresh();
+    verify(supervisedFacilityIndex, never()).invalidate();
+  }
+
+  @Test
+  public void shouldReloadOnlyChangedFacilitiesInSupervisedFacilityIndex() throws IOException {
+    // given
+    UUID facilityId = UUID.randomUUID();
+    ReflectionTestUtils.setField(rightAssignmentService, "usersAffectedByFacilitiesResource",
+        mockResource());
+    mockIntermediateRightAssignments();
+    mockExistingRightAssignments();
+
+    // when
+    rightAssignmentService
+        .regenerateRightAssignments(RightAssignmentScope.forFacilities(facilityId));
+
+    // then
+    verify(supervisedFacilityIndex).refreshFacilities(Collections.singleton(facilityId));
+    verify(supervisedFacilityIndex, never()).refresh();
+    verify(supervisedFacilityIndex).invalidate();
+  }
+
+  private String permissionString(UUID facilityId) {
+    return RIGHT_NAME + "|" + facilityId + "|" + programId;
+  }
+
+  private Resource mockResource() throws IOException {
+    Resource resource = mock(Resource.class);
+    when(resource.getDescription()).thenReturn("description");
+    when(resource.getInputStream())
+        .thenAnswer(invocation -> IOUtils.toInputStream("some data"));
+    return resource;
+  }
+
+  private void mockIntermediateRightAssignments(RightAssignmentDto... rightAssignments) {
+    when(jdbcTemplate.query(any(PreparedStatementCreator.class), any(RowMapper.class)))
+        .thenReturn(Arrays.asList(rightAssignments));
+  }
+
+  private void mockExistingRightAssignments(RightAssignmentDto... rightAssignments) {
+    doAnswer(invocation -> {
+      RowCallbackHandler handler = (RowCallbackHandler) invocation.getArguments()[1];
+      for (RightAssignmentDto rightAssignment : rightAssignments) {
+        handler.processRow(mockRow(rightAssignment));
+      }
+      return null;
+    }).when(jdbcTemplate).query(any(PreparedStatementCreator.class),
+        any(RowCallbackHandler.class));
+  }
+
+  private ResultSet mockRow(RightAssignmentDto rightAssignment) throws SQLException {
+    ResultSet resultSet = mock(ResultSet.class);
+    when(resultSet.getString("id")).thenReturn(UUID.randomUUID().toString());
+    when(resultSet.getString("userid")).thenReturn(rightAssignment.getUserId().toString());
+    when(resultSet.getString("rightname")).thenReturn(rightAssignment.getRightName());
+    when(resultSet.getString("facilityid"))
+        .thenReturn(rightAssignment.getFacilityId().toString());
+    when(resultSet.getString("programid"))
+        .thenReturn(rightAssignment.getProgramId().toString());
+    return resultSet;
+  }
 }
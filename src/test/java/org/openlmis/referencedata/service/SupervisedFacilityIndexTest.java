@@ -0,0 +1,208 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Sets;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import org.apache.commons.lang3.tuple.ImmutablePair;
+import org.apache.commons.lang3.tuple.Pair;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SupervisedFacilityIndexTest {
+
+  @Mock
+  private JdbcTemplate template;
+
+  @Mock
+  private Clock clock;
+
+  @Mock
+  private RedisTemplate redisTemplate;
+
+  @InjectMocks
+  private SupervisedFacilityIndex index;
+
+  private UUID parentNodeId = UUID.randomUUID();
+  private UUID childNodeId = UUID.randomUUID();
+  private UUID programId = UUID.randomUUID();
+  private UUID parentFacilityId = UUID.randomUUID();
+  private UUID childFacilityId = UUID.randomUUID();
+  private UUID unsupportedFacilityId = UUID.randomUUID();
+
+  private SupervisedFacilityIndex.Snapshot snapshot;
+
+  @Before
+  public void setUp() {
+    Map<UUID, Set<UUID>> childNodes = new HashMap<>();
+    childNodes.put(parentNodeId, Sets.newHashSet(childNodeId));
+
+    Map<UUID, Set<UUID>> memberFacilities = new HashMap<>();
+    memberFacilities.put(parentNodeId, Sets.newHashSet(parentFacilityId, unsupportedFacilityId));
+    memberFacilities.put(childNodeId, Sets.newHashSet(childFacilityId));
+
+    Map<Pair<UUID, UUID>, Set<UUID>> programMemberFacilities = new HashMap<>();
+    programMemberFacilities.put(ImmutablePair.of(parentNodeId, programId),
+        Sets.newHashSet(parentFacilityId));
+    programMemberFacilities.put(ImmutablePair.of(childNodeId, programId),
+        Sets.newHashSet(childFacilityId));
+
+    snapshot = new SupervisedFacilityIndex.Snapshot(Instant.now(), childNodes,
+        memberFacilities, programMemberFacilities);
+
+    ReflectionTestUtils.setField(index, "timeToLive", 60L);
+    index.init();
+  }
+
+  @Test
+  public void shouldReturnFacilitiesSupervisedByNodeAndItsChildNodesForProgram() {
+    assertEquals(Sets.newHashSet(parentFacilityId, childFacilityId),
+        snapshot.getSupervisedFacilityIds(parentNodeId, programId));
+    assertEquals(Sets.newHashSet(childFacilityId),
+        snapshot.getSupervisedFacilityIds(childNodeId, programId));
+  }
+
+  @Test
+  public void shouldReturnAllMemberFacilitiesIfProgramIsNotGiven() {
+    assertEquals(Sets.newHashSet(parentFacilityId, childFacilityId, unsupportedFacilityId),
+        snapshot.getSupervisedFacilityIds(parentNodeId, null));
+  }
+
+  @Test
+  public void shouldReturnEmptySetForUnknownNodeOrProgram() {
+    assertTrue(snapshot.getSupervisedFacilityIds(UUID.randomUUID(), programId).isEmpty());
+    assertTrue(snapshot.getSupervisedFacilityIds(parentNodeId, UUID.randomUUID()).isEmpty());
+  }
+
+  @Test
+  public void shouldCheckIfNodeSupervisesFacility() {
+    assertTrue(snapshot.supervises(parentNodeId, childFacilityId, programId));
+    assertFalse(snapshot.supervises(parentNodeId, unsupportedFacilityId, programId));
+  }
+
+  @Test
+  public void shouldReuseIndexUntilItExpires() {
+    Instant now = Instant.now();
+    when(clock.instant()).thenReturn(now);
+    SupervisedFacilityIndex.Snapshot first = index.get();
+
+    when(clock.instant()).thenReturn(now.plusSeconds(30));
+    assertSame(first, index.get());
+
+    when(clock.instant()).thenReturn(now.plusSeconds(61));
+    assertNotSame(first, index.get());
+  }
+
+  @Test
+  public void shouldReplaceMembershipsOfGivenFacilitiesOnly() {
+    UUID newFacilityId = UUID.randomUUID();
+
+    Map<UUID, Set<UUID>> memberFacilities = new HashMap<>();
+    memberFacilities.put(childNodeId, Sets.newHashSet(unsupportedFacilityId, newFacilityId));
+
+    Map<Pair<UUID, UUID>, Set<UUID>> programMemberFacilities = new HashMap<>();
+    programMemberFacilities.put(ImmutablePair.of(childNodeId, programId),
+        Sets.newHashSet(unsupportedFacilityId, newFacilityId));
+
+    SupervisedFacilityIndex.Snapshot updated = snapshot.withFacilities(
+        Sets.newHashSet(parentFacilityId, unsupportedFacilityId, newFacilityId),
+        memberFacilities, programMemberFacilities);
+
+    assertEquals(Sets.newHashSet(childFacilityId, unsupportedFacilityId, newFacilityId),
+        updated.getSupervisedFacilityIds(parentNodeId, programId));
+    assertEquals(Sets.newHashSet(childFacilityId, unsupportedFacilityId, newFacilityId),
+        updated.getSupervisedFacilityIds(parentNodeId, null));
+    assertEquals(Sets.newHashSet(parentFacilityId, childFacilityId),
+        snapshot.getSupervisedFacilityIds(parentNodeId, programId));
+  }
+
+  @Test
+  public void shouldNotQueryDatabaseIfNoFacilityChanged() {
+    when(clock.instant()).thenReturn(Instant.now());
+    SupervisedFacilityIndex.Snapshot first = index.get();
+
+    assertSame(first, index.refreshFacilities(Collections.emptySet()));
+    verify(template, times(3)).query(anyString(), any(RowCallbackHandler.class));
+  }
+
+  @Test
+  public void shouldNotKeepIndexBuiltFromDataReadBeforeInvalidation() {
+    when(clock.instant()).thenReturn(Instant.now());
+    doAnswer(invocation -> {
+      receiveInvalidation(CacheInvalidator.ALL_KEYS);
+      return null;
+    }).when(template).query(anyString(), any(RowCallbackHandler.class));
+
+    SupervisedFacilityIndex.Snapshot first = index.refresh();
+
+    assertNotSame(first, index.get());
+  }
+
+  @Test
+  public void shouldPublishInvalidation() {
+    index.invalidate();
+
+    verify(redisTemplate).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldDropIndexOnMessage() {
+    when(clock.instant()).thenReturn(Instant.now());
+    SupervisedFacilityIndex.Snapshot first = index.get();
+
+    receiveInvalidation(CacheInvalidator.ALL_KEYS);
+
+    assertNotSame(first, index.get());
+  }
+
+  private void receiveInvalidation(String body) {
+    CacheInvalidator invalidator =
+        (CacheInvalidator) ReflectionTestUtils.getField(index, "invalidator");
+    invalidator.onMessage(new DefaultMessage(invalidator.getChannel().getBytes(),
+        body.getBytes()), null);
+  }
+}
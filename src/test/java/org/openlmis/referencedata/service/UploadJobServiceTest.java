@@ -0,0 +1,236 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.IntConsumer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.domain.UploadJob;
+import org.openlmis.referencedata.exception.NotFoundException;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.i18n.MessageService;
+import org.openlmis.referencedata.repository.UploadJobRepository;
+import org.openlmis.referencedata.util.Message;
+import org.openlmis.referencedata.validate.CsvHeaderValidator;
+import org.openlmis.referencedata.web.csv.parser.CsvParser;
+import org.openlmis.referencedata.web.csv.recordhandler.CsvUploadResource;
+import org.springframework.context.MessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UploadJobServiceTest {
+
+  private static final String RESOURCE_NAME = "idealStockAmounts";
+  private static final String OWNER = "instance-1";
+
+  @Rule
+  public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Mock
+  private UploadJobRepository uploadJobRepository;
+
+  @Mock
+  private CsvParser csvParser;
+
+  @Mock
+  private CsvHeaderValidator csvHeaderValidator;
+
+  @Mock
+  private MessageService messageService;
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Mock
+  private CsvUploadResource resource;
+
+  @InjectMocks
+  private UploadJobService uploadJobService;
+
+  private File file;
+  private UploadJob job;
+
+  @Before
+  public void setUp() throws IOException {
+    file = temporaryFolder.newFile("isa.csv");
+    Files.write(file.toPath(), Arrays.asList("header", "row1", "row2", "row3"),
+        StandardCharsets.UTF_8);
+
+    job = UploadJob.newUploadJob(RESOURCE_NAME, "isa.csv", file.getPath(), true, 3);
+    job.setId(UUID.randomUUID());
+
+    when(resource.getName()).thenReturn(RESOURCE_NAME);
+
+    ReflectionTestUtils.setField(uploadJobService, "directory",
+        temporaryFolder.getRoot().getPath());
+    ReflectionTestUtils.setField(uploadJobService, "poolSize", 1);
+    ReflectionTestUtils.setField(uploadJobService, "owner", OWNER);
+    ReflectionTestUtils.setField(uploadJobService, "resources",
+        Collections.singletonList(resource));
+    uploadJobService.init();
+  }
+
+  @After
+  public void tearDown() {
+    uploadJobService.destroy();
+  }
+
+  @Test
+  public void shouldReturnResourceByName() {
+    assertThat(uploadJobService.getResource(RESOURCE_NAME)).isSameAs(resource);
+  }
+
+  @Test(expected = NotFoundException.class)
+  public void shouldThrowExceptionIfResourceDoesNotExist() {
+    uploadJobService.getResource("orderables");
+  }
+
+  @Test
+  public void shouldCompleteJobAndReportProgress() throws IOException {
+    mockJobClaimed(true);
+    when(csvParser.parse(any(), any(), eq(csvHeaderValidator), any(), any(), eq(true), any()))
+        .thenAnswer(invocation -> {
+          invocation.getArgument(6, IntConsumer.class).accept(2);
+          return 3;
+        });
+
+    uploadJobService.process(job.getId());
+
+    assertThat(job.getStatus()).isEqualTo(UploadJob.Status.COMPLETED);
+    assertThat(job.getProcessedRows()).isEqualTo(3);
+    assertThat(file).doesNotExist();
+    verify(uploadJobRepository).updateProcessedRows(job.getId(), 2);
+    verify(uploadJobRepository).save(job);
+  }
+
+  @Test
+  public void shouldFailJobWithLocalizedMessage() throws IOException {
+    mockJobClaimed(true);
+    ValidationMessageException exception = new ValidationMessageException("some.key");
+    when(csvParser.parse(any(), any(), any(), any(), any(), anyBoolean(), any()))
+        .thenThrow(exception);
+    when(messageSource.getMessage(eq("some.key"), any(Object[].class), any(Locale.class)))
+        .thenReturn("invalid");
+    when(messageService.localize(exception.asMessage()))
+        .thenAnswer(invocation -> ((Message) invocation.getArgument(0))
+            .localMessage(messageSource, Locale.ENGLISH));
+
+    uploadJobService.process(job.getId());
+
+    assertThat(job.getStatus()).isEqualTo(UploadJob.Status.FAILED);
+    assertThat(job.getErrorMessage()).isEqualTo("invalid");
+    assertThat(file).doesNotExist();
+    verify(uploadJobRepository).updateResult(job.getId(), UploadJob.Status.FAILED, "invalid",
+        job.getFinishedDate());
+    verify(uploadJobRepository, never()).save(job);
+  }
+
+  @Test
+  public void shouldNotProcessJobClaimedByAnotherWorker() {
+    mockJobClaimed(false);
+
+    uploadJobService.process(job.getId());
+
+    verifyZeroInteractions(csvParser);
+    verify(uploadJobRepository, never()).save(job);
+    assertThat(file).exists();
+  }
+
+  @Test
+  public void shouldKeepProgressOfFailedJob() throws IOException {
+    mockJobClaimed(true);
+    when(csvParser.parse(any(), any(), any(), any(), any(), anyBoolean(), any()))
+        .thenAnswer(invocation -> {
+          invocation.getArgument(6, IntConsumer.class).accept(2);
+          throw new IllegalStateException("broken");
+        });
+
+    uploadJobService.process(job.getId());
+
+    verify(uploadJobRepository).updateProcessedRows(job.getId(), 2);
+    verify(uploadJobRepository).updateResult(job.getId(), UploadJob.Status.FAILED, "broken",
+        job.getFinishedDate());
+    verify(uploadJobRepository, never()).save(job);
+  }
+
+  @Test
+  public void shouldRequeueUnfinishedJobsWithFiles() {
+    UploadJob lost = UploadJob.newUploadJob(RESOURCE_NAME, "lost.csv",
+        new File(temporaryFolder.getRoot(), "lost.csv").getPath(), true, 3);
+    lost.setId(UUID.randomUUID());
+    ReflectionTestUtils.setField(job, "status", UploadJob.Status.RUNNING);
+    ReflectionTestUtils.setField(lost, "status", UploadJob.Status.RUNNING);
+    when(uploadJobRepository.findByStatusIn(
+        Arrays.asList(UploadJob.Status.PENDING, UploadJob.Status.RUNNING)))
+        .thenReturn(Arrays.asList(job, lost));
+
+    uploadJobService.resume();
+
+    verify(uploadJobRepository).resetStatus(job.getId(), UploadJob.Status.RUNNING,
+        UploadJob.Status.PENDING, OWNER);
+    verify(uploadJobRepository, never()).resetStatus(eq(lost.getId()), any(), any(), any());
+  }
+
+  @Test
+  public void shouldNotRequeueJobsRunByOtherInstances() {
+    ReflectionTestUtils.setField(job, "status", UploadJob.Status.RUNNING);
+    when(uploadJobRepository.findByStatusIn(
+        Arrays.asList(UploadJob.Status.PENDING, UploadJob.Status.RUNNING)))
+        .thenReturn(Collections.singletonList(job));
+    when(uploadJobRepository.resetStatus(job.getId(), UploadJob.Status.RUNNING,
+        UploadJob.Status.PENDING, OWNER)).thenReturn(0);
+
+    uploadJobService.resume();
+
+    verify(uploadJobRepository, never()).updateStatus(any(), any(), any(), any(), any());
+  }
+
+  private void mockJobClaimed(boolean claimed) {
+    when(uploadJobRepository.updateStatus(eq(job.getId()), eq(UploadJob.Status.PENDING),
+        eq(UploadJob.Status.RUNNING), any(ZonedDateTime.class), eq(OWNER)))
+        .thenReturn(claimed ? 1 : 0);
+
+    if (claimed) {
+      when(uploadJobRepository.findById(job.getId())).thenReturn(Optional.of(job));
+    }
+  }
+}
@@ -0,0 +1,183 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.service;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.repository.RightAssignmentRepository;
+import org.openlmis.referencedata.util.CacheInvalidator;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UserPermissionCacheTest {
+
+  private static final String RIGHT_NAME = "RIGHT";
+
+  @Mock
+  private RightAssignmentRepository rightAssignmentRepository;
+
+  @Mock
+  private UserPermissionVersionService userPermissionVersionService;
+
+  @Mock
+  private RedisTemplate redisTemplate;
+
+  @InjectMocks
+  private UserPermissionCache cache;
+
+  private UUID userId = UUID.randomUUID();
+  private UUID facilityId = UUID.randomUUID();
+  private UUID programId = UUID.randomUUID();
+  private Set<String> permissionStrings = Sets.newHashSet(
+      RIGHT_NAME + "|" + facilityId + "|" + programId, "OTHER_RIGHT");
+
+  @Before
+  public void setUp() {
+    ReflectionTestUtils.setField(cache, "maxSize", 10);
+    ReflectionTestUtils.setField(cache, "timeToLive", 60);
+    cache.init();
+
+    when(rightAssignmentRepository.findByUser(userId)).thenReturn(permissionStrings);
+  }
+
+  @Test
+  public void shouldCompilePermissionsByRightFacilityAndProgram() {
+    // when
+    UserPermissions permissions = cache.get(userId);
+
+    // then
+    assertEquals(permissionStrings, permissions.getPermissionStrings());
+    assertTrue(permissions.hasRight(RIGHT_NAME));
+    assertTrue(permissions.hasRight(RIGHT_NAME, facilityId));
+    assertTrue(permissions.hasRight(RIGHT_NAME, facilityId, programId));
+    assertTrue(permissions.hasRight("OTHER_RIGHT"));
+    assertFalse(permissions.hasRight("OTHER_RIGHT", facilityId));
+    assertFalse(permissions.hasRight(RIGHT_NAME, UUID.randomUUID()));
+    assertFalse(permissions.hasRight(RIGHT_NAME, facilityId, UUID.randomUUID()));
+    assertFalse(permissions.hasRight("MISSING_RIGHT"));
+  }
+
+  @Test
+  public void shouldCompilePermissionsWithVersionAndDigest() {
+    // given
+    when(userPermissionVersionService.getVersion(userId)).thenReturn(7L);
+
+    // when
+    UserPermissions permissions = cache.get(userId);
+
+    // then
+    assertEquals(7L, permissions.getVersion());
+    assertEquals(UserPermissions.digest(Lists.newArrayList(permissionStrings)),
+        permissions.getDigest());
+    assertNotEquals(UserPermissions.digest(Collections.singleton("OTHER_RIGHT")),
+        permissions.getDigest());
+  }
+
+  @Test
+  public void shouldLoadPermissionsOnce() {
+    // when
+    UserPermissions permissions = cache.get(userId);
+
+    // then
+    assertSame(permissions, cache.get(userId));
+    verify(rightAssignmentRepository).findByUser(userId);
+  }
+
+  @Test
+  public void shouldInvalidatePermissionsOfUserAndPublishMessage() {
+    // given
+    UserPermissions permissions = cache.get(userId);
+
+    // when
+    cache.invalidate(Collections.singleton(userId));
+
+    // then
+    assertNotSame(permissions, cache.get(userId));
+    verify(rightAssignmentRepository, times(2)).findByUser(userId);
+    verify(redisTemplate).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldInvalidateAllPermissionsAndPublishMessage() {
+    // given
+    UserPermissions permissions = cache.get(userId);
+
+    // when
+    cache.invalidateAll();
+
+    // then
+    assertNotSame(permissions, cache.get(userId));
+    verify(redisTemplate).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldInvalidatePermissionsOfUsersOnMessage() {
+    // given
+    UserPermissions permissions = cache.get(userId);
+    UUID otherUserId = UUID.randomUUID();
+    UserPermissions other = cache.get(otherUserId);
+
+    // when
+    receiveInvalidation(userId.toString());
+
+    // then
+    assertNotSame(permissions, cache.get(userId));
+    assertSame(other, cache.get(otherUserId));
+  }
+
+  @Test
+  public void shouldInvalidateAllPermissionsOnMessage() {
+    // given
+    UserPermissions permissions = cache.get(userId);
+
+    // when
+    receiveInvalidation(CacheInvalidator.ALL_KEYS);
+
+    // then
+    assertNotSame(permissions, cache.get(userId));
+  }
+
+  private void receiveInvalidation(String body) {
+    CacheInvalidator invalidator =
+        (CacheInvalidator) ReflectionTestUtils.getField(cache, "invalidator");
+    invalidator.onMessage(new DefaultMessage(invalidator.getChannel().getBytes(),
+        body.getBytes()), null);
+  }
+}
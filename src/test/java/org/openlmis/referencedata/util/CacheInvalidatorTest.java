@@ -0,0 +1,161 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+
+package org.openlmis.referencedata.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public class CacheInvalidatorTest {
+
+  private static final String CHANNEL = "referencedata:test";
+
+  private RedisTemplate redisTemplate = mock(RedisTemplate.class);
+  private List<Collection<String>> cleared = new ArrayList<>();
+  private CacheInvalidator invalidator;
+
+  @Before
+  public void setUp() {
+    invalidator = new CacheInvalidator(redisTemplate, CHANNEL, cleared::add);
+  }
+
+  @After
+  public void tearDown() {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.clearSynchronization();
+    }
+  }
+
+  @Test
+  public void shouldClearAndPublishAtOnceOutsideOfTransaction() {
+    // when
+    invalidator.invalidate(Arrays.asList("a", "b"));
+
+    // then
+    assertEquals(Arrays.asList("a", "b"), cleared.get(0));
+    verify(redisTemplate).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldIgnoreEmptyKeys() {
+    // when
+    invalidator.invalidate(new ArrayList<>());
+
+    // then
+    assertTrue(cleared.isEmpty());
+    verify(redisTemplate, never()).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldClearAgainAndPublishOnceAfterCommit() {
+    // given
+    TransactionSynchronizationManager.initSynchronization();
+
+    // when
+    invalidator.invalidate(Arrays.asList("a"));
+    invalidator.invalidate(Arrays.asList("b"));
+
+    // then
+    assertEquals(2, cleared.size());
+    verify(redisTemplate, never()).execute(any(RedisCallback.class), eq(true));
+
+    // when
+    commit();
+
+    // then
+    assertEquals(3, cleared.size());
+    assertEquals(2, cleared.get(2).size());
+    verify(redisTemplate, times(1)).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldClearAllAfterCommitIfAllWereInvalidated() {
+    // given
+    TransactionSynchronizationManager.initSynchronization();
+
+    // when
+    invalidator.invalidate(Arrays.asList("a"));
+    invalidator.invalidateAll();
+    commit();
+
+    // then
+    assertNull(cleared.get(2));
+  }
+
+  @Test
+  public void shouldNotPutEntryLoadedBeforeInvalidation() {
+    // given
+    long generation = invalidator.getGeneration();
+    List<String> puts = new ArrayList<>();
+
+    // when
+    invalidator.invalidateAll();
+
+    // then
+    assertFalse(invalidator.putIfCurrent(generation, () -> puts.add("stale")));
+    assertTrue(invalidator.putIfCurrent(invalidator.getGeneration(), () -> puts.add("fresh")));
+    assertEquals(Arrays.asList("fresh"), puts);
+  }
+
+  @Test
+  public void shouldClearKeysOnMessage() {
+    // when
+    invalidator.onMessage(new DefaultMessage(CHANNEL.getBytes(), "a,b".getBytes()), null);
+
+    // then
+    assertEquals(Arrays.asList("a", "b"), cleared.get(0));
+    verify(redisTemplate, never()).execute(any(RedisCallback.class), eq(true));
+  }
+
+  @Test
+  public void shouldClearAllOnMessage() {
+    // when
+    invalidator.onMessage(new DefaultMessage(CHANNEL.getBytes(),
+        CacheInvalidator.ALL_KEYS.getBytes()), null);
+
+    // then
+    assertNull(cleared.get(0));
+  }
+
+  private void commit() {
+    List<TransactionSynchronization> synchronizations =
+        TransactionSynchronizationManager.getSynchronizations();
+    synchronizations.forEach(TransactionSynchronization::afterCommit);
+    synchronizations.forEach(synchronization -> synchronization
+        .afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+  }
+}
@@ -0,0 +1,124 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.google.common.collect.Lists;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import org.junit.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+public class KeysetPageTest {
+
+  private static final String KEY = "value";
+  private static final Sort KEYSET_ORDER = Sort.by(KEY, "id");
+
+  private List<UUID> rows = Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+
+  @Test
+  public void shouldReturnOriginalPageableIfKeysetIsNotRequested() {
+    Pageable pageable = PageRequest.of(2, 10);
+
+    assertThat(KeysetPageable.of(pageable, null, true, KEYSET_ORDER)).isSameAs(pageable);
+  }
+
+  @Test
+  public void shouldFetchOneMoreRowThanPageSize() {
+    KeysetPageable pageable = keyset(2, null, false);
+
+    assertThat(pageable.getLimit()).isEqualTo(3);
+    assertThat(pageable.getOffset()).isZero();
+    assertThat(pageable.hasPrevious()).isFalse();
+  }
+
+  @Test
+  public void shouldTrimExtraRowAndReturnCursorOfLastRow() {
+    KeysetPage<UUID> page = KeysetPage.of(rows, keyset(2, null, false), 0, this::cursorOf);
+
+    assertThat(page.getContent()).containsExactly(rows.get(0), rows.get(1));
+    assertThat(page.hasNext()).isTrue();
+    assertThat(page.isLast()).isFalse();
+    assertThat(page.isFirst()).isTrue();
+    assertThat(PageCursor.decode(page.getNextCursor()).getId()).isEqualTo(rows.get(1));
+    assertThat(page.getTotalElements()).isEqualTo(3);
+  }
+
+  @Test
+  public void shouldNotReturnCursorOfLastPage() {
+    String cursor = cursorOf(UUID.randomUUID()).encode();
+    KeysetPage<UUID> page = KeysetPage.of(rows, keyset(3, cursor, true), 10, this::cursorOf);
+
+    assertThat(page.getContent()).hasSize(3);
+    assertThat(page.getNextCursor()).isNull();
+    assertThat(page.isLast()).isTrue();
+    assertThat(page.isFirst()).isFalse();
+    assertThat(page.getTotalElements()).isEqualTo(10);
+  }
+
+  @Test
+  public void shouldKeepCursorWhenContentIsConverted() {
+    KeysetPage<UUID> page = KeysetPage.of(rows, keyset(1, null, false), 0, this::cursorOf);
+
+    Page<String> converted = Pagination.getPage(Lists.newArrayList(rows.get(0).toString()),
+        PageRequest.of(0, 1), page);
+
+    assertThat(converted).isInstanceOf(KeysetPage.class);
+    assertThat(((KeysetPage<String>) converted).getNextCursor()).isEqualTo(page.getNextCursor());
+    assertThat(converted.getContent()).containsExactly(rows.get(0).toString());
+  }
+
+  @Test
+  public void shouldReturnKeysetOrderInsteadOfRequestedSort() {
+    KeysetPage<UUID> page = KeysetPage.of(rows, keyset(2, null, false), 0, this::cursorOf);
+
+    assertThat(keyset(2, null, false).getSort()).isEqualTo(KEYSET_ORDER);
+    assertThat(page.getSort()).isEqualTo(KEYSET_ORDER);
+  }
+
+  @Test
+  public void shouldContinueAfterLastRowOnNextPageable() {
+    KeysetPage<UUID> page = KeysetPage.of(rows, keyset(2, null, false), 0, this::cursorOf);
+
+    KeysetPageable next = (KeysetPageable) page.nextPageable();
+
+    assertThat(next.getCursor().getId()).isEqualTo(rows.get(1));
+    assertThat(next.getPageSize()).isEqualTo(2);
+    assertThat(next.getSort()).isEqualTo(KEYSET_ORDER);
+    assertThat(next.isWithTotal()).isFalse();
+    assertThat(next.hasPrevious()).isTrue();
+    assertThat(next.first()).isEqualTo(keyset(2, null, false));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void shouldNotReturnNextPageableBeforePageIsRead() {
+    keyset(2, null, false).next();
+  }
+
+  private KeysetPageable keyset(int size, String cursor, boolean withTotal) {
+    return (KeysetPageable) KeysetPageable.of(PageRequest.of(0, size, Sort.by("other")), cursor,
+        withTotal, KEYSET_ORDER);
+  }
+
+  private PageCursor cursorOf(UUID row) {
+    return PageCursor.of(KEY, row, row.toString());
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.util;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import org.junit.Test;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+
+public class PageCursorTest {
+
+  private static final String KEY = "startDate";
+
+  private UUID id = UUID.randomUUID();
+
+  @Test
+  public void shouldDecodeEncodedCursor() {
+    PageCursor cursor = PageCursor.of(KEY, id, LocalDate.of(2020, 2, 1));
+
+    PageCursor decoded = PageCursor.decode(cursor.encode());
+
+    LocalDate value = decoded.getValue(KEY, LocalDate::parse);
+
+    assertThat(decoded).isEqualTo(cursor);
+    assertThat(value).isEqualTo(LocalDate.of(2020, 2, 1));
+  }
+
+  @Test
+  public void shouldDecodeCursorWithoutValue() {
+    PageCursor cursor = PageCursor.of("id", id, null);
+
+    PageCursor decoded = PageCursor.decode(cursor.encode());
+
+    assertThat(decoded.getId()).isEqualTo(id);
+    assertThat(decoded.getValue()).isNull();
+  }
+
+  @Test
+  public void shouldKeepSeparatorsInValue() {
+    PageCursor cursor = PageCursor.of("name", id, "first\nsecond");
+
+    String value = PageCursor.decode(cursor.encode()).getValue("name", String::valueOf);
+
+    assertThat(value).isEqualTo("first\nsecond");
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldRejectMalformedToken() {
+    PageCursor.decode("not a cursor");
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldRejectTokenWithoutId() {
+    PageCursor.decode(PageCursor.of(KEY, id, "2020-02-01").encode().substring(0, 4));
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldRejectCursorOfDifferentKey() {
+    PageCursor.of("name", id, "2020-02-01").getValue(KEY, LocalDate::parse);
+  }
+
+  @Test(expected = ValidationMessageException.class)
+  public void shouldRejectValueThatCanNotBeParsed() {
+    PageCursor.of(KEY, id, "yesterday").getValue(KEY, LocalDate::parse);
+  }
+}
@@ -18,6 +18,8 @@ package org.openlmis.referencedata.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
@@ -26,16 +28,24 @@ import static org.mockito.Mockito.when;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.tuple.Pair;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.runners.MockitoJUnitRunner;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.CopyManager;
 import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -69,7 +79,6 @@ public class Resource2DbTest {
     Resource resource = mock(Resource.class);
     InputStream inputStream = spy(IOUtils.toInputStream("some data"));
     when(resource.getInputStream()).thenReturn(inputStream);
-    when(template.batchUpdate(any(String.class), any(List.class))).thenReturn(new int[]{1});
 
     // when
     resource2Db.insertToDbFromCsv("sometable", resource);
@@ -79,6 +88,33 @@ public class Resource2DbTest {
     assertFalse(resource.isOpen());
   }
 
+  @Test
+  public void copyToDbShouldStreamRowsWithCopyManager() throws Exception {
+    // given
+    Connection connection = mock(Connection.class);
+    PGConnection pgConnection = mock(PGConnection.class);
+    CopyManager copyManager = mock(CopyManager.class);
+    CopyIn copyIn = mock(CopyIn.class);
+    when(connection.unwrap(PGConnection.class)).thenReturn(pgConnection);
+    when(pgConnection.getCopyAPI()).thenReturn(copyManager);
+    when(copyManager.copyIn(any(String.class))).thenReturn(copyIn);
+    when(copyIn.endCopy()).thenReturn(2L);
+    when(template.execute(any(ConnectionCallback.class))).thenAnswer(invocation ->
+        ((ConnectionCallback) invocation.getArguments()[0]).doInConnection(connection));
+
+    // when
+    resource2Db.copyToDb("sometable", Arrays.asList("Col1", "Col2"),
+        Arrays.asList(new Object[]{"a", null}, new Object[]{"b\"c", ""}).iterator());
+
+    // then
+    verify(copyManager).copyIn("COPY sometable (Col1,Col2) FROM STDIN WITH (FORMAT csv)");
+    ArgumentCaptor<byte[]> bytes = ArgumentCaptor.forClass(byte[].class);
+    verify(copyIn).writeToCopy(bytes.capture(), eq(0), anyInt());
+    assertEquals("\"a\",\n\"b\"\"c\",\"\"\n",
+        new String(bytes.getValue(), StandardCharsets.UTF_8));
+    verify(copyIn).endCopy();
+  }
+
   @Test
   public void resourceCsvToBatchedPairShouldReturnListPair() throws IOException {
     // given
@@ -39,6 +39,7 @@ import org.openlmis.referencedata.repository.CountResource;
 import org.openlmis.referencedata.repository.RightRepository;
 import org.openlmis.referencedata.repository.RoleAssignmentRepository;
 import org.openlmis.referencedata.repository.RoleRepository;
+import org.openlmis.referencedata.service.RightAssignmentScope;
 import org.openlmis.referencedata.service.RightAssignmentService;
 import org.openlmis.referencedata.service.RightService;
 import org.openlmis.referencedata.testbuilder.RightDataBuilder;
@@ -181,7 +182,8 @@ public class RoleControllerTest {
 
     //then
     verify(repository).saveAndFlush(updatedRole1);
-    verify(rightAssignmentService).regenerateRightAssignments();
+    verify(rightAssignmentService)
+        .regenerateRightAssignments(RightAssignmentScope.forRoles(role1.getId()));
   }
 
   @Test
@@ -198,7 +200,8 @@ public class RoleControllerTest {
 
     //then
     verify(repository).saveAndFlush(updatedRole1);
-    verify(rightAssignmentService).regenerateRightAssignments();
+    verify(rightAssignmentService)
+        .regenerateRightAssignments(RightAssignmentScope.forRoles(role1.getId()));
   }
 
   @Test
@@ -218,7 +221,8 @@ public class RoleControllerTest {
 
     //then
     verify(repository).saveAndFlush(updatedRole1);
-    verify(rightAssignmentService).regenerateRightAssignments();
+    verify(rightAssignmentService)
+        .regenerateRightAssignments(RightAssignmentScope.forRoles(role1.getId()));
   }
 
   @Test
@@ -238,7 +242,8 @@ public class RoleControllerTest {
 
     //then
     verify(repository).saveAndFlush(updatedRole1);
-    verify(rightAssignmentService).regenerateRightAssignments();
+    verify(rightAssignmentService)
+        .regenerateRightAssignments(RightAssignmentScope.forRoles(role1.getId()));
   }
 
   @Test
@@ -255,7 +260,8 @@ public class RoleControllerTest {
 
     //then
     verify(repository).saveAndFlush(updatedRole1);
-    verify(rightAssignmentService).regenerateRightAssignments();
+    verify(rightAssignmentService)
+        .regenerateRightAssignments(RightAssignmentScope.forRoles(role1.getId()));
   }
 
   @Test
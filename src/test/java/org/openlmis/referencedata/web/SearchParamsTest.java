@@ -86,6 +86,17 @@ public class SearchParamsTest {
     assertFalse(searchParams.containsKey(accessToken));
   }
 
+  @Test
+  public void shouldRemoveKeysetParamsWhenCreateObject() {
+    map.add("cursor", "token");
+    map.add("withTotal", "false");
+
+    SearchParams searchParams = new SearchParams(map);
+
+    assertFalse(searchParams.containsKey("cursor"));
+    assertFalse(searchParams.containsKey("withTotal"));
+  }
+
   @Test
   public void shouldRemovePageParamWhenCreateObject() {
     String page = "page";
@@ -244,6 +255,6 @@ public class SearchParamsTest {
     SearchParams params = new SearchParams(map);
 
     ToStringTestUtils.verify(SearchParams.class, params,
-        "PAGE", "SIZE", "SORT", "ZONE_ID", "ACCESS_TOKEN");
+        "PAGE", "SIZE", "SORT", "ZONE_ID", "ACCESS_TOKEN", "CURSOR", "WITH_TOTAL");
   }
 }
\ No newline at end of file
@@ -487,7 +487,8 @@ public class UserControllerTest {
         new FulfillmentRoleAssignment(fulfillmentRole1, user1, warehouse1);
 
     SupervisionRoleAssignment assignment2
-        = new SupervisionRoleAssignment(supervisionRole1, user1, program1, supervisoryNode1);
+        = new SupervisionRoleAssignment(supervisionRole1, user1, program1, supervisoryNode1,
+        Collections.emptySet());
 
     user1.assignRoles(assignment1);
     user1.assignRoles(assignment2);
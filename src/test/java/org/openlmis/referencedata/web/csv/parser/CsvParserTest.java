@@ -0,0 +1,225 @@
+/*
+ * This program is part of the OpenLMIS logistics management information system platform software.
+ * Copyright © 2017 VillageReach
+ *
+ * This program is free software: you can redistribute it and/or modify it under the terms
+ * of the GNU Affero General Public License as published by the Free Software Foundation, either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY;
+ * without even the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.
+ * See the GNU Affero General Public License for more details. You should have received a copy of
+ * the GNU Affero General Public License along with this program. If not, see
+ * http://www.gnu.org/licenses.  For additional information contact info@OpenLMIS.org.
+ */
+
+package org.openlmis.referencedata.web.csv.parser;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.openlmis.referencedata.util.messagekeys.CsvUploadMessageKeys.ERROR_UPLOAD_RECORDS_INVALID;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.runners.MockitoJUnitRunner;
+import org.openlmis.referencedata.domain.IdealStockAmount;
+import org.openlmis.referencedata.dto.IdealStockAmountCsvModel;
+import org.openlmis.referencedata.exception.ValidationMessageException;
+import org.openlmis.referencedata.i18n.MessageService;
+import org.openlmis.referencedata.util.Message;
+import org.openlmis.referencedata.validate.CsvHeaderValidator;
+import org.openlmis.referencedata.web.csv.model.ModelClass;
+import org.openlmis.referencedata.web.csv.processor.ParseCommodityType;
+import org.openlmis.referencedata.web.csv.processor.ParseProcessingPeriod;
+import org.openlmis.referencedata.web.csv.recordhandler.RecordProcessor;
+import org.springframework.context.MessageSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CsvParserTest {
+
+  private static final int ROWS = 25;
+  private static final int INVALID_AMOUNT = 5;
+
+  @Mock
+  private CsvHeaderValidator headerValidator;
+
+  @Mock
+  private PlatformTransactionManager transactionManager;
+
+  @Mock
+  private TransactionStatus transactionStatus;
+
+  @Mock
+  private MessageService messageService;
+
+  @Mock
+  private MessageSource messageSource;
+
+  @Mock
+  private EntityManager entityManager;
+
+  @InjectMocks
+  private CsvParser csvParser;
+
+  private ModelClass<IdealStockAmountCsvModel> modelClass =
+      new ModelClass<>(IdealStockAmountCsvModel.class);
+
+  private List<Integer> written = new ArrayList<>();
+  private boolean rejectInvalidAmount;
+
+  @Before
+  public void setUp() {
+    ParseCommodityType.SEPARATOR = "|";
+    ParseProcessingPeriod.SEPARATOR = "|";
+
+    ReflectionTestUtils.setField(csvParser, "chunkSize", 2);
+    ReflectionTestUtils.setField(csvParser, "poolSize", 4);
+    ReflectionTestUtils.setField(csvParser, "queueSize", 3);
+    csvParser.init();
+  }
+
+  @After
+  public void tearDown() {
+    csvParser.destroy();
+  }
+
+  @Test
+  public void shouldWriteChunksInReadOrder() throws IOException {
+    int result = csvParser.parse(getCsv(), modelClass, headerValidator,
+        getProcessor(), this::write);
+
+    assertEquals(ROWS, result);
+    assertThat(written).containsExactlyElementsOf(getAmounts(1, ROWS));
+    verify(transactionManager, never()).getTransaction(any(TransactionDefinition.class));
+    verify(entityManager, never()).flush();
+  }
+
+  @Test
+  public void shouldReportRowsOfChunkThatCouldNotBeProcessed() throws IOException {
+    when(messageService.localize(any(Message.class)))
+        .thenAnswer(invocation -> ((Message) invocation.getArgument(0))
+            .localMessage(messageSource, Locale.ENGLISH));
+    when(messageSource.getMessage(anyString(), any(Object[].class), any(Locale.class)))
+        .thenReturn("invalid amount");
+    rejectInvalidAmount = true;
+
+    try {
+      csvParser.parse(getCsv(), modelClass, headerValidator, getProcessor(), this::write);
+      fail("Expected the invalid chunk to be reported");
+    } catch (ValidationMessageException ex) {
+      assertEquals(new Message(ERROR_UPLOAD_RECORDS_INVALID), ex.asMessage());
+      assertEquals(ERROR_UPLOAD_RECORDS_INVALID + ": 5, 6, invalid amount", ex.getMessage());
+    }
+
+    assertThat(written).containsExactlyElementsOf(getAmounts(1, 4));
+  }
+
+  @Test
+  public void shouldWriteAllChunksInSingleTransaction() throws IOException {
+    when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+        .thenReturn(transactionStatus);
+
+    int result = csvParser.parse(getCsv(), modelClass, headerValidator,
+        getProcessor(), this::write, true);
+
+    assertEquals(ROWS, result);
+    assertThat(written).containsExactlyElementsOf(getAmounts(1, ROWS));
+    verify(transactionManager).getTransaction(any(TransactionDefinition.class));
+    verify(transactionManager).commit(transactionStatus);
+    verify(entityManager, times(13)).flush();
+    verify(entityManager, times(13)).clear();
+  }
+
+  @Test
+  public void shouldRollbackAllChunksIfAnyCouldNotBeWritten() throws IOException {
+    when(transactionManager.getTransaction(any(TransactionDefinition.class)))
+        .thenReturn(transactionStatus);
+
+    try {
+      csvParser.parse(getCsv(), modelClass, headerValidator, getProcessor(), entities -> {
+        write(entities);
+        if (written.size() > 10) {
+          throw new IllegalStateException("could not write");
+        }
+      }, true);
+      fail("Expected the write error to be rethrown");
+    } catch (IllegalStateException ex) {
+      assertEquals("could not write", ex.getMessage());
+    }
+
+    verify(transactionManager).rollback(transactionStatus);
+    verify(transactionManager, never()).commit(transactionStatus);
+  }
+
+  private RecordProcessor<IdealStockAmountCsvModel, IdealStockAmount> getProcessor() {
+    return records -> records
+        .stream()
+        .map(this::toIdealStockAmount)
+        .collect(Collectors.toList());
+  }
+
+  private IdealStockAmount toIdealStockAmount(IdealStockAmountCsvModel record) {
+    // earlier chunks take longer so they are finished after the later ones
+    sleep(ROWS - record.getAmount());
+
+    if (rejectInvalidAmount && INVALID_AMOUNT == record.getAmount()) {
+      throw new ValidationMessageException(new Message("amount.invalid"));
+    }
+
+    return new IdealStockAmount(null, null, null, record.getAmount());
+  }
+
+  private void write(Iterable<IdealStockAmount> entities) {
+    entities.forEach(entity -> written.add(entity.getAmount()));
+  }
+
+  private InputStream getCsv() {
+    StringBuilder csv =
+        new StringBuilder("Facility Code,Commodity Type,Period,Ideal Stock Amount\n");
+    for (int amount = 1; amount <= ROWS; ++amount) {
+      csv.append("facility-code,system|id,schedule|period,").append(amount).append('\n');
+    }
+
+    return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private List<Integer> getAmounts(int from, int to) {
+    List<Integer> amounts = new ArrayList<>();
+    for (int amount = from; amount <= to; ++amount) {
+      amounts.add(amount);
+    }
+    return amounts;
+  }
+
+  private void sleep(int millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
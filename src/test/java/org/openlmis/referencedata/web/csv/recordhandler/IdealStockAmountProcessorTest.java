@@ -15,14 +15,20 @@
 
 package org.openlmis.referencedata.web.csv.recordhandler;
 
+import static java.util.Collections.emptyList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
-import static org.mockito.Matchers.anyListOf;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
@@ -44,8 +50,6 @@ import org.openlmis.referencedata.repository.CommodityTypeRepository;
 import org.openlmis.referencedata.repository.FacilityRepository;
 import org.openlmis.referencedata.repository.ProcessingPeriodRepository;
 import org.openlmis.referencedata.repository.ProcessingScheduleRepository;
-import org.openlmis.referencedata.service.IdealStockAmountService;
-import org.openlmis.referencedata.validate.IdealStockAmountValidator;
 
 public class IdealStockAmountProcessorTest {
 
@@ -58,9 +62,6 @@ public class IdealStockAmountProcessorTest {
   @Mock
   private FacilityRepository facilityRepository;
 
-  @Mock
-  private IdealStockAmountService service;
-
   @Mock
   private ProcessingPeriodRepository processingPeriodRepository;
 
@@ -70,13 +71,9 @@ public class IdealStockAmountProcessorTest {
   @Mock
   private CommodityTypeRepository commodityTypeRepository;
 
-  @Mock
-  private IdealStockAmountValidator idealStockAmountsValidator;
-
   @InjectMocks
   private IdealStockAmountProcessor idealStockAmountProcessor;
 
-  private IdealStockAmount idealStockAmount;
   private Facility facility;
   private CommodityType commodityType;
   private ProcessingPeriod processingPeriod;
@@ -96,85 +93,100 @@ public class IdealStockAmountProcessorTest {
     processingPeriod.setName(PERIOD);
     processingPeriod.setProcessingSchedule(schedule);
 
-    idealStockAmount = new IdealStockAmount(facility, commodityType, processingPeriod, 1);
-
-    when(service.search(anyListOf(IdealStockAmount.class)))
-        .thenReturn(Collections.emptyList());
-
-    when(facilityRepository.findByCode(FACILITY_CODE)).thenReturn(Optional.of(facility));
-    when(processingScheduleRepository.findOneByCode(schedule.getCode()))
-        .thenReturn(Optional.of(schedule));
-    when(processingPeriodRepository.findOneByNameAndProcessingSchedule(PERIOD, schedule))
-        .thenReturn(Optional.of(processingPeriod));
-    when(commodityTypeRepository.findByClassificationIdAndClassificationSystem(ID, SYSTEM))
-        .thenReturn(Optional.of(commodityType));
+    when(facilityRepository.findByCodeIn(anyCollection()))
+        .thenReturn(singletonList(facility));
+    when(processingScheduleRepository.findByCodeIn(anyCollection()))
+        .thenReturn(singletonList(schedule));
+    when(processingPeriodRepository
+        .findByProcessingScheduleInAndNameIn(anyCollection(), anyCollection()))
+        .thenReturn(singletonList(processingPeriod));
+    when(commodityTypeRepository
+        .findByClassificationSystemInAndClassificationIdIn(anyCollection(), anyCollection()))
+        .thenReturn(singletonList(commodityType));
   }
 
   @Test
-  public void shouldUseExistingObject() {
-    when(service.search(anyListOf(IdealStockAmount.class)))
-        .thenReturn(Collections.singletonList(idealStockAmount));
+  public void shouldCreateNewObject() {
+    List<IdealStockAmount> result = idealStockAmountProcessor
+        .process(Collections.singletonList(createIsaDto()));
 
-    processAndCheckIsa();
+    assertEquals(1, result.size());
+    assertEquals(result.get(0).getFacility(), facility);
+    assertEquals(result.get(0).getAmount(), new Integer(1212));
+    assertEquals(result.get(0).getCommodityType(), commodityType);
+    assertEquals(result.get(0).getProcessingPeriod(), processingPeriod);
   }
 
   @Test
-  public void shouldCreateNewObject() {
-    when(service.search(anyListOf(IdealStockAmount.class)))
-        .thenReturn(Collections.emptyList());
+  public void shouldResolveReferencesOfChunkWithSingleQueryPerKind() {
+    List<IdealStockAmount> result = idealStockAmountProcessor
+        .process(Arrays.asList(createIsaDto(), createIsaDto(), createIsaDto()));
+
+    assertThat(result).hasSize(3);
+    verify(facilityRepository).findByCodeIn(Collections.singleton(FACILITY_CODE));
+    verify(processingScheduleRepository).findByCodeIn(Collections.singleton(Code.code(SCHEDULE)));
+    verify(processingPeriodRepository).findByProcessingScheduleInAndNameIn(
+        Collections.singleton(schedule), Collections.singleton(PERIOD));
+    verify(commodityTypeRepository).findByClassificationSystemInAndClassificationIdIn(
+        Collections.singleton(SYSTEM), Collections.singleton(ID));
+  }
 
-    processAndCheckIsa();
+  @Test
+  public void shouldReuseResolvedReferencesInNextChunks() {
+    idealStockAmountProcessor.process(Collections.singletonList(createIsaDto()));
+    idealStockAmountProcessor.process(Collections.singletonList(createIsaDto()));
+
+    verify(facilityRepository, times(1)).findByCodeIn(anyCollection());
+    verify(processingScheduleRepository, times(1)).findByCodeIn(anyCollection());
+    verify(processingPeriodRepository, times(1))
+        .findByProcessingScheduleInAndNameIn(anyCollection(), anyCollection());
+    verify(commodityTypeRepository, times(1))
+        .findByClassificationSystemInAndClassificationIdIn(anyCollection(), anyCollection());
   }
 
   @Test(expected = ValidationMessageException.class)
   public void shouldThrowExceptionIfFacilityNotFound() {
-    IdealStockAmountCsvModel isa = createIsaDto();
+    when(facilityRepository.findByCodeIn(anyCollection())).thenReturn(emptyList());
 
-    idealStockAmountsValidator.validate(isa);
-    when(service.search(anyListOf(IdealStockAmount.class)))
-        .thenReturn(Collections.emptyList());
-    when(facilityRepository.findByCode(FACILITY_CODE)).thenReturn(Optional.empty());
-
-    idealStockAmountProcessor.process(Collections.singletonList(isa));
+    idealStockAmountProcessor.process(Collections.singletonList(createIsaDto()));
   }
 
   @Test(expected = ValidationMessageException.class)
   public void shouldThrowExceptionIfSCheduleNotFound() {
-    IdealStockAmountCsvModel isa = createIsaDto();
+    when(processingScheduleRepository.findByCodeIn(anyCollection())).thenReturn(emptyList());
 
-    idealStockAmountsValidator.validate(isa);
-    when(service.search(anyListOf(IdealStockAmount.class)))
-        .thenReturn(Collections.emptyList());
-    when(processingScheduleRepository.findOneByCode(schedule.getCode()))
-        .thenReturn(Optional.empty());
+    idealStockAmountProcessor.process(Collections.singletonList(createIsaDto()));
+  }
 
-    idealStockAmountProcessor.process(Collections.singletonList(isa));
+  @Test
+  public void shouldNotSearchForPeriodsIfNoScheduleWasFound() {
+    when(processingScheduleRepository.findByCodeIn(anyCollection())).thenReturn(emptyList());
+
+    try {
+      idealStockAmountProcessor.process(Collections.singletonList(createIsaDto()));
+      fail("Expected the missing schedule to be reported");
+    } catch (ValidationMessageException ex) {
+      verify(processingPeriodRepository, never())
+          .findByProcessingScheduleInAndNameIn(anyCollection(), anyCollection());
+    }
   }
 
   @Test(expected = ValidationMessageException.class)
   public void shouldThrowExceptionIfPeriodNotFound() {
-    IdealStockAmountCsvModel isa = createIsaDto();
-
-    idealStockAmountsValidator.validate(isa);
-    when(service.search(anyListOf(IdealStockAmount.class)))
-        .thenReturn(Collections.emptyList());
-    when(processingPeriodRepository.findOneByNameAndProcessingSchedule(PERIOD, schedule))
-        .thenReturn(Optional.empty());
+    when(processingPeriodRepository
+        .findByProcessingScheduleInAndNameIn(anyCollection(), anyCollection()))
+        .thenReturn(emptyList());
 
-    idealStockAmountProcessor.process(Collections.singletonList(isa));
+    idealStockAmountProcessor.process(Collections.singletonList(createIsaDto()));
   }
 
   @Test(expected = ValidationMessageException.class)
   public void shouldThrowExceptionIfCommodityTypeNotFound() {
-    IdealStockAmountCsvModel isa = createIsaDto();
+    when(commodityTypeRepository
+        .findByClassificationSystemInAndClassificationIdIn(anyCollection(), anyCollection()))
+        .thenReturn(emptyList());
 
-    idealStockAmountsValidator.validate(isa);
-    when(service.search(anyListOf(IdealStockAmount.class)))
-        .thenReturn(Collections.emptyList());
-    when(commodityTypeRepository.findByClassificationIdAndClassificationSystem(ID, SYSTEM))
-        .thenReturn(Optional.empty());
-
-    idealStockAmountProcessor.process(Collections.singletonList(isa));
+    idealStockAmountProcessor.process(Collections.singletonList(createIsaDto()));
   }
 
   private IdealStockAmountCsvModel createIsaDto() {
@@ -191,20 +203,4 @@ public class IdealStockAmountProcessorTest {
 
     return new IdealStockAmountCsvModel(facilityDto, commodityTypeDto, processingPeriodDto, 1212);
   }
-
-  private void processAndCheckIsa() {
-    IdealStockAmountCsvModel isa = createIsaDto();
-    idealStockAmountsValidator.validate(isa);
-
-    List<IdealStockAmount> result = idealStockAmountProcessor
-        .process(Collections.singletonList(isa));
-
-    verify(idealStockAmountsValidator).validate(isa);
-    verify(service).search(anyListOf(IdealStockAmount.class));
-
-    assertEquals(result.get(0).getFacility(), facility);
-    assertEquals(result.get(0).getAmount(), new Integer(1212));
-    assertEquals(result.get(0).getCommodityType(), commodityType);
-    assertEquals(result.get(0).getProcessingPeriod(), processingPeriod);
-  }
 }
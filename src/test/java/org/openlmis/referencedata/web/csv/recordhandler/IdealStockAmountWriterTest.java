@@ -19,7 +19,6 @@ import static org.mockito.Mockito.verify;
 
 import java.time.LocalDate;
 import java.util.Arrays;
-import java.util.UUID;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.InjectMocks;
@@ -55,12 +54,9 @@ public class IdealStockAmountWriterTest {
   }
 
   @Test
-  public void shouldSetIdIfExistingItemFoundByCode() {
-    IdealStockAmount existingCatalogItem = new IdealStockAmount();
-    existingCatalogItem.setId(UUID.randomUUID());
-
+  public void shouldUpsertAllRecordsAtOnce() {
     idealStockAmountWriter.write(Arrays.asList(idealStockAmount));
 
-    verify(idealStockAmountRepository).saveAll(Arrays.asList(idealStockAmount));
+    verify(idealStockAmountRepository).upsert(Arrays.asList(idealStockAmount));
   }
 }